@@ -0,0 +1,44 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks matching the given regular expression (all the
+ * benchmarks if none is given) with the allocation profiler, i.e., the same as
+ * <code>java -jar target/benchmarks.jar [regexp] -prof gc</code>. Besides the
+ * time, it reports the allocation rate and the bytes allocated per
+ * operation, so that allocation regressions on the hot paths are visible
+ * before deploying.
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 8, 2014
+ */
+public class AllocationProfile {
+
+	public static void main(String[] args) throws RunnerException {
+		String include = (args.length > 0) ? args[0] : ".*Benchmark.*";
+		Options opt = new OptionsBuilder().include(include)
+				.addProfiler(GCProfiler.class).build();
+		new Runner(opt).run();
+	}
+}
@@ -0,0 +1,77 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.bench;
+
+import it.cnr.isti.hpc.dexter.shingle.Shingle;
+import it.cnr.isti.hpc.dexter.shingle.ShingleExtractor;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Resources;
+
+/**
+ * The fixed corpora used by the benchmarks, stored in the resources of the
+ * module: a tweet (~100 chars), a news paragraph (~500 chars) and a
+ * Wikipedia-like article (~2500 chars).
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 8, 2014
+ */
+public class Corpus {
+
+	private static final Logger logger = LoggerFactory.getLogger(Corpus.class);
+
+	public static final String TWEET = "tweet";
+	public static final String NEWS = "news";
+	public static final String ARTICLE = "article";
+
+	private Corpus() {
+	}
+
+	/**
+	 * @return the text of the corpus with the given name
+	 */
+	public static String get(String name) {
+		URL url = Resources.getResource("corpus/" + name + ".txt");
+		try {
+			return Resources.toString(url, Charsets.UTF_8);
+		} catch (IOException e) {
+			logger.error("reading the corpus {} ({})", name, e.toString());
+			System.exit(-1);
+		}
+		return null;
+	}
+
+	/**
+	 * @return the shingles of the corpus with the given name, in the order
+	 *         produced by the {@link ShingleExtractor}
+	 */
+	public static List<Shingle> getShingles(String name) {
+		List<Shingle> shingles = new ArrayList<Shingle>();
+		for (Shingle shingle : new ShingleExtractor(get(name))) {
+			shingles.add(shingle);
+		}
+		return shingles;
+	}
+}
@@ -0,0 +1,126 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.bench;
+
+import it.cnr.isti.hpc.dexter.entity.Entity;
+import it.cnr.isti.hpc.dexter.relatedness.MilneRelatedness;
+import it.cnr.isti.hpc.dexter.shingle.Shingle;
+import it.cnr.isti.hpc.dexter.spot.Spot;
+import it.cnr.isti.hpc.dexter.spot.repo.SpotRepository;
+import it.cnr.isti.hpc.dexter.spot.repo.SpotRepositoryFactory;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Computes the Milne relatedness between the candidate entities of the spots
+ * in the article corpus, i.e., the pairs scored by the disambiguators when
+ * annotating the article. The <code>score</code> benchmark bypasses the
+ * relatedness cache, the <code>set</code> benchmark goes through it (and
+ * measures the cache once warmed up).
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 8, 2014
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class RelatednessBenchmark {
+
+	// the number of candidates taken for each spot
+	private static final int CANDIDATES = 5;
+
+	int[] x;
+	int[] y;
+	int pair;
+	UncachedMilneRelatedness uncached;
+	MilneRelatedness cached;
+
+	@Setup
+	public void setup() {
+		SpotRepository repo = new SpotRepositoryFactory().getStdInstance();
+		IntList candidates = new IntArrayList();
+		for (Shingle shingle : Corpus.getShingles(Corpus.ARTICLE)) {
+			Spot spot = repo.getSpot(shingle.getText());
+			if (spot == null)
+				continue;
+			int n = 0;
+			for (Entity e : spot.getEntities()) {
+				if (n++ == CANDIDATES)
+					break;
+				candidates.add(e.getId());
+			}
+		}
+		if (candidates.size() < 2) {
+			throw new IllegalStateException(
+					"the model does not contain entities for the article corpus");
+		}
+		int size = candidates.size() * (candidates.size() - 1) / 2;
+		x = new int[size];
+		y = new int[size];
+		int k = 0;
+		for (int i = 0; i < candidates.size(); i++) {
+			for (int j = i + 1; j < candidates.size(); j++) {
+				x[k] = candidates.getInt(i);
+				y[k] = candidates.getInt(j);
+				k++;
+			}
+		}
+		uncached = new UncachedMilneRelatedness();
+		cached = new MilneRelatedness();
+	}
+
+	@Benchmark
+	public double score() {
+		pair = (pair + 1) % x.length;
+		return uncached.score(x[pair], y[pair]);
+	}
+
+	@Benchmark
+	public double set() {
+		pair = (pair + 1) % x.length;
+		cached.set(x[pair], y[pair]);
+		return cached.getScore();
+	}
+
+	/**
+	 * Computes the relatedness without looking up the relatedness cache
+	 */
+	static class UncachedMilneRelatedness extends MilneRelatedness {
+
+		double score(int x, int y) {
+			this.x = x;
+			this.y = y;
+			return score();
+		}
+	}
+}
@@ -0,0 +1,67 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.bench;
+
+import it.cnr.isti.hpc.dexter.shingle.Shingle;
+import it.cnr.isti.hpc.dexter.shingle.ShingleExtractor;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Segments, cleans and iterates over the shingles of a text.
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 8, 2014
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ShingleExtractorBenchmark {
+
+	@Param({ Corpus.TWEET, Corpus.NEWS, Corpus.ARTICLE })
+	String corpus;
+
+	String text;
+
+	@Setup
+	public void setup() {
+		text = Corpus.get(corpus);
+	}
+
+	@Benchmark
+	public void shingles(Blackhole bh) {
+		for (Shingle shingle : new ShingleExtractor(text)) {
+			bh.consume(shingle);
+		}
+	}
+}
@@ -0,0 +1,87 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.bench;
+
+import it.cnr.isti.hpc.dexter.shingle.Shingle;
+import it.cnr.isti.hpc.dexter.spot.clean.SpotManager;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cleans the shingles of the article corpus with the standard spot cleaner
+ * (the one used by the spotter on every shingle) and with the standard spot
+ * manager (the one used at indexing time). Times are per shingle.
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 8, 2014
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SpotManagerBenchmark {
+
+	// the number of shingles of the article corpus
+	private static final int SHINGLES = 1024;
+
+	String[] shingles;
+	SpotManager cleaner;
+	SpotManager manager;
+
+	@Setup
+	public void setup() {
+		List<Shingle> list = Corpus.getShingles(Corpus.ARTICLE);
+		shingles = new String[SHINGLES];
+		for (int i = 0; i < SHINGLES; i++) {
+			shingles[i] = list.get(i % list.size()).getText();
+		}
+		cleaner = SpotManager.getStandardSpotCleaner();
+		manager = SpotManager.getStandardSpotManager();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SHINGLES)
+	public void cleaner(Blackhole bh) {
+		for (String shingle : shingles) {
+			bh.consume(cleaner.clean(shingle));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SHINGLES)
+	public void manager(Blackhole bh) {
+		for (String shingle : shingles) {
+			bh.consume(manager.clean(shingle));
+		}
+	}
+}
@@ -0,0 +1,85 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.bench;
+
+import it.cnr.isti.hpc.dexter.common.Field;
+import it.cnr.isti.hpc.dexter.shingle.Shingle;
+import it.cnr.isti.hpc.dexter.spot.Spot;
+import it.cnr.isti.hpc.dexter.spot.SpotMatch;
+import it.cnr.isti.hpc.dexter.spot.SpotMatchList;
+import it.cnr.isti.hpc.dexter.spotter.filter.SpotOverlapFilter;
+import it.cnr.isti.hpc.dexter.util.DexterLocalParams;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Removes the overlapping spots from the matches of a text. Every shingle of
+ * the corpus is considered a match (the worst case for the filter), so no
+ * model is needed.
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 8, 2014
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SpotOverlapFilterBenchmark {
+
+	@Param({ Corpus.TWEET, Corpus.NEWS, Corpus.ARTICLE })
+	String corpus;
+
+	SpotMatchList matches;
+	SpotOverlapFilter filter;
+	DexterLocalParams params;
+
+	@Setup
+	public void setup() {
+		Field field = new Field("body", Corpus.get(corpus));
+		matches = new SpotMatchList();
+		for (Shingle shingle : Corpus.getShingles(corpus)) {
+			SpotMatch match = new SpotMatch(new Spot(shingle.getText()), field);
+			match.setStart(shingle.getStart());
+			match.setEnd(shingle.getEnd());
+			matches.add(match);
+		}
+		filter = new SpotOverlapFilter();
+		params = new DexterLocalParams();
+	}
+
+	@Benchmark
+	public SpotMatchList filter() {
+		// the filter sorts the list it receives
+		SpotMatchList sml = new SpotMatchList();
+		sml.addAll(matches);
+		return filter.filter(params, sml);
+	}
+}
@@ -0,0 +1,92 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.bench;
+
+import it.cnr.isti.hpc.dexter.shingle.Shingle;
+import it.cnr.isti.hpc.dexter.spot.repo.SpotRepository;
+import it.cnr.isti.hpc.dexter.spot.repo.SpotRepositoryFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Retrieves spots from the spot repository of the default model (the model is
+ * read from the dexter-conf.xml in the working directory, or from the file in
+ * the <code>conf</code> system property). The shingles of the article corpus
+ * are split in hits (shingles that are spots in the model) and misses.
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 8, 2014
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SpotRepositoryBenchmark {
+
+	SpotRepository repo;
+	String[] hits;
+	String[] misses;
+	int hit;
+	int miss;
+
+	@Setup
+	public void setup() {
+		repo = new SpotRepositoryFactory().getStdInstance();
+		List<String> h = new ArrayList<String>();
+		List<String> m = new ArrayList<String>();
+		for (Shingle shingle : Corpus.getShingles(Corpus.ARTICLE)) {
+			if (repo.getSpot(shingle.getText()) != null) {
+				h.add(shingle.getText());
+			} else {
+				m.add(shingle.getText());
+			}
+		}
+		if (h.isEmpty() || m.isEmpty()) {
+			throw new IllegalStateException("the model does not contain "
+					+ "both hits and misses for the article corpus");
+		}
+		hits = h.toArray(new String[h.size()]);
+		misses = m.toArray(new String[m.size()]);
+	}
+
+	@Benchmark
+	public Object hit() {
+		hit = (hit + 1) % hits.length;
+		return repo.getSpot(hits[hit]);
+	}
+
+	@Benchmark
+	public Object miss() {
+		miss = (miss + 1) % misses.length;
+		return repo.getSpot(misses[miss]);
+	}
+}
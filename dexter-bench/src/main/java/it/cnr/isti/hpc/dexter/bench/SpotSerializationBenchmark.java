@@ -0,0 +1,87 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.bench;
+
+import it.cnr.isti.hpc.dexter.entity.Entity;
+import it.cnr.isti.hpc.dexter.spot.Spot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decodes (and encodes) the binary record of a spot, varying the number of
+ * candidate entities and the format of the record. Spots are generated with
+ * a fixed seed, no model is needed.
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 8, 2014
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SpotSerializationBenchmark {
+
+	private static final String MENTION = "johnny cash";
+
+	@Param({ "1", "10", "100", "1000" })
+	int entities;
+
+	@Param({ "0", "1", "2" })
+	int version;
+
+	Spot spot;
+	byte[] record;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		List<Entity> list = new ArrayList<Entity>(entities);
+		for (int i = 0; i < entities; i++) {
+			list.add(new Entity(random.nextInt(5000000), 1 + random
+					.nextInt(1000)));
+		}
+		spot = new Spot(MENTION, list, 1000, 5000);
+		record = spot.toByteArray(version);
+	}
+
+	@Benchmark
+	public Spot decode() {
+		return Spot.fromByteArray(MENTION, record, version);
+	}
+
+	@Benchmark
+	public byte[] encode() {
+		return spot.toByteArray(version);
+	}
+}
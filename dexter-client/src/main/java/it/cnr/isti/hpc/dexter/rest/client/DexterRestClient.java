@@ -47,6 +47,8 @@ import java.io.BufferedReader;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -62,6 +64,9 @@ import org.slf4j.LoggerFactory;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.reflect.TypeToken;
 import com.sun.jersey.api.client.Client;
 
 /**
@@ -200,6 +205,60 @@ public class DexterRestClient {
 		return adoc;
 	}
 
+	/**
+	 * Performs the entity linking on a batch of documents with a single
+	 * request, annotating maximum n entities for each document. The server
+	 * annotates the documents in parallel.
+	 * 
+	 * @param docs
+	 *            the documents to annotate
+	 * @param n
+	 *            the maximum number of entities to annotate in each document
+	 * @returns the annotated documents, in the same order of the input. If the
+	 *          server fails to annotate a document, the error is reported in
+	 *          the error field of its annotated document.
+	 */
+	public List<AnnotatedDocument> annotateBatch(
+			List<? extends Document> docs, int n) {
+		JsonArray batch = new JsonArray();
+		for (Document doc : docs) {
+			if (doc instanceof FlatDocument) {
+				batch.add(new JsonPrimitive(doc.getContent()));
+			} else {
+				batch.add(gson.toJsonTree(doc));
+			}
+		}
+		StringBuilder sb = new StringBuilder(paramsToRequest());
+		if (linkProbability > 0)
+			sb.append("lp=").append(linkProbability).append('&');
+		if (n > 0) {
+			sb.append("n=").append(n).append('&');
+		}
+		if (disambiguator != null) {
+			sb.append("dsb=").append(disambiguator).append('&');
+		}
+		if (wikinames) {
+			sb.append("wn=true&");
+		}
+		sb.append("min-conf=").append(minConfidence);
+
+		String json = "";
+		try {
+			json = postJson("annotate-batch", sb.toString(), gson.toJson(batch));
+		} catch (IOException e) {
+			logger.error("cannot call the rest api {}", e.toString());
+			return null;
+		}
+		Type type = new TypeToken<List<AnnotatedDocument>>() {
+		}.getType();
+		List<AnnotatedDocument> adocs = gson.fromJson(json, type);
+		return adocs;
+	}
+
+	public List<AnnotatedDocument> annotateBatch(List<? extends Document> docs) {
+		return annotateBatch(docs, -1);
+	}
+
 	public SpottedDocument spot(String text) {
 		return spot(new FlatDocument(text));
 	}
@@ -321,6 +380,92 @@ public class DexterRestClient {
 		return ad;
 	}
 
+	/**
+	 * Given some entities, returns the entities that are neighbours of all of
+	 * them, computed by the server.
+	 * 
+	 * @param direction
+	 *            in (the entities linking to all the given entities) or out
+	 *            (the entities linked by all the given entities)
+	 * @param entityIds
+	 *            the Wiki-ids of the entities
+	 */
+	public List<Integer> getIntersection(String direction, int... entityIds) {
+		return graphQuery("intersection", direction, entityIds, "");
+	}
+
+	/**
+	 * Given some entities, returns the entities that are neighbours of at
+	 * least one of them.
+	 * 
+	 * @param direction
+	 *            in or out
+	 * @param entityIds
+	 *            the Wiki-ids of the entities
+	 */
+	public List<Integer> getUnion(String direction, int... entityIds) {
+		return graphQuery("union", direction, entityIds, "");
+	}
+
+	/**
+	 * Given some entities, returns the neighbours of the first entity that are
+	 * not neighbours of the others.
+	 * 
+	 * @param direction
+	 *            in or out
+	 * @param entityIds
+	 *            the Wiki-ids of the entities
+	 */
+	public List<Integer> getDifference(String direction, int... entityIds) {
+		return graphQuery("difference", direction, entityIds, "");
+	}
+
+	/**
+	 * Given some entities, returns the entities reachable from them in at most
+	 * the given number of hops.
+	 * 
+	 * @param direction
+	 *            in or out
+	 * @param hops
+	 *            the max number of hops (max 3)
+	 * @param maxFrontier
+	 *            the max number of entities reached at each hop
+	 * @param entityIds
+	 *            the Wiki-ids of the entities
+	 */
+	public List<Integer> expand(String direction, int hops, int maxFrontier,
+			int... entityIds) {
+		return graphQuery("expand", direction, entityIds, "&hops=" + hops
+				+ "&max-frontier=" + maxFrontier);
+	}
+
+	/**
+	 * Calls a query of the graph service, deployed beside the rest service
+	 */
+	private List<Integer> graphQuery(String query, String direction,
+			int[] entityIds, String params) {
+		String base = server.toString();
+		if (base.endsWith("/")) {
+			base = base.substring(0, base.length() - 1);
+		}
+		StringBuilder sb = new StringBuilder(URI.create(base)
+				.resolve("graph/" + query).toString());
+		sb.append("?direction=").append(direction);
+		for (int id : entityIds) {
+			sb.append("&wid=").append(id);
+		}
+		sb.append(params);
+		String json = "";
+		try {
+			json = browser.fetchAsString(sb.toString()).toString();
+		} catch (IOException e) {
+			logger.error("cannot call the rest api {}", e.toString());
+			return Collections.emptyList();
+		}
+		return gson.fromJson(json, new TypeToken<List<Integer>>() {
+		}.getType());
+	}
+
 	/**
 	 * Given an entity, returns the entities linked by given entity
 	 * 
@@ -349,6 +494,34 @@ public class DexterRestClient {
 		return relatedness;
 	}
 
+	/**
+	 * Given an entity, returns the k entities most related to it, sorted by
+	 * decreasing relatedness (precomputed by the server).
+	 * 
+	 * @param entityId
+	 *            the Wiki-id of the entity
+	 * @param k
+	 *            the max number of related entities
+	 * @returns the related entities, an empty list if the server did not
+	 *          index the related entities
+	 */
+	public List<EntityRelatedness> getTopRelated(int entityId, int k) {
+		String json = "";
+		try {
+			StringBuffer sb = new StringBuffer(server.toString()
+					+ "/top-related");
+			sb.append("?id=" + entityId);
+			sb.append("&k=" + k);
+			sb.append("&wn=" + String.valueOf(wikinames));
+			json = browser.fetchAsUTF8String(sb.toString()).toString();
+		} catch (IOException e) {
+			logger.error("cannot call the rest api {}", e.toString());
+			return Collections.emptyList();
+		}
+		return gson.fromJson(json, new TypeToken<List<EntityRelatedness>>() {
+		}.getType());
+	}
+
 	/**
 	 * Given the Wiki-id entity label (the title, or a redirect), the wiki-id of
 	 * the entity
@@ -403,6 +576,29 @@ public class DexterRestClient {
 		return response.toString();
 	}
 
+	private String postJson(String restcall, String query, String json)
+			throws IOException {
+		HttpURLConnection con = (HttpURLConnection) new URL(server.toString()
+				+ "/" + restcall + "?" + query).openConnection();
+		con.setRequestMethod("POST");
+		con.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
+		con.setDoOutput(true);
+		OutputStream out = con.getOutputStream();
+		out.write(json.getBytes("UTF-8"));
+		out.flush();
+		out.close();
+
+		BufferedReader in = new BufferedReader(new InputStreamReader(
+				con.getInputStream(), "UTF-8"));
+		String inputLine;
+		StringBuilder response = new StringBuilder();
+		while ((inputLine = in.readLine()) != null) {
+			response.append(inputLine);
+		}
+		in.close();
+		return response.toString();
+	}
+
 	public void addParams(String name, String value) {
 		params.put(name, value);
 	}
@@ -34,6 +34,7 @@ public class AnnotatedDocument {
 	private MultifieldDocument annotatedDocument;
 	private List<AnnotatedSpot> spots;
 	private Tagmeta meta;
+	private String error;
 
 	public AnnotatedDocument() {
 	}
@@ -75,4 +76,16 @@ public class AnnotatedDocument {
 		this.meta = meta;
 	}
 
+	/**
+	 * @return the error occurred annotating the document (in a batch
+	 *         annotation), null if the document was annotated
+	 */
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+
 }
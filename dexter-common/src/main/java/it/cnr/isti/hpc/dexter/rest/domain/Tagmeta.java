@@ -50,6 +50,14 @@ public class Tagmeta {
 
 	Map<String, String> requestParams;
 
+	Map<String, Map<String, Double>> metrics;
+
+	/**
+	 * true if the annotation is approximate, because the latency budget of
+	 * the request expired
+	 */
+	boolean degraded;
+
 	public String getSpotter() {
 		return spotter;
 	}
@@ -110,6 +118,22 @@ public class Tagmeta {
 		this.requestParams = requestParams;
 	}
 
+	public Map<String, Map<String, Double>> getMetrics() {
+		return metrics;
+	}
+
+	public void setMetrics(Map<String, Map<String, Double>> metrics) {
+		this.metrics = metrics;
+	}
+
+	public boolean isDegraded() {
+		return degraded;
+	}
+
+	public void setDegraded(boolean degraded) {
+		this.degraded = degraded;
+	}
+
 	@Override
 	public boolean equals(Object obj) {
 		if (this == obj)
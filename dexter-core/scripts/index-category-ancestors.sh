@@ -0,0 +1,9 @@
+#!/usr/bin/env bash
+
+source scripts/config.sh
+
+DEPTH=${1:-4}
+
+echo "index the ancestor categories of the entities (max depth $DEPTH)"
+$JAVA $CLI.graph.IndexCategoryAncestorsCLI -depth $DEPTH
+
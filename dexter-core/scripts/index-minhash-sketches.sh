@@ -0,0 +1,10 @@
+#!/usr/bin/env bash
+
+source scripts/config.sh
+
+K=${1:-128}
+MIN=${2:-1000}
+
+echo "index the minhash sketches of the entities with at least $MIN in-links (k = $K)"
+$JAVA $CLI.graph.IndexMinHashSketchesCLI -k $K -min $MIN
+
@@ -0,0 +1,9 @@
+#!/usr/bin/env bash
+
+source scripts/config.sh
+
+K=${1:-50}
+
+echo "index the top $K related entities of each entity"
+$JAVA $CLI.graph.IndexTopRelatedCLI -k $K
+
@@ -15,11 +15,12 @@
  */
 package it.cnr.isti.hpc.dexter;
 
-import it.cnr.isti.hpc.benchmark.Stopwatch;
 import it.cnr.isti.hpc.dexter.common.Document;
 import it.cnr.isti.hpc.dexter.disambiguation.Disambiguator;
 import it.cnr.isti.hpc.dexter.disambiguation.TopScoreEntityDisambiguator;
 import it.cnr.isti.hpc.dexter.entity.EntityMatchList;
+import it.cnr.isti.hpc.dexter.metrics.MetricsRegistry;
+import it.cnr.isti.hpc.dexter.metrics.Timer;
 import it.cnr.isti.hpc.dexter.relatedness.MilneRelatedness;
 import it.cnr.isti.hpc.dexter.relatedness.Relatedness;
 import it.cnr.isti.hpc.dexter.spot.SpotMatch;
@@ -71,7 +72,11 @@ public class StandardTagger implements Tagger {
 	private final String name;
 	private final Spotter spotter;
 	private final Disambiguator disambiguator;
-	private final Stopwatch stopwatch;
+
+	private static final Timer spotting = MetricsRegistry.getInstance()
+			.getTimer(MetricsRegistry.SPOTTING);
+	private static final Timer disambiguation = MetricsRegistry.getInstance()
+			.getTimer(MetricsRegistry.DISAMBIGUATION);
 
 	DexterParams dexterParams = DexterParams.getInstance();
 
@@ -82,7 +87,6 @@ public class StandardTagger implements Tagger {
 		this.name = name;
 		this.spotter = spotter;
 		this.disambiguator = disambiguator;
-		stopwatch = new Stopwatch();
 
 		// Relatedness r = new MilneRelatedness();
 		//
@@ -107,8 +111,8 @@ public class StandardTagger implements Tagger {
 		// RelatednessFactory.register(r);
 		// }
 
-		logger.info("Spotter: {}", spotter.getClass());
-		logger.info("Disambiguator: {}", disambiguator.getClass());
+		logger.debug("Spotter: {}", spotter.getClass());
+		logger.debug("Disambiguator: {}", disambiguator.getClass());
 	}
 
 	public SpotMatchList spot(DexterParams dexterParams,
@@ -143,27 +147,30 @@ public class StandardTagger implements Tagger {
 
 		}
 
-		stopwatch.start("spotting");
+		long start = spotting.start();
 		SpotMatchList sml = spotter.match(localParams, doc);
+		logger.debug("spotting performed in {} nanos", spotting.stop(start));
 
-		logger.info("spotting performed in {} millis",
-				stopwatch.stop("spotting"));
-
-		stopwatch.start("disambiguation");
+		start = disambiguation.start();
 		EntityMatchList eml = disambiguator.disambiguate(localParams, sml);
 		if (!eml.isEmpty()) {
 			eml = eml.removeOverlappings();
 		} else {
-			logger.warn("no spot identified in text");
+			logger.debug("no spot identified in text");
 		}
-		logger.info("disambiguation performed in {} millis",
-				stopwatch.stop("disambiguation"));
+		logger.debug("disambiguation performed in {} nanos",
+				disambiguation.stop(start));
 		return eml;
 
 	}
 
+	/**
+	 * @return the latency of the spotting and of the disambiguation, over all
+	 *         the taggers
+	 */
 	public String stats() {
-		return stopwatch.stat();
+		return "spotting: " + spotting.snapshot() + "\ndisambiguation: "
+				+ disambiguation.snapshot();
 	}
 
 	@Override
@@ -0,0 +1,207 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.article;
+
+import it.cnr.isti.hpc.dexter.util.BigMappedBuffer;
+import it.cnr.isti.hpc.dexter.util.DexterParams;
+import it.cnr.isti.hpc.wikipedia.article.Article;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ArticleDescriptionStore provides the title, the title in wiki style and the
+ * summary of an article, given its wiki-id. The descriptions are stored in a
+ * memory mapped file produced by the {@link ArticleDescriptionWriter}:
+ * articles are grouped in blocks compressed with deflate, and a sorted index
+ * maps each wiki-id to its block. Retrieving a description costs a binary
+ * search in the index and the decompression of one block.
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Jul 28, 2014
+ */
+public class ArticleDescriptionStore {
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = LoggerFactory
+			.getLogger(ArticleDescriptionStore.class);
+
+	static final int MAGIC = 0x44584144;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 4 + 4 + 4 + 4 + 8;
+
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static volatile ArticleDescriptionStore instance;
+
+	private static DexterParams params = DexterParams.getInstance();
+
+	private final BigMappedBuffer buffer;
+	private final int size;
+	private final long idsStart;
+	private final long blocksStart;
+	private final long blockOffsetsStart;
+
+	/**
+	 * Maps in memory the descriptions contained in the given file
+	 *
+	 * @param descriptionsFile
+	 *            - the file produced by the {@link ArticleDescriptionWriter}
+	 */
+	public ArticleDescriptionStore(File descriptionsFile) {
+		logger.info("loading article descriptions from {}", descriptionsFile);
+		BigMappedBuffer b = null;
+		try {
+			b = new BigMappedBuffer(descriptionsFile);
+		} catch (IOException e) {
+			throw new IllegalStateException(
+					"loading the article descriptions (" + e.toString() + ")",
+					e);
+		}
+		if (b.getInt(0) != MAGIC || b.getInt(4) != VERSION) {
+			b.close();
+			throw new IllegalStateException(descriptionsFile
+					+ " is not a valid article descriptions file");
+		}
+		buffer = b;
+		size = buffer.getInt(8);
+		int blocks = buffer.getInt(12);
+		idsStart = buffer.getLong(16);
+		blocksStart = idsStart + size * 4L;
+		blockOffsetsStart = blocksStart + size * 4L;
+		logger.info("loaded {} descriptions in {} blocks", size, blocks);
+	}
+
+	/**
+	 * @return true if the article descriptions of the current model were
+	 *         generated, false otherwise
+	 */
+	public static boolean hasArticleDescriptions() {
+		return params.getArticleDescriptionsFile().exists();
+	}
+
+	public static ArticleDescriptionStore getInstance() {
+		if (instance == null) {
+			synchronized (ArticleDescriptionStore.class) {
+				if (instance == null)
+					instance = new ArticleDescriptionStore(
+							params.getArticleDescriptionsFile());
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * Unmaps the descriptions, they cannot be read after this call
+	 */
+	public void close() {
+		buffer.close();
+	}
+
+	/**
+	 * @return the number of articles in the store
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if the store contains the description of the article
+	 */
+	public boolean contains(int wikiId) {
+		return buffer.binarySearchInt(idsStart, 0, size, wikiId) >= 0;
+	}
+
+	/**
+	 * Retrieves title, title in wiki style and summary of an article.
+	 *
+	 * @param wikiId
+	 *            - the Wikipedia Id of the Article
+	 * @return an article containing only title, wiki title and summary, or
+	 *         null if the article is not in the store
+	 */
+	public Article get(int wikiId) {
+		long pos = buffer.binarySearchInt(idsStart, 0, size, wikiId);
+		if (pos < 0)
+			return null;
+		int block = buffer.getInt(blocksStart + pos * 4);
+		long start = buffer.getLong(blockOffsetsStart + block * 8L);
+		long end = buffer.getLong(blockOffsetsStart + (block + 1) * 8L);
+
+		byte[] data = inflate(start, end);
+		if (data == null)
+			return null;
+
+		int offset = 0;
+		while (offset < data.length) {
+			int id = readInt(data, offset);
+			offset += 4;
+			if (id != wikiId) {
+				// skip title, wiki title and summary
+				for (int i = 0; i < 3; i++) {
+					offset += 4 + readInt(data, offset);
+				}
+				continue;
+			}
+			Article a = new Article();
+			a.setWikiId(wikiId);
+			int len = readInt(data, offset);
+			a.setTitle(new String(data, offset + 4, len, UTF8));
+			offset += 4 + len;
+			len = readInt(data, offset);
+			a.setWikiTitle(new String(data, offset + 4, len, UTF8));
+			offset += 4 + len;
+			len = readInt(data, offset);
+			a.setSummary(new String(data, offset + 4, len, UTF8));
+			return a;
+		}
+		logger.warn("article {} is in the index but not in its block", wikiId);
+		return null;
+	}
+
+	private byte[] inflate(long start, long end) {
+		int uncompressedSize = buffer.getInt(start);
+		byte[] compressed = new byte[(int) (end - start - 4)];
+		buffer.get(start + 4, compressed, 0, compressed.length);
+		byte[] data = new byte[uncompressedSize];
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(compressed);
+			inflater.inflate(data);
+		} catch (DataFormatException e) {
+			logger.error("decompressing block at {} ({})", start, e.toString());
+			return null;
+		} finally {
+			inflater.end();
+		}
+		return data;
+	}
+
+	private static int readInt(byte[] data, int offset) {
+		return ((data[offset] & 0xFF) << 24)
+				| ((data[offset + 1] & 0xFF) << 16)
+				| ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+	}
+
+}
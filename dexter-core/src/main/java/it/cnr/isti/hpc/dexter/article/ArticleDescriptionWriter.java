@@ -0,0 +1,223 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.article;
+
+import it.unimi.dsi.fastutil.Swapper;
+import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the file read by the {@link ArticleDescriptionStore}. Articles can
+ * be added in any order, the index is sorted when the writer is closed. The
+ * file layout is:
+ *
+ * <pre>
+ * header:  magic (int) version (int) articles (int) blocks (int) indexOffset (long)
+ * data:    for each block: uncompressed size (int) deflated records
+ * index:   wiki ids (int * articles, sorted) block of each id (int * articles)
+ *          block offsets (long * (blocks + 1))
+ * </pre>
+ *
+ * where each record is the wiki id (int) followed by title, wiki title and
+ * summary, each one as length (int) and UTF-8 bytes.
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Jul 28, 2014
+ */
+public class ArticleDescriptionWriter {
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = LoggerFactory
+			.getLogger(ArticleDescriptionWriter.class);
+
+	/**
+	 * default number of articles in a compressed block
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 32;
+
+	private final File file;
+	private final int blockSize;
+	private final DataOutputStream out;
+
+	private final ByteArrayOutputStream block;
+	private final DataOutputStream blockOut;
+	private int articlesInBlock = 0;
+
+	private final IntArrayList ids = new IntArrayList();
+	private final IntArrayList blocks = new IntArrayList();
+	private final LongArrayList blockOffsets = new LongArrayList();
+	private long written = ArticleDescriptionStore.HEADER_SIZE;
+
+	private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+	private byte[] compressed = new byte[64 * 1024];
+
+	public ArticleDescriptionWriter(File file) {
+		this(file, DEFAULT_BLOCK_SIZE);
+	}
+
+	public ArticleDescriptionWriter(File file, int blockSize) {
+		this.file = file;
+		this.blockSize = blockSize;
+		block = new ByteArrayOutputStream();
+		blockOut = new DataOutputStream(block);
+		DataOutputStream o = null;
+		try {
+			o = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(file)));
+			// articles, blocks and index offset are set when closing
+			o.writeInt(ArticleDescriptionStore.MAGIC);
+			o.writeInt(ArticleDescriptionStore.VERSION);
+			o.writeInt(0);
+			o.writeInt(0);
+			o.writeLong(0);
+		} catch (IOException e) {
+			logger.error("opening the article descriptions file ({})",
+					e.toString());
+			System.exit(-1);
+		}
+		out = o;
+	}
+
+	/**
+	 * Adds the description of an article
+	 *
+	 * @param wikiId
+	 *            - the Wikipedia Id of the Article
+	 * @param title
+	 *            - the title of the article
+	 * @param wikiTitle
+	 *            - the title in wiki style (e.g., Albert_Einstein)
+	 * @param summary
+	 *            - a short description of the article
+	 */
+	public void add(int wikiId, String title, String wikiTitle, String summary) {
+		try {
+			blockOut.writeInt(wikiId);
+			writeString(title);
+			writeString(wikiTitle);
+			writeString(summary);
+		} catch (IOException e) {
+			logger.error("adding article {} ({})", wikiId, e.toString());
+			System.exit(-1);
+		}
+		ids.add(wikiId);
+		blocks.add(blockOffsets.size());
+		if (++articlesInBlock == blockSize) {
+			flushBlock();
+		}
+	}
+
+	private void writeString(String s) throws IOException {
+		byte[] bytes = (s == null) ? new byte[0] : s
+				.getBytes(ArticleDescriptionStore.UTF8);
+		blockOut.writeInt(bytes.length);
+		blockOut.write(bytes);
+	}
+
+	private void flushBlock() {
+		if (articlesInBlock == 0)
+			return;
+		byte[] data = block.toByteArray();
+		deflater.reset();
+		deflater.setInput(data);
+		deflater.finish();
+		int len = 0;
+		while (!deflater.finished()) {
+			if (len == compressed.length)
+				compressed = Arrays.copyOf(compressed, len * 2);
+			len += deflater.deflate(compressed, len, compressed.length - len);
+		}
+		try {
+			out.writeInt(data.length);
+			out.write(compressed, 0, len);
+		} catch (IOException e) {
+			logger.error("writing a block of descriptions ({})", e.toString());
+			System.exit(-1);
+		}
+		blockOffsets.add(written);
+		written += 4 + len;
+		block.reset();
+		articlesInBlock = 0;
+	}
+
+	/**
+	 * Writes the last block and the index, and closes the file
+	 */
+	public void close() {
+		flushBlock();
+		deflater.end();
+		final int[] sortedIds = ids.toIntArray();
+		final int[] sortedBlocks = blocks.toIntArray();
+		it.unimi.dsi.fastutil.Arrays.quickSort(0, sortedIds.length,
+				new AbstractIntComparator() {
+					@Override
+					public int compare(int a, int b) {
+						return sortedIds[a] < sortedIds[b] ? -1
+								: (sortedIds[a] == sortedIds[b] ? 0 : 1);
+					}
+				}, new Swapper() {
+					@Override
+					public void swap(int a, int b) {
+						int t = sortedIds[a];
+						sortedIds[a] = sortedIds[b];
+						sortedIds[b] = t;
+						t = sortedBlocks[a];
+						sortedBlocks[a] = sortedBlocks[b];
+						sortedBlocks[b] = t;
+					}
+				});
+		try {
+			for (int id : sortedIds)
+				out.writeInt(id);
+			for (int b : sortedBlocks)
+				out.writeInt(b);
+			for (long offset : blockOffsets)
+				out.writeLong(offset);
+			out.writeLong(written);
+			out.close();
+
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			raf.seek(8);
+			raf.writeInt(sortedIds.length);
+			raf.writeInt(blockOffsets.size());
+			raf.writeLong(written);
+			raf.close();
+		} catch (IOException e) {
+			logger.error("closing the article descriptions file ({})",
+					e.toString());
+			System.exit(-1);
+		}
+		logger.info("stored {} article descriptions in {} blocks",
+				sortedIds.length, blockOffsets.size());
+	}
+
+}
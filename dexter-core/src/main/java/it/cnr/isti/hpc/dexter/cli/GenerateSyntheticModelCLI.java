@@ -0,0 +1,84 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.cli;
+
+import it.cnr.isti.hpc.cli.AbstractCommandLineInterface;
+import it.cnr.isti.hpc.dexter.synthetic.SyntheticModelGenerator;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.google.common.io.Resources;
+
+/**
+ * Generates a synthetic model with the given number of spots (and a quarter
+ * of entities) in the output directory, together with its configuration
+ * (output/dexter-conf.xml). Benchmarks, tests and load tests can then run
+ * without the Wikipedia model, adding
+ * <code>-Dconf=output/dexter-conf.xml</code> to the java options.
+ *
+ * @see SyntheticModelGenerator
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 9, 2014
+ */
+public class GenerateSyntheticModelCLI extends AbstractCommandLineInterface {
+
+	private static final Logger logger = LoggerFactory
+			.getLogger(GenerateSyntheticModelCLI.class);
+
+	private static final String USAGE = "java -cp $jar "
+			+ GenerateSyntheticModelCLI.class
+			+ " -output model-dir -spots number-of-spots";
+	private static String[] params = new String[] { OUTPUT, "spots" };
+
+	private static final String CONF_TEMPLATE = "synthetic/dexter-conf.xml";
+	private static final String CONF = "dexter-conf.xml";
+	private static final long SEED = 42;
+
+	public static void main(String[] args) {
+		GenerateSyntheticModelCLI cli = new GenerateSyntheticModelCLI(args);
+		int spots = Integer.parseInt(cli.getParam("spots"));
+		int entities = Math.max(spots / 4, 1);
+		File model = new File(cli.getOutput()).getAbsoluteFile();
+		model.mkdirs();
+		File conf = new File(model, CONF);
+		try {
+			String xml = Resources.toString(
+					Resources.getResource(CONF_TEMPLATE), Charsets.UTF_8);
+			Files.write(xml.replace("${model}", model.getAbsolutePath()),
+					conf, Charsets.UTF_8);
+		} catch (IOException e) {
+			logger.error("writing the configuration {} ({})", conf,
+					e.toString());
+			System.exit(-1);
+		}
+		// the configuration must be set before the first access to the params
+		System.setProperty("conf", conf.getAbsolutePath());
+		System.setProperty("dexter.resourceRoot", model.getAbsolutePath());
+		new SyntheticModelGenerator(spots, entities, SEED).generate();
+	}
+
+	public GenerateSyntheticModelCLI(String[] args) {
+		super(args, params, USAGE);
+	}
+}
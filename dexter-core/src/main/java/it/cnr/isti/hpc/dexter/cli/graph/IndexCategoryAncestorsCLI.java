@@ -0,0 +1,82 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.cli.graph;
+
+import it.cnr.isti.hpc.cli.AbstractCommandLineInterface;
+import it.cnr.isti.hpc.dexter.graph.CategoryClosure;
+import it.cnr.isti.hpc.dexter.graph.CategoryNodeFactory;
+import it.cnr.isti.hpc.dexter.graph.ram.RamOutcomingEntityCategoryNodes;
+import it.cnr.isti.hpc.dexter.util.DexterParams;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+
+import java.io.File;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * IndexCategoryAncestorsCLI precomputes, for each entity, the categories
+ * reachable from the entity in at most <code>depth</code> steps in the
+ * category graph, and for each category the entities in its subtree. The
+ * entity-category and category graphs must be indexed before.
+ *
+ * @see CategoryClosure
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 14, 2014
+ */
+public class IndexCategoryAncestorsCLI extends AbstractCommandLineInterface {
+
+	private static final Logger logger = LoggerFactory
+			.getLogger(IndexCategoryAncestorsCLI.class);
+
+	private static String[] params = new String[] { "depth" };
+
+	private static final DexterParams dexterParams = DexterParams.getInstance();
+
+	private static final String USAGE = "java -cp $jar "
+			+ IndexCategoryAncestorsCLI.class + " -depth max-depth";
+
+	public static void main(String[] args) {
+		IndexCategoryAncestorsCLI cli = new IndexCategoryAncestorsCLI(args);
+		int depth = Integer.parseInt(cli.getParam("depth"));
+
+		RamOutcomingEntityCategoryNodes entityCategories = RamOutcomingEntityCategoryNodes
+				.getInstance();
+		IntArrayList entities = new IntArrayList(entityCategories.size());
+		IntIterator iterator = entityCategories.iterator();
+		while (iterator.hasNext()) {
+			entities.add(iterator.nextInt());
+		}
+		logger.info("computing the ancestors of {} entities, max depth {}",
+				entities.size(), depth);
+		CategoryClosure closure = CategoryClosure.build(entities.toIntArray(),
+				entityCategories, CategoryNodeFactory
+						.getIncomingNodes(CategoryNodeFactory.STD_TYPE), depth);
+		File output = dexterParams.getCategoryAncestorsFile();
+		if (output.exists()) {
+			logger.info("serialized file {} yet exists, removing", output);
+			output.delete();
+		}
+		closure.dump(output);
+	}
+
+	public IndexCategoryAncestorsCLI(String[] args) {
+		super(args, params, USAGE);
+	}
+}
@@ -39,7 +39,9 @@ import org.slf4j.LoggerFactory;
  * <br>
  * where <code> e1 e2 .. eN </code> are the entities linking to the given entity
  * <code> entity_id </code>. The file is sorted by <code>entity_id</code>, and
- * in each line the incoming entities are sorted by their numerical id.
+ * in each line the incoming entities are sorted by their numerical id. The
+ * in-links of the entities above the <code>dense-inlinks</code> threshold are
+ * stored as bitmaps, in a second file with the suffix <code>.dense</code>.
  * 
  * @author Diego Ceccarelli, diego.ceccarelli@isti.cnr.it created on 21/nov/2011
  */
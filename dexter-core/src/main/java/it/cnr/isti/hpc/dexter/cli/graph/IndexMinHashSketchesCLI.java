@@ -0,0 +1,79 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.cli.graph;
+
+import it.cnr.isti.hpc.cli.AbstractCommandLineInterface;
+import it.cnr.isti.hpc.dexter.graph.ram.RamIncomingNodes;
+import it.cnr.isti.hpc.dexter.relatedness.MinHashSketches;
+import it.cnr.isti.hpc.dexter.util.DexterParams;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * IndexMinHashSketchesCLI computes the minhash sketches of the in-links of
+ * the entities with at least <code>min</code> in-links, used by the
+ * milne-minhash relatedness. The incoming nodes must be indexed before.
+ *
+ * @see MinHashSketches
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 15, 2014
+ */
+public class IndexMinHashSketchesCLI extends AbstractCommandLineInterface {
+
+	private static final Logger logger = LoggerFactory
+			.getLogger(IndexMinHashSketchesCLI.class);
+
+	private static String[] params = new String[] { "k", "min" };
+
+	private static final DexterParams dexterParams = DexterParams.getInstance();
+
+	private static final String USAGE = "java -cp $jar "
+			+ IndexMinHashSketchesCLI.class
+			+ " -k bins-per-sketch (e.g., 128) -min min-in-links (e.g., 1000)";
+
+	public static void main(String[] args) {
+		IndexMinHashSketchesCLI cli = new IndexMinHashSketchesCLI(args);
+		int k = Integer.parseInt(cli.getParam("k"));
+		int min = Integer.parseInt(cli.getParam("min"));
+
+		RamIncomingNodes in = RamIncomingNodes.getInstance();
+		IntArrayList entities = new IntArrayList(in.size());
+		IntIterator iterator = in.iterator();
+		while (iterator.hasNext()) {
+			entities.add(iterator.nextInt());
+		}
+		File output = dexterParams.getMinHashSketchesFile();
+		try {
+			MinHashSketches.dump(entities.toIntArray(), in, k, min, output);
+		} catch (IOException e) {
+			logger.error("writing the sketches in {} ({})", output,
+					e.toString());
+			System.exit(-1);
+		}
+	}
+
+	public IndexMinHashSketchesCLI(String[] args) {
+		super(args, params, USAGE);
+	}
+}
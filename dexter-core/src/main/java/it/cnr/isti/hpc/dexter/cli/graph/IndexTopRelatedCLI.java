@@ -0,0 +1,83 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.cli.graph;
+
+import it.cnr.isti.hpc.cli.AbstractCommandLineInterface;
+import it.cnr.isti.hpc.dexter.graph.ram.RamIncomingNodes;
+import it.cnr.isti.hpc.dexter.graph.ram.RamOutcomingNodes;
+import it.cnr.isti.hpc.dexter.relatedness.TopRelatedIndex;
+import it.cnr.isti.hpc.dexter.util.DexterParams;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * IndexTopRelatedCLI computes, for each entity with in-links, the k entities
+ * with the highest Milne-Witten relatedness, using all the available
+ * processors. The incoming and outcoming nodes must be indexed before.
+ *
+ * @see TopRelatedIndex
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 15, 2014
+ */
+public class IndexTopRelatedCLI extends AbstractCommandLineInterface {
+
+	private static final Logger logger = LoggerFactory
+			.getLogger(IndexTopRelatedCLI.class);
+
+	private static String[] params = new String[] { "k" };
+
+	private static final DexterParams dexterParams = DexterParams.getInstance();
+
+	private static final String USAGE = "java -cp $jar "
+			+ IndexTopRelatedCLI.class + " -k related-entities-per-entity";
+
+	public static void main(String[] args) {
+		IndexTopRelatedCLI cli = new IndexTopRelatedCLI(args);
+		int k = Integer.parseInt(cli.getParam("k"));
+
+		RamIncomingNodes in = RamIncomingNodes.getInstance();
+		RamOutcomingNodes out = RamOutcomingNodes.getInstance();
+		IntArrayList entities = new IntArrayList(in.size());
+		IntIterator iterator = in.iterator();
+		while (iterator.hasNext()) {
+			entities.add(iterator.nextInt());
+		}
+		int threads = Runtime.getRuntime().availableProcessors();
+		logger.info("computing the top {} related entities of {} entities",
+				k, entities.size());
+		File output = dexterParams.getTopRelatedFile();
+		try {
+			TopRelatedIndex.dump(entities.toIntArray(), in, out, k, threads,
+					output);
+		} catch (IOException e) {
+			logger.error("writing the top related entities in {} ({})",
+					output, e.toString());
+			System.exit(-1);
+		}
+	}
+
+	public IndexTopRelatedCLI(String[] args) {
+		super(args, params, USAGE);
+	}
+}
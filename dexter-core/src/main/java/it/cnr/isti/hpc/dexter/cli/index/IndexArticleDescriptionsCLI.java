@@ -0,0 +1,71 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.cli.index;
+
+import it.cnr.isti.hpc.cli.AbstractCommandLineInterface;
+import it.cnr.isti.hpc.dexter.article.ArticleDescriptionWriter;
+import it.cnr.isti.hpc.dexter.util.DexterParams;
+import it.cnr.isti.hpc.io.reader.JsonRecordParser;
+import it.cnr.isti.hpc.io.reader.RecordReader;
+import it.cnr.isti.hpc.log.ProgressLogger;
+import it.cnr.isti.hpc.wikipedia.article.Article;
+import it.cnr.isti.hpc.wikipedia.article.ArticleSummarizer;
+import it.cnr.isti.hpc.wikipedia.reader.filter.TypeFilter;
+
+/**
+ * IndexArticleDescriptionsCLI takes the Wikipedia Dump (in json) and stores
+ * title, title in wiki style and summary of each article in the compact
+ * description store used to describe the entities.
+ * 
+ * @see it.cnr.isti.hpc.dexter.article.ArticleDescriptionStore
+ * 
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ * 
+ *         Created on Jul 28, 2014
+ */
+public class IndexArticleDescriptionsCLI extends AbstractCommandLineInterface {
+
+	private static final String USAGE = "java -cp $jar "
+			+ IndexArticleDescriptionsCLI.class
+			+ " -input wikipediadump.json[.gz] ";
+	private static String[] params = new String[] { INPUT };
+
+	public static void main(String[] args) {
+		IndexArticleDescriptionsCLI cli = new IndexArticleDescriptionsCLI(args);
+		DexterParams dexterParams = DexterParams.getInstance();
+		ArticleSummarizer summarizer = new ArticleSummarizer();
+
+		RecordReader<Article> reader = new RecordReader<Article>(
+				cli.getInput(), new JsonRecordParser<Article>(Article.class));
+		reader = reader.filter(TypeFilter.MAIN);
+
+		ArticleDescriptionWriter writer = new ArticleDescriptionWriter(
+				dexterParams.getArticleDescriptionsFile());
+		ProgressLogger progress = new ProgressLogger(
+				"stored {} article descriptions", 100000);
+		for (Article a : reader) {
+			progress.up();
+			writer.add(a.getWid(), a.getTitle(), a.getWikiTitle(),
+					summarizer.getSummary(a));
+		}
+		writer.close();
+	}
+
+	public IndexArticleDescriptionsCLI(String[] args) {
+		super(args, params, USAGE);
+	}
+
+}
@@ -0,0 +1,48 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.cli.index;
+
+import it.cnr.isti.hpc.cli.AbstractCommandLineInterface;
+import it.cnr.isti.hpc.dexter.lucene.EntityVectors;
+
+/**
+ * IndexEntityVectorsCLI computes the TF-IDF vector of each entity from the
+ * Lucene index, and stores the vectors in the file configured in the
+ * <code>index</code> section of the dexter configuration.
+ * 
+ * @see EntityVectors
+ * 
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ * 
+ *         Created on Jul 21, 2014
+ */
+public class IndexEntityVectorsCLI extends AbstractCommandLineInterface {
+
+	private static String[] params = new String[] {};
+
+	private static final String USAGE = "java -cp $jar "
+			+ IndexEntityVectorsCLI.class;
+
+	public static void main(String[] args) {
+		IndexEntityVectorsCLI cli = new IndexEntityVectorsCLI(args);
+		EntityVectors.dumpEntityVectors();
+	}
+
+	public IndexEntityVectorsCLI(String[] args) {
+		super(args, params, USAGE);
+	}
+
+}
@@ -0,0 +1,89 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.cli.label;
+
+import it.cnr.isti.hpc.cli.AbstractCommandLineInterface;
+import it.cnr.isti.hpc.dexter.label.ram.RamIdToLabel;
+import it.cnr.isti.hpc.dexter.label.ram.RamLabelToId;
+import it.cnr.isti.hpc.dexter.util.TitleRedirectId;
+import it.cnr.isti.hpc.io.reader.RecordReader;
+import it.cnr.isti.hpc.log.ProgressLogger;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Takes a file containing a list of TitleRedirectId and generates the
+ * immutable mappings <code> title -> id </code> and <code> id -> title
+ * </code>, used by the RAM IdHelper.
+ * 
+ * @see RamLabelToId
+ * @see RamIdToLabel
+ * 
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ * 
+ *         Created on Aug 4, 2014
+ */
+public class IndexRamLabelsCLI extends AbstractCommandLineInterface {
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = LoggerFactory
+			.getLogger(IndexRamLabelsCLI.class);
+
+	private static final String USAGE = "java -cp $jar "
+			+ IndexRamLabelsCLI.class + " -input titles.tsv ";
+	private static String[] params = new String[] { INPUT };
+
+	public static void main(String[] args) {
+		ProgressLogger pl = new ProgressLogger("{} records read", 100000);
+		IndexRamLabelsCLI cli = new IndexRamLabelsCLI(args);
+		RecordReader<TitleRedirectId> reader = new RecordReader<TitleRedirectId>(
+				cli.getInput(), new TitleRedirectId.Parser());
+		Object2IntOpenHashMap<String> labels = new Object2IntOpenHashMap<String>();
+		for (TitleRedirectId article : reader) {
+			pl.up();
+			if (!article.isRedirect()) {
+				// real article
+				String title = article.getTitle();
+				int id = Integer.parseInt(article.getId());
+				if (title.isEmpty() || id == 0) {
+					logger.error("label \"{}\" empty or key \"{}\" is 0 ",
+							title, id);
+					continue;
+				}
+				labels.put(title, id);
+			}
+		}
+		String[] keys = new String[labels.size()];
+		int[] values = new int[labels.size()];
+		int i = 0;
+		for (Object2IntMap.Entry<String> e : labels.object2IntEntrySet()) {
+			keys[i] = e.getKey();
+			values[i] = e.getIntValue();
+			i++;
+		}
+		labels = null;
+		RamLabelToId.dump(keys, values);
+		RamIdToLabel.dump(values, keys);
+	}
+
+	public IndexRamLabelsCLI(String[] args) {
+		super(args, params, USAGE);
+	}
+}
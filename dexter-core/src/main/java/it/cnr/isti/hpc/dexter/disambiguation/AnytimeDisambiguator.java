@@ -0,0 +1,261 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.disambiguation;
+
+import it.cnr.isti.hpc.dexter.entity.EntityMatch;
+import it.cnr.isti.hpc.dexter.entity.EntityMatchList;
+import it.cnr.isti.hpc.dexter.relatedness.RelatednessFactory;
+import it.cnr.isti.hpc.dexter.spot.SpotMatch;
+import it.cnr.isti.hpc.dexter.spot.SpotMatchList;
+import it.cnr.isti.hpc.dexter.util.DexterLocalParams;
+import it.cnr.isti.hpc.dexter.util.DexterParams;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A disambiguator with a bounded latency. Each candidate entity of a spot
+ * receives a vote from the surrounding spots, i.e., the average relatedness
+ * with their candidates weighted by commonness, and the candidate with the
+ * best combination of commonness and vote is selected. The cost of the votes
+ * is quadratic in the number of candidates, so:
+ * <ul>
+ * <li>only the <code>candidates</code> most common entities of a spot, with
+ * commonness at least <code>min-commonness</code>, are considered;</li>
+ * <li>at most <code>max-comparisons</code> relatedness scores are computed for
+ * a document, each spot is compared with the closest spots until its share of
+ * the comparisons is used;</li>
+ * <li>if the request has a {@link DexterLocalParams#BUDGET budget} and its
+ * deadline passes, the remaining spots are resolved with their most common
+ * entity (as in {@link TopScoreEntityDisambiguator}) and the request is marked
+ * as degraded.</li>
+ * </ul>
+ * The spots that cannot reach the minimum confidence of the request, even
+ * with the best vote, are skipped. The commonness weight, the candidates and
+ * the comparisons can be set in the module params, the comparisons also in
+ * the request.
+ * 
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ * 
+ *         Created on Aug 16, 2014
+ */
+public class AnytimeDisambiguator implements Disambiguator {
+
+	private static final Logger logger = LoggerFactory
+			.getLogger(AnytimeDisambiguator.class);
+
+	public static final String CANDIDATES = "candidates";
+	public static final String MIN_COMMONNESS = "min-commonness";
+	public static final String MAX_COMPARISONS = "max-comparisons";
+	public static final String COMMONNESS_WEIGHT = "commonness-weight";
+	public static final String RELATEDNESS = "relatedness";
+
+	/** the deadline is checked every CHECK_INTERVAL comparisons */
+	private static final int CHECK_INTERVAL = 64;
+
+	private int candidates = 5;
+	private double minCommonness = 0.02;
+	private int maxComparisons = 10000;
+	private double commonnessWeight = 0.5;
+	private String relatedness = null;
+
+	@Override
+	public EntityMatchList disambiguate(DexterLocalParams localParams,
+			SpotMatchList sml) {
+		if (localParams == null)
+			localParams = new DexterLocalParams();
+		List<SpotMatch> spots = new ArrayList<SpotMatch>(sml.size());
+		List<EntityMatch[]> pruned = new ArrayList<EntityMatch[]>(sml.size());
+		for (SpotMatch match : sml) {
+			if (!match.getEntities().isEmpty())
+				spots.add(match);
+		}
+		Collections.sort(spots, new Comparator<SpotMatch>() {
+			@Override
+			public int compare(SpotMatch a, SpotMatch b) {
+				return a.getStart() - b.getStart();
+			}
+		});
+		for (SpotMatch match : spots) {
+			pruned.add(prune(match.getEntities()));
+		}
+
+		int comparisons = maxComparisons;
+		if (localParams.containsKey(MAX_COMPARISONS))
+			comparisons = localParams.getIntParam(MAX_COMPARISONS);
+		// the comparisons available to each spot
+		int share = comparisons / Math.max(1, spots.size());
+
+		RelatednessFactory rf = (relatedness == null) ? new RelatednessFactory()
+				: new RelatednessFactory(relatedness);
+		double minConfidence = localParams.getMinConfidence();
+		EntityMatchList eml = new EntityMatchList();
+		int i = 0;
+		for (; i < spots.size() && !localParams.isExpired(); i++) {
+			if (upperBound(pruned.get(i)) < minConfidence)
+				continue;
+			EntityMatch best = vote(rf, i, spots, pruned, share, localParams);
+			if (best == null)
+				break;
+			if (best.getScore() >= minConfidence)
+				eml.add(best);
+		}
+		if (i < spots.size()) {
+			logger.debug("deadline expired, {} of {} spots not disambiguated",
+					spots.size() - i, spots.size());
+			localParams.setDegraded(true);
+			for (; i < spots.size(); i++) {
+				EntityMatch prior = pruned.get(i)[0];
+				if (prior.getScore() >= minConfidence)
+					eml.add(prior);
+			}
+		}
+		return eml;
+	}
+
+	/**
+	 * Selects the candidates without sorting the list of the spot, that is
+	 * shared with the other modules of the pipeline.
+	 * 
+	 * @return the most common candidates of the spot (at least one), sorted by
+	 *         decreasing commonness
+	 */
+	EntityMatch[] prune(EntityMatchList entities) {
+		EntityMatch[] top = new EntityMatch[Math.max(1,
+				Math.min(candidates, entities.size()))];
+		int size = 0;
+		for (EntityMatch e : entities) {
+			if (size == top.length) {
+				if (e.getCommonness() <= top[size - 1].getCommonness())
+					continue;
+				size--;
+			}
+			// insertion in the sorted buffer
+			int pos = size;
+			while (pos > 0
+					&& top[pos - 1].getCommonness() < e.getCommonness()) {
+				top[pos] = top[pos - 1];
+				pos--;
+			}
+			top[pos] = e;
+			size++;
+		}
+		int n = 1;
+		while (n < size && top[n].getCommonness() >= minCommonness) {
+			n++;
+		}
+		return (n < top.length) ? Arrays.copyOf(top, n) : top;
+	}
+
+	/**
+	 * @return the maximum score that a candidate of the spot can get, with
+	 *         the best vote
+	 */
+	private double upperBound(EntityMatch[] candidates) {
+		double bound = 0;
+		for (EntityMatch c : candidates) {
+			bound = Math.max(bound, c.getScore());
+			bound = Math.max(bound, commonnessWeight * c.getCommonness()
+					+ (1 - commonnessWeight));
+		}
+		return bound;
+	}
+
+	/**
+	 * Scores the candidates of the spot i with the votes of the closest spots
+	 * 
+	 * @return the best candidate, or null if the deadline passed
+	 */
+	private EntityMatch vote(RelatednessFactory rf, int i,
+			List<SpotMatch> spots, List<EntityMatch[]> pruned, int share,
+			DexterLocalParams localParams) {
+		EntityMatch[] candidates = pruned.get(i);
+		double[] votes = new double[candidates.length];
+		int contexts = 0;
+		int used = 0;
+		// visits the spots at distance 1, 2, ... on the left and on the right
+		for (int d = 1; d < spots.size(); d++) {
+			for (int j = i - d; j <= i + d; j += 2 * d) {
+				if (j < 0 || j >= spots.size())
+					continue;
+				EntityMatch[] context = pruned.get(j);
+				int cost = candidates.length * context.length;
+				if (contexts > 0 && used + cost > share)
+					return best(spots.get(i), candidates, votes, contexts);
+				double weights = 0;
+				for (EntityMatch b : context)
+					weights += b.getCommonness();
+				for (int c = 0; c < candidates.length; c++) {
+					double vote = 0;
+					for (EntityMatch b : context) {
+						if (++used % CHECK_INTERVAL == 0
+								&& localParams.isExpired())
+							return null;
+						vote += rf.getScore(candidates[c].getId(), b.getId())
+								* b.getCommonness();
+					}
+					if (weights > 0)
+						votes[c] += vote / weights;
+				}
+				contexts++;
+			}
+		}
+		return best(spots.get(i), candidates, votes, contexts);
+	}
+
+	private EntityMatch best(SpotMatch spot, EntityMatch[] candidates,
+			double[] votes, int contexts) {
+		if (contexts == 0)
+			return candidates[0];
+		EntityMatch best = null;
+		double bestScore = -1;
+		for (int c = 0; c < candidates.length; c++) {
+			double score = commonnessWeight * candidates[c].getCommonness()
+					+ (1 - commonnessWeight) * votes[c] / contexts;
+			if (score > bestScore) {
+				bestScore = score;
+				best = candidates[c];
+			}
+		}
+		return new EntityMatch(best.getEntity(), bestScore, spot);
+	}
+
+	@Override
+	public void init(DexterParams dexterParams,
+			DexterLocalParams defaultModuleParams) {
+		if (defaultModuleParams == null)
+			return;
+		if (defaultModuleParams.containsKey(CANDIDATES))
+			candidates = defaultModuleParams.getIntParam(CANDIDATES);
+		if (defaultModuleParams.containsKey(MIN_COMMONNESS))
+			minCommonness = defaultModuleParams
+					.getDoubleParam(MIN_COMMONNESS);
+		if (defaultModuleParams.containsKey(MAX_COMPARISONS))
+			maxComparisons = defaultModuleParams.getIntParam(MAX_COMPARISONS);
+		if (defaultModuleParams.containsKey(COMMONNESS_WEIGHT))
+			commonnessWeight = defaultModuleParams
+					.getDoubleParam(COMMONNESS_WEIGHT);
+		if (defaultModuleParams.containsKey(RELATEDNESS))
+			relatedness = defaultModuleParams.getParam(RELATEDNESS);
+	}
+
+}
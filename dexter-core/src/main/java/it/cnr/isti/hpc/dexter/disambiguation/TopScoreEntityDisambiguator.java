@@ -31,6 +31,7 @@
  */
 package it.cnr.isti.hpc.dexter.disambiguation;
 
+import it.cnr.isti.hpc.dexter.entity.EntityMatch;
 import it.cnr.isti.hpc.dexter.entity.EntityMatchList;
 import it.cnr.isti.hpc.dexter.spot.SpotMatch;
 import it.cnr.isti.hpc.dexter.spot.SpotMatchList;
@@ -42,7 +43,9 @@ import it.cnr.isti.hpc.dexter.util.DexterParams;
  * using the entity with the largest probability to be represented by the spot
  * (this probability is called <i>commonness</i>, and it is computed as the
  * ratio between the links that point to the entity (using the spot as anchor)
- * and the total number of links that have the spot as anchor.
+ * and the total number of links that have the spot as anchor. The spots
+ * whose best entity has a score lower than the minimum confidence of the
+ * request are skipped.
  * 
  * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
  * 
@@ -53,12 +56,17 @@ public class TopScoreEntityDisambiguator implements Disambiguator {
 	@Override
 	public EntityMatchList disambiguate(DexterLocalParams localParams,
 			SpotMatchList sml) {
+		double minConfidence = (localParams == null) ? 0 : localParams
+				.getMinConfidence();
 		EntityMatchList eml = new EntityMatchList();
 		for (SpotMatch match : sml) {
-			EntityMatchList list = match.getEntities();
-			if (!list.isEmpty()) {
-				list.sort();
-				eml.add(list.get(0));
+			EntityMatch best = null;
+			for (EntityMatch em : match.getEntities()) {
+				if (best == null || em.getScore() > best.getScore())
+					best = em;
+			}
+			if (best != null && best.getScore() >= minConfidence) {
+				eml.add(best);
 			}
 		}
 		return eml;
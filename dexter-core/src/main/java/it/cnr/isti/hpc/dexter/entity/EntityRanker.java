@@ -21,6 +21,8 @@ import it.cnr.isti.hpc.dexter.spot.ContextExtractor;
 import it.cnr.isti.hpc.dexter.spot.SpotMatch;
 import it.cnr.isti.hpc.dexter.util.DexterParams;
 
+import java.util.List;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,15 +31,16 @@ import org.slf4j.LoggerFactory;
  * can be based on two different measure:
  * <ul>
  * <li>the similarity (tf-idf) between a text window around the spot and the
- * wikipedia article related to the entity, if in properties
- * <code>rank.by.similarity</code> is true;</li>
+ * wikipedia article related to the entity, if the spotter param
+ * <code>rank-by-similarity</code> is true;</li>
  * <li>the commonness score, i.e. the probability that the target of the spot is
- * this entity ( <code>p(entity|spot)</code>), if in properties
- * <code>rank.by.commonness</code> is true.
+ * this entity ( <code>p(entity|spot)</code>), otherwise.
  * </ul>
  * 
  * The entity ranker also prune candidate entities with a score lower than the
- * value 'entity.commonness.threshold' defined in the project.properties.
+ * value 'entity.commonness.threshold' defined in the project.properties, and
+ * keeps only the <code>candidates</code> most common entities of a spot, so
+ * that the other candidates are neither scored nor disambiguated.
  * 
  * <strong> WARNING: </strong> this class could be removed or radically modified
  * in the future
@@ -57,63 +60,130 @@ public class EntityRanker {
 	ContextExtractor context;
 	private LuceneHelper helper;
 	// FIXME move candidate entity ranker outside
-	private final boolean RANK_BY_PRIOR = true;
+	private final boolean RANK_BY_PRIOR;
+	private final boolean RANK_BY_SIMILARITY;
+	private final int candidates;
 
 	double commonnessThreshold = params.getThreshold("commonness");
 
-	// private final int WINDOW_SIZE = properties.getInt("context.window.size");
+	public static final int DEFAULT_WINDOW_SIZE = 50;
 
 	public EntityRanker(Field field) {
+		this(field, false);
+	}
+
+	/**
+	 * @param field
+	 *            - the field containing the spots to rank
+	 * @param rankBySimilarity
+	 *            - if true the entities are ranked by the similarity between
+	 *            their article and the context of the spot, otherwise by
+	 *            commonness
+	 */
+	public EntityRanker(Field field, boolean rankBySimilarity) {
+		this(field, rankBySimilarity, DEFAULT_WINDOW_SIZE);
+	}
+
+	public EntityRanker(Field field, boolean rankBySimilarity, int windowSize) {
+		this(field, rankBySimilarity, windowSize, Integer.MAX_VALUE);
+	}
 
-		// if (RANK_BY_SIMILARITY) {
-		// logger.info("(e|s) using cosine similarity");
-		// helper = LuceneHelper.getDexterLuceneHelper();
-		// context = new ContextExtractor(field);
-		// context.setWindowSize(WINDOW_SIZE);
-		// } else {
-		if (RANK_BY_PRIOR) {
-			logger.info("(e|s) using prior probability");
-		} else
-			logger.info("(e|s) NO PROBABILITY");
-		// }
+	/**
+	 * @param candidates
+	 *            - the maximum number of candidate entities kept for each
+	 *            spot
+	 */
+	public EntityRanker(Field field, boolean rankBySimilarity,
+			int windowSize, int candidates) {
+		// the index of the model used by the request
+		this(field, rankBySimilarity ? DexterParams.getInstance().getModel()
+				.getLuceneHelper() : null, windowSize, candidates);
+	}
+
+	/**
+	 * @param helper
+	 *            - the index used to rank the entities by the similarity
+	 *            between their article and the context of the spot, if null
+	 *            the entities are ranked by commonness
+	 */
+	public EntityRanker(Field field, LuceneHelper helper, int windowSize,
+			int candidates) {
+		this.candidates = candidates;
+		RANK_BY_SIMILARITY = helper != null;
+		RANK_BY_PRIOR = !RANK_BY_SIMILARITY;
+		if (RANK_BY_SIMILARITY) {
+			logger.debug("(e|s) using cosine similarity");
+			this.helper = helper;
+			context = new ContextExtractor(field);
+			context.setWindowSize(windowSize);
+		} else {
+			logger.debug("(e|s) using prior probability");
+		}
 	}
 
 	public EntityMatchList rank(SpotMatch spot) {
 
-		// EntityMatchList eml = filterEntitiesByPrior(spot);
 		EntityMatchList eml = new EntityMatchList();
 		EntityMatch match = null;
 		// can't happen that prior and similarity are both true
-		// assert (!RANK_BY_PRIOR || !RANK_BY_SIMILARITY);
-		if (RANK_BY_PRIOR) {
+		assert (!RANK_BY_PRIOR || !RANK_BY_SIMILARITY);
+		for (Entity e : top(spot)) {
+			match = new EntityMatch(e, spot.getEntityCommonness(e), spot);
+			eml.add(match);
+		}
 
-			for (Entity e : spot.getSpot().getEntities()) {
-				if (spot.getEntityCommonness(e) < commonnessThreshold) {
-					logger.debug("filtering entity {}, low commonness ",
-							e.getId());
+		if (RANK_BY_SIMILARITY && !eml.isEmpty()) {
+			// all the candidates are scored with a single query
+			String c = context.getContext(spot.getMention());
+			logger.debug("context spot {} = {}", spot.getMention(), c);
+			helper.rankBySimilarity(spot, eml, c);
+		}
+		return eml;
+	}
+
+	/**
+	 * @return the most common entities of the spot (at most
+	 *         <code>candidates</code>) with commonness above the threshold,
+	 *         sorted by decreasing commonness
+	 */
+	private Entity[] top(SpotMatch spot) {
+		List<Entity> entities = spot.getSpot().getEntities();
+		Entity[] top = new Entity[Math.min(candidates, entities.size())];
+		if (top.length == 0)
+			return top;
+		// the following entities of a sorted spot are less common
+		boolean sorted = spot.getSpot().isSortedByFrequency();
+		int size = 0;
+		for (Entity e : entities) {
+			if (spot.getEntityCommonness(e) < commonnessThreshold) {
+				if (sorted)
+					break;
+				logger.debug("filtering entity {}, low commonness ",
+						e.getId());
+				continue;
+			}
+			if (size == top.length) {
+				if (sorted)
+					break;
+				if (e.getFrequency() <= top[size - 1].getFrequency())
 					continue;
-				}
-				match = new EntityMatch(e, spot.getEntityCommonness(e), spot);
-				eml.add(match);
+				size--;
 			}
-
+			// insertion in the sorted buffer
+			int pos = size;
+			while (pos > 0 && top[pos - 1].getFrequency() < e.getFrequency()) {
+				top[pos] = top[pos - 1];
+				pos--;
+			}
+			top[pos] = e;
+			size++;
 		}
-		// if (RANK_BY_SIMILARITY) {
-		// for (Entity e : spot.getSpot().getEntities()) {
-		// if (spot.getEntityCommonness(e) < commonnessThreshold) {
-		// logger.info("filtering entity {}, low commonness ",
-		// e.getId());
-		// continue;
-		// }
-		// match = new EntityMatch(e, 0, spot);
-		// eml.add(match);
-		// }
-
-		// String c = context.getContext(spot.getMention());
-		// logger.debug("context spot {} = {}", spot.getMention(), c);
-		// helper.rankBySimilarity(spot, eml, c);
-		// }
-		return eml;
+		if (size < top.length) {
+			Entity[] shorter = new Entity[size];
+			System.arraycopy(top, 0, shorter, 0, size);
+			return shorter;
+		}
+		return top;
 	}
 
 }
@@ -0,0 +1,390 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.graph;
+
+import it.cnr.isti.hpc.dexter.util.DexterParams;
+import it.cnr.isti.hpc.io.Serializer;
+import it.cnr.isti.hpc.log.ProgressLogger;
+import it.unimi.dsi.fastutil.bytes.ByteArrayList;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The precomputed closure of the category graph: for each entity, the
+ * categories reachable from the entity in at most <code>depth</code> steps
+ * (its categories are at depth 1, their parents at depth 2, and so on), and
+ * for each category the entities in its subtree (i.e., the entities that have
+ * the category among their ancestors). Cycles in the category graph are
+ * visited only once.
+ * <p>
+ * Both the relations are kept as sorted lists of ids, gap encoded with
+ * variable length integers in chunks of bytes, so that a membership query
+ * decodes only the ancestors of the entity smaller than the category, without
+ * allocating memory.
+ *
+ * @see it.cnr.isti.hpc.dexter.cli.graph.IndexCategoryAncestorsCLI
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 14, 2014
+ */
+public class CategoryClosure implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final Logger logger = LoggerFactory
+			.getLogger(CategoryClosure.class);
+
+	private static volatile CategoryClosure instance;
+
+	private final int depth;
+	private final CompressedLists ancestors;
+	private final CompressedLists subtrees;
+
+	private CategoryClosure(int depth, CompressedLists ancestors,
+			CompressedLists subtrees) {
+		this.depth = depth;
+		this.ancestors = ancestors;
+		this.subtrees = subtrees;
+	}
+
+	/**
+	 * @return the closure of the model, loaded from
+	 *         {@link DexterParams#getCategoryAncestorsFile()}
+	 */
+	public static CategoryClosure getInstance() {
+		if (instance == null) {
+			synchronized (CategoryClosure.class) {
+				if (instance == null)
+					instance = load(DexterParams.getInstance()
+							.getCategoryAncestorsFile());
+			}
+		}
+		return instance;
+	}
+
+	public static CategoryClosure load(File file) {
+		logger.info("loading the category closure from {}", file);
+		Serializer serializer = new Serializer();
+		return (CategoryClosure) serializer.load(file.getAbsolutePath());
+	}
+
+	public void dump(File file) {
+		logger.info("storing the category closure in {}", file);
+		Serializer serializer = new Serializer();
+		serializer.dump(this, file.getAbsolutePath());
+	}
+
+	/**
+	 * Computes the closure of the category graph
+	 *
+	 * @param entities
+	 *            the entities, each one returned once
+	 * @param entityCategories
+	 *            the graph returning the categories of an entity
+	 * @param parentCategories
+	 *            the graph returning the parent categories of a category
+	 * @param depth
+	 *            the max depth of an ancestor (1 for the categories of the
+	 *            entity)
+	 */
+	public static CategoryClosure build(int[] entities,
+			NodeStar entityCategories, NodeStar parentCategories, int depth) {
+		if (depth < 1)
+			throw new IllegalArgumentException("depth must be at least 1");
+		entities = Arrays.copyOf(entities, entities.length);
+		Arrays.sort(entities);
+		CompressedLists.Writer ancestorsWriter = new CompressedLists.Writer();
+		// the subtrees are built while visiting the entities by increasing id,
+		// so that each list is sorted
+		Int2ObjectOpenHashMap<ByteArrayList> subtrees = new Int2ObjectOpenHashMap<ByteArrayList>();
+		Int2IntOpenHashMap lastEntity = new Int2IntOpenHashMap();
+		IntOpenHashSet visited = new IntOpenHashSet();
+		IntArrayList frontier = new IntArrayList();
+		IntArrayList next = new IntArrayList();
+		ProgressLogger pl = new ProgressLogger(
+				"computed the ancestors of {} entities", 100000);
+		for (int entity : entities) {
+			pl.up();
+			visited.clear();
+			frontier.clear();
+			for (int category : entityCategories.getNeighbours(entity)) {
+				if (visited.add(category))
+					frontier.add(category);
+			}
+			for (int d = 1; d < depth && !frontier.isEmpty(); d++) {
+				next.clear();
+				for (int i = 0; i < frontier.size(); i++) {
+					for (int parent : parentCategories.getNeighbours(frontier
+							.getInt(i))) {
+						if (visited.add(parent))
+							next.add(parent);
+					}
+				}
+				IntArrayList tmp = frontier;
+				frontier = next;
+				next = tmp;
+			}
+			if (visited.isEmpty())
+				continue;
+			int[] closure = visited.toIntArray();
+			Arrays.sort(closure);
+			ancestorsWriter.add(entity, closure);
+			for (int category : closure) {
+				ByteArrayList subtree = subtrees.get(category);
+				int previous = 0;
+				if (subtree == null) {
+					subtree = new ByteArrayList();
+					subtrees.put(category, subtree);
+				} else {
+					previous = lastEntity.get(category);
+				}
+				CompressedLists.writeInt(subtree, entity - previous);
+				lastEntity.put(category, entity);
+			}
+		}
+		int[] categories = subtrees.keySet().toIntArray();
+		Arrays.sort(categories);
+		CompressedLists.Writer subtreesWriter = new CompressedLists.Writer();
+		for (int category : categories) {
+			subtreesWriter.addEncoded(category, subtrees.remove(category));
+		}
+		CategoryClosure closure = new CategoryClosure(depth,
+				ancestorsWriter.build(), subtreesWriter.build());
+		logger.info("{} entities, {} categories, {} bytes", new Object[] {
+				closure.ancestors.size(), closure.subtrees.size(),
+				closure.ancestors.bytes() + closure.subtrees.bytes() });
+		return closure;
+	}
+
+	/**
+	 * @return the max depth of the ancestors
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * @return true if the category is an ancestor of the entity
+	 */
+	public boolean isAncestor(int category, int entity) {
+		return ancestors.contains(entity, category);
+	}
+
+	/**
+	 * @return the ancestor categories of the entity, sorted by id
+	 */
+	public int[] getAncestors(int entity) {
+		return ancestors.get(entity);
+	}
+
+	/**
+	 * @return the entities in the subtree of the category, sorted by id
+	 */
+	public int[] getSubtreeEntities(int category) {
+		return subtrees.get(category);
+	}
+
+	/**
+	 * Lists of non-negative ids, sorted and gap encoded with variable length
+	 * integers (7 bits per byte, the high bit set on the last byte), indexed
+	 * by a sorted array of keys. The encoded lists can be larger than an
+	 * array: they are stored in chunks of 2^chunkBits bytes, and addressed by
+	 * long offsets.
+	 */
+	static class CompressedLists implements Serializable {
+
+		private static final long serialVersionUID = 2L;
+
+		/** chunks of 1 GB */
+		static final int CHUNK_BITS = 30;
+
+		private final int[] keys;
+		private final long[] offsets;
+		private final byte[][] chunks;
+		private final int chunkBits;
+		private final int chunkMask;
+
+		private CompressedLists(int[] keys, long[] offsets, byte[][] chunks,
+				int chunkBits) {
+			this.keys = keys;
+			this.offsets = offsets;
+			this.chunks = chunks;
+			this.chunkBits = chunkBits;
+			chunkMask = (1 << chunkBits) - 1;
+		}
+
+		int size() {
+			return keys.length;
+		}
+
+		long bytes() {
+			long bytes = 4L * keys.length + 8L * offsets.length;
+			for (byte[] chunk : chunks)
+				bytes += chunk.length;
+			return bytes;
+		}
+
+		private byte byteAt(long pos) {
+			return chunks[(int) (pos >>> chunkBits)][(int) pos & chunkMask];
+		}
+
+		int[] get(int key) {
+			int k = Arrays.binarySearch(keys, key);
+			if (k < 0)
+				return new int[0];
+			long end = offsets[k + 1];
+			int[] values = new int[16];
+			int n = 0;
+			int value = 0;
+			long pos = offsets[k];
+			while (pos < end) {
+				int gap = 0;
+				int shift = 0;
+				byte b;
+				do {
+					b = byteAt(pos++);
+					gap |= (b & 0x7F) << shift;
+					shift += 7;
+				} while (b >= 0);
+				value += gap;
+				if (n == values.length)
+					values = Arrays.copyOf(values, 2 * n);
+				values[n++] = value;
+			}
+			return Arrays.copyOf(values, n);
+		}
+
+		boolean contains(int key, int target) {
+			int k = Arrays.binarySearch(keys, key);
+			if (k < 0)
+				return false;
+			long end = offsets[k + 1];
+			int value = 0;
+			long pos = offsets[k];
+			while (pos < end) {
+				int gap = 0;
+				int shift = 0;
+				byte b;
+				do {
+					b = byteAt(pos++);
+					gap |= (b & 0x7F) << shift;
+					shift += 7;
+				} while (b >= 0);
+				value += gap;
+				if (value >= target)
+					return value == target;
+			}
+			return false;
+		}
+
+		static void writeInt(ByteArrayList out, int value) {
+			while (value >= 0x80) {
+				out.add((byte) (value & 0x7F));
+				value >>>= 7;
+			}
+			out.add((byte) (value | 0x80));
+		}
+
+		/**
+		 * Writes the lists, that must be added by increasing key
+		 */
+		static class Writer {
+			private final IntArrayList keys = new IntArrayList();
+			private final LongArrayList offsets = new LongArrayList();
+			private final List<byte[]> chunks = new ArrayList<byte[]>();
+			private final int chunkBits;
+			private final int chunkSize;
+			private ByteArrayList chunk = new ByteArrayList();
+			private final ByteArrayList buffer = new ByteArrayList();
+			private long size = 0;
+
+			Writer() {
+				this(CHUNK_BITS);
+			}
+
+			/**
+			 * @param chunkBits
+			 *            the chunks of the lists contain 2^chunkBits bytes
+			 */
+			Writer(int chunkBits) {
+				this.chunkBits = chunkBits;
+				chunkSize = 1 << chunkBits;
+			}
+
+			void add(int key, int[] sortedValues) {
+				start(key);
+				buffer.clear();
+				int previous = 0;
+				for (int value : sortedValues) {
+					writeInt(buffer, value - previous);
+					previous = value;
+				}
+				write(buffer);
+			}
+
+			void addEncoded(int key, ByteArrayList encoded) {
+				start(key);
+				write(encoded);
+			}
+
+			private void start(int key) {
+				if (!keys.isEmpty() && keys.getInt(keys.size() - 1) >= key)
+					throw new IllegalArgumentException(
+							"keys must be added in increasing order");
+				keys.add(key);
+				offsets.add(size);
+			}
+
+			private void write(ByteArrayList bytes) {
+				int from = 0;
+				int length = bytes.size();
+				while (length > 0) {
+					if (chunk.size() == chunkSize) {
+						chunks.add(chunk.toByteArray());
+						chunk = new ByteArrayList();
+					}
+					int n = Math.min(length, chunkSize - chunk.size());
+					chunk.addElements(chunk.size(), bytes.elements(), from, n);
+					from += n;
+					length -= n;
+					size += n;
+				}
+			}
+
+			CompressedLists build() {
+				offsets.add(size);
+				chunks.add(chunk.toByteArray());
+				return new CompressedLists(keys.toIntArray(),
+						offsets.toLongArray(),
+						chunks.toArray(new byte[chunks.size()][]), chunkBits);
+			}
+		}
+	}
+
+}
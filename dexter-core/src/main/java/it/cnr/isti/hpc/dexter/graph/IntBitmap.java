@@ -0,0 +1,252 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.graph;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * An immutable set of non negative integers, split in containers of
+ * 2<sup>16</sup> values as in Roaring bitmaps: the values sharing the 16 most
+ * significant bits are kept either in a sorted array of chars (if they are at
+ * most {@link #ARRAY_MAX}) or in a bitmap of 1024 longs. Used for the
+ * neighbours of the dense nodes of a graph (e.g., the in-links of countries,
+ * cities and years), where it allows to compute the size of the intersection
+ * with a sorted list: an element of the list falling in a dense container is
+ * tested in constant time, in a sparse container with a binary search (that
+ * starts after the previous match). With ids spread over a large range, as
+ * the Wikipedia ids, most of the containers are sparse. Two bitmaps are
+ * intersected ANDing the words of their dense containers, and merging the
+ * sparse ones.
+ *
+ * @see it.cnr.isti.hpc.dexter.graph.ram.RamNodes
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 16, 2014
+ */
+public class IntBitmap implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * containers with more values than this are stored as bitmaps (an array
+	 * of 4096 chars takes as much memory as a bitmap)
+	 */
+	public static final int ARRAY_MAX = 4096;
+
+	private static final int WORDS = (1 << 16) / 64;
+
+	/** the 16 most significant bits of the values in each container */
+	private final char[] keys;
+	/** the sparse containers, null for the dense ones */
+	private final char[][] arrays;
+	/** the dense containers, null for the sparse ones */
+	private final long[][] bitmaps;
+	private final int cardinality;
+
+	/**
+	 * @param values
+	 *            a sorted list of distinct non negative integers
+	 */
+	public IntBitmap(int[] values) {
+		int containers = 0;
+		for (int i = 0; i < values.length; i++) {
+			if (i == 0 || high(values[i]) != high(values[i - 1]))
+				containers++;
+		}
+		keys = new char[containers];
+		arrays = new char[containers][];
+		bitmaps = new long[containers][];
+		int c = 0;
+		int start = 0;
+		while (start < values.length) {
+			char key = high(values[start]);
+			int end = start + 1;
+			while (end < values.length && high(values[end]) == key)
+				end++;
+			keys[c] = key;
+			if (end - start > ARRAY_MAX) {
+				long[] bitmap = new long[WORDS];
+				for (int i = start; i < end; i++) {
+					int low = values[i] & 0xFFFF;
+					bitmap[low >>> 6] |= 1L << low;
+				}
+				bitmaps[c] = bitmap;
+			} else {
+				char[] array = new char[end - start];
+				for (int i = start; i < end; i++) {
+					array[i - start] = (char) values[i];
+				}
+				arrays[c] = array;
+			}
+			c++;
+			start = end;
+		}
+		cardinality = values.length;
+	}
+
+	private static char high(int value) {
+		return (char) (value >>> 16);
+	}
+
+	/**
+	 * @return the number of values in the set
+	 */
+	public int getCardinality() {
+		return cardinality;
+	}
+
+	public boolean contains(int value) {
+		int c = Arrays.binarySearch(keys, high(value));
+		if (c < 0)
+			return false;
+		if (bitmaps[c] != null)
+			return contains(bitmaps[c], (char) value);
+		return Arrays.binarySearch(arrays[c], (char) value) >= 0;
+	}
+
+	private static boolean contains(long[] bitmap, char low) {
+		return (bitmap[low >>> 6] & (1L << low)) != 0;
+	}
+
+	/**
+	 * @return the values in the set, sorted
+	 */
+	public int[] toArray() {
+		int[] values = new int[cardinality];
+		int k = 0;
+		for (int c = 0; c < keys.length; c++) {
+			int base = keys[c] << 16;
+			if (bitmaps[c] != null) {
+				long[] bitmap = bitmaps[c];
+				for (int w = 0; w < WORDS; w++) {
+					long word = bitmap[w];
+					while (word != 0) {
+						values[k++] = base | (w << 6)
+								| Long.numberOfTrailingZeros(word);
+						word &= word - 1;
+					}
+				}
+			} else {
+				for (char low : arrays[c]) {
+					values[k++] = base | low;
+				}
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * @param values
+	 *            a sorted list of distinct non negative integers
+	 * @return the number of values of the list contained in the set
+	 */
+	public int intersectionSize(int[] values) {
+		int size = 0;
+		int c = 0;
+		// position of the next candidate in the current sparse container
+		int from = 0;
+		for (int i = 0; i < values.length && c < keys.length; i++) {
+			char key = high(values[i]);
+			if (keys[c] != key) {
+				while (c < keys.length && keys[c] < key) {
+					c++;
+					from = 0;
+				}
+				if (c == keys.length || keys[c] != key)
+					continue;
+			}
+			char low = (char) values[i];
+			if (bitmaps[c] != null) {
+				if (contains(bitmaps[c], low))
+					size++;
+				continue;
+			}
+			char[] array = arrays[c];
+			int pos = Arrays.binarySearch(array, from, array.length, low);
+			if (pos >= 0) {
+				size++;
+				from = pos + 1;
+			} else {
+				from = -pos - 1;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * @return the number of values contained in both the sets
+	 */
+	public int intersectionSize(IntBitmap other) {
+		int size = 0;
+		int i = 0;
+		int j = 0;
+		while (i < keys.length && j < other.keys.length) {
+			if (keys[i] < other.keys[j]) {
+				i++;
+				continue;
+			}
+			if (keys[i] > other.keys[j]) {
+				j++;
+				continue;
+			}
+			long[] a = bitmaps[i];
+			long[] b = other.bitmaps[j];
+			if (a != null && b != null) {
+				for (int w = 0; w < WORDS; w++) {
+					size += Long.bitCount(a[w] & b[w]);
+				}
+			} else if (a != null) {
+				size += count(a, other.arrays[j]);
+			} else if (b != null) {
+				size += count(b, arrays[i]);
+			} else {
+				size += intersectionSize(arrays[i], other.arrays[j]);
+			}
+			i++;
+			j++;
+		}
+		return size;
+	}
+
+	private static int count(long[] bitmap, char[] array) {
+		int size = 0;
+		for (char low : array) {
+			if (contains(bitmap, low))
+				size++;
+		}
+		return size;
+	}
+
+	private static int intersectionSize(char[] a, char[] b) {
+		int i = 0, j = 0;
+		int size = 0;
+		while (i < a.length && j < b.length) {
+			if (a[i] < b[j]) {
+				i++;
+			} else if (a[i] > b[j]) {
+				j++;
+			} else {
+				size++;
+				i++;
+				j++;
+			}
+		}
+		return size;
+	}
+
+}
@@ -0,0 +1,269 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.graph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+
+/**
+ * Set operations over the neighbours of several nodes, and bounded k-hop
+ * expansion. The neighbours returned by a {@link NodeStar} are sorted by id,
+ * so intersection, union and difference are computed merging the lists
+ * (intersections start from the shortest list, and stop as soon as the result
+ * is empty). All the results are sorted by id.
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 13, 2014
+ */
+public class NeighbourSets {
+
+	private static final Comparator<int[]> BY_LENGTH = new Comparator<int[]>() {
+
+		@Override
+		public int compare(int[] a, int[] b) {
+			return a.length - b.length;
+		}
+	};
+
+	private NeighbourSets() {
+	}
+
+	private static int[][] neighbours(NodeStar graph, int[] nodes) {
+		int[][] lists = new int[nodes.length][];
+		for (int i = 0; i < nodes.length; i++) {
+			lists[i] = graph.getNeighbours(nodes[i]);
+		}
+		return lists;
+	}
+
+	/**
+	 * @return the nodes that are neighbours of all the given nodes
+	 */
+	public static int[] intersection(NodeStar graph, int... nodes) {
+		if (nodes.length == 0)
+			return new int[0];
+		int[][] lists = neighbours(graph, nodes);
+		Arrays.sort(lists, BY_LENGTH);
+		int[] result = lists[0];
+		for (int i = 1; i < lists.length && result.length > 0; i++) {
+			result = intersect(result, lists[i]);
+		}
+		if (result == lists[0])
+			result = Arrays.copyOf(result, result.length);
+		return result;
+	}
+
+	/**
+	 * @return the nodes that are neighbours of at least one of the given nodes
+	 */
+	public static int[] union(NodeStar graph, int... nodes) {
+		int[][] lists = neighbours(graph, nodes);
+		Arrays.sort(lists, BY_LENGTH);
+		int[] result = new int[0];
+		for (int[] list : lists) {
+			result = merge(result, list);
+		}
+		return result;
+	}
+
+	/**
+	 * @return the neighbours of the first node that are not neighbours of any
+	 *         of the others
+	 */
+	public static int[] difference(NodeStar graph, int... nodes) {
+		if (nodes.length == 0)
+			return new int[0];
+		int[] result = graph.getNeighbours(nodes[0]);
+		for (int i = 1; i < nodes.length && result.length > 0; i++) {
+			result = subtract(result, graph.getNeighbours(nodes[i]));
+		}
+		if (nodes.length == 1)
+			result = Arrays.copyOf(result, result.length);
+		return result;
+	}
+
+	/**
+	 * Intersects two sorted lists, if one is much shorter than the other its
+	 * elements are searched with a binary search.
+	 */
+	static int[] intersect(int[] a, int[] b) {
+		if (a.length > b.length) {
+			int[] t = a;
+			a = b;
+			b = t;
+		}
+		int[] result = new int[a.length];
+		int n = 0;
+		if (a.length * 16 < b.length) {
+			int from = 0;
+			for (int x : a) {
+				int pos = Arrays.binarySearch(b, from, b.length, x);
+				if (pos >= 0) {
+					result[n++] = x;
+					from = pos + 1;
+				} else {
+					from = -pos - 1;
+				}
+				if (from == b.length)
+					break;
+			}
+		} else {
+			int i = 0, j = 0;
+			while (i < a.length && j < b.length) {
+				if (a[i] < b[j]) {
+					i++;
+				} else if (a[i] > b[j]) {
+					j++;
+				} else {
+					result[n++] = a[i];
+					i++;
+					j++;
+				}
+			}
+		}
+		return Arrays.copyOf(result, n);
+	}
+
+	static int[] merge(int[] a, int[] b) {
+		int[] result = new int[a.length + b.length];
+		int i = 0, j = 0, n = 0;
+		while (i < a.length && j < b.length) {
+			if (a[i] < b[j]) {
+				result[n++] = a[i++];
+			} else if (a[i] > b[j]) {
+				result[n++] = b[j++];
+			} else {
+				result[n++] = a[i++];
+				j++;
+			}
+		}
+		while (i < a.length)
+			result[n++] = a[i++];
+		while (j < b.length)
+			result[n++] = b[j++];
+		return Arrays.copyOf(result, n);
+	}
+
+	static int[] subtract(int[] a, int[] b) {
+		int[] result = new int[a.length];
+		int i = 0, j = 0, n = 0;
+		while (i < a.length) {
+			while (j < b.length && b[j] < a[i])
+				j++;
+			if (j == b.length || b[j] != a[i])
+				result[n++] = a[i];
+			i++;
+		}
+		return Arrays.copyOf(result, n);
+	}
+
+	/**
+	 * Returns the nodes reachable from the given nodes in at most the given
+	 * number of hops (the given nodes excluded), visiting the graph breadth
+	 * first. The visited nodes are marked in a bitset. If a frontier grows
+	 * larger than maxFrontier, the nodes exceeding the limit are not expanded
+	 * (nor returned) and the expansion is marked as truncated.
+	 *
+	 * @param graph
+	 *            the graph to visit
+	 * @param nodes
+	 *            the starting nodes
+	 * @param hops
+	 *            the max distance from the starting nodes
+	 * @param maxFrontier
+	 *            the max number of nodes in a frontier
+	 */
+	public static Expansion expand(NodeStar graph, int[] nodes, int hops,
+			int maxFrontier) {
+		BitSet visited = new BitSet();
+		int[] frontier = new int[nodes.length];
+		int size = 0;
+		for (int node : nodes) {
+			if (node >= 0 && !visited.get(node)) {
+				visited.set(node);
+				frontier[size++] = node;
+			}
+		}
+		frontier = Arrays.copyOf(frontier, size);
+		int[] reached = new int[0];
+		int depth = 0;
+		boolean truncated = false;
+		while (depth < hops && frontier.length > 0 && !truncated) {
+			int[] next = new int[16];
+			int n = 0;
+			for (int node : frontier) {
+				for (int neighbour : graph.getNeighbours(node)) {
+					if (neighbour < 0 || visited.get(neighbour))
+						continue;
+					if (n == maxFrontier) {
+						truncated = true;
+						break;
+					}
+					visited.set(neighbour);
+					if (n == next.length)
+						next = Arrays.copyOf(next, Math.min(2 * n, maxFrontier));
+					next[n++] = neighbour;
+				}
+				if (truncated)
+					break;
+			}
+			frontier = Arrays.copyOf(next, n);
+			Arrays.sort(frontier);
+			reached = merge(reached, frontier);
+			depth++;
+		}
+		return new Expansion(reached, depth, truncated);
+	}
+
+	/**
+	 * The result of a k-hop expansion
+	 */
+	public static class Expansion {
+		private final int[] nodes;
+		private final int hops;
+		private final boolean truncated;
+
+		Expansion(int[] nodes, int hops, boolean truncated) {
+			this.nodes = nodes;
+			this.hops = hops;
+			this.truncated = truncated;
+		}
+
+		/**
+		 * @return the reached nodes, sorted by id
+		 */
+		public int[] getNodes() {
+			return nodes;
+		}
+
+		/**
+		 * @return the number of hops performed
+		 */
+		public int getHops() {
+			return hops;
+		}
+
+		/**
+		 * @return true if a frontier exceeded the max size
+		 */
+		public boolean isTruncated() {
+			return truncated;
+		}
+	}
+
+}
@@ -0,0 +1,169 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.graph;
+
+import it.cnr.isti.hpc.dexter.graph.ram.RamNodes;
+
+import java.util.Arrays;
+
+/**
+ * Selects a page of the neighbours of a node, optionally ordered by id or by
+ * the in-degree of the neighbours, without copying more than the page. When
+ * the neighbours are ordered by in-degree and the page is small, only the
+ * first offset+limit neighbours are selected (with a heap), so that the cost
+ * is O(n log(offset+limit)) instead of sorting all the neighbours.
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 13, 2014
+ */
+public class Neighbourhood {
+
+	public enum Order {
+		/** the order of the graph (usually by id) */
+		STORED,
+		/** by increasing id */
+		ID,
+		/** by decreasing in-degree, ties by increasing id */
+		INDEGREE;
+
+		/**
+		 * @return the order with the given name (case insensitive), STORED if
+		 *         the name is null or empty
+		 * @throws IllegalArgumentException
+		 *             if the order does not exist
+		 */
+		public static Order parse(String name) {
+			if (name == null || name.isEmpty())
+				return STORED;
+			return valueOf(name.toUpperCase());
+		}
+	};
+
+	private Neighbourhood() {
+	}
+
+	/**
+	 * Returns a page of the neighbours of a node
+	 *
+	 * @param neighbours
+	 *            the neighbours of the node (not modified)
+	 * @param order
+	 *            the order of the neighbours
+	 * @param degrees
+	 *            the graph used to compute the in-degree of the neighbours,
+	 *            used only if the order is INDEGREE
+	 * @param offset
+	 *            the number of neighbours to skip
+	 * @param limit
+	 *            the max number of neighbours to return, or a negative number
+	 *            to return all the neighbours after the offset
+	 * @return the neighbours in the page
+	 */
+	public static int[] page(int[] neighbours, Order order, NodeStar degrees,
+			int offset, int limit) {
+		int n = neighbours.length;
+		if (offset < 0)
+			offset = 0;
+		if (offset >= n || limit == 0)
+			return new int[0];
+		int end = (limit < 0 || limit > n - offset) ? n : offset + limit;
+		switch (order) {
+		case ID:
+			int[] sorted = Arrays.copyOf(neighbours, n);
+			Arrays.sort(sorted);
+			return Arrays.copyOfRange(sorted, offset, end);
+		case INDEGREE:
+			return byInDegree(neighbours, degrees, offset, end);
+		default:
+			return Arrays.copyOfRange(neighbours, offset, end);
+		}
+	}
+
+	/**
+	 * Encodes a neighbour in a long so that ordering the longs orders the
+	 * neighbours by decreasing degree and increasing id
+	 */
+	private static long key(int id, int degree) {
+		return ((long) (Integer.MAX_VALUE - degree) << 32)
+				| ((id ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+	}
+
+	private static int id(long key) {
+		return ((int) key) ^ Integer.MIN_VALUE;
+	}
+
+	private static int[] byInDegree(int[] neighbours, NodeStar degrees,
+			int offset, int end) {
+		int n = neighbours.length;
+		long[] keys;
+		if (end < n / 2) {
+			// keeps the end smallest keys in a max-heap
+			keys = new long[end];
+			int size = 0;
+			for (int id : neighbours) {
+				long key = key(id, RamNodes.degree(degrees, id));
+				if (size < end) {
+					keys[size] = key;
+					siftUp(keys, size++);
+				} else if (key < keys[0]) {
+					keys[0] = key;
+					siftDown(keys, end);
+				}
+			}
+		} else {
+			keys = new long[n];
+			for (int i = 0; i < n; i++) {
+				keys[i] = key(neighbours[i],
+						RamNodes.degree(degrees, neighbours[i]));
+			}
+		}
+		Arrays.sort(keys);
+		int[] page = new int[end - offset];
+		for (int i = offset; i < end; i++) {
+			page[i - offset] = id(keys[i]);
+		}
+		return page;
+	}
+
+	private static void siftUp(long[] heap, int i) {
+		long key = heap[i];
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (heap[parent] >= key)
+				break;
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		heap[i] = key;
+	}
+
+	private static void siftDown(long[] heap, int size) {
+		long key = heap[0];
+		int i = 0;
+		int child;
+		while ((child = 2 * i + 1) < size) {
+			if (child + 1 < size && heap[child + 1] > heap[child])
+				child++;
+			if (heap[child] <= key)
+				break;
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = key;
+	}
+
+}
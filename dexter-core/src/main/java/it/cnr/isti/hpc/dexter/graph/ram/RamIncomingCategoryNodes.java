@@ -20,6 +20,8 @@ import it.cnr.isti.hpc.dexter.graph.NodeStar;
 import it.cnr.isti.hpc.dexter.graph.NodesWriter;
 import it.cnr.isti.hpc.dexter.util.DexterParams;
 
+import java.io.File;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,6 +46,13 @@ public class RamIncomingCategoryNodes extends RamNodes implements
 		super(params.getGraph("category-category", NodeStar.Direction.IN));
 	}
 
+	/**
+	 * Loads the incoming category nodes serialized in the given file
+	 */
+	public RamIncomingCategoryNodes(File serializedFile) {
+		super(serializedFile);
+	}
+
 	public static RamIncomingCategoryNodes getInstance() {
 		if (instance == null) {
 			logger.info("Loading ram incoming category nodes");
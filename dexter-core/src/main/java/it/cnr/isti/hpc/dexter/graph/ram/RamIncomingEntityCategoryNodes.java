@@ -20,6 +20,8 @@ import it.cnr.isti.hpc.dexter.graph.NodeStar;
 import it.cnr.isti.hpc.dexter.graph.NodesWriter;
 import it.cnr.isti.hpc.dexter.util.DexterParams;
 
+import java.io.File;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,6 +45,13 @@ public class RamIncomingEntityCategoryNodes extends RamNodes implements
 		super(params.getGraph("entity-category", NodeStar.Direction.IN));
 	}
 
+	/**
+	 * Loads the incoming entity-category nodes serialized in the given file
+	 */
+	public RamIncomingEntityCategoryNodes(File serializedFile) {
+		super(serializedFile);
+	}
+
 	public static RamIncomingEntityCategoryNodes getInstance() {
 		if (instance == null) {
 			logger.info("Loading ram incoming entity-category nodes");
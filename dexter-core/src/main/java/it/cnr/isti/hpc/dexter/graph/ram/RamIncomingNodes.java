@@ -16,23 +16,28 @@
 package it.cnr.isti.hpc.dexter.graph.ram;
 
 import it.cnr.isti.hpc.dexter.graph.IncomingNodes;
+import it.cnr.isti.hpc.dexter.graph.IntBitmap;
 import it.cnr.isti.hpc.dexter.graph.NodeStar;
 import it.cnr.isti.hpc.dexter.graph.NodesWriter;
 import it.cnr.isti.hpc.dexter.util.DexterParams;
 
+import java.io.File;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * RamIncomingNodes allows to keep the incoming nodes for each node in a graph
- * directly in main memory.
+ * directly in main memory. The in-links of the entities with more than
+ * <code>dense-inlinks</code> incoming nodes (a threshold in the configuration,
+ * by default {@link IntBitmap#ARRAY_MAX}) are kept as bitmaps.
  * 
  * @author Diego Ceccarelli, diego.ceccarelli@isti.cnr.it created on 05/lug/2012
  */
 public class RamIncomingNodes extends RamNodes implements IncomingNodes,
 		NodesWriter {
 
-	private static RamIncomingNodes instance = null;
+	private static volatile RamIncomingNodes instance = null;
 
 	private static final Logger logger = LoggerFactory
 			.getLogger(RamIncomingNodes.class);
@@ -41,13 +46,32 @@ public class RamIncomingNodes extends RamNodes implements IncomingNodes,
 
 	private RamIncomingNodes() {
 
-		super(params.getGraph("entity-entity", NodeStar.Direction.IN));
+		super(params.getGraph("entity-entity", NodeStar.Direction.IN),
+				denseThreshold());
+	}
+
+	/**
+	 * Loads the incoming nodes serialized in the given file
+	 */
+	public RamIncomingNodes(File serializedFile) {
+		super(serializedFile, denseThreshold());
+	}
+
+	private static int denseThreshold() {
+		Float threshold = params.getThreshold("dense-inlinks");
+		if (threshold == null)
+			return IntBitmap.ARRAY_MAX;
+		return threshold.intValue();
 	}
 
 	public static RamIncomingNodes getInstance() {
 		if (instance == null) {
-			logger.info("Loading ram incoming nodes");
-			instance = new RamIncomingNodes();
+			synchronized (RamIncomingNodes.class) {
+				if (instance == null) {
+					logger.info("Loading ram incoming nodes");
+					instance = new RamIncomingNodes();
+				}
+			}
 		}
 		return instance;
 	}
@@ -15,12 +15,15 @@
  */
 package it.cnr.isti.hpc.dexter.graph.ram;
 
+import it.cnr.isti.hpc.dexter.graph.IntBitmap;
 import it.cnr.isti.hpc.dexter.graph.Node;
 import it.cnr.isti.hpc.dexter.graph.NodeStar;
 import it.cnr.isti.hpc.dexter.graph.NodesWriter;
 import it.cnr.isti.hpc.io.Serializer;
+import it.cnr.isti.hpc.structure.LRUCache;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntIterators;
 
 import java.io.File;
 
@@ -28,7 +31,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * RamNodes implements {@link NodeStar} object in main memory.
+ * RamNodes implements {@link NodeStar} object in main memory. The lists of
+ * neighbours longer than a threshold are kept as {@link IntBitmap bitmaps},
+ * serialized in a second file (with the suffix <code>.dense</code>), the
+ * others as sorted arrays. The arrays decoded from the bitmaps of the most
+ * recently used dense nodes are cached, since the same hubs (e.g., countries
+ * and years) are requested over and over. The arrays returned are shared and
+ * must not be modified.
  * 
  * @author Diego Ceccarelli, diego.ceccarelli@isti.cnr.it created on 05/lug/2012
  */
@@ -40,12 +49,34 @@ public abstract class RamNodes implements NodesWriter, NodeStar {
 			.getLogger(RamNodes.class);
 
 	Int2ObjectOpenHashMap<int[]> map;
+	Int2ObjectOpenHashMap<IntBitmap> dense;
 	File serializedFile = null;
+	File denseFile = null;
+	int denseThreshold;
+
+	/** the max number of decoded bitmaps kept in the cache */
+	private static final int DECODED_CACHE_SIZE = 64;
+
+	/** the neighbours of the dense nodes, decoded from their bitmaps */
+	private final LRUCache<Integer, int[]> decoded = new LRUCache<Integer, int[]>(
+			DECODED_CACHE_SIZE);
 
 	// int numEntry = 0;
 
 	protected RamNodes(File serializedFile) {
+		this(serializedFile, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @param denseThreshold
+	 *            the lists of neighbours longer than the threshold are stored
+	 *            as bitmaps
+	 */
+	protected RamNodes(File serializedFile, int denseThreshold) {
 		this.serializedFile = serializedFile;
+		this.denseFile = new File(serializedFile.getPath() + ".dense");
+		this.denseThreshold = denseThreshold;
+		dense = new Int2ObjectOpenHashMap<IntBitmap>();
 		if (serializedFile.exists()) {
 			logger.info("loading {} ", serializedFile);
 			load();
@@ -60,11 +91,38 @@ public abstract class RamNodes implements NodesWriter, NodeStar {
 	private void load() {
 		Serializer sr = new Serializer();
 		map = (Int2ObjectOpenHashMap<int[]>) sr.load(serializedFile.getPath());
+		if (denseFile.exists()) {
+			logger.info("loading {} ", denseFile);
+			dense = (Int2ObjectOpenHashMap<IntBitmap>) sr.load(denseFile
+					.getPath());
+		}
+		// graphs indexed before the bitmaps, or with a higher threshold
+		IntIterator ids = map.keySet().iterator();
+		while (ids.hasNext()) {
+			int id = ids.nextInt();
+			int[] neighbours = map.get(id);
+			if (neighbours.length > denseThreshold) {
+				dense.put(id, new IntBitmap(neighbours));
+				ids.remove();
+			}
+		}
+		logger.info("{} nodes with more than {} neighbours stored as bitmaps",
+				dense.size(), denseThreshold);
 	}
 
 	@Override
 	public void add(Node n) {
-		map.put(n.getNode(), n.getNeighbours());
+		int[] neighbours = n.getNeighbours();
+		synchronized (decoded) {
+			decoded.remove(n.getNode());
+		}
+		if (neighbours.length > denseThreshold) {
+			dense.put(n.getNode(), new IntBitmap(neighbours));
+			map.remove(n.getNode());
+		} else {
+			map.put(n.getNode(), neighbours);
+			dense.remove(n.getNode());
+		}
 	}
 
 	public void commit() {
@@ -76,18 +134,79 @@ public abstract class RamNodes implements NodesWriter, NodeStar {
 		Serializer sr = new Serializer();
 		logger.info("storing edges in {} ", serializedFile);
 		sr.dump(map, serializedFile.getPath());
+		if (!dense.isEmpty()) {
+			logger.info("storing {} dense nodes in {} ", dense.size(),
+					denseFile);
+			sr.dump(dense, denseFile.getPath());
+		} else if (denseFile.exists()) {
+			denseFile.delete();
+		}
 	}
 
 	@Override
 	public int[] getNeighbours(int id) {
 		int[] n = map.get(id);
 		if (n == null) {
+			IntBitmap bitmap = dense.get(id);
+			if (bitmap != null)
+				return decode(id, bitmap);
 			logger.debug("no neighbours for node {} ", id);
 			n = new int[0];
 		}
 		return n;
 	}
 
+	/**
+	 * @return the neighbours of a dense node, decoded from its bitmap only if
+	 *         they are not in the cache
+	 */
+	private int[] decode(int id, IntBitmap bitmap) {
+		int[] n;
+		synchronized (decoded) {
+			n = decoded.get(id);
+		}
+		if (n == null) {
+			n = bitmap.toArray();
+			synchronized (decoded) {
+				decoded.put(id, n);
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * @return the neighbours of the node if they are stored as a bitmap, null
+	 *         otherwise
+	 */
+	public IntBitmap getBitmap(int id) {
+		return dense.get(id);
+	}
+
+	/**
+	 * @return the number of neighbours of the node, without decoding its
+	 *         bitmap
+	 */
+	public int getDegree(int id) {
+		int[] n = map.get(id);
+		if (n != null)
+			return n.length;
+		IntBitmap bitmap = dense.get(id);
+		return (bitmap == null) ? 0 : bitmap.getCardinality();
+	}
+
+	/**
+	 * @return the number of neighbours of the node in the graph, without
+	 *         decoding them if the graph is a RamNodes (0 if the graph is
+	 *         null, i.e., it was not generated for the model)
+	 */
+	public static int degree(NodeStar graph, int id) {
+		if (graph == null)
+			return 0;
+		if (graph instanceof RamNodes)
+			return ((RamNodes) graph).getDegree(id);
+		return graph.getNeighbours(id).length;
+	}
+
 	@Override
 	public Node getNode(int id) {
 		int[] neigh = getNeighbours(id);
@@ -95,12 +214,15 @@ public abstract class RamNodes implements NodesWriter, NodeStar {
 	}
 
 	public IntIterator iterator() {
-		return map.keySet().iterator();
+		if (dense.isEmpty())
+			return map.keySet().iterator();
+		return IntIterators.concat(new IntIterator[] {
+				map.keySet().iterator(), dense.keySet().iterator() });
 	}
 
 	@Override
 	public int size() {
-		return map.size();
+		return map.size() + dense.size();
 	}
 
 }
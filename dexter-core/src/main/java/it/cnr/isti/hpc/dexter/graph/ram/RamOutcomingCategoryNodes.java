@@ -20,6 +20,8 @@ import it.cnr.isti.hpc.dexter.graph.NodesWriter;
 import it.cnr.isti.hpc.dexter.graph.OutcomingNodes;
 import it.cnr.isti.hpc.dexter.util.DexterParams;
 
+import java.io.File;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,6 +45,13 @@ public class RamOutcomingCategoryNodes extends RamNodes implements
 		super(params.getGraph("category-category", NodeStar.Direction.OUT));
 	}
 
+	/**
+	 * Loads the outcoming category nodes serialized in the given file
+	 */
+	public RamOutcomingCategoryNodes(File serializedFile) {
+		super(serializedFile);
+	}
+
 	public static RamOutcomingCategoryNodes getInstance() {
 		if (instance == null) {
 			instance = new RamOutcomingCategoryNodes();
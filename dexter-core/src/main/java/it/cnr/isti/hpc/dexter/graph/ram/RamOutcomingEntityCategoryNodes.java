@@ -20,6 +20,8 @@ import it.cnr.isti.hpc.dexter.graph.NodesWriter;
 import it.cnr.isti.hpc.dexter.graph.OutcomingNodes;
 import it.cnr.isti.hpc.dexter.util.DexterParams;
 
+import java.io.File;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,6 +45,13 @@ public class RamOutcomingEntityCategoryNodes extends RamNodes implements
 		super(params.getGraph("entity-category", NodeStar.Direction.OUT));
 	}
 
+	/**
+	 * Loads the outcoming entity-category nodes serialized in the given file
+	 */
+	public RamOutcomingEntityCategoryNodes(File serializedFile) {
+		super(serializedFile);
+	}
+
 	public static RamOutcomingEntityCategoryNodes getInstance() {
 		if (instance == null) {
 			instance = new RamOutcomingEntityCategoryNodes();
@@ -20,6 +20,8 @@ import it.cnr.isti.hpc.dexter.graph.NodesWriter;
 import it.cnr.isti.hpc.dexter.graph.OutcomingNodes;
 import it.cnr.isti.hpc.dexter.util.DexterParams;
 
+import java.io.File;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,7 +34,7 @@ import org.slf4j.LoggerFactory;
 public class RamOutcomingNodes extends RamNodes implements OutcomingNodes,
 		NodesWriter {
 
-	private static RamOutcomingNodes instance = null;
+	private static volatile RamOutcomingNodes instance = null;
 
 	private static final Logger logger = LoggerFactory
 			.getLogger(RamOutcomingNodes.class);
@@ -43,10 +45,21 @@ public class RamOutcomingNodes extends RamNodes implements OutcomingNodes,
 		super(params.getGraph("entity-entity", NodeStar.Direction.OUT));
 	}
 
+	/**
+	 * Loads the outcoming nodes serialized in the given file
+	 */
+	public RamOutcomingNodes(File serializedFile) {
+		super(serializedFile);
+	}
+
 	public static RamOutcomingNodes getInstance() {
 		if (instance == null) {
-			instance = new RamOutcomingNodes();
-			logger.info("Loading ram outcoming nodes");
+			synchronized (RamOutcomingNodes.class) {
+				if (instance == null) {
+					logger.info("Loading ram outcoming nodes");
+					instance = new RamOutcomingNodes();
+				}
+			}
 		}
 		return instance;
 	}
@@ -55,6 +55,16 @@ public class IdHelper implements IdToLabel, LabelToId {
 		return idToLabel.getLabel(key);
 	}
 
+	@Override
+	public String[] getLabels(int[] keys) {
+		return idToLabel.getLabels(keys);
+	}
+
+	@Override
+	public int[] getIds(Collection<String> labels) {
+		return labelToId.getIds(labels);
+	}
+
 	@Override
 	public Set<Integer> getIds() {
 		return idToLabel.getIds();
@@ -66,22 +76,30 @@ public class IdHelper implements IdToLabel, LabelToId {
 	}
 
 	public List<String> getLabels(List<Integer> keys) {
-		List<String> s = new ArrayList<String>(keys.size());
+		int[] k = new int[keys.size()];
+		int i = 0;
 		for (Integer key : keys) {
-			s.add(getLabel(key));
+			k[i++] = key;
 		}
-		return s;
+		return Arrays.asList(getLabels(k));
 	}
 
 	public List<Integer> getOutcomingIds(Article a) {
+		List<Link> links = a.getLinks();
+		List<String> labels = new ArrayList<String>(links.size());
+		for (Link l : links) {
+			labels.add(l.getCleanId());
+		}
+		int[] linkIds = getIds(labels);
 		List<Integer> ids = new ArrayList<Integer>();
-		for (Link l : a.getLinks()) {
-			Integer i = getId(l.getCleanId());
+		Set<Integer> seen = new HashSet<Integer>();
+		for (int j = 0; j < linkIds.length; j++) {
+			int i = linkIds[j];
 			if (i == 0) {
-				logger.error("no id for label {}", l.getId());
+				logger.error("no id for label {}", links.get(j).getId());
 				continue;
 			}
-			if (ids.contains(i))
+			if (!seen.add(i))
 				continue;
 			ids.add(i);
 		}
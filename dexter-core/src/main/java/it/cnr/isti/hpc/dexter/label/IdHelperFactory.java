@@ -17,6 +17,9 @@ package it.cnr.isti.hpc.dexter.label;
 
 import it.cnr.isti.hpc.dexter.label.mapdb.MapDBIdToLabel;
 import it.cnr.isti.hpc.dexter.label.mapdb.MapDBLabelToId;
+import it.cnr.isti.hpc.dexter.label.ram.RamIdToLabel;
+import it.cnr.isti.hpc.dexter.label.ram.RamLabelToId;
+import it.cnr.isti.hpc.dexter.util.DexterParams;
 
 /**
  * Generates an IdHelper that takes care to convert the entity labels (i.e., the
@@ -29,7 +32,7 @@ import it.cnr.isti.hpc.dexter.label.mapdb.MapDBLabelToId;
  */
 public class IdHelperFactory {
 
-	public static IdHelper stdIdHelper = null;
+	public static volatile IdHelper stdIdHelper = null;
 
 	public static IdToLabelWriter stdIdToLabelWriter;
 	public static LabelToIdWriter stdLabelToIdWriter;
@@ -45,6 +48,13 @@ public class IdHelperFactory {
 	}
 
 	public static IdHelper getIdHelper(Type type, boolean readonly) {
+		if (type == Type.RAM) {
+			// immutable, always read only
+			IdToLabel h2l = RamIdToLabel.getInstance();
+			LabelToId l2h = RamLabelToId.getInstance();
+			IdHelper helper = new IdHelper(h2l, l2h);
+			return helper;
+		}
 		if (type == Type.JDBM) {
 			IdToLabel h2l = MapDBIdToLabel.getInstance(readonly);
 			LabelToId l2h = MapDBLabelToId.getInstance(readonly);
@@ -99,15 +109,29 @@ public class IdHelperFactory {
 		return stdIdToLabelWriter;
 	}
 
+	/**
+	 * @return true if the immutable (RAM) label files of the current model were
+	 *         generated, false otherwise
+	 */
+	public static boolean hasRamLabels() {
+		DexterParams params = DexterParams.getInstance();
+		return params.getLabelToIdFile().exists()
+				&& params.getIdToLabelFile().exists();
+	}
+
 	/**
 	 * returns the standard id helper (read only mode), you should probably want
-	 * to use this.
+	 * to use this. If the immutable label files were generated the helper uses
+	 * them, otherwise it uses the {@link #STD_TYPE standard} backend.
 	 */
 	public static IdHelper getStdIdHelper() {
 		if (stdIdHelper == null) {
-			// read only mode
-			stdIdHelper = getIdHelper(STD_TYPE, true);
-
+			synchronized (IdHelperFactory.class) {
+				// read only mode
+				if (stdIdHelper == null)
+					stdIdHelper = getIdHelper(hasRamLabels() ? Type.RAM
+							: STD_TYPE, true);
+			}
 		}
 		return stdIdHelper;
 	}
@@ -31,6 +31,13 @@ public interface IdToLabel {
 	 */
 	public String getLabel(Integer key);
 
+	/**
+	 * @param keys
+	 * @return the labels associated with the keys (the label in position i is
+	 *         associated with keys[i], empty string if there's no label)
+	 */
+	public String[] getLabels(int[] keys);
+
 	/**
 	 * @return Returns a Set view of the keys (wiki-id) contained in this map.
 	 */
@@ -15,6 +15,7 @@
  */
 package it.cnr.isti.hpc.dexter.label;
 
+import java.util.Collection;
 import java.util.Set;
 
 /**
@@ -32,6 +33,13 @@ public interface LabelToId {
 	 */
 	public Integer getId(String label);
 
+	/**
+	 * @param labels
+	 * @return the keys associated with the labels, in the iteration order of
+	 *         the collection (0 if there's no label)
+	 */
+	public int[] getIds(Collection<String> labels);
+
 
 	/**
 	 * @return Returns a Set view of the keys (labels) contained in this map.
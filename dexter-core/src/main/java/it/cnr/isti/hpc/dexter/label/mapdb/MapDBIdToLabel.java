@@ -19,6 +19,7 @@ import it.cnr.isti.hpc.dexter.label.IdToLabel;
 import it.cnr.isti.hpc.dexter.label.IdToLabelWriter;
 import it.cnr.isti.hpc.mapdb.MapDB;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
@@ -40,7 +41,7 @@ public class MapDBIdToLabel implements IdToLabel, IdToLabelWriter {
 			.getLogger(MapDBLabelToId.class);
 
 	private static final String COLLECTION_NAME = "id2a";
-	private static MapDBIdToLabel instance;
+	private static volatile MapDBIdToLabel instance;
 	MapDB db;
 	Map<Integer, String> map;
 
@@ -54,8 +55,12 @@ public class MapDBIdToLabel implements IdToLabel, IdToLabelWriter {
 	}
 
 	public static MapDBIdToLabel getInstance(boolean readonly) {
-		if (instance == null)
-			instance = new MapDBIdToLabel(readonly);
+		if (instance == null) {
+			synchronized (MapDBIdToLabel.class) {
+				if (instance == null)
+					instance = new MapDBIdToLabel(readonly);
+			}
+		}
 		return instance;
 	}
 
@@ -81,6 +86,27 @@ public class MapDBIdToLabel implements IdToLabel, IdToLabelWriter {
 		return label;
 	}
 
+	@Override
+	public String[] getLabels(int[] keys) {
+		// distinct keys are retrieved in order, for locality in the b-tree
+		int[] sorted = keys.clone();
+		Arrays.sort(sorted);
+		int distinct = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			if (i == 0 || sorted[i] != sorted[i - 1])
+				sorted[distinct++] = sorted[i];
+		}
+		String[] labels = new String[distinct];
+		for (int i = 0; i < distinct; i++) {
+			labels[i] = getLabel(sorted[i]);
+		}
+		String[] result = new String[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			result[i] = labels[Arrays.binarySearch(sorted, 0, distinct, keys[i])];
+		}
+		return result;
+	}
+
 	@Override
 	public Set<Integer> getIds() {
 		return map.keySet();
@@ -25,13 +25,17 @@ import it.cnr.isti.hpc.mapdb.MapDB;
  */
 public class MapDBInstance {
 
-	private static MapDB db;
+	private static volatile MapDB db;
 
 	private static DexterParams dexterParams = DexterParams.getInstance();
 
 	public static MapDB getInstance() {
 		if (db == null) {
-			db = MapDB.getDb(dexterParams.getLabelDir().getAbsolutePath());
+			synchronized (MapDBInstance.class) {
+				if (db == null)
+					db = MapDB.getDb(dexterParams.getLabelDir()
+							.getAbsolutePath());
+			}
 		}
 		return db;
 
@@ -39,8 +43,11 @@ public class MapDBInstance {
 
 	public static MapDB getInstance(boolean readonly) {
 		if (db == null) {
-			db = MapDB.getDb(dexterParams.getLabelDir().getAbsolutePath(),
-					readonly);
+			synchronized (MapDBInstance.class) {
+				if (db == null)
+					db = MapDB.getDb(dexterParams.getLabelDir()
+							.getAbsolutePath(), readonly);
+			}
 		}
 		return db;
 
@@ -20,6 +20,8 @@ import it.cnr.isti.hpc.dexter.label.LabelToId;
 import it.cnr.isti.hpc.dexter.label.LabelToIdWriter;
 import it.cnr.isti.hpc.mapdb.MapDB;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
@@ -40,7 +42,7 @@ public class MapDBLabelToId implements LabelToId, LabelToIdWriter {
 			.getLogger(MapDBLabelToId.class);
 
 	private static final String COLLECTION_NAME = "a2id";
-	private static MapDBLabelToId instance;
+	private static volatile MapDBLabelToId instance;
 	MapDB db;
 	Map<String, Integer> map;
 
@@ -55,8 +57,12 @@ public class MapDBLabelToId implements LabelToId, LabelToIdWriter {
 	}
 
 	public static MapDBLabelToId getInstance(boolean readonly) {
-		if (instance == null)
-			instance = new MapDBLabelToId(readonly);
+		if (instance == null) {
+			synchronized (MapDBLabelToId.class) {
+				if (instance == null)
+					instance = new MapDBLabelToId(readonly);
+			}
+		}
 		return instance;
 	}
 
@@ -83,6 +89,28 @@ public class MapDBLabelToId implements LabelToId, LabelToIdWriter {
 
 	}
 
+	@Override
+	public int[] getIds(Collection<String> labels) {
+		// distinct labels are retrieved in order, for locality in the b-tree
+		String[] keys = labels.toArray(new String[labels.size()]);
+		String[] sorted = keys.clone();
+		Arrays.sort(sorted);
+		int distinct = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			if (i == 0 || !sorted[i].equals(sorted[i - 1]))
+				sorted[distinct++] = sorted[i];
+		}
+		int[] ids = new int[distinct];
+		for (int i = 0; i < distinct; i++) {
+			ids[i] = getId(sorted[i]);
+		}
+		int[] result = new int[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			result[i] = ids[Arrays.binarySearch(sorted, 0, distinct, keys[i])];
+		}
+		return result;
+	}
+
 	@Override
 	public Set<String> getLabels() {
 		return map.keySet();
@@ -0,0 +1,389 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.label.ram;
+
+import it.cnr.isti.hpc.dexter.label.IdToLabel;
+import it.cnr.isti.hpc.dexter.util.BigMappedBuffer;
+import it.cnr.isti.hpc.dexter.util.DexterParams;
+import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * RamIdToLabel allows to retrieve the label of an entity given its ID. The
+ * labels are stored in an immutable memory mapped file: labels are sorted
+ * lexicographically and front coded in buckets, and a sorted array of ids maps
+ * each id to the rank of its label. The file layout is:
+ *
+ * <pre>
+ * header:  magic (int) version (int) labels (int) bucket size (int)
+ * index:   ids (int * labels, sorted) label ranks (int * labels)
+ *          bucket offsets (long * (buckets + 1))
+ * data:    for each bucket, the first label as length (vint) and UTF-8 bytes,
+ *          then for each other label the length of the prefix shared with the
+ *          previous label (vint) and the remaining suffix (length and bytes)
+ * </pre>
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 4, 2014
+ */
+public class RamIdToLabel implements IdToLabel {
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = LoggerFactory
+			.getLogger(RamIdToLabel.class);
+
+	private static final int MAGIC = 0x44584C42;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 4 * 4;
+
+	public static final int DEFAULT_BUCKET_SIZE = 16;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static volatile RamIdToLabel instance;
+
+	private static DexterParams params = DexterParams.getInstance();
+
+	private final BigMappedBuffer buffer;
+	private final int size;
+	private final int bucketSize;
+	private final long idsStart;
+	private final long ranksStart;
+	private final long bucketsStart;
+	private final long dataStart;
+
+	public RamIdToLabel(File file) {
+		logger.info("loading id -> label from {}", file);
+		BigMappedBuffer b = null;
+		try {
+			b = new BigMappedBuffer(file);
+		} catch (IOException e) {
+			throw new IllegalStateException("loading id -> label ("
+					+ e.toString() + ")", e);
+		}
+		if (b.getInt(0) != MAGIC || b.getInt(4) != VERSION) {
+			b.close();
+			throw new IllegalStateException(file
+					+ " is not a valid id -> label file");
+		}
+		buffer = b;
+		size = buffer.getInt(8);
+		bucketSize = buffer.getInt(12);
+		int buckets = (size + bucketSize - 1) / bucketSize;
+		idsStart = HEADER_SIZE;
+		ranksStart = idsStart + size * 4L;
+		bucketsStart = ranksStart + size * 4L;
+		dataStart = bucketsStart + (buckets + 1) * 8L;
+	}
+
+	public static RamIdToLabel getInstance() {
+		if (instance == null) {
+			synchronized (RamIdToLabel.class) {
+				if (instance == null)
+					instance = new RamIdToLabel(params.getIdToLabelFile());
+			}
+		}
+		return instance;
+	}
+
+	@Override
+	public String getLabel(Integer key) {
+		if (key == null)
+			return "";
+		long pos = buffer.binarySearchInt(idsStart, 0, size, key);
+		if (pos < 0)
+			return "";
+		return getLabelByRank(buffer.getInt(ranksStart + pos * 4));
+	}
+
+	/**
+	 * Retrieves the labels of the keys sorting them by the rank of their
+	 * label, so that each bucket is decoded only once.
+	 */
+	@Override
+	public String[] getLabels(int[] keys) {
+		String[] result = new String[keys.length];
+		final long[] ranks = new long[keys.length];
+		int found = 0;
+		for (int i = 0; i < keys.length; i++) {
+			long pos = buffer.binarySearchInt(idsStart, 0, size, keys[i]);
+			if (pos < 0) {
+				result[i] = "";
+				continue;
+			}
+			// rank in the high bits, position in the low bits
+			ranks[found++] = ((long) buffer.getInt(ranksStart + pos * 4) << 32)
+					| i;
+		}
+		Arrays.sort(ranks, 0, found);
+		int currentBucket = -1;
+		String[] bucket = null;
+		for (int i = 0; i < found; i++) {
+			int rank = (int) (ranks[i] >>> 32);
+			if (rank / bucketSize != currentBucket) {
+				currentBucket = rank / bucketSize;
+				bucket = decodeBucket(currentBucket, bucketSize);
+			}
+			result[(int) ranks[i]] = bucket[rank % bucketSize];
+		}
+		return result;
+	}
+
+	/**
+	 * @return the label in position rank, in lexicographic order
+	 */
+	protected String getLabelByRank(int rank) {
+		String[] labels = decodeBucket(rank / bucketSize, rank % bucketSize
+				+ 1);
+		return labels[labels.length - 1];
+	}
+
+	/**
+	 * Decodes the first n labels of a bucket
+	 */
+	private String[] decodeBucket(int bucket, int n) {
+		long start = buffer.getLong(bucketsStart + bucket * 8L);
+		long end = buffer.getLong(bucketsStart + (bucket + 1) * 8L);
+		byte[] data = new byte[(int) (end - start)];
+		buffer.get(dataStart + start, data, 0, data.length);
+
+		n = Math.min(n, size - bucket * bucketSize);
+		String[] labels = new String[n];
+		int[] pos = new int[1];
+		int len = readVInt(data, pos);
+		byte[] label = Arrays.copyOfRange(data, pos[0], pos[0] + len);
+		pos[0] += len;
+		labels[0] = new String(label, UTF8);
+		for (int i = 1; i < n; i++) {
+			int prefix = readVInt(data, pos);
+			int suffix = readVInt(data, pos);
+			byte[] next = Arrays.copyOf(label, prefix + suffix);
+			System.arraycopy(data, pos[0], next, prefix, suffix);
+			pos[0] += suffix;
+			label = next;
+			labels[i] = new String(label, UTF8);
+		}
+		return labels;
+	}
+
+	/**
+	 * @return the number of labels
+	 */
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Set<Integer> getIds() {
+		return new AbstractSet<Integer>() {
+
+			@Override
+			public boolean contains(Object o) {
+				return (o instanceof Integer)
+						&& buffer.binarySearchInt(idsStart, 0, size,
+								(Integer) o) >= 0;
+			}
+
+			@Override
+			public Iterator<Integer> iterator() {
+				return new Iterator<Integer>() {
+					int i = 0;
+
+					@Override
+					public boolean hasNext() {
+						return i < size;
+					}
+
+					@Override
+					public Integer next() {
+						if (!hasNext())
+							throw new NoSuchElementException();
+						return buffer.getInt(idsStart + (i++) * 4L);
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	/**
+	 * @return an iterator over all the labels, in lexicographic order
+	 */
+	public Iterator<String> labelIterator() {
+		return new Iterator<String>() {
+			int rank = 0;
+
+			@Override
+			public boolean hasNext() {
+				return rank < size;
+			}
+
+			@Override
+			public String next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				return getLabelByRank(rank++);
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Unmaps the file, the labels cannot be read after this call
+	 */
+	public void close() {
+		buffer.close();
+	}
+
+	public static void dump(int[] ids, String[] labels) {
+		dump(ids, labels, params.getIdToLabelFile());
+	}
+
+	/**
+	 * Stores the mapping id -> label
+	 *
+	 * @param ids
+	 *            - the ids of the entities
+	 * @param labels
+	 *            - labels[i] is the label of the entity ids[i]
+	 * @param file
+	 *            - the file where to store the mapping
+	 */
+	public static void dump(final int[] ids, final String[] labels, File file) {
+		int n = ids.length;
+		logger.info("dumping {} labels in {}", n, file);
+		// sort the labels lexicographically
+		int[] byLabel = new int[n];
+		for (int i = 0; i < n; i++)
+			byLabel[i] = i;
+		IntArrays.quickSort(byLabel, new AbstractIntComparator() {
+			@Override
+			public int compare(int a, int b) {
+				return labels[a].compareTo(labels[b]);
+			}
+		});
+		final int[] rank = new int[n];
+		for (int r = 0; r < n; r++)
+			rank[byLabel[r]] = r;
+
+		// front coding
+		int buckets = (n + DEFAULT_BUCKET_SIZE - 1) / DEFAULT_BUCKET_SIZE;
+		long[] bucketOffsets = new long[buckets + 1];
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		byte[] previous = null;
+		for (int r = 0; r < n; r++) {
+			byte[] label = labels[byLabel[r]].getBytes(UTF8);
+			if (r % DEFAULT_BUCKET_SIZE == 0) {
+				bucketOffsets[r / DEFAULT_BUCKET_SIZE] = data.size();
+				writeVInt(data, label.length);
+				data.write(label, 0, label.length);
+			} else {
+				int prefix = 0;
+				int max = Math.min(previous.length, label.length);
+				while (prefix < max && previous[prefix] == label[prefix])
+					prefix++;
+				writeVInt(data, prefix);
+				writeVInt(data, label.length - prefix);
+				data.write(label, prefix, label.length - prefix);
+			}
+			previous = label;
+		}
+		bucketOffsets[buckets] = data.size();
+
+		// sort the ids
+		int[] byId = new int[n];
+		for (int i = 0; i < n; i++)
+			byId[i] = i;
+		IntArrays.quickSort(byId, new AbstractIntComparator() {
+			@Override
+			public int compare(int a, int b) {
+				return ids[a] < ids[b] ? -1 : (ids[a] == ids[b] ? 0 : 1);
+			}
+		});
+
+		try {
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(file)));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(n);
+			out.writeInt(DEFAULT_BUCKET_SIZE);
+			for (int i = 0; i < n; i++)
+				out.writeInt(ids[byId[i]]);
+			for (int i = 0; i < n; i++)
+				out.writeInt(rank[byId[i]]);
+			for (long offset : bucketOffsets)
+				out.writeLong(offset);
+			data.writeTo(out);
+			out.close();
+		} catch (IOException e) {
+			logger.error("dumping id -> label ({})", e.toString());
+			System.exit(-1);
+		}
+	}
+
+	private static void writeVInt(ByteArrayOutputStream out, int value) {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	private static int readVInt(byte[] data, int[] pos) {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = data[pos[0]++];
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+}
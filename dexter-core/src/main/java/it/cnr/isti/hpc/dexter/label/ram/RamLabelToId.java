@@ -0,0 +1,193 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.label.ram;
+
+import it.cnr.isti.hpc.benchmark.Stopwatch;
+import it.cnr.isti.hpc.dexter.label.IdHelper;
+import it.cnr.isti.hpc.dexter.label.LabelToId;
+import it.cnr.isti.hpc.dexter.util.DexterParams;
+import it.cnr.isti.hpc.io.Serializer;
+import it.unimi.dsi.bits.TransformationStrategies;
+import it.unimi.dsi.sux4j.mph.MinimalPerfectHashFunction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * RamLabelToId allows to retrieve the ID of an entity given its label. A
+ * minimal perfect hash maps each label to a slot containing the id and a
+ * fingerprint of the label: a minimal perfect hash returns a random slot for
+ * a label not in the map, the fingerprint allows to detect (almost always)
+ * these labels.
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 4, 2014
+ */
+public class RamLabelToId implements LabelToId, Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = LoggerFactory
+			.getLogger(RamLabelToId.class);
+
+	private static final HashFunction FINGERPRINT = Hashing.murmur3_32();
+
+	private static volatile RamLabelToId instance;
+
+	private static DexterParams params = DexterParams.getInstance();
+
+	private final MinimalPerfectHashFunction<String> hash;
+	private final int[] ids;
+	private final int[] fingerprints;
+
+	private RamLabelToId(String[] labels, int[] labelIds) {
+		MinimalPerfectHashFunction<String> mph = null;
+		try {
+			mph = new MinimalPerfectHashFunction<String>(Arrays.asList(labels),
+					TransformationStrategies.utf16());
+		} catch (IOException e) {
+			logger.error("generating minimal perfect hash ({}) ", e.toString());
+			System.exit(-1);
+		}
+		hash = mph;
+		ids = new int[labels.length];
+		fingerprints = new int[labels.length];
+		for (int i = 0; i < labels.length; i++) {
+			int slot = (int) hash.getLong(labels[i]);
+			ids[slot] = labelIds[i];
+			fingerprints[slot] = fingerprint(labels[i]);
+		}
+	}
+
+	public static RamLabelToId getInstance() {
+		if (instance == null) {
+			synchronized (RamLabelToId.class) {
+				if (instance == null)
+					instance = load(params.getLabelToIdFile());
+			}
+		}
+		return instance;
+	}
+
+	public static RamLabelToId load(File file) {
+		Serializer serializer = new Serializer();
+		logger.info("loading label -> id from {} ", file.getAbsolutePath());
+		Stopwatch progress = new Stopwatch();
+		progress.start("load");
+		RamLabelToId labelToId = (RamLabelToId) serializer.load(file
+				.getAbsolutePath());
+		progress.stop("load");
+		logger.info(progress.stat("load"));
+		return labelToId;
+	}
+
+	public static void dump(String[] labels, int[] ids) {
+		dump(labels, ids, params.getLabelToIdFile());
+	}
+
+	/**
+	 * Stores the mapping label -> id
+	 *
+	 * @param labels
+	 *            - the labels of the entities (without duplicates)
+	 * @param ids
+	 *            - ids[i] is the id of the entity labels[i]
+	 * @param file
+	 *            - the file where to store the mapping
+	 */
+	public static void dump(String[] labels, int[] ids, File file) {
+		logger.info("dumping {} labels in {}", labels.length, file);
+		RamLabelToId labelToId = new RamLabelToId(labels, ids);
+		Serializer serializer = new Serializer();
+		serializer.dump(labelToId, file.getAbsolutePath());
+	}
+
+	private static int fingerprint(String label) {
+		return FINGERPRINT.hashUnencodedChars(label).asInt();
+	}
+
+	@Override
+	public Integer getId(String label) {
+		if (label == null)
+			return IdHelper.NOID;
+		long slot = hash.getLong(label);
+		if (slot < 0 || slot >= ids.length)
+			return IdHelper.NOID;
+		if (fingerprints[(int) slot] != fingerprint(label))
+			return IdHelper.NOID;
+		return ids[(int) slot];
+	}
+
+	@Override
+	public int[] getIds(Collection<String> labels) {
+		int[] result = new int[labels.size()];
+		int i = 0;
+		for (String label : labels) {
+			result[i++] = getId(label);
+		}
+		return result;
+	}
+
+	/**
+	 * @return the number of labels
+	 */
+	public int size() {
+		return ids.length;
+	}
+
+	/**
+	 * Returns a view of the labels, the labels are read from the
+	 * {@link RamIdToLabel} of the current model.
+	 */
+	@Override
+	public Set<String> getLabels() {
+		return new AbstractSet<String>() {
+
+			@Override
+			public boolean contains(Object o) {
+				return (o instanceof String)
+						&& getId((String) o) != IdHelper.NOID;
+			}
+
+			@Override
+			public Iterator<String> iterator() {
+				return RamIdToLabel.getInstance().labelIterator();
+			}
+
+			@Override
+			public int size() {
+				return ids.length;
+			}
+		};
+	}
+
+}
@@ -0,0 +1,483 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.lucene;
+
+import it.cnr.isti.hpc.dexter.util.DexterParams;
+import it.cnr.isti.hpc.log.ProgressLogger;
+import it.unimi.dsi.fastutil.Swapper;
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * EntityVectors stores, for each entity, a sparse and L2-normalized TF-IDF
+ * vector of its article. Vectors are computed offline from the Lucene index
+ * (see {@link #dumpEntityVectors(LuceneHelper, String, int, File)}) and
+ * memory mapped at runtime, so that the cosine similarity between two entities
+ * is a single merge of two sorted term lists. <br>
+ * <br>
+ * Terms are encoded as integers (their rank in the dictionary of the field),
+ * weights are quantized on 16 bits with a per-vector scale factor. The file
+ * layout is:
+ *
+ * <pre>
+ * header:  magic (int) version (int) entities (int) indexOffset (long)
+ * data:    for each entity: size (int) scale (float) terms (int * size) weights (short * size)
+ * index:   wiki ids (int * entities, sorted) offsets (long * entities)
+ * </pre>
+ *
+ * A vector never crosses the boundary of a mapped segment, the writer pads
+ * the data if needed.
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Jul 21, 2014
+ */
+public class EntityVectors {
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = LoggerFactory
+			.getLogger(EntityVectors.class);
+
+	private static final int MAGIC = 0x44585456;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 4 + 4 + 4 + 8;
+
+	private static final int SEGMENT_BITS = 30;
+	private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+	private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+	private static final int MAX_QUANTIZED_WEIGHT = 65535;
+
+	/**
+	 * default number of terms kept for each entity (the terms with the
+	 * highest TF-IDF)
+	 */
+	public static final int DEFAULT_MAX_TERMS = 200;
+
+	private static volatile EntityVectors instance;
+
+	private static DexterParams params = DexterParams.getInstance();
+
+	private final int[] wikiIds;
+	private final long[] offsets;
+	private final ByteBuffer[] segments;
+
+	/**
+	 * Maps in memory the vectors contained in the given file
+	 *
+	 * @param vectorsFile
+	 *            - the file produced by
+	 *            {@link #dumpEntityVectors(LuceneHelper, String, int, File)}
+	 */
+	public EntityVectors(File vectorsFile) {
+		logger.info("loading entity vectors from {}", vectorsFile);
+		int[] ids = null;
+		long[] offs = null;
+		ByteBuffer[] segs = null;
+		try {
+			RandomAccessFile raf = new RandomAccessFile(vectorsFile, "r");
+			FileChannel channel = raf.getChannel();
+			ByteBuffer header = channel.map(MapMode.READ_ONLY, 0, HEADER_SIZE);
+			if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+				raf.close();
+				throw new IllegalStateException(vectorsFile
+						+ " is not a valid entity vectors file");
+			}
+			int size = header.getInt();
+			long indexOffset = header.getLong();
+
+			ids = new int[size];
+			offs = new long[size];
+			MappedByteBuffer index = channel.map(MapMode.READ_ONLY,
+					indexOffset, size * (4L + 8L));
+			index.asIntBuffer().get(ids);
+			index.position(size * 4);
+			index.slice().asLongBuffer().get(offs);
+
+			long dataSize = indexOffset - HEADER_SIZE;
+			int nsegments = (int) ((dataSize + SEGMENT_SIZE - 1) >>> SEGMENT_BITS);
+			segs = new ByteBuffer[nsegments];
+			for (int i = 0; i < nsegments; i++) {
+				long start = i * SEGMENT_SIZE;
+				long len = Math.min(SEGMENT_SIZE, dataSize - start);
+				segs[i] = channel.map(MapMode.READ_ONLY, HEADER_SIZE + start,
+						len);
+			}
+			// the mapping remains valid after the channel is closed
+			raf.close();
+		} catch (IOException e) {
+			throw new IllegalStateException("loading the entity vectors ("
+					+ e.toString() + ")", e);
+		}
+		wikiIds = ids;
+		offsets = offs;
+		segments = segs;
+		logger.info("loaded {} entity vectors", wikiIds.length);
+	}
+
+	/**
+	 * @return true if the entity vectors of the current model were generated,
+	 *         false otherwise
+	 */
+	public static boolean hasEntityVectors() {
+		return params.getEntityVectorsFile().exists();
+	}
+
+	public static EntityVectors getInstance() {
+		if (instance == null) {
+			synchronized (EntityVectors.class) {
+				if (instance == null)
+					instance = new EntityVectors(params.getEntityVectorsFile());
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * @return the number of entities with a vector
+	 */
+	public int size() {
+		return wikiIds.length;
+	}
+
+	/**
+	 * @return true if the entity has a vector, false otherwise
+	 */
+	public boolean contains(int wikiId) {
+		return Arrays.binarySearch(wikiIds, wikiId) >= 0;
+	}
+
+	/**
+	 * @return the number of (non zero) terms in the vector of the entity, 0 if
+	 *         the entity has no vector
+	 */
+	public int getVectorSize(int wikiId) {
+		int slot = Arrays.binarySearch(wikiIds, wikiId);
+		if (slot < 0)
+			return 0;
+		long offset = offsets[slot];
+		return segment(offset).getInt(position(offset));
+	}
+
+	/**
+	 * Returns the cosine similarity between the articles of two entities
+	 *
+	 * @param x
+	 *            - the WikiId of the first entity
+	 * @param y
+	 *            - the WikiId of the second entity
+	 *
+	 * @return a double between 0 (not similar) and 1 (same content), 0 if one
+	 *         of the entities has no vector
+	 */
+	public double getCosineSimilarity(int x, int y) {
+		int sx = Arrays.binarySearch(wikiIds, x);
+		int sy = Arrays.binarySearch(wikiIds, y);
+		if (sx < 0 || sy < 0)
+			return 0;
+
+		ByteBuffer bx = segment(offsets[sx]);
+		ByteBuffer by = segment(offsets[sy]);
+		int px = position(offsets[sx]);
+		int py = position(offsets[sy]);
+
+		int lx = bx.getInt(px);
+		int ly = by.getInt(py);
+		float scalex = bx.getFloat(px + 4);
+		float scaley = by.getFloat(py + 4);
+		int tx = px + 8;
+		int ty = py + 8;
+		int wx = tx + lx * 4;
+		int wy = ty + ly * 4;
+
+		// vectors are sorted by term id, the dot product is a merge
+		long dot = 0;
+		int i = 0, j = 0;
+		while (i < lx && j < ly) {
+			int termx = bx.getInt(tx + i * 4);
+			int termy = by.getInt(ty + j * 4);
+			if (termx < termy) {
+				i++;
+			} else if (termx > termy) {
+				j++;
+			} else {
+				dot += (bx.getShort(wx + i * 2) & 0xFFFF)
+						* (long) (by.getShort(wy + j * 2) & 0xFFFF);
+				i++;
+				j++;
+			}
+		}
+		return dot * (double) scalex * scaley;
+	}
+
+	private ByteBuffer segment(long offset) {
+		return segments[(int) (offset >>> SEGMENT_BITS)];
+	}
+
+	private int position(long offset) {
+		return (int) (offset & SEGMENT_MASK);
+	}
+
+	/**
+	 * Generates the entity vectors of the current model, from the
+	 * {@link LuceneHelper#LUCENE_ARTICLE_DEFAULT_FIELD default field} of the
+	 * Dexter's Lucene index.
+	 */
+	public static void dumpEntityVectors() {
+		dumpEntityVectors(LuceneHelper.getDexterLuceneHelper(),
+				LuceneHelper.LUCENE_ARTICLE_DEFAULT_FIELD, DEFAULT_MAX_TERMS,
+				params.getEntityVectorsFile());
+	}
+
+	/**
+	 * Computes a TF-IDF vector for each article in the index and stores the
+	 * vectors in a file. The TF-IDF weighting is the same used by
+	 * {@link LuceneHelper#getCosineSimilarity(int, int, String)}.
+	 *
+	 * @param helper
+	 *            - the Lucene index containing the articles
+	 * @param field
+	 *            - the field from which the vectors are computed (the field
+	 *            must store the term vectors)
+	 * @param maxTerms
+	 *            - for each article, only the maxTerms terms with the highest
+	 *            TF-IDF are kept (0 to keep all the terms)
+	 * @param vectorsFile
+	 *            - the file where to store the vectors
+	 */
+	public static void dumpEntityVectors(LuceneHelper helper, String field,
+			int maxTerms, File vectorsFile) {
+		IndexReader reader = helper.getReader();
+		int collectionSize = reader.numDocs();
+
+		logger.info("building the dictionary of the field {}", field);
+		Object2IntOpenHashMap<String> termIds = new Object2IntOpenHashMap<String>();
+		termIds.defaultReturnValue(-1);
+		// ids are assigned in lexicographic order, as the terms in a term
+		// vector are iterated, so the vectors come out already sorted by id
+		FloatArrayList idf = new FloatArrayList();
+		try {
+			Terms terms = MultiFields.getTerms(reader, field);
+			if (terms != null) {
+				TermsEnum te = terms.iterator(null);
+				BytesRef text;
+				while ((text = te.next()) != null) {
+					termIds.put(text.utf8ToString(), termIds.size());
+					idf.add((float) (Math.log(collectionSize
+							/ (double) te.docFreq() + 1)
+							/ Math.log(2) + 1));
+				}
+			}
+		} catch (IOException e) {
+			logger.error("building the dictionary ({})", e.toString());
+			System.exit(-1);
+		}
+		logger.info("dictionary contains {} terms", termIds.size());
+
+		final IntArrayList ids = new IntArrayList();
+		final LongArrayList offs = new LongArrayList();
+		Set<String> idField = Collections
+				.singleton(LuceneHelper.LUCENE_ARTICLE_ID);
+		Bits liveDocs = MultiFields.getLiveDocs(reader);
+
+		int[] vterms = new int[1024];
+		float[] vweights = new float[1024];
+		ProgressLogger pl = new ProgressLogger(
+				"computed {} entity vectors", 100000);
+		try {
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(vectorsFile)));
+			// header, entities and index offset are set at the end
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(0);
+			out.writeLong(0);
+			long written = 0;
+
+			int maxDoc = reader.maxDoc();
+			for (int doc = 0; doc < maxDoc; doc++) {
+				if (liveDocs != null && !liveDocs.get(doc))
+					continue;
+				pl.up();
+				Terms tv = reader.getTermVector(doc, field);
+				int size = 0;
+				if (tv != null) {
+					TermsEnum te = tv.iterator(null);
+					BytesRef text;
+					while ((text = te.next()) != null) {
+						int term = termIds.getInt(text.utf8ToString());
+						if (term < 0)
+							continue;
+						if (size == vterms.length) {
+							vterms = Arrays.copyOf(vterms, size * 2);
+							vweights = Arrays.copyOf(vweights, size * 2);
+						}
+						vterms[size] = term;
+						vweights[size] = te.totalTermFreq() * idf.getFloat(term);
+						size++;
+					}
+				}
+				if (maxTerms > 0 && size > maxTerms) {
+					size = prune(vterms, vweights, size, maxTerms);
+				}
+				int recordSize = 4 + 4 + size * (4 + 2);
+				if (recordSize > SEGMENT_SIZE) {
+					logger.error("vector of doc {} too large ({} terms)", doc,
+							size);
+					System.exit(-1);
+				}
+				long segmentEnd = (written | SEGMENT_MASK) + 1;
+				if (written + recordSize > segmentEnd) {
+					// pad, a vector never crosses two segments
+					while (written < segmentEnd) {
+						out.writeByte(0);
+						written++;
+					}
+				}
+				int wikiId = Integer.parseInt(reader.document(doc, idField)
+						.get(LuceneHelper.LUCENE_ARTICLE_ID));
+				ids.add(wikiId);
+				offs.add(written);
+				written += writeVector(out, vterms, vweights, size);
+			}
+
+			final int[] sortedIds = ids.toIntArray();
+			final long[] sortedOffs = offs.toLongArray();
+			it.unimi.dsi.fastutil.Arrays.quickSort(0, sortedIds.length,
+					new AbstractIntComparator() {
+						@Override
+						public int compare(int a, int b) {
+							return sortedIds[a] < sortedIds[b] ? -1
+									: (sortedIds[a] == sortedIds[b] ? 0 : 1);
+						}
+					}, new Swapper() {
+						@Override
+						public void swap(int a, int b) {
+							int id = sortedIds[a];
+							sortedIds[a] = sortedIds[b];
+							sortedIds[b] = id;
+							long off = sortedOffs[a];
+							sortedOffs[a] = sortedOffs[b];
+							sortedOffs[b] = off;
+						}
+					});
+			for (int id : sortedIds)
+				out.writeInt(id);
+			for (long off : sortedOffs)
+				out.writeLong(off);
+			out.close();
+
+			RandomAccessFile raf = new RandomAccessFile(vectorsFile, "rw");
+			raf.seek(8);
+			raf.writeInt(sortedIds.length);
+			raf.writeLong(HEADER_SIZE + written);
+			raf.close();
+		} catch (IOException e) {
+			logger.error("dumping the entity vectors ({})", e.toString());
+			System.exit(-1);
+		}
+		logger.info("stored {} entity vectors in {}", ids.size(), vectorsFile);
+	}
+
+	/**
+	 * Keeps only the maxTerms terms with the highest weights, preserving the
+	 * order of the terms
+	 *
+	 * @return the new size of the vector
+	 */
+	static int prune(int[] terms, float[] weights, int size,
+			int maxTerms) {
+		float[] sorted = Arrays.copyOf(weights, size);
+		Arrays.sort(sorted);
+		float threshold = sorted[size - maxTerms];
+		// terms with weight equal to the threshold are kept until maxTerms
+		int above = 0;
+		for (int i = 0; i < size; i++) {
+			if (weights[i] > threshold)
+				above++;
+		}
+		int ties = maxTerms - above;
+		int k = 0;
+		for (int i = 0; i < size; i++) {
+			if (weights[i] > threshold
+					|| (weights[i] == threshold && ties-- > 0)) {
+				terms[k] = terms[i];
+				weights[k] = weights[i];
+				k++;
+			}
+		}
+		return k;
+	}
+
+	/**
+	 * Writes a quantized vector, the scale factor makes the dequantized vector
+	 * unit length.
+	 *
+	 * @return the number of bytes written
+	 */
+	private static int writeVector(DataOutputStream out, int[] terms,
+			float[] weights, int size) throws IOException {
+		float max = 0;
+		for (int i = 0; i < size; i++) {
+			max = Math.max(max, weights[i]);
+		}
+		int[] quantized = new int[size];
+		double norm = 0;
+		for (int i = 0; i < size; i++) {
+			quantized[i] = (max == 0) ? 0 : Math.round(weights[i] / max
+					* MAX_QUANTIZED_WEIGHT);
+			norm += (double) quantized[i] * quantized[i];
+		}
+		float scale = (norm == 0) ? 0 : (float) (1 / Math.sqrt(norm));
+		out.writeInt(size);
+		out.writeFloat(scale);
+		for (int i = 0; i < size; i++) {
+			out.writeInt(terms[i]);
+		}
+		for (int i = 0; i < size; i++) {
+			out.writeShort(quantized[i]);
+		}
+		return 4 + 4 + size * (4 + 2);
+	}
+
+}
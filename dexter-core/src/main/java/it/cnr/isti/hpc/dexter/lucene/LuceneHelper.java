@@ -16,7 +16,6 @@ package it.cnr.isti.hpc.dexter.lucene;
  *  limitations under the License.
  */
 
-import it.cnr.isti.hpc.dexter.entity.EntityMatch;
 import it.cnr.isti.hpc.dexter.entity.EntityMatchList;
 import it.cnr.isti.hpc.dexter.spot.SpotMatch;
 import it.cnr.isti.hpc.dexter.spot.clean.SpotManager;
@@ -30,6 +29,7 @@ import it.cnr.isti.hpc.wikipedia.article.Article;
 import it.cnr.isti.hpc.wikipedia.article.ArticleSummarizer;
 import it.cnr.isti.hpc.wikipedia.article.Link;
 import it.cnr.isti.hpc.wikipedia.article.Template;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 
 import java.io.BufferedInputStream;
 import java.io.File;
@@ -56,6 +56,7 @@ import org.apache.lucene.document.FieldType;
 import org.apache.lucene.document.IntField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
@@ -67,17 +68,22 @@ import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BitsFilteredDocIdSet;
 import org.apache.lucene.search.BooleanQuery;
-import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.Filter;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.PhraseQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.TopScoreDocCollector;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
-import org.apache.lucene.store.LockObtainFailedException;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
 import org.apache.lucene.util.Version;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -122,7 +128,7 @@ public class LuceneHelper {
 	/**
 	 * Singleton
 	 */
-	protected static LuceneHelper dexterHelper;
+	protected static volatile LuceneHelper dexterHelper;
 
 	protected Directory index;
 	protected IndexWriter writer;
@@ -175,7 +181,7 @@ public class LuceneHelper {
 	 * @param indexPath
 	 *            - the path of the directory with the Lucene's index
 	 */
-	protected LuceneHelper(File wikiIdtToLuceneIdSerialization, File indexPath) {
+	public LuceneHelper(File wikiIdtToLuceneIdSerialization, File indexPath) {
 		logger.info("opening lucene index in folder {}", indexPath);
 		config = new IndexWriterConfig(Version.LUCENE_41, ANALYZER);
 		this.wikiIdtToLuceneIdSerialization = wikiIdtToLuceneIdSerialization;
@@ -186,8 +192,8 @@ public class LuceneHelper {
 			index = FSDirectory.open(indexPath);
 			// writer.commit();
 		} catch (Exception e) {
-			logger.error("opening the index: {}", e.toString());
-			System.exit(1);
+			throw new IllegalStateException("opening the index: "
+					+ e.toString(), e);
 		}
 
 		summarizer = new ArticleSummarizer();
@@ -233,9 +239,14 @@ public class LuceneHelper {
 	 */
 	public static LuceneHelper getDexterLuceneHelper() {
 		if (dexterHelper == null) {
-			File luceneFolder = params.getIndexDir();
-			File serializedWikiFile = params.getWikiToIdFile();
-			dexterHelper = new LuceneHelper(serializedWikiFile, luceneFolder);
+			synchronized (LuceneHelper.class) {
+				if (dexterHelper == null) {
+					File luceneFolder = params.getIndexDir();
+					File serializedWikiFile = params.getWikiToIdFile();
+					dexterHelper = new LuceneHelper(serializedWikiFile,
+							luceneFolder);
+				}
+			}
 		}
 		return dexterHelper;
 	}
@@ -343,16 +354,98 @@ public class LuceneHelper {
 	 * @return the TFIDF-similarity between the query and wikiId
 	 */
 	public float getSimilarity(Query query, int wikiId) {
+		return getSimilarity(query, new int[] { wikiId })[0];
+	}
+
+	/**
+	 * Returns the TFIDF-similarity between a given string and a set of
+	 * articles. The query is executed only once, restricted to the given
+	 * articles, and the similarity is the score assigned by Lucene to each
+	 * article (the same value returned by {@link IndexSearcher#explain}).
+	 * 
+	 * @param query
+	 *            - the query containing the query to compare with the articles
+	 * @param wikiIds
+	 *            - the ids of the articles to compare with the query
+	 * @return an array containing in position i the TFIDF-similarity between
+	 *         the query and wikiIds[i] (0 if the article is not in the index or
+	 *         does not match the query)
+	 */
+	public float[] getSimilarity(Query query, int[] wikiIds) {
+		final float[] scores = new float[wikiIds.length];
+		int[] luceneIds = new int[wikiIds.length];
+		// lucene id -> first position of the article in wikiIds
+		final Int2IntOpenHashMap positions = new Int2IntOpenHashMap(
+				wikiIds.length);
+		positions.defaultReturnValue(-1);
+		for (int i = 0; i < wikiIds.length; i++) {
+			luceneIds[i] = getLuceneId(wikiIds[i]);
+			if (luceneIds[i] >= 0 && !positions.containsKey(luceneIds[i])) {
+				positions.put(luceneIds[i], i);
+			}
+		}
+		if (positions.isEmpty())
+			return scores;
+
+		final int[] docs = positions.keySet().toIntArray();
+		Arrays.sort(docs);
+		Filter candidates = new Filter() {
+			@Override
+			public DocIdSet getDocIdSet(AtomicReaderContext context,
+					Bits acceptDocs) {
+				int base = context.docBase;
+				int maxDoc = context.reader().maxDoc();
+				FixedBitSet bits = new FixedBitSet(maxDoc);
+				for (int doc : docs) {
+					if (doc >= base && doc < base + maxDoc)
+						bits.set(doc - base);
+				}
+				return BitsFilteredDocIdSet.wrap(bits, acceptDocs);
+			}
+		};
+		Collector collector = new Collector() {
+			private Scorer scorer;
+			private int docBase;
+
+			@Override
+			public void setScorer(Scorer scorer) {
+				this.scorer = scorer;
+			}
+
+			@Override
+			public void collect(int doc) throws IOException {
+				int pos = positions.get(docBase + doc);
+				if (pos >= 0)
+					scores[pos] = scorer.score();
+			}
+
+			@Override
+			public void setNextReader(AtomicReaderContext context) {
+				docBase = context.docBase;
+			}
+
+			@Override
+			public boolean acceptsDocsOutOfOrder() {
+				return true;
+			}
+		};
+
 		searcher = getSearcher();
-		int docId = getLuceneId(wikiId);
-		Explanation e = null;
 		try {
-			e = searcher.explain(query, docId);
-		} catch (IOException e1) {
-			logger.error("getting similarity between text and doc {} ", wikiId);
-			return 0;
+			searcher.search(query, candidates, collector);
+		} catch (IOException e) {
+			logger.error("getting similarity between text and docs ({}) ",
+					e.toString());
+			Arrays.fill(scores, 0);
+			return scores;
 		}
-		return e.getValue();
+		// articles repeated in wikiIds get the score of their first occurrence
+		for (int i = 0; i < wikiIds.length; i++) {
+			if (luceneIds[i] >= 0) {
+				scores[i] = scores[positions.get(luceneIds[i])];
+			}
+		}
+		return scores;
 	}
 
 	/**
@@ -385,7 +478,7 @@ public class LuceneHelper {
 	 */
 	public double getCosineSimilarity(int x, int y, String field) {
 
-		IndexReader reader = getReader();
+		IndexReader reader = getSearcher().getIndexReader();
 		Terms tfvX = null;
 		Terms tfvY = null;
 		try {
@@ -434,14 +527,10 @@ public class LuceneHelper {
 		double dotproduct = 0;
 
 		for (Map.Entry<String, Double> k : xTfidf.entrySet()) {
-			if (yTfidf.containsKey(k.getKey())) {
-				logger.info("key {} ", k.getKey());
-				logger.info("key x {} y {} ", k.getValue(),
-						yTfidf.get(k.getKey()));
-				dotproduct += k.getValue() * yTfidf.get(k.getKey());
-				logger.info("dotproduct {} ", dotproduct);
+			Double yValue = yTfidf.get(k.getKey());
+			if (yValue != null) {
+				dotproduct += k.getValue() * yValue;
 			}
-
 		}
 		return dotproduct / (xnorm * ynorm);
 
@@ -463,7 +552,7 @@ public class LuceneHelper {
 	 */
 	private double tfidfVector(Map<String, Double> tfidf,
 			Map<String, Integer> freq, String field) {
-		IndexReader reader = getReader();
+		IndexReader reader = getSearcher().getIndexReader();
 
 		double norm = 0;
 		for (Map.Entry<String, Integer> entry : freq.entrySet()) {
@@ -675,15 +764,11 @@ public class LuceneHelper {
 		if (writer == null)
 			try {
 				writer = new IndexWriter(index, config);
-			} catch (CorruptIndexException e1) {
-				logger.error("creating the index: {}", e1.toString());
-				System.exit(-1);
-			} catch (LockObtainFailedException e1) {
-				logger.error("creating the index: {}", e1.toString());
-				System.exit(-1);
 			} catch (IOException e1) {
-				logger.error("creating the index: {}", e1.toString());
-				System.exit(-1);
+				// also a corrupted index, or an index locked by another
+				// writer
+				throw new IllegalStateException("creating the index: "
+						+ e1.toString(), e1);
 			}
 		return writer;
 	}
@@ -707,6 +792,22 @@ public class LuceneHelper {
 		}
 	}
 
+	/**
+	 * Closes the reader, the writer and the index, the helper cannot be used
+	 * after this call
+	 */
+	public void close() {
+		try {
+			if (searcher != null) {
+				searcher.getIndexReader().close();
+			}
+			writer.close();
+			index.close();
+		} catch (IOException e) {
+			logger.error("closing the index: {}", e.toString());
+		}
+	}
+
 	/**
 	 * @param query
 	 *            entities containing the text of the query as a phrase (terms
@@ -851,7 +952,6 @@ public class LuceneHelper {
 	 *            in this field and the context.
 	 * 
 	 */
-	@SuppressWarnings("null")
 	public void rankBySimilarity(SpotMatch spot, EntityMatchList eml,
 			String context, String field) {
 
@@ -866,28 +966,21 @@ public class LuceneHelper {
 			// removing all not alphanumerical chars
 			context = context.replaceAll("[^A-Za-z0-9 ]", " ");
 
-			q = new QueryParser(Version.LUCENE_41, "content",
-					new StandardAnalyzer(Version.LUCENE_41)).parse(QueryParser
-					.escape(context));
+			q = new QueryParser(Version.LUCENE_41, field, new StandardAnalyzer(
+					Version.LUCENE_41)).parse(QueryParser.escape(context));
 		} catch (ParseException e) {
 			logger.error("querying the index: {} ", e.toString());
-			logger.error("clauses = {} ",
-					((BooleanQuery) q).getClauses().length);
 			return;
 		}
 
-		for (EntityMatch e : eml) {
-			Integer luceneId = getLuceneId(e.getId());
-			float score = 0.5f;
-			// smoothing
-			if (luceneId == null || luceneId < 0) {
-				// logger.warn("no docs in lucene for wiki id {}, ignoring",
-				// e.id());
-			} else {
-				score += getSimilarity(q, e.getId());
-
-			}
-			e.setScore(score);
+		int[] ids = new int[eml.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = eml.get(i).getId();
+		}
+		float[] similarities = getSimilarity(q, ids);
+		for (int i = 0; i < ids.length; i++) {
+			// smoothing, entities not in the index get 0.5
+			eml.get(i).setScore(0.5f + similarities[i]);
 		}
 
 		return;
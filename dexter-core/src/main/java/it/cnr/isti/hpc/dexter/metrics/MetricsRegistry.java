@@ -0,0 +1,113 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The registry of the metrics collected by Dexter: a {@link Timer} for each
+ * stage of the tagging pipeline, and a {@link CacheCounter} for each cache.
+ * Components retrieve their metrics once and keep them in static fields, e.g.:
+ *
+ * <pre>
+ * private static final Timer spotLookup = MetricsRegistry.getInstance()
+ * 		.getTimer(MetricsRegistry.SPOT_LOOKUP);
+ * </pre>
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 7, 2014
+ */
+public class MetricsRegistry {
+
+	public static final String SPOTTING = "spotting";
+	public static final String SEGMENTATION = "segmentation";
+	public static final String TOKEN_CLEANING = "token-cleaning";
+	public static final String SPOT_LOOKUP = "spot-lookup";
+	public static final String CANDIDATE_RANKING = "candidate-ranking";
+	public static final String SPOT_FILTERS = "spot-filters";
+	public static final String RELATEDNESS = "relatedness";
+	public static final String DISAMBIGUATION = "disambiguation";
+	public static final String RENDERING = "rendering";
+
+	private static final MetricsRegistry instance = new MetricsRegistry();
+
+	private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<String, Timer>();
+	private final ConcurrentMap<String, CacheCounter> caches = new ConcurrentHashMap<String, CacheCounter>();
+
+	private MetricsRegistry() {
+	}
+
+	public static MetricsRegistry getInstance() {
+		return instance;
+	}
+
+	/**
+	 * @return the timer with the given name, created if it does not exist
+	 */
+	public Timer getTimer(String name) {
+		Timer timer = timers.get(name);
+		if (timer == null) {
+			timers.putIfAbsent(name, new Timer(name));
+			timer = timers.get(name);
+		}
+		return timer;
+	}
+
+	/**
+	 * @return the counter of the cache with the given name, created if it
+	 *         does not exist
+	 */
+	public CacheCounter getCacheCounter(String name) {
+		CacheCounter counter = caches.get(name);
+		if (counter == null) {
+			caches.putIfAbsent(name, new CacheCounter(name));
+			counter = caches.get(name);
+		}
+		return counter;
+	}
+
+	/**
+	 * @return the current value of all the metrics, timers are named
+	 *         timer.&lt;stage&gt; and caches cache.&lt;cache&gt;
+	 */
+	public Map<String, Map<String, Double>> snapshot() {
+		Map<String, Map<String, Double>> snapshot = new TreeMap<String, Map<String, Double>>();
+		for (Timer timer : timers.values()) {
+			snapshot.put("timer." + timer.getName(), timer.snapshot());
+		}
+		for (CacheCounter counter : caches.values()) {
+			snapshot.put("cache." + counter.getName(), counter.snapshot());
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Resets all the metrics
+	 */
+	public void reset() {
+		for (Timer timer : timers.values()) {
+			timer.reset();
+		}
+		for (CacheCounter counter : caches.values()) {
+			counter.reset();
+		}
+	}
+
+}
@@ -0,0 +1,163 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Timer records the latency of a stage of the pipeline. It keeps the number
+ * of events, the total and the maximum time, and an histogram of the
+ * latencies with exponential buckets (bucket i contains the events that took
+ * less than 2^i microseconds), so that the percentiles can be estimated. A
+ * timer can be shared by several threads, recording an event costs a call to
+ * {@link System#nanoTime()} and a few atomic operations.
+ *
+ * <pre>
+ * long start = timer.start();
+ * ...
+ * timer.stop(start);
+ * </pre>
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 7, 2014
+ */
+public class Timer {
+
+	private static final int BUCKETS = 40;
+
+	private final String name;
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+	private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+	Timer(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the start time of an event, to pass to {@link #stop(long)}
+	 */
+	public long start() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Records an event started at the given time
+	 *
+	 * @return the duration of the event in nanoseconds
+	 */
+	public long stop(long start) {
+		long nanos = System.nanoTime() - start;
+		record(nanos);
+		return nanos;
+	}
+
+	/**
+	 * Records an event that took the given time
+	 */
+	public void record(long nanos) {
+		if (nanos < 0)
+			nanos = 0;
+		count.incrementAndGet();
+		total.addAndGet(nanos);
+		long current = max.get();
+		while (nanos > current && !max.compareAndSet(current, nanos)) {
+			current = max.get();
+		}
+		histogram.incrementAndGet(bucket(nanos));
+	}
+
+	private static int bucket(long nanos) {
+		long micros = nanos / 1000;
+		int bucket = 64 - Long.numberOfLeadingZeros(micros);
+		return Math.min(bucket, BUCKETS - 1);
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * @return the mean latency in milliseconds
+	 */
+	public double getMean() {
+		long n = count.get();
+		if (n == 0)
+			return 0;
+		return total.get() / (double) n / 1000000.0;
+	}
+
+	/**
+	 * @return the maximum latency in milliseconds
+	 */
+	public double getMax() {
+		return max.get() / 1000000.0;
+	}
+
+	/**
+	 * @return an upper bound of the given percentile (between 0 and 1) of the
+	 *         latency, in milliseconds
+	 */
+	public double getPercentile(double percentile) {
+		long[] counts = new long[BUCKETS];
+		long n = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = histogram.get(i);
+			n += counts[i];
+		}
+		if (n == 0)
+			return 0;
+		long rank = (long) Math.ceil(percentile * n);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min((1L << i) / 1000.0, getMax());
+			}
+		}
+		return getMax();
+	}
+
+	public Map<String, Double> snapshot() {
+		Map<String, Double> snapshot = new LinkedHashMap<String, Double>();
+		snapshot.put("count", (double) getCount());
+		snapshot.put("mean-ms", getMean());
+		snapshot.put("p50-ms", getPercentile(0.5));
+		snapshot.put("p90-ms", getPercentile(0.9));
+		snapshot.put("p99-ms", getPercentile(0.99));
+		snapshot.put("max-ms", getMax());
+		return snapshot;
+	}
+
+	void reset() {
+		count.set(0);
+		total.set(0);
+		max.set(0);
+		for (int i = 0; i < BUCKETS; i++) {
+			histogram.set(i, 0);
+		}
+	}
+
+}
@@ -16,7 +16,7 @@
 package it.cnr.isti.hpc.dexter.relatedness;
 
 import it.cnr.isti.hpc.dexter.graph.IncomingNodes;
-import it.cnr.isti.hpc.dexter.graph.NodeFactory;
+import it.cnr.isti.hpc.dexter.util.DexterParams;
 
 /**
  * Implements the standard relatedness function proposed by Milne and Witten
@@ -34,11 +34,7 @@ import it.cnr.isti.hpc.dexter.graph.NodeFactory;
  */
 public class MilneRelatedness extends Relatedness {
 
-	private static IncomingNodes in = NodeFactory
-			.getIncomingNodes(NodeFactory.STD_TYPE);
-
-	private static final int W = in.size();
-	private static final double logW = Math.log(W);
+	private static DexterParams params = DexterParams.getInstance();
 
 	public MilneRelatedness() {
 
@@ -51,25 +47,32 @@ public class MilneRelatedness extends Relatedness {
 
 	@Override
 	protected double score() {
-		int[] inX = in.getNeighbours(x);
-		int[] inY = in.getNeighbours(y);
-		int sizex = inX.length;
-		int sizey = inY.length;
+		// the incoming nodes of the model used by the current request
+		IncomingNodes in = params.getModel().getIncomingNodes();
+		int sizex = degree(in, x);
+		int sizey = degree(in, y);
+		if (sizex == 0 || sizey == 0)
+			return 0;
+		int intersection = intersectionSize(in, x, y);
+		return relatedness(sizex, sizey, intersection, Math.log(in.size()));
+	}
 
+	/**
+	 * Computes the relatedness of two entities given the number of their
+	 * in-links, the size of the intersection of the in-links, and the log of
+	 * the number of entities
+	 */
+	public static double relatedness(int sizex, int sizey,
+			double intersection, double logW) {
 		int maxXY = Math.max(sizex, sizey);
 		int minXY = Math.min(sizex, sizey);
-		if (minXY == 0)
-			return 0;
-
-		int intersection = intersectionSize(inX, inY);
-		if (intersection == 0)
+		if (minXY == 0 || intersection <= 0)
 			return 0;
 		double rel = 1 - ((Math.log(maxXY) - Math.log(intersection)) / (logW - Math
 				.log(minXY)));
 		if (rel < 0)
 			rel = 0;
 		return rel;
-
 	}
 
 	public int intersectionSize(int[] a, int[] b) {
@@ -16,7 +16,7 @@
 package it.cnr.isti.hpc.dexter.relatedness;
 
 import it.cnr.isti.hpc.dexter.graph.IncomingNodes;
-import it.cnr.isti.hpc.dexter.graph.NodeFactory;
+import it.cnr.isti.hpc.dexter.util.DexterParams;
 
 /**
  * Implements the standard relatedness function proposed by Milne and Witten
@@ -34,11 +34,7 @@ import it.cnr.isti.hpc.dexter.graph.NodeFactory;
  */
 public class MilneRelatedness2 extends Relatedness {
 
-	private static IncomingNodes in = NodeFactory
-			.getIncomingNodes(NodeFactory.STD_TYPE);
-
-	private static final int W = in.size();
-	private static final double logW = Math.log(W);
+	private static DexterParams params = DexterParams.getInstance();
 
 	public MilneRelatedness2() {
 
@@ -51,6 +47,8 @@ public class MilneRelatedness2 extends Relatedness {
 
 	@Override
 	protected double score() {
+		// the incoming nodes of the model used by the current request
+		IncomingNodes in = params.getModel().getIncomingNodes();
 		int[] inX = in.getNeighbours(x);
 		int[] inY = in.getNeighbours(y);
 		int sizex = inX.length;
@@ -64,6 +62,7 @@ public class MilneRelatedness2 extends Relatedness {
 		int intersection = intersectionSize(inX, inY);
 		if (intersection <= 1)
 			return 0;
+		double logW = Math.log(in.size());
 		double rel = 1 - ((Math.log(maxXY) - Math.log(intersection)) / (logW - Math
 				.log(minXY)));
 		if (rel < 0)
@@ -0,0 +1,89 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.relatedness;
+
+import it.cnr.isti.hpc.dexter.graph.IncomingNodes;
+import it.cnr.isti.hpc.dexter.graph.NodeStar;
+import it.cnr.isti.hpc.dexter.util.DexterModel;
+import it.cnr.isti.hpc.dexter.util.DexterParams;
+
+/**
+ * Approximates the {@link MilneRelatedness}: if both the entities have a
+ * {@link MinHashSketches sketch} of their in-links, the size of the
+ * intersection of the in-links is estimated from the sketches in O(k),
+ * otherwise (or if the model has no sketches) it is computed exactly with
+ * {@link Relatedness#intersectionSize(NodeStar, int, int)}. The sketches are
+ * retrieved from the model of the request.
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 15, 2014
+ */
+public class MinHashRelatedness extends MilneRelatedness {
+
+	private static DexterParams params = DexterParams.getInstance();
+
+	public MinHashRelatedness() {
+
+	}
+
+	protected MinHashRelatedness(int x, int y) {
+		super(x, y);
+	}
+
+	@Override
+	protected double score() {
+		DexterModel model = params.getModel();
+		IncomingNodes in = model.getIncomingNodes();
+		MinHashSketches sketches = model.getMinHashSketches();
+		int sizex = degree(in, x);
+		int sizey = degree(in, y);
+
+		int minXY = Math.min(sizex, sizey);
+		if (minXY == 0)
+			return 0;
+
+		double intersection = -1;
+		if (sketches != null && minXY >= sketches.getMinSize()) {
+			long sx = sketches.find(x);
+			long sy = sketches.find(y);
+			if (sx >= 0 && sy >= 0) {
+				intersection = MinHashSketches.intersectionSize(
+						sketches.jaccard(sx, sy), sizex, sizey);
+				// the estimate cannot exceed the shortest list
+				intersection = Math.min(intersection, minXY);
+			}
+		}
+		if (intersection < 0)
+			intersection = intersectionSize(in, x, y);
+		if (intersection < 1)
+			return 0;
+		return relatedness(sizex, sizey, intersection, Math.log(in.size()));
+	}
+
+	@Override
+	public String getName() {
+		return "milne-minhash";
+	}
+
+	@Override
+	public Relatedness copy() {
+		MinHashRelatedness rel = new MinHashRelatedness(x, y);
+		rel.setScore(score);
+		return rel;
+	}
+
+}
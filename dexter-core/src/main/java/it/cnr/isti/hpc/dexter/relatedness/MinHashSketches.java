@@ -0,0 +1,288 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.relatedness;
+
+import it.cnr.isti.hpc.dexter.graph.NodeStar;
+import it.cnr.isti.hpc.dexter.util.BigMappedBuffer;
+import it.cnr.isti.hpc.dexter.util.DexterParams;
+import it.cnr.isti.hpc.log.ProgressLogger;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * MinHashSketches keeps a sketch of the incoming links of the popular
+ * entities, that allows to estimate the Jaccard similarity of the in-links of
+ * two entities in O(k), without merging their lists. The sketches are one
+ * permutation min-wise hashes: each link is hashed once, the high bits of the
+ * hash select one of the k bins, and each bin keeps the minimum of the
+ * remaining bits. The empty bins are densified, i.e., they take the minimum
+ * of the closest non empty bin on their right, mixed with their distance, so
+ * that also the sketches of sets shorter than k estimate the similarity
+ * without bias. Only the lowest 16 bits of each minimum are stored (b-bit
+ * minwise hashing), so a sketch takes 2k bytes.
+ * <p>
+ * Only the entities with at least <code>minSize</code> in-links have a sketch
+ * (the intersection of short lists is cheap to compute exactly). The file
+ * contains a header, the sorted ids of the entities and their sketches, and
+ * it is memory mapped.
+ *
+ * @see MinHashRelatedness
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 15, 2014
+ */
+public class MinHashSketches {
+
+	private static final Logger logger = LoggerFactory
+			.getLogger(MinHashSketches.class);
+
+	static final int MAGIC = 0x44584d48;
+	// version 2 densifies the empty bins
+	static final int VERSION = 2;
+	static final int HEADER_SIZE = 4 + 4 + 4 + 4 + 4;
+
+	/** the probability that two different minimums have the same 16 bits */
+	private static final double COLLISION = 1.0 / (1 << 16);
+
+	public static final int DEFAULT_K = 128;
+	public static final int DEFAULT_MIN_SIZE = 1000;
+
+	private static DexterParams params = DexterParams.getInstance();
+
+	private static volatile MinHashSketches instance;
+
+	private final BigMappedBuffer buffer;
+	private final int size;
+	private final int k;
+	private final int minSize;
+	private final long sketchesStart;
+
+	/**
+	 * Maps in memory the sketches contained in the given file
+	 */
+	public MinHashSketches(File file) {
+		logger.info("loading minhash sketches from {}", file);
+		BigMappedBuffer b = null;
+		try {
+			b = new BigMappedBuffer(file);
+		} catch (IOException e) {
+			throw new IllegalStateException("loading the minhash sketches ("
+					+ e.toString() + ")", e);
+		}
+		if (b.getInt(0) != MAGIC || b.getInt(4) != VERSION) {
+			b.close();
+			throw new IllegalStateException(file
+					+ " is not a valid minhash sketches file");
+		}
+		buffer = b;
+		size = buffer.getInt(8);
+		k = buffer.getInt(12);
+		minSize = buffer.getInt(16);
+		sketchesStart = HEADER_SIZE + size * 4L;
+		logger.info("loaded {} sketches, k = {}", size, k);
+	}
+
+	public static MinHashSketches getInstance() {
+		if (instance == null) {
+			synchronized (MinHashSketches.class) {
+				if (instance == null)
+					instance = new MinHashSketches(
+							params.getMinHashSketchesFile());
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * @return the number of entities with a sketch
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of bins of a sketch
+	 */
+	public int getK() {
+		return k;
+	}
+
+	/**
+	 * @return the min number of in-links of an entity with a sketch
+	 */
+	public int getMinSize() {
+		return minSize;
+	}
+
+	/**
+	 * @return the position of the sketch of the entity, or -1 if the entity
+	 *         has no sketch
+	 */
+	public long find(int entity) {
+		long pos = buffer.binarySearchInt(HEADER_SIZE, 0, size, entity);
+		return (pos < 0) ? -1 : pos;
+	}
+
+	/**
+	 * Estimates the Jaccard similarity of the in-links of two entities
+	 *
+	 * @param x
+	 *            the position of the sketch of the first entity (see
+	 *            {@link #find(int)})
+	 * @param y
+	 *            the position of the sketch of the second entity
+	 */
+	public double jaccard(long x, long y) {
+		long startX = sketchesStart + x * k * 2L;
+		long startY = sketchesStart + y * k * 2L;
+		int matches = 0;
+		for (int i = 0; i < k; i++) {
+			if (buffer.getShort(startX + i * 2L) == buffer.getShort(startY + i
+					* 2L))
+				matches++;
+		}
+		double j = ((double) matches / k - COLLISION) / (1 - COLLISION);
+		return (j < 0) ? 0 : j;
+	}
+
+	/**
+	 * Unmaps the sketches, they cannot be read after this call
+	 */
+	public void close() {
+		buffer.close();
+	}
+
+	/**
+	 * Estimates the size of the intersection of two sets given their
+	 * Jaccard similarity and their sizes
+	 */
+	public static double intersectionSize(double jaccard, int sizeX, int sizeY) {
+		return jaccard * (sizeX + sizeY) / (1 + jaccard);
+	}
+
+	/**
+	 * @return the one permutation min-wise sketch of the set, k must be a
+	 *         power of two
+	 */
+	static short[] sketch(int[] set, int k) {
+		int bits = Integer.numberOfTrailingZeros(k);
+		int mask = (bits == 0) ? -1 : (1 << (32 - bits)) - 1;
+		int[] min = new int[k];
+		Arrays.fill(min, Integer.MAX_VALUE);
+		for (int element : set) {
+			int h = hash(element);
+			int bin = (bits == 0) ? 0 : h >>> (32 - bits);
+			int value = h & mask;
+			if (value < min[bin])
+				min[bin] = value;
+		}
+		short[] sketch = new short[k];
+		int full = 0;
+		while (full < k && min[full] == Integer.MAX_VALUE)
+			full++;
+		if (full == k)
+			return sketch;
+		// visits the bins from right to left (circularly), starting from a
+		// non empty bin, next is the closest non empty bin on the right
+		int next = full;
+		int distance = 0;
+		for (int step = 0; step < k; step++) {
+			int i = (full - step + k) % k;
+			if (min[i] != Integer.MAX_VALUE) {
+				next = i;
+				distance = 0;
+				sketch[i] = (short) min[i];
+			} else {
+				distance++;
+				sketch[i] = (short) hash(min[next] + distance * 0x9e3779b9);
+			}
+		}
+		return sketch;
+	}
+
+	/** the finalizer of murmur3 */
+	private static int hash(int h) {
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	/**
+	 * Computes the sketches of the in-links of the given entities, and writes
+	 * them in the output file
+	 *
+	 * @param entities
+	 *            the entities
+	 * @param in
+	 *            the graph returning the in-links of an entity
+	 * @param k
+	 *            the number of bins of a sketch (a power of two)
+	 * @param minSize
+	 *            the min number of in-links of an entity with a sketch
+	 * @param output
+	 *            the file to write
+	 */
+	public static void dump(int[] entities, NodeStar in, int k, int minSize,
+			File output) throws IOException {
+		if (k <= 0 || Integer.bitCount(k) != 1 || k > (1 << 16))
+			throw new IllegalArgumentException("k must be a power of two");
+		entities = Arrays.copyOf(entities, entities.length);
+		Arrays.sort(entities);
+		IntArrayList popular = new IntArrayList();
+		for (int entity : entities) {
+			if (Relatedness.degree(in, entity) >= minSize)
+				popular.add(entity);
+		}
+		logger.info("writing the sketches of {} entities in {}",
+				popular.size(), output);
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(output)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(popular.size());
+			out.writeInt(k);
+			out.writeInt(minSize);
+			for (int i = 0; i < popular.size(); i++) {
+				out.writeInt(popular.getInt(i));
+			}
+			ProgressLogger pl = new ProgressLogger("sketched {} entities",
+					100000);
+			for (int i = 0; i < popular.size(); i++) {
+				pl.up();
+				for (short s : sketch(in.getNeighbours(popular.getInt(i)), k)) {
+					out.writeShort(s);
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+}
@@ -16,14 +16,21 @@
 package it.cnr.isti.hpc.dexter.relatedness;
 
 import it.cnr.isti.hpc.dexter.graph.IncomingNodes;
+import it.cnr.isti.hpc.dexter.graph.IntBitmap;
+import it.cnr.isti.hpc.dexter.graph.NodeStar;
 import it.cnr.isti.hpc.dexter.graph.OutcomingNodes;
+import it.cnr.isti.hpc.dexter.graph.ram.RamNodes;
 import it.cnr.isti.hpc.dexter.label.IdHelper;
-import it.cnr.isti.hpc.dexter.label.IdHelperFactory;
+import it.cnr.isti.hpc.dexter.metrics.CacheCounter;
+import it.cnr.isti.hpc.dexter.metrics.MetricsRegistry;
+import it.cnr.isti.hpc.dexter.metrics.Timer;
 import it.cnr.isti.hpc.dexter.util.DexterParams;
 import it.cnr.isti.hpc.structure.LRUCache;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.ints.IntList;
 
+import java.util.Arrays;
+
 /**
  * Contains the relatedness between two entities, and several functions on the
  * graph useful to implement a relatedness function.
@@ -48,9 +55,14 @@ public abstract class Relatedness implements Comparable<Relatedness> {
 
 	private static final int CACHE_SIZE = params.getCacheSize("relatedness");
 	private final static boolean CACHE_ENABLED = CACHE_SIZE > 0;
-	private static LRUCache<Couple, Double> cache = new LRUCache<Couple, Double>(
+	private static volatile LRUCache<Couple, Double> cache = new LRUCache<Couple, Double>(
 			CACHE_SIZE);
 
+	private static final CacheCounter cacheCounter = MetricsRegistry
+			.getInstance().getCacheCounter("relatedness");
+	private static final Timer timer = MetricsRegistry.getInstance()
+			.getTimer(MetricsRegistry.RELATEDNESS);
+
 	public Relatedness() {
 		super();
 	}
@@ -64,14 +76,37 @@ public abstract class Relatedness implements Comparable<Relatedness> {
 	public void set(int x, int y) {
 		this.x = x;
 		this.y = y;
-		Couple k = new Couple(x, y);
-		if (CACHE_ENABLED && cache.containsKey(k)) {
-			score = cache.get(k);
-			return;
+		Couple k = new Couple(getClass(), x, y);
+		// the cache can be replaced by clearCache()
+		LRUCache<Couple, Double> c = cache;
+		if (CACHE_ENABLED) {
+			Double cached;
+			// the cache is shared by the requests
+			synchronized (c) {
+				cached = c.get(k);
+			}
+			if (cached != null) {
+				cacheCounter.hit();
+				score = cached;
+				return;
+			}
 		}
+		cacheCounter.miss();
+		long start = timer.start();
 		score = score();
-		if (CACHE_ENABLED)
-			cache.put(k, score);
+		timer.stop(start);
+		if (CACHE_ENABLED) {
+			synchronized (c) {
+				c.put(k, score);
+			}
+		}
+	}
+
+	/**
+	 * Empties the cache of the scores, e.g., when a new model is activated
+	 */
+	public static void clearCache() {
+		cache = new LRUCache<Couple, Double>(CACHE_SIZE);
 	}
 
 	public void setScore(double score) {
@@ -273,6 +308,58 @@ public abstract class Relatedness implements Comparable<Relatedness> {
 		return size;
 	}
 
+	/**
+	 * @return the number of neighbours of the node, without decoding them if
+	 *         the node is stored as a bitmap
+	 */
+	public static int degree(NodeStar graph, int id) {
+		return RamNodes.degree(graph, id);
+	}
+
+	/**
+	 * @return the number of neighbours shared by the nodes x and y. If one of
+	 *         the nodes is stored as a bitmap, each neighbour of the other is
+	 *         looked up in the bitmap (see
+	 *         {@link IntBitmap#intersectionSize(int[])}), if both are, their
+	 *         dense containers are intersected a word at a time. Two sorted arrays are merged, or,
+	 *         if one is much shorter than the other, its elements are searched
+	 *         in the longer one with a binary search.
+	 */
+	public static int intersectionSize(NodeStar graph, int x, int y) {
+		if (graph instanceof RamNodes) {
+			RamNodes nodes = (RamNodes) graph;
+			IntBitmap bx = nodes.getBitmap(x);
+			IntBitmap by = nodes.getBitmap(y);
+			if (bx != null && by != null)
+				return bx.intersectionSize(by);
+			if (bx != null)
+				return bx.intersectionSize(nodes.getNeighbours(y));
+			if (by != null)
+				return by.intersectionSize(nodes.getNeighbours(x));
+		}
+		int[] a = graph.getNeighbours(x);
+		int[] b = graph.getNeighbours(y);
+		if (a.length > b.length) {
+			int[] t = a;
+			a = b;
+			b = t;
+		}
+		if (a.length * 16 >= b.length)
+			return intersectionSize(a, b, a.length, b.length);
+		int size = 0;
+		int from = 0;
+		for (int i = 0; i < a.length && from < b.length; i++) {
+			int pos = Arrays.binarySearch(b, from, b.length, a[i]);
+			if (pos >= 0) {
+				size++;
+				from = pos + 1;
+			} else {
+				from = -pos - 1;
+			}
+		}
+		return size;
+	}
+
 	public static int unionSize(int[] a, int[] b, int aSize, int bSize) {
 		int i = 0, j = 0;
 		int size = 0;
@@ -307,17 +394,25 @@ public abstract class Relatedness implements Comparable<Relatedness> {
 	}
 
 	public String getNames() {
-		IdHelper ih = IdHelperFactory.getStdIdHelper();
+		IdHelper ih = params.getModel().getIdHelper();
 		String xStr = ih.getLabel(x);
 		String yStr = ih.getLabel(y);
 		return "rel:" + score + "\t[" + xStr + "] [" + yStr + "]>";
 	}
 
-	private class Couple {
-		int x;
-		int y;
+	/**
+	 * The key of a score in the cache: the scores of different relatedness
+	 * functions (e.g., milne and its minhash approximation) are kept apart.
+	 * The function is identified by its class, since two functions can share
+	 * the same name.
+	 */
+	private static class Couple {
+		final Class<?> type;
+		final int x;
+		final int y;
 
-		public Couple(int x, int y) {
+		public Couple(Class<?> type, int x, int y) {
+			this.type = type;
 			this.x = x;
 			this.y = y;
 		}
@@ -326,7 +421,7 @@ public abstract class Relatedness implements Comparable<Relatedness> {
 		public int hashCode() {
 			final int prime = 31;
 			int result = 1;
-			result = prime * result + getOuterType().hashCode();
+			result = prime * result + type.hashCode();
 			result = prime * result + x;
 			result = prime * result + y;
 			return result;
@@ -341,7 +436,7 @@ public abstract class Relatedness implements Comparable<Relatedness> {
 			if (getClass() != obj.getClass())
 				return false;
 			Couple other = (Couple) obj;
-			if (!getOuterType().equals(other.getOuterType()))
+			if (type != other.type)
 				return false;
 			if (x != other.x)
 				return false;
@@ -350,10 +445,6 @@ public abstract class Relatedness implements Comparable<Relatedness> {
 			return true;
 		}
 
-		private Relatedness getOuterType() {
-			return Relatedness.this;
-		}
-
 	}
 
 }
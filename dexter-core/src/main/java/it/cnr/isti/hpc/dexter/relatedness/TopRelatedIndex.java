@@ -0,0 +1,425 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.relatedness;
+
+import it.cnr.isti.hpc.dexter.graph.NodeStar;
+import it.cnr.isti.hpc.dexter.util.BigMappedBuffer;
+import it.cnr.isti.hpc.dexter.util.DexterParams;
+import it.cnr.isti.hpc.log.ProgressLogger;
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.io.Files;
+
+/**
+ * TopRelatedIndex contains, for each entity, the K entities with the highest
+ * {@link MilneRelatedness}, sorted by decreasing relatedness. The index is a
+ * memory mapped file in CSR format: the sorted ids of the entities, the
+ * offsets of their lists, the ids of the related entities and their scores,
+ * quantised in one byte (the error is less than 0.002).
+ * <p>
+ * The index is built offline (see {@link #dump}): only the entities sharing at
+ * least one in-link with an entity can be related to it, so the candidates
+ * are the out-links of its in-links, and the sizes of the intersections are
+ * counted while enumerating them. The entities are processed in parallel,
+ * each one keeps its K best candidates in a bounded heap.
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 15, 2014
+ */
+public class TopRelatedIndex {
+
+	private static final Logger logger = LoggerFactory
+			.getLogger(TopRelatedIndex.class);
+
+	static final int MAGIC = 0x44585452;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 4 + 4 + 4 + 4;
+
+	/** number of entities processed by a task */
+	private static final int CHUNK_SIZE = 1000;
+
+	private static final int TRIM_THRESHOLD = 1 << 16;
+
+	private static DexterParams params = DexterParams.getInstance();
+
+	private static volatile TopRelatedIndex instance;
+
+	private final BigMappedBuffer buffer;
+	private final int size;
+	private final int k;
+	private final long offsetsStart;
+	private final long relatedStart;
+	private final long scoresStart;
+
+	/**
+	 * Maps in memory the index contained in the given file
+	 */
+	public TopRelatedIndex(File file) {
+		logger.info("loading the top related entities from {}", file);
+		BigMappedBuffer b = null;
+		try {
+			b = new BigMappedBuffer(file);
+		} catch (IOException e) {
+			throw new IllegalStateException(
+					"loading the top related entities (" + e.toString() + ")",
+					e);
+		}
+		if (b.getInt(0) != MAGIC || b.getInt(4) != VERSION) {
+			b.close();
+			throw new IllegalStateException(file
+					+ " is not a valid top related entities file");
+		}
+		buffer = b;
+		size = buffer.getInt(8);
+		k = buffer.getInt(12);
+		offsetsStart = HEADER_SIZE + size * 4L;
+		relatedStart = offsetsStart + (size + 1) * 4L;
+		long total = buffer.getInt(offsetsStart + size * 4L);
+		scoresStart = relatedStart + total * 4;
+		logger.info("loaded the top {} related entities of {} entities", k,
+				size);
+	}
+
+	/**
+	 * @return true if the top related entities of the current model were
+	 *         generated
+	 */
+	public static boolean hasTopRelated() {
+		return params.getTopRelatedFile().exists();
+	}
+
+	public static TopRelatedIndex getInstance() {
+		if (instance == null) {
+			synchronized (TopRelatedIndex.class) {
+				if (instance == null)
+					instance = new TopRelatedIndex(params.getTopRelatedFile());
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * Unmaps the index, it cannot be read after this call
+	 */
+	public void close() {
+		buffer.close();
+	}
+
+	/**
+	 * @return the max number of related entities of an entity
+	 */
+	public int getK() {
+		return k;
+	}
+
+	/**
+	 * @return the number of entities in the index
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the related entities of the given entity, sorted by decreasing
+	 *         relatedness, at most n
+	 */
+	public int[] getRelated(int entity, int n) {
+		long pos = buffer.binarySearchInt(HEADER_SIZE, 0, size, entity);
+		if (pos < 0)
+			return new int[0];
+		int start = buffer.getInt(offsetsStart + pos * 4);
+		int end = buffer.getInt(offsetsStart + (pos + 1) * 4);
+		int[] related = new int[Math.max(0, Math.min(n, end - start))];
+		for (int i = 0; i < related.length; i++) {
+			related[i] = buffer.getInt(relatedStart + (start + i) * 4L);
+		}
+		return related;
+	}
+
+	/**
+	 * @return the relatedness of the given entity with its related entities,
+	 *         at most n
+	 */
+	public float[] getScores(int entity, int n) {
+		long pos = buffer.binarySearchInt(HEADER_SIZE, 0, size, entity);
+		if (pos < 0)
+			return new float[0];
+		int start = buffer.getInt(offsetsStart + pos * 4);
+		int end = buffer.getInt(offsetsStart + (pos + 1) * 4);
+		float[] scores = new float[Math.max(0, Math.min(n, end - start))];
+		for (int i = 0; i < scores.length; i++) {
+			scores[i] = dequantise(buffer.get(scoresStart + start + i));
+		}
+		return scores;
+	}
+
+	static byte quantise(double score) {
+		return (byte) Math.round(Math.max(0, Math.min(1, score)) * 255);
+	}
+
+	static float dequantise(byte score) {
+		return (score & 0xFF) / 255f;
+	}
+
+	/**
+	 * Computes the top k related entities of each entity and writes them in
+	 * the output file
+	 *
+	 * @param entities
+	 *            the entities
+	 * @param in
+	 *            the graph returning the in-links of an entity
+	 * @param out
+	 *            the graph returning the out-links of an entity
+	 * @param k
+	 *            the max number of related entities of an entity
+	 * @param threads
+	 *            the number of threads computing the related entities
+	 * @param output
+	 *            the file to write
+	 */
+	public static void dump(int[] entities, final NodeStar in,
+			final NodeStar out, final int k, int threads, File output)
+			throws IOException {
+		final int[] sorted = Arrays.copyOf(entities, entities.length);
+		Arrays.sort(sorted);
+		final double logW = Math.log(in.size());
+
+		File relatedFile = new File(output.getPath() + ".related.tmp");
+		File scoresFile = new File(output.getPath() + ".scores.tmp");
+		DataOutputStream related = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(relatedFile)));
+		DataOutputStream scores = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(scoresFile)));
+		int[] offsets = new int[sorted.length + 1];
+		int total = 0;
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		ProgressLogger pl = new ProgressLogger(
+				"computed the related entities of {} entities", 100000);
+		try {
+			// the chunks are computed in parallel, and written in order
+			int inflight = 4 * threads;
+			for (int from = 0; from < sorted.length; from += inflight
+					* CHUNK_SIZE) {
+				List<Future<Heap[]>> futures = new ArrayList<Future<Heap[]>>();
+				for (int c = 0; c < inflight; c++) {
+					final int start = from + c * CHUNK_SIZE;
+					if (start >= sorted.length)
+						break;
+					final int end = Math.min(start + CHUNK_SIZE, sorted.length);
+					futures.add(executor.submit(new Callable<Heap[]>() {
+
+						@Override
+						public Heap[] call() {
+							Int2IntOpenHashMap counts = new Int2IntOpenHashMap();
+							Heap[] heaps = new Heap[end - start];
+							for (int i = start; i < end; i++) {
+								heaps[i - start] = topRelated(sorted[i], in,
+										out, k, logW, counts);
+							}
+							return heaps;
+						}
+					}));
+				}
+				int i = from;
+				for (Future<Heap[]> future : futures) {
+					Heap[] heaps;
+					try {
+						heaps = future.get();
+					} catch (InterruptedException e) {
+						throw new IOException(e.toString());
+					} catch (ExecutionException e) {
+						throw new IOException(e.getCause().toString());
+					}
+					for (Heap heap : heaps) {
+						pl.up();
+						heap.sort();
+						for (int j = 0; j < heap.size; j++) {
+							related.writeInt(heap.ids[j]);
+							scores.writeByte(quantise(heap.scores[j]));
+						}
+						total += heap.size;
+						if (total < 0)
+							throw new IOException(
+									"too many related entities, reduce k");
+						offsets[++i] = total;
+					}
+				}
+			}
+		} finally {
+			executor.shutdown();
+			related.close();
+			scores.close();
+		}
+
+		logger.info("writing {} related entities in {}", total, output);
+		DataOutputStream index = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(output)));
+		try {
+			index.writeInt(MAGIC);
+			index.writeInt(VERSION);
+			index.writeInt(sorted.length);
+			index.writeInt(k);
+			for (int entity : sorted) {
+				index.writeInt(entity);
+			}
+			for (int offset : offsets) {
+				index.writeInt(offset);
+			}
+			Files.copy(relatedFile, index);
+			Files.copy(scoresFile, index);
+		} finally {
+			index.close();
+		}
+		relatedFile.delete();
+		scoresFile.delete();
+	}
+
+	/**
+	 * Computes the related entities of an entity
+	 *
+	 * @param counts
+	 *            a map used to count the in-links shared with each candidate
+	 */
+	static Heap topRelated(int entity, NodeStar in, NodeStar out, int k,
+			double logW, Int2IntOpenHashMap counts) {
+		counts.clear();
+		int[] links = in.getNeighbours(entity);
+		for (int source : links) {
+			for (int candidate : out.getNeighbours(source)) {
+				if (candidate != entity)
+					counts.addTo(candidate, 1);
+			}
+		}
+		Heap heap = new Heap(k);
+		ObjectIterator<Int2IntMap.Entry> iterator = counts.int2IntEntrySet()
+				.fastIterator();
+		while (iterator.hasNext()) {
+			Int2IntMap.Entry e = iterator.next();
+			int candidate = e.getIntKey();
+			double score = MilneRelatedness.relatedness(links.length,
+					Relatedness.degree(in, candidate), e.getIntValue(), logW);
+			if (score > 0)
+				heap.offer(candidate, score);
+		}
+		if (counts.size() > TRIM_THRESHOLD) {
+			// clear() costs as the capacity of the map, shrink it after a hub
+			counts.clear();
+			counts.trim();
+		}
+		return heap;
+	}
+
+	/**
+	 * A min-heap keeping the k entities with the highest score (ties are
+	 * broken by id)
+	 */
+	static class Heap {
+		final int[] ids;
+		final double[] scores;
+		int size = 0;
+
+		Heap(int k) {
+			ids = new int[k];
+			scores = new double[k];
+		}
+
+		private boolean less(int i, int j) {
+			return scores[i] < scores[j]
+					|| (scores[i] == scores[j] && ids[i] > ids[j]);
+		}
+
+		private boolean less(double score, int id, int j) {
+			return score < scores[j] || (score == scores[j] && id > ids[j]);
+		}
+
+		void offer(int id, double score) {
+			if (ids.length == 0)
+				return;
+			if (size < ids.length) {
+				int i = size++;
+				while (i > 0) {
+					int parent = (i - 1) >>> 1;
+					if (!less(score, id, parent))
+						break;
+					ids[i] = ids[parent];
+					scores[i] = scores[parent];
+					i = parent;
+				}
+				ids[i] = id;
+				scores[i] = score;
+				return;
+			}
+			if (less(score, id, 0) || (score == scores[0] && id == ids[0]))
+				return;
+			siftDown(0, id, score, size);
+		}
+
+		private void siftDown(int i, int id, double score, int n) {
+			int child;
+			while ((child = 2 * i + 1) < n) {
+				if (child + 1 < n && less(child + 1, child))
+					child++;
+				if (!less(child, score, id))
+					break;
+				ids[i] = ids[child];
+				scores[i] = scores[child];
+				i = child;
+			}
+			ids[i] = id;
+			scores[i] = score;
+		}
+
+		private boolean less(int j, double score, int id) {
+			return scores[j] < score || (scores[j] == score && ids[j] > id);
+		}
+
+		/**
+		 * Sorts the entities by decreasing score (the heap is consumed)
+		 */
+		void sort() {
+			for (int n = size - 1; n > 0; n--) {
+				int id = ids[n];
+				double score = scores[n];
+				ids[n] = ids[0];
+				scores[n] = scores[0];
+				siftDown(0, id, score, n);
+			}
+		}
+	}
+
+}
@@ -15,6 +15,8 @@ s *  Copyright 2012 Salvatore Trani
  */
 package it.cnr.isti.hpc.dexter.shingle;
 
+import it.cnr.isti.hpc.dexter.metrics.MetricsRegistry;
+import it.cnr.isti.hpc.dexter.metrics.Timer;
 import it.cnr.isti.hpc.dexter.spot.clean.SpotManager;
 import it.cnr.isti.hpc.text.Sentence;
 import it.cnr.isti.hpc.text.SentenceSegmenter;
@@ -49,6 +51,11 @@ public class ShingleExtractor implements Iterable<Shingle> {
 
 	private static final int DEFAULT_MAX_SHINGLE_SIZE = 6;
 
+	private static final Timer segmentation = MetricsRegistry.getInstance()
+			.getTimer(MetricsRegistry.SEGMENTATION);
+	private static final Timer tokenCleaning = MetricsRegistry.getInstance()
+			.getTimer(MetricsRegistry.TOKEN_CLEANING);
+
 	private final List<List<Token>> cleanedSentences;
 	private final SpotManager sm;
 	private final TokenSegmenter ts;
@@ -87,6 +94,9 @@ public class ShingleExtractor implements Iterable<Shingle> {
 	private void addText(String text) {
 		if (text == null || text.isEmpty())
 			return;
+		long start = System.nanoTime();
+		long segmentationTime = 0;
+		long cleaningTime = 0;
 		List<Sentence> sentences = ss.splitPos(text);
 
 		// int start = 0;
@@ -99,6 +109,8 @@ public class ShingleExtractor implements Iterable<Shingle> {
 			// FIXME CLEAN SHOULD NO CHANGE THE OFFSETS OF THE TOKENS
 			// currSentence = sm.clean(currSentence);
 			List<Token> tokens = ts.tokenizePos(currSentence);
+			long cleaningStart = System.nanoTime();
+			segmentationTime += cleaningStart - start;
 			List<Token> cleanTokens = new LinkedList<Token>();
 			// experimental
 			for (Token t : tokens) {
@@ -120,7 +132,11 @@ public class ShingleExtractor implements Iterable<Shingle> {
 				cleanTokens.add(t);
 			}
 			cleanedSentences.add(cleanTokens);
+			start = System.nanoTime();
+			cleaningTime += start - cleaningStart;
 		}
+		segmentation.record(segmentationTime + System.nanoTime() - start);
+		tokenCleaning.record(cleaningTime);
 
 	}
 
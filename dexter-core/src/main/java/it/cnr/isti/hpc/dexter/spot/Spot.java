@@ -19,12 +19,12 @@ import it.cnr.isti.hpc.dexter.entity.Entity;
 import it.cnr.isti.hpc.io.reader.RecordParser;
 import it.cnr.isti.hpc.text.IntArrayString;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
-import java.nio.IntBuffer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Scanner;
@@ -57,6 +57,31 @@ public class Spot implements Serializable {
 	private static IntArrayString ias = new IntArrayString(false);
 	private static StringBuilder sb = new StringBuilder();
 
+	/**
+	 * Binary format of the spots with the entities in the order they were
+	 * collected
+	 */
+	public static final int FORMAT_V0 = 0;
+
+	/**
+	 * Binary format of the spots with the entities sorted by decreasing
+	 * frequency, and the maximum commonness in the header
+	 */
+	public static final int FORMAT_V1 = 1;
+
+	/**
+	 * Compact binary format of the spots: variable-length integers, the
+	 * entities sorted by decreasing frequency and the mention in UTF-8
+	 */
+	public static final int FORMAT_V2 = 2;
+
+	/**
+	 * The format used to encode the spots
+	 */
+	public static final int FORMAT_VERSION = FORMAT_V2;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
 	// the text of the mention
 	protected String mention;
 	// how many times the mention occurs in the collection
@@ -67,6 +92,8 @@ public class Spot implements Serializable {
 	protected int link;
 	// the list of entities with the current label
 	protected List<Entity> entities;
+	// true if the entities are sorted by decreasing frequency
+	protected boolean sorted = false;
 
 	// probability to be a link (i.e., link/freq)
 	protected double linkProbability;
@@ -209,6 +236,45 @@ public class Spot implements Serializable {
 	 */
 	public void setEntities(List<Entity> entities) {
 		this.entities = entities;
+		this.sorted = false;
+	}
+
+	/**
+	 * @return true if the entities are sorted by decreasing frequency (i.e.,
+	 *         by decreasing commonness), so that a scan of the entities can
+	 *         stop at the first entity with a low commonness
+	 */
+	public boolean isSortedByFrequency() {
+		return sorted;
+	}
+
+	/**
+	 * Sorts the entities by decreasing frequency
+	 */
+	public void sortByFrequency() {
+		if (sorted)
+			return;
+		List<Entity> list = new ArrayList<Entity>(getEntities());
+		Collections.sort(list);
+		entities = list;
+		sorted = true;
+	}
+
+	/**
+	 * @return the maximum commonness of an entity of the spot, 0 if the spot
+	 *         has no entities
+	 */
+	public double getMaxCommonness() {
+		List<Entity> list = getEntities();
+		if (list.isEmpty())
+			return 0;
+		if (sorted)
+			return getEntityCommonness(list.get(0));
+		int max = 0;
+		for (Entity e : list) {
+			max = Math.max(max, e.getFrequency());
+		}
+		return (double) max / (double) link;
 	}
 
 	/**
@@ -309,6 +375,16 @@ public class Spot implements Serializable {
 	// return endOverlap;
 	// }
 
+	/**
+	 * Encodes this spot in an array of bytes, in the current
+	 * {@link #FORMAT_VERSION format}
+	 * 
+	 * @see #toByteArray(int)
+	 */
+	public byte[] toByteArray() {
+		return toByteArray(FORMAT_VERSION);
+	}
+
 	/**
 	 * Encodes this spot in a array of byte, the encode consists in:
 	 * <ul>
@@ -318,14 +394,38 @@ public class Spot implements Serializable {
 	 * </li>
 	 * <li>4 bytes, containing the frequency of the mention as link</li>
 	 * <li>4 bytes, containing the document frequency of the mention</li>
+	 * <li>(only from {@link #FORMAT_V1}) 4 bytes, containing the maximum
+	 * commonness of an entity of the mention, as a float</li>
 	 * <li> <code>2 x 4 x m </code> bytes, where <code> m </code> is the number
 	 * of entities associated with the mention, containing for each entity its
 	 * unique id and its frequency (number of anchors with this text that link
-	 * to the entity);
+	 * to the entity); from {@link #FORMAT_V1} the entities are sorted by
+	 * decreasing frequency.
+	 * </ul>
+	 * From {@link #FORMAT_V2} the record is instead:
+	 * <ul>
+	 * <li>the length <code>n</code> of the mention in UTF-8 (vint), followed
+	 * by the <code>n</code> bytes of the mention</li>
+	 * <li>the frequency of the mention as link (vint)</li>
+	 * <li>the document frequency of the mention (vint)</li>
+	 * <li>the number of entities (vint)</li>
+	 * <li>for each entity, sorted by decreasing frequency, the frequency (the
+	 * first as is, the others as the gap from the previous one) and the id
+	 * (vint)</li>
+	 * </ul>
 	 * 
+	 * @param version
+	 *            the format of the record
 	 * @return the encoded byte array
 	 */
-	public byte[] toByteArray() {
+	public byte[] toByteArray(int version) {
+		List<Entity> entities = getEntities();
+		if (version >= FORMAT_V1 && !sorted) {
+			entities = new ArrayList<Entity>(entities);
+			Collections.sort(entities);
+		}
+		if (version >= FORMAT_V2)
+			return encode(entities);
 		int size = entities.size();
 		int len = mention.length();
 
@@ -344,14 +444,20 @@ public class Spot implements Serializable {
 			s = new byte[] { '0' };
 		}
 
-		// length(spot string) + spot + link (int) + freq (int) + entities (id +
-		// freq)
-		ByteBuffer buffer = ByteBuffer.allocate(1 + (len) + (size * 2 + 2) * 4);
+		// length(spot string) + spot + link (int) + freq (int) + max
+		// commonness (float) + entities (id + freq)
+		int header = (version >= FORMAT_V1) ? 3 : 2;
+		ByteBuffer buffer = ByteBuffer.allocate(1 + (len) + (size * 2 + header)
+				* 4);
 		buffer.put((byte) len);
 		buffer.put(s);
 
 		buffer.putInt(link);
 		buffer.putInt(freq);
+		if (version >= FORMAT_V1) {
+			buffer.putFloat((size == 0) ? 0 : (float) getEntityCommonness(entities
+					.get(0)));
+		}
 		for (Entity e : entities) {
 			buffer.putInt(e.getId());
 			buffer.putInt(e.getFrequency());
@@ -359,9 +465,51 @@ public class Spot implements Serializable {
 		return buffer.array();
 	}
 
+	private byte[] encode(List<Entity> entities) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(16 + mention
+				.length() + entities.size() * 5);
+		byte[] s = mention.getBytes(UTF8);
+		writeVInt(out, s.length);
+		out.write(s, 0, s.length);
+		writeVInt(out, link);
+		writeVInt(out, freq);
+		writeVInt(out, entities.size());
+		int previous = 0;
+		for (int i = 0; i < entities.size(); i++) {
+			Entity e = entities.get(i);
+			int frequency = e.getFrequency();
+			writeVInt(out, (i == 0) ? frequency : previous - frequency);
+			writeVInt(out, e.getId());
+			previous = frequency;
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Decodes a Spot encoded in the current {@link #FORMAT_VERSION format}
+	 * 
+	 * @see #fromByteArray(String, byte[], int, double)
+	 */
+	public static Spot fromByteArray(String text, byte[] data) {
+		return fromByteArray(text, data, FORMAT_VERSION, 0);
+	}
+
+	/**
+	 * Decodes a Spot with all its entities
+	 * 
+	 * @see #fromByteArray(String, byte[], int, double)
+	 */
+	public static Spot fromByteArray(String text, byte[] data, int version) {
+		return fromByteArray(text, data, version, 0);
+	}
+
 	/**
 	 * Decodes a Spot from a byte representation, if the given text match the
-	 * spot text encoded in the byte array.
+	 * spot text encoded in the byte array. Only the entities with commonness
+	 * greater or equal than <code>minCommonness</code> are decoded: if the
+	 * entities are sorted by frequency the decoding stops at the first entity
+	 * below the threshold (and does not start if the maximum commonness in the
+	 * header is below the threshold).
 	 * 
 	 * @see toByteArray
 	 * 
@@ -369,11 +517,32 @@ public class Spot implements Serializable {
 	 *            - the spot text to decode
 	 * @param data
 	 *            - the binary rep for the spot
+	 * @param version
+	 *            - the format of the binary rep
+	 * @param minCommonness
+	 *            - the minimum commonness of a decoded entity
 	 * @return A spot if the given string <code> text </code> matches the text
 	 *         of the spot encoded in data, otherwise null
 	 */
-	public static Spot fromByteArray(String text, byte[] data) {
-		int len = data[0];
+	public static Spot fromByteArray(String text, byte[] data, int version,
+			double minCommonness) {
+		return fromByteArray(text, data, 0, data.length, version,
+				minCommonness);
+	}
+
+	/**
+	 * Decodes a Spot from the <code>length</code> bytes of <code>data</code>
+	 * starting at <code>offset</code>, without copying them. From
+	 * {@link #FORMAT_V2} the only objects allocated are the spot, its list
+	 * and its entities.
+	 * 
+	 * @see #fromByteArray(String, byte[], int, double)
+	 */
+	public static Spot fromByteArray(String text, byte[] data, int offset,
+			int length, int version, double minCommonness) {
+		if (version >= FORMAT_V2)
+			return decode(text, data, offset, offset + length, minCommonness);
+		int len = data[offset] & 0xFF;
 
 		if (text.length() != len) {
 			logger.warn("len {} !=  {} len", len, text);
@@ -382,7 +551,7 @@ public class Spot implements Serializable {
 
 		String s = null;
 		try {
-			s = new String(Arrays.copyOfRange(data, 1, 1 + len), "US-ASCII");
+			s = new String(data, offset + 1, len, "US-ASCII");
 		} catch (UnsupportedEncodingException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
@@ -392,20 +561,132 @@ public class Spot implements Serializable {
 			return null;
 		}
 
-		IntBuffer intBuf = ByteBuffer.wrap(
-				Arrays.copyOfRange(data, 1 + len, data.length)).asIntBuffer();
-		int[] array = new int[intBuf.remaining()];
-		intBuf.get(array);
-		// List<Entity> entities = null;
-		List<Entity> entities = new ArrayList<Entity>(array.length - 2);
+		ByteBuffer buffer = ByteBuffer.wrap(data, offset + 1 + len, length - 1
+				- len);
+		int link = buffer.getInt();
+		int freq = buffer.getInt();
+		boolean sorted = version >= FORMAT_V1;
+		// the commonness of the entities is compared as a float, as the
+		// maximum commonness in the header
+		float threshold = (float) minCommonness;
+		if (sorted && buffer.getFloat() < threshold) {
+			buffer.position(buffer.limit());
+		}
+		List<Entity> entities = new ArrayList<Entity>(buffer.remaining() / 8);
+		while (buffer.remaining() >= 8) {
+			int id = buffer.getInt();
+			int frequency = buffer.getInt();
+			if (minCommonness > 0
+					&& (float) ((double) frequency / link) < threshold) {
+				if (sorted)
+					break;
+				continue;
+			}
+			entities.add(new Entity(id, frequency));
+		}
+		Spot spot = new Spot(text, entities, link, freq);
+		spot.sorted = sorted;
+		return spot;
+	}
 
-		for (int i = 2; i < array.length; i += 2) {
-			entities.add(new Entity(array[i], array[i + 1]));
+	private static Spot decode(String text, byte[] data, int pos, int end,
+			double minCommonness) {
+		int len = readVInt(data, pos);
+		pos += vIntSize(len);
+		if (!matches(text, data, pos, pos + len)) {
+			logger.warn("spot {} does not match the record", text);
+			return null;
+		}
+		pos += len;
+		int link = readVInt(data, pos);
+		pos += vIntSize(link);
+		int freq = readVInt(data, pos);
+		pos += vIntSize(freq);
+		int size = readVInt(data, pos);
+		pos += vIntSize(size);
+		float threshold = (float) minCommonness;
+		List<Entity> entities = new ArrayList<Entity>(size);
+		int frequency = 0;
+		for (int i = 0; i < size && pos < end; i++) {
+			int value = readVInt(data, pos);
+			pos += vIntSize(value);
+			frequency = (i == 0) ? value : frequency - value;
+			if (minCommonness > 0
+					&& (float) ((double) frequency / link) < threshold) {
+				// the following entities are less common
+				break;
+			}
+			int id = readVInt(data, pos);
+			pos += vIntSize(id);
+			entities.add(new Entity(id, frequency));
 		}
-		Spot spot = new Spot(text, entities, array[0], array[1]);
+		Spot spot = new Spot(text, entities, link, freq);
+		spot.sorted = true;
 		return spot;
 	}
 
+	/**
+	 * @return true if the UTF-8 bytes of data between from and to encode the
+	 *         given text
+	 */
+	private static boolean matches(String text, byte[] data, int from, int to) {
+		int n = text.length();
+		int i = 0;
+		int pos = from;
+		while (pos < to) {
+			int b = data[pos++] & 0xFF;
+			int c;
+			if (b < 0x80) {
+				c = b;
+			} else if (b < 0xE0) {
+				c = ((b & 0x1F) << 6) | (data[pos++] & 0x3F);
+			} else if (b < 0xF0) {
+				c = ((b & 0x0F) << 12) | ((data[pos++] & 0x3F) << 6)
+						| (data[pos++] & 0x3F);
+			} else {
+				// supplementary code point, two chars in the text
+				c = ((b & 0x07) << 18) | ((data[pos++] & 0x3F) << 12)
+						| ((data[pos++] & 0x3F) << 6) | (data[pos++] & 0x3F);
+				c -= 0x10000;
+				if (i >= n || text.charAt(i++) != (char) (0xD800 + (c >>> 10)))
+					return false;
+				c = 0xDC00 + (c & 0x3FF);
+			}
+			if (i >= n || text.charAt(i++) != c)
+				return false;
+		}
+		return i == n && pos == to;
+	}
+
+	private static void writeVInt(ByteArrayOutputStream out, int value) {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	private static int readVInt(byte[] data, int pos) {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = data[pos++];
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	private static int vIntSize(int value) {
+		int size = 1;
+		while ((value & ~0x7F) != 0) {
+			value >>>= 7;
+			size++;
+		}
+		return size;
+	}
+
 	/**
 	 * Returns a tab separated version of the spot in a string. The string
 	 * contains:
@@ -490,6 +771,7 @@ public class Spot implements Serializable {
 		Spot copy = new Spot(mention);
 		copy.setLinkProbability(linkProbability);
 		copy.setEntities(entities);
+		copy.sorted = sorted;
 		copy.setIdf(idf);
 		copy.setLink(link);
 		copy.setFrequency(freq);
@@ -33,7 +33,6 @@ package it.cnr.isti.hpc.dexter.spot.ram;
 
 import it.cnr.isti.hpc.dexter.spot.Spot;
 import it.cnr.isti.hpc.dexter.spot.repo.SpotRepository;
-import it.cnr.isti.hpc.dexter.spot.repo.SpotRepositoryFactory;
 import it.cnr.isti.hpc.dexter.util.DexterParams;
 import it.cnr.isti.hpc.io.Serializer;
 import it.cnr.isti.hpc.io.reader.RecordReader;
@@ -43,6 +42,7 @@ import it.cnr.isti.hpc.log.ProgressLogger;
 import it.unimi.dsi.fastutil.ints.Int2ObjectArrayMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectFunction;
 
+import java.io.File;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Collections;
@@ -63,7 +63,7 @@ public class EntityToSpotListMap implements Serializable {
 
 	Int2ObjectFunction<String> map;
 
-	private static EntityToSpotListMap instance;
+	private static volatile EntityToSpotListMap instance;
 
 	private static final DexterParams params = DexterParams.getInstance();
 
@@ -74,9 +74,12 @@ public class EntityToSpotListMap implements Serializable {
 		map = new Int2ObjectArrayMap<String>(1000000);
 	}
 
-	public List<Spot> getSpots(int wikiid) {
+	/**
+	 * @param repo
+	 *            - the spot repository of the model the map belongs to
+	 */
+	public List<Spot> getSpots(int wikiid, SpotRepository repo) {
 		List<Spot> spots = new LinkedList<Spot>();
-		SpotRepository repo = new SpotRepositoryFactory().getStdInstance();
 		List<String> mentions = getMentions(wikiid);
 		for (String s : mentions) {
 			Spot spot = repo.getSpot(s);
@@ -126,17 +129,20 @@ public class EntityToSpotListMap implements Serializable {
 
 	public static EntityToSpotListMap getInstance() {
 		if (instance == null) {
-			instance = load(params.getEntityToSpots().getAbsolutePath());
+			synchronized (EntityToSpotListMap.class) {
+				if (instance == null)
+					instance = load(params.getEntityToSpots());
+			}
 		}
 		return instance;
 	}
 
-	private static EntityToSpotListMap load(String serializedFile) {
+	public static EntityToSpotListMap load(File serializedFile) {
 		logger.info("loading serialized entity to spot map in {} ",
 				serializedFile);
 		Serializer serializer = new Serializer();
 		EntityToSpotListMap obj = (EntityToSpotListMap) serializer
-				.load(serializedFile);
+				.load(serializedFile.getAbsolutePath());
 		logger.info("done");
 		return obj;
 	}
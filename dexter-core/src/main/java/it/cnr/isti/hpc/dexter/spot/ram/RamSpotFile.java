@@ -28,15 +28,21 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedList;
 import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * 
+ * The binary records of the spots, split in chunks of at most 100MB. The
+ * format of the records (see {@link Spot#toByteArray(int)}) is stored in a
+ * file with the suffix <code>.version</code>, the chunks without it are not
+ * loaded since their format is unknown (the chunks indexed before the format
+ * was stored are in the format {@link Spot#FORMAT_V0}, and can be loaded
+ * writing 0 in the version file). The unique spot file of the old format is
+ * always in the format {@link Spot#FORMAT_V0}.
  * 
  * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
  * 
@@ -48,21 +54,44 @@ public class RamSpotFile {
 			.getLogger(RamSpotFile.class);
 
 	// MAX CHUNK SIZE (byte)
-	private static int CHUNK_SIZE = 100000000;
+	private static final int CHUNK_SIZE = 100000000;
 
 	private static DexterParams params = DexterParams.getInstance();
 	private final List<byte[]> chunks;
-	private static RamSpotFile instance;
+	private int chunkSize = CHUNK_SIZE;
+	private int version = Spot.FORMAT_V0;
+	private static volatile RamSpotFile instance;
 
 	private RamSpotFile() {
-		chunks = new LinkedList<byte[]>();
-		File binarySpotFile = params.getSpotsData();
+		this(params.getSpotsData());
+	}
+
+	/**
+	 * Loads the spot file of a model
+	 *
+	 * @param binarySpotFile
+	 *            the path of the spot file (the chunks are stored in the files
+	 *            with suffix .0, .1, ...)
+	 * @throws IllegalStateException
+	 *             if the format of the chunks is missing or unknown
+	 */
+	public RamSpotFile(File binarySpotFile) {
+		chunks = new ArrayList<byte[]>();
 		int i = 0;
+		File versionFile = getVersionFile(binarySpotFile);
+		if (versionFile.exists()) {
+			version = readVersion(versionFile);
+		} else if (new File(binarySpotFile.getAbsolutePath() + ".0").exists()) {
+			throw new IllegalStateException("cannot find the format of the "
+					+ "spots in " + versionFile + " (write " + Spot.FORMAT_V0
+					+ " in it to load spots indexed without the format)");
+		}
+		logger.info("spot records in format {}", version);
 		if (binarySpotFile.exists()) {
 			// just to support the old format
 			byte[] spotsData = load(binarySpotFile);
 			chunks.add(i, spotsData);
-			CHUNK_SIZE = Integer.MAX_VALUE;
+			chunkSize = Integer.MAX_VALUE;
 			logger.info("loaded unique chunk {} : {}", i,
 					binarySpotFile.getAbsolutePath());
 		} else {
@@ -81,29 +110,72 @@ public class RamSpotFile {
 
 	}
 
+	private static File getVersionFile(File binarySpotFile) {
+		return new File(binarySpotFile.getAbsolutePath() + ".version");
+	}
+
+	private static int readVersion(File versionFile) {
+		String v = new String(load(versionFile)).trim();
+		int version = -1;
+		try {
+			version = Integer.parseInt(v);
+		} catch (NumberFormatException e) {
+			// not a version, handled below
+		}
+		if (version < Spot.FORMAT_V0 || version > Spot.FORMAT_VERSION) {
+			throw new IllegalStateException("unknown format of the spots ["
+					+ v + "] in " + versionFile);
+		}
+		return version;
+	}
+
+	/**
+	 * @return the format of the spot records
+	 */
+	public int getVersion() {
+		return version;
+	}
+
 	public static RamSpotFile getInstance() {
-		if (instance == null)
-			instance = new RamSpotFile();
+		if (instance == null) {
+			synchronized (RamSpotFile.class) {
+				if (instance == null)
+					instance = new RamSpotFile();
+			}
+		}
 		return instance;
 	}
 
 	public byte[] getOffset(long from, long to) {
-		int fromchunkid = (int) from / CHUNK_SIZE;
-		int tochunkid = (int) to / CHUNK_SIZE;
-		int fromOffset = (int) from % CHUNK_SIZE;
-		int toOffset = (int) to % CHUNK_SIZE;
-		logger.info("chunks: [{},{}]", fromchunkid, tochunkid);
-		logger.info("offset: [{},{}]", from, to);
+		int fromchunkid = (int) from / chunkSize;
+		int tochunkid = (int) to / chunkSize;
+		int fromOffset = (int) from % chunkSize;
+		int toOffset = (int) to % chunkSize;
 		if (fromchunkid != tochunkid) {
 			fromchunkid = tochunkid;
 			fromOffset = 0;
 		}
-		logger.info("chunk: [{}]", fromchunkid);
-		logger.info("offset: [{},{}]", from, to);
 		byte[] spotsData = chunks.get(fromchunkid);
 		return Arrays.copyOfRange(spotsData, fromOffset, toOffset);
 	}
 
+	/**
+	 * Decodes the spot stored between the given offsets, directly from the
+	 * chunk containing it.
+	 * 
+	 * @see Spot#fromByteArray(String, byte[], int, int, int, double)
+	 */
+	public Spot getSpot(String text, long from, long to, double minCommonness) {
+		int chunkid = (int) (to / chunkSize);
+		int fromOffset = (int) (from % chunkSize);
+		int toOffset = (int) (to % chunkSize);
+		if (from / chunkSize != chunkid) {
+			fromOffset = 0;
+		}
+		return Spot.fromByteArray(text, chunks.get(chunkid), fromOffset,
+				toOffset - fromOffset, version, minCommonness);
+	}
+
 	public static void dumpSpotFile(String sortedSpotFile) {
 		File binarySpotFile = params.getSpotsData();
 		File offsetSpotFile = params.getSpotsOffsetData();
@@ -187,6 +259,17 @@ public class RamSpotFile {
 			logger.error("closing spot repository ({})", e.toString());
 			System.exit(-1);
 		}
+		try {
+			FileOutputStream versionWriter = new FileOutputStream(
+					getVersionFile(output));
+			versionWriter.write(String.valueOf(Spot.FORMAT_VERSION)
+					.getBytes("US-ASCII"));
+			versionWriter.close();
+		} catch (IOException e) {
+			logger.error("writing spot repository version ({})",
+					e.toString());
+			System.exit(-1);
+		}
 
 	}
 
@@ -45,6 +45,13 @@ public class RamSpotRepository implements SpotRepository {
 
 	}
 
+	public RamSpotRepository(SpotMinimalPerfectHash hash,
+			SpotEliasFanoOffsets offsets, RamSpotFile spots) {
+		this.hash = hash;
+		this.offsets = offsets;
+		this.spots = spots;
+	}
+
 	// public RamSpotRepository(String spotBinFile, String spotBinOffsets,
 	// String spotPerfectHash) {
 	// Serializer serializer = new Serializer();
@@ -58,29 +65,19 @@ public class RamSpotRepository implements SpotRepository {
 
 	@Override
 	public Spot getSpot(String spot) {
-		Stopwatch s = new Stopwatch();
-		s.start("hash");
+		return getSpot(spot, 0);
+	}
+
+	@Override
+	public Spot getSpot(String spot, double minCommonness) {
 		long index = hash.hash(spot);
 		if (index < 0) {
-			s.stop("hash");
 			return null;
 		}
-		s.stop("hash");
-		// logger.info("index = {} ",index);
-		s.start("offsets");
 		long from = offsets.getOffset(index);
 		long to = offsets.getOffset(index + 1);
 
-		// logger.info("offsetStart = {} ",from);
-		// logger.info("offsetEnd = {} ",to);
-		byte[] binspot = spots.getOffset(from, to);
-		s.stop("offsets");
-		s.start("spot");
-		Spot sp = Spot.fromByteArray(spot, binspot);
-		s.stop("spot");
-		// System.out.println("retrieved: "+s.stat());
-		return sp;
-
+		return spots.getSpot(spot, from, to, minCommonness);
 	}
 
 	public static void main(String[] args) {
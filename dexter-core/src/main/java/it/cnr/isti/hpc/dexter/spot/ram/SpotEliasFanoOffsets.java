@@ -44,11 +44,17 @@ public class SpotEliasFanoOffsets {
 
 	private static DexterParams params = DexterParams.getInstance();
 
-	private static SpotEliasFanoOffsets instance;
+	private static volatile SpotEliasFanoOffsets instance;
 
 	private SpotEliasFanoOffsets() {
+		this(params.getSpotsEliasFano());
+	}
+
+	/**
+	 * Loads the offsets serialized in the given file
+	 */
+	public SpotEliasFanoOffsets(File offsetsBinFile) {
 		Serializer serializer = new Serializer();
-		File offsetsBinFile = params.getSpotsEliasFano();
 		ef = (EliasFanoMonotoneLongBigList) serializer.load(offsetsBinFile
 				.getAbsolutePath());
 
@@ -77,8 +83,12 @@ public class SpotEliasFanoOffsets {
 	}
 
 	public static SpotEliasFanoOffsets getInstance() {
-		if (instance == null)
-			instance = new SpotEliasFanoOffsets();
+		if (instance == null) {
+			synchronized (SpotEliasFanoOffsets.class) {
+				if (instance == null)
+					instance = new SpotEliasFanoOffsets();
+			}
+		}
 		return instance;
 	}
 
@@ -48,19 +48,30 @@ public class SpotMinimalPerfectHash {
 
 	private static DexterParams params = DexterParams.getInstance();
 
-	private static SpotMinimalPerfectHash instance = null;
+	private static volatile SpotMinimalPerfectHash instance = null;
 
 	private SpotMinimalPerfectHash() {
 		load();
 	}
 
+	/**
+	 * Loads the hash function serialized in the given file
+	 */
+	public SpotMinimalPerfectHash(File file) {
+		load(file);
+	}
+
 	public long hash(String spot) {
 		return hash.getLong(spot);
 	}
 
 	public static SpotMinimalPerfectHash getInstance() {
-		if (instance == null)
-			instance = new SpotMinimalPerfectHash();
+		if (instance == null) {
+			synchronized (SpotMinimalPerfectHash.class) {
+				if (instance == null)
+					instance = new SpotMinimalPerfectHash();
+			}
+		}
 		return instance;
 	}
 
@@ -42,4 +42,18 @@ public interface SpotRepository {
 	 */
 	public Spot getSpot(String spot);
 
+	/**
+	 * Returns the {@link Spot} associated with the given text, with only the
+	 * entities having commonness greater or equal than
+	 * <code>minCommonness</code>. If the entities are stored sorted by
+	 * frequency, the others are not even decoded.
+	 * 
+	 * @param spot
+	 *            - a piece of text possibly referring to one or more entities
+	 * @param minCommonness
+	 *            - the minimum commonness of the entities of the spot
+	 * @return the spot, null if the string is not referring to any entity
+	 */
+	public Spot getSpot(String spot, double minCommonness);
+
 }
@@ -31,6 +31,8 @@
  */
 package it.cnr.isti.hpc.dexter.spotter;
 
+import it.cnr.isti.hpc.dexter.metrics.MetricsRegistry;
+import it.cnr.isti.hpc.dexter.metrics.Timer;
 import it.cnr.isti.hpc.dexter.spot.SpotMatchList;
 import it.cnr.isti.hpc.dexter.spotter.filter.SpotMatchFilter;
 import it.cnr.isti.hpc.dexter.util.DexterLocalParams;
@@ -51,6 +53,9 @@ public abstract class AbstractSpotter implements Spotter {
 			.getLogger(AbstractSpotter.class);
 	private List<SpotMatchFilter> filters;
 
+	private static final Timer filtering = MetricsRegistry.getInstance()
+			.getTimer(MetricsRegistry.SPOT_FILTERS);
+
 	/**
 	 * Set the filter to apply to the spots after the spotting
 	 * 
@@ -74,11 +79,13 @@ public abstract class AbstractSpotter implements Spotter {
 			logger.debug("no filters");
 			return sml;
 		}
+		long start = filtering.start();
 		for (SpotMatchFilter filter : filters) {
 			if (filter == null)
 				continue;
 			sml = filter.filter(params, sml);
 		}
+		filtering.stop(start);
 		return sml;
 
 	}
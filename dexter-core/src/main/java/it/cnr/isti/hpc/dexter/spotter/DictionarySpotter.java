@@ -19,18 +19,26 @@ import it.cnr.isti.hpc.dexter.common.Document;
 import it.cnr.isti.hpc.dexter.common.Field;
 import it.cnr.isti.hpc.dexter.entity.EntityMatchList;
 import it.cnr.isti.hpc.dexter.entity.EntityRanker;
+import it.cnr.isti.hpc.dexter.metrics.CacheCounter;
+import it.cnr.isti.hpc.dexter.metrics.MetricsRegistry;
+import it.cnr.isti.hpc.dexter.metrics.Timer;
 import it.cnr.isti.hpc.dexter.shingle.Shingle;
 import it.cnr.isti.hpc.dexter.shingle.ShingleExtractor;
 import it.cnr.isti.hpc.dexter.spot.Spot;
 import it.cnr.isti.hpc.dexter.spot.SpotMatch;
 import it.cnr.isti.hpc.dexter.spot.SpotMatchList;
-import it.cnr.isti.hpc.dexter.spot.repo.SpotRepository;
-import it.cnr.isti.hpc.dexter.spot.repo.SpotRepositoryFactory;
 import it.cnr.isti.hpc.dexter.util.DexterLocalParams;
+import it.cnr.isti.hpc.dexter.util.DexterModel;
 import it.cnr.isti.hpc.dexter.util.DexterParams;
 import it.cnr.isti.hpc.structure.LRUCache;
+import it.cnr.isti.hpc.text.Sentence;
+import it.cnr.isti.hpc.text.SentenceSegmenter;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,80 +55,356 @@ public class DictionarySpotter extends AbstractSpotter implements Spotter {
 	private static final Logger logger = LoggerFactory
 			.getLogger(DictionarySpotter.class);
 
-	private static LRUCache<String, Spot> cache;
+	private static final CacheCounter cacheCounter = MetricsRegistry
+			.getInstance().getCacheCounter("spotter");
+	private static final Timer spotLookup = MetricsRegistry.getInstance()
+			.getTimer(MetricsRegistry.SPOT_LOOKUP);
+	private static final Timer candidateRanking = MetricsRegistry
+			.getInstance().getTimer(MetricsRegistry.CANDIDATE_RANKING);
 
 	DexterParams params = DexterParams.getInstance();
 
-	SpotRepository spotRepo;
+	// the entities below this commonness are discarded by the ranker
+	private final double minCommonness = params.getThreshold("commonness");
 	private final boolean usePriorProbability = false;
 
-	public DictionarySpotter() {
-		int cachesize = params.getCacheSize("spotter");
-		cache = new LRUCache<String, Spot>(cachesize);
-		SpotRepositoryFactory factory = new SpotRepositoryFactory();
-		spotRepo = factory.getStdInstance();
-	}
+	private boolean rankBySimilarity = false;
+	private int contextWindowSize = EntityRanker.DEFAULT_WINDOW_SIZE;
+
+	/**
+	 * Fields longer than this number of chars are spotted in windows
+	 */
+	public static final String LONG_DOCUMENT = "long-document";
+	/**
+	 * Maximum number of chars in a window (a window always contains at least
+	 * a sentence)
+	 */
+	public static final String WINDOW_SIZE = "window-size";
+	/**
+	 * Number of sentences shared by two consecutive windows
+	 */
+	public static final String WINDOW_OVERLAP = "window-overlap";
+	/**
+	 * Number of candidate entities kept for each spot (the most common ones),
+	 * no limit if not set in the request or in the spotter params
+	 */
+	public static final String CANDIDATES_PER_SPOT = "candidates-per-spot";
+
+	/**
+	 * Number of tasks spotting the fields (or the windows of a long field) in
+	 * parallel, 1 to spot sequentially
+	 */
+	public static final String PARALLELISM = "parallelism";
+
+	private int longDocumentThreshold = 20000;
+	private int windowSize = 4000;
+	private int windowOverlap = 1;
+	// no limit, unless set in the spotter params
+	private int candidatesPerSpot = Integer.MAX_VALUE;
+	private int parallelism = 1;
 
 	@Override
 	public SpotMatchList match(DexterLocalParams localParams, Document document) {
+		int threshold = getIntParam(localParams, LONG_DOCUMENT,
+				longDocumentThreshold);
+		int parallelism = getIntParam(localParams, PARALLELISM,
+				this.parallelism);
 
-		SpotMatchList matches = new SpotMatchList();
-
+		// short fields are spotted as a whole and then filtered together,
+		// long fields are spotted and filtered in windows
+		List<Callable<SpotMatchList>> fieldTasks = new ArrayList<Callable<SpotMatchList>>();
+		List<Callable<SpotMatchList>> windowTasks = new ArrayList<Callable<SpotMatchList>>();
 		Iterator<Field> fields = document.getFields();
 		while (fields.hasNext()) {
-
 			Field field = fields.next();
-			EntityRanker er = new EntityRanker(field);
-			ShingleExtractor shingler = new ShingleExtractor(field.getValue());
-			Spot s;
-			String text;
-			for (Shingle shingle : shingler) {
-				logger.debug("SHINGLE: [{}] ", shingle);
-				text = shingle.getText();
-				if (cache.containsKey(text)) {
-					// hit in cache
-					s = cache.get(text);
-					if (s != null) {
-						s = s.clone();
-					}
-				} else {
-					s = spotRepo.getSpot(text);
-					cache.put(text, s);
-				}
+			String text = field.getValue();
+			if (text != null && text.length() > threshold) {
+				windowTasks.addAll(getWindowTasks(localParams, field));
+			} else {
+				fieldTasks.add(getFieldTask(localParams, field));
+			}
+		}
+		List<Callable<SpotMatchList>> tasks = new ArrayList<Callable<SpotMatchList>>(
+				fieldTasks);
+		tasks.addAll(windowTasks);
+		List<SpotMatchList> results = run(tasks, parallelism);
 
-				if (s == null) {
-					logger.debug("no shingle for [{}] ", shingle);
-					continue;
+		SpotMatchList matches = new SpotMatchList();
+		for (int i = 0; i < fieldTasks.size(); i++) {
+			matches.addAll(results.get(i));
+		}
+		matches = filter(localParams, matches);
+		for (int i = fieldTasks.size(); i < results.size(); i++) {
+			matches.addAll(results.get(i));
+		}
+		return matches;
+	}
+
+	/**
+	 * Runs the spotting tasks, in parallel if parallelism is greater than one.
+	 * 
+	 * @return the matches produced by each task, in the order of the tasks
+	 */
+	private List<SpotMatchList> run(List<Callable<SpotMatchList>> tasks,
+			int parallelism) {
+		if (parallelism > 1 && tasks.size() > 1) {
+			// the pool threads use the model of the request, held until all
+			// the tasks have finished
+			DexterModel model = params.acquireModel();
+			try {
+				List<Callable<SpotMatchList>> pinned = new ArrayList<Callable<SpotMatchList>>(
+						tasks.size());
+				for (Callable<SpotMatchList> task : tasks) {
+					pinned.add(params.withModel(model, task));
 				}
+				return ParallelSpotting.invokeAll(pinned, parallelism);
+			} finally {
+				params.releaseModel();
+			}
+		}
+		List<SpotMatchList> results = new ArrayList<SpotMatchList>(
+				tasks.size());
+		for (Callable<SpotMatchList> task : tasks) {
+			try {
+				results.add(task.call());
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+		return results;
+	}
+
+	private Callable<SpotMatchList> getFieldTask(
+			DexterLocalParams localParams, final Field field) {
+		final int candidates = getIntParam(localParams, CANDIDATES_PER_SPOT,
+				this.candidatesPerSpot);
+		return new Callable<SpotMatchList>() {
+
+			@Override
+			public SpotMatchList call() {
+				SpotMatchList matches = new SpotMatchList();
+				EntityRanker er = new EntityRanker(field, rankBySimilarity,
+						contextWindowSize, candidates);
+				match(field, field.getValue(), 0, 0, er, matches);
+				return matches;
+			}
+		};
+	}
+
+	/**
+	 * Spots a text, adding the matches to a list.
+	 * 
+	 * @param field
+	 *            the field containing the text
+	 * @param text
+	 *            the text to spot (the whole field, or a window of the field)
+	 * @param offset
+	 *            the position of the text in the field
+	 * @param from
+	 *            only spots starting at this position of the field (or after)
+	 *            are added
+	 */
+	private void match(Field field, String text, int offset, int from,
+			EntityRanker er, SpotMatchList matches) {
+		ShingleExtractor shingler = new ShingleExtractor(text);
+		Spot s;
+		for (Shingle shingle : shingler) {
+			logger.debug("SHINGLE: [{}] ", shingle);
+			if (shingle.getStart() + offset < from) {
+				continue;
+			}
+			s = getSpot(shingle.getText());
+
+			if (s == null) {
+				logger.debug("no shingle for [{}] ", shingle);
+				continue;
+			}
 
-				// s.setStart(shingle.getStart());
-				// s.setEnd(shingle.getEnd());
+			// s.setStart(shingle.getStart());
+			// s.setEnd(shingle.getEnd());
+
+			// int pos = matches.index(s);
+			// if (pos >= 0) {
+			// // the spot is yet in the list, increment its occurrences
+			// matches.get(pos).incrementOccurrences();
+			// continue;
+			// }
+			SpotMatch match = new SpotMatch(s, field);
+			logger.debug("adding {} to matchset ", s);
+
+			long start = candidateRanking.start();
+			EntityMatchList entities = er.rank(match);
+			candidateRanking.stop(start);
+			match.setEntities(entities);
+			match.setStart(shingle.getStart() + offset);
+			match.setEnd(shingle.getEnd() + offset);
+			matches.add(match);
+
+		}
+	}
 
-				// int pos = matches.index(s);
-				// if (pos >= 0) {
-				// // the spot is yet in the list, increment its occurrences
-				// matches.get(pos).incrementOccurrences();
-				// continue;
-				// }
-				SpotMatch match = new SpotMatch(s, field);
-				logger.debug("adding {} to matchset ", s);
+	/**
+	 * Looks up a shingle in the spot repository of the model of the request,
+	 * through the cache of the model.
+	 * 
+	 * @return a copy of the spot, or null if the shingle is not a spot
+	 */
+	Spot getSpot(String shingleText) {
+		DexterModel model = params.getModel();
+		LRUCache<String, Spot> cache = model.getSpotCache();
+		Spot s;
+		boolean hit;
+		// the cache is shared by the requests (and by the parallel tasks)
+		synchronized (cache) {
+			hit = cache.containsKey(shingleText);
+			s = cache.get(shingleText);
+		}
+		if (hit) {
+			cacheCounter.hit();
+			return (s == null) ? null : s.clone();
+		}
+		cacheCounter.miss();
+		long start = spotLookup.start();
+		s = model.getSpotRepository().getSpot(shingleText, minCommonness);
+		spotLookup.stop(start);
+		synchronized (cache) {
+			cache.put(shingleText, s);
+		}
+		return s;
+	}
 
-				EntityMatchList entities = er.rank(match);
-				match.setEntities(entities);
-				match.setStart(shingle.getStart());
-				match.setEnd(shingle.getEnd());
-				matches.add(match);
+	/**
+	 * Splits a long field in windows of sentences: two consecutive windows
+	 * share a few sentences, so that the spots at the beginning of a window
+	 * have their context. Spots are filtered within each window, so that the
+	 * memory used does not depend on the length of the field. The field is
+	 * segmented one window at a time, so the sentences of the whole field are
+	 * never kept in memory.
+	 * 
+	 * @return a task spotting each window, in order of position
+	 */
+	private List<Callable<SpotMatchList>> getWindowTasks(
+			final DexterLocalParams localParams, final Field field) {
+		int windowSize = getIntParam(localParams, WINDOW_SIZE,
+				this.windowSize);
+		int overlap = getIntParam(localParams, WINDOW_OVERLAP,
+				this.windowOverlap);
+		final int candidates = getIntParam(localParams, CANDIDATES_PER_SPOT,
+				this.candidatesPerSpot);
 
+		List<Callable<SpotMatchList>> tasks = new ArrayList<Callable<SpotMatchList>>();
+		final String text = field.getValue();
+		SentenceSegmenter segmenter = new SentenceSegmenter();
+		// the starts of the last sentences spotted, shared with the next window
+		LinkedList<Integer> shared = new LinkedList<Integer>();
+		// first char not spotted yet
+		int next = 0;
+		while (next < text.length()) {
+			int limit = (shared.isEmpty() ? next : shared.getFirst())
+					+ windowSize;
+			List<Sentence> sentences = segment(segmenter, text, next, limit);
+			if (sentences.isEmpty()) {
+				break;
 			}
+			final int from = sentences.get(0).getStart();
+			final int start = shared.isEmpty() ? from : shared.getFirst();
+			final int end = sentences.get(sentences.size() - 1).getEnd();
+			tasks.add(new Callable<SpotMatchList>() {
+
+				@Override
+				public SpotMatchList call() {
+					Field window = new Field(field.getName(), text.substring(
+							start, end));
+					EntityRanker er = new EntityRanker(window,
+							rankBySimilarity, contextWindowSize, candidates);
+					SpotMatchList matches = new SpotMatchList();
+					match(field, window.getValue(), start, from, er, matches);
+					return filter(localParams, matches);
+				}
+			});
+			for (Sentence sentence : sentences) {
+				shared.addLast(sentence.getStart());
+			}
+			while (shared.size() > overlap) {
+				shared.removeFirst();
+			}
+			next = end;
 		}
-		matches = filter(localParams, matches);
-		return matches;
+		return tasks;
+	}
+
+	/**
+	 * Segments the text following a position, without segmenting the rest of
+	 * the text: the text is segmented in chunks, and the last sentence of a
+	 * chunk is discarded since it could continue in the next chunk.
+	 * 
+	 * @param from
+	 *            the position of the text to segment from
+	 * @param limit
+	 *            the sentences ending after this position are not returned,
+	 *            except the first one (a window always contains at least a
+	 *            sentence)
+	 * @return the sentences, with their positions in the text, or an empty
+	 *         list if the rest of the text does not contain a sentence
+	 */
+	private static List<Sentence> segment(SentenceSegmenter segmenter,
+			String text, int from, int limit) {
+		int length = Math.max(limit - from, 1);
+		List<Sentence> sentences;
+		int to;
+		while (true) {
+			to = (int) Math.min(text.length(), (long) from + length);
+			sentences = segmenter.splitPos(text.substring(from, to));
+			if (to == text.length()) {
+				break;
+			}
+			if (sentences.size() > 1) {
+				sentences.remove(sentences.size() - 1);
+				break;
+			}
+			// the first sentence could continue after the chunk
+			length *= 2;
+		}
+		List<Sentence> window = new ArrayList<Sentence>();
+		for (Sentence sentence : sentences) {
+			int end = sentence.getEnd() + from;
+			if (!window.isEmpty() && end > limit) {
+				break;
+			}
+			window.add(new Sentence(sentence.getText(), sentence.getStart()
+					+ from, end));
+		}
+		return window;
+	}
+
+	private static int getIntParam(DexterLocalParams localParams, String key,
+			int defaultValue) {
+		if (localParams != null && localParams.containsKey(key)) {
+			return localParams.getIntParam(key);
+		}
+		return defaultValue;
 	}
 
 	@Override
 	public void init(DexterParams dexterParams,
 			DexterLocalParams defaultModuleParams) {
-
+		if (defaultModuleParams.containsKey("rank-by-similarity")) {
+			rankBySimilarity = Boolean.parseBoolean(defaultModuleParams
+					.getParam("rank-by-similarity"));
+		}
+		if (defaultModuleParams.containsKey("context-window")) {
+			contextWindowSize = defaultModuleParams
+					.getIntParam("context-window");
+		}
+		longDocumentThreshold = getIntParam(defaultModuleParams,
+				LONG_DOCUMENT, longDocumentThreshold);
+		windowSize = getIntParam(defaultModuleParams, WINDOW_SIZE, windowSize);
+		windowOverlap = getIntParam(defaultModuleParams, WINDOW_OVERLAP,
+				windowOverlap);
+		candidatesPerSpot = getIntParam(defaultModuleParams,
+				CANDIDATES_PER_SPOT, candidatesPerSpot);
+		parallelism = getIntParam(defaultModuleParams, PARALLELISM,
+				parallelism);
 	}
 
 }
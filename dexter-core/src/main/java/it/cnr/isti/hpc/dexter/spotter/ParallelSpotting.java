@@ -0,0 +1,82 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.spotter;
+
+import it.cnr.isti.hpc.dexter.spot.SpotMatchList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Runs spotting tasks on a fork/join pool. Pools are shared by all the
+ * requests, one for each level of parallelism (never greater than the number
+ * of available processors). The fork/join pool is only loaded when a spotter
+ * is asked to spot in parallel.
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 6, 2014
+ */
+class ParallelSpotting {
+
+	private static final int MAX_PARALLELISM = Runtime.getRuntime()
+			.availableProcessors();
+
+	private static final ConcurrentMap<Integer, ForkJoinPool> pools = new ConcurrentHashMap<Integer, ForkJoinPool>();
+
+	private ParallelSpotting() {
+	}
+
+	private static ForkJoinPool getPool(int parallelism) {
+		parallelism = Math.min(parallelism, MAX_PARALLELISM);
+		ForkJoinPool pool = pools.get(parallelism);
+		if (pool == null) {
+			pools.putIfAbsent(parallelism, new ForkJoinPool(parallelism));
+			pool = pools.get(parallelism);
+		}
+		return pool;
+	}
+
+	/**
+	 * Runs the tasks with the given parallelism, and waits for their results.
+	 *
+	 * @return the results of the tasks, in the order of the tasks
+	 */
+	static List<SpotMatchList> invokeAll(List<Callable<SpotMatchList>> tasks,
+			int parallelism) {
+		List<Future<SpotMatchList>> futures = getPool(parallelism).invokeAll(
+				tasks);
+		List<SpotMatchList> results = new ArrayList<SpotMatchList>(
+				futures.size());
+		for (Future<SpotMatchList> future : futures) {
+			try {
+				results.add(future.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			}
+		}
+		return results;
+	}
+}
@@ -66,7 +66,7 @@ public class SpotDocumentFrequencyFilter implements SpotMatchFilter {
 			if (df >= min && df <= max) {
 				filtered.add(spot);
 			} else {
-				logger.info(
+				logger.debug(
 						"spot {} removed, document frequency {}, out of range"
 								+ String.format("[min= %d, max= %d]", min, max),
 						spot.getMention(), df);
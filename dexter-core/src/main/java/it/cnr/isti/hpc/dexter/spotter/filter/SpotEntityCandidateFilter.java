@@ -66,7 +66,7 @@ public class SpotEntityCandidateFilter implements SpotMatchFilter {
 			if (candidates >= min && candidates <= max) {
 				filtered.add(spot);
 			} else {
-				logger.info("spot {} removed, candidates {}, out of range"
+				logger.debug("spot {} removed, candidates {}, out of range"
 						+ String.format("[min= %d, max= %d]", min, max),
 						spot.getMention(), candidates);
 			}
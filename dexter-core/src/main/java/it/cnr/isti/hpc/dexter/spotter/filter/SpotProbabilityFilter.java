@@ -40,13 +40,13 @@ public class SpotProbabilityFilter implements SpotMatchFilter {
 		if (params.containsKey("lp")) {
 			probability = Float.parseFloat(params.getParam("lp"));
 		}
-		logger.info("link probability filter = {}", probability);
+		logger.debug("link probability filter = {}", probability);
 		SpotMatchList filtered = new SpotMatchList();
 		for (SpotMatch match : sml) {
 			if (match.getLinkProbability() >= probability) {
 				filtered.add(match);
 			} else {
-				logger.info("filtering spot '{}': link probability low {}",
+				logger.debug("filtering spot '{}': link probability low {}",
 						match.getMention(), match.getLinkProbability());
 			}
 		}
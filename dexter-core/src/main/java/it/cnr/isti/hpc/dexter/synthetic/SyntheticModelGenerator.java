@@ -0,0 +1,333 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.synthetic;
+
+import it.cnr.isti.hpc.dexter.entity.Entity;
+import it.cnr.isti.hpc.dexter.graph.Node;
+import it.cnr.isti.hpc.dexter.graph.NodeFactory;
+import it.cnr.isti.hpc.dexter.graph.NodesWriter;
+import it.cnr.isti.hpc.dexter.label.ram.RamIdToLabel;
+import it.cnr.isti.hpc.dexter.label.ram.RamLabelToId;
+import it.cnr.isti.hpc.dexter.lucene.LuceneHelper;
+import it.cnr.isti.hpc.dexter.spot.Spot;
+import it.cnr.isti.hpc.dexter.spot.ram.RamSpotFile;
+import it.cnr.isti.hpc.dexter.spot.ram.SpotEliasFanoOffsets;
+import it.cnr.isti.hpc.dexter.spot.ram.SpotMinimalPerfectHash;
+import it.cnr.isti.hpc.dexter.util.DexterParams;
+import it.cnr.isti.hpc.io.IOUtils;
+import it.cnr.isti.hpc.log.ProgressLogger;
+import it.cnr.isti.hpc.wikipedia.article.Article;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Generates a synthetic, self-consistent model in the directories of the
+ * default model of the configuration, using the same writers used to index
+ * Wikipedia:
+ * <ul>
+ * <li>the spots: each spot has a Zipfian number of candidate entities, drawn
+ * from a Zipfian popularity of the entities, with commonness decreasing with
+ * the rank; spots are indexed with the minimal perfect hash, the spot file
+ * and the Elias-Fano offsets;</li>
+ * <li>the entity graph: each entity links to a few entities drawn from the
+ * same popularity, so that the in-degree follows a power law;</li>
+ * <li>the labels of the entities;</li>
+ * <li>a small Lucene index, with a short text for the most popular entities;</li>
+ * <li>a text corpus (corpus.txt in the model directory), made of mentions of
+ * the spots, to annotate in benchmarks and load tests.</li>
+ * </ul>
+ * The model only depends on its size and on the seed, spots are regenerated
+ * from their index instead of being kept in memory.
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 9, 2014
+ */
+public class SyntheticModelGenerator {
+
+	private static final Logger logger = LoggerFactory
+			.getLogger(SyntheticModelGenerator.class);
+
+	public static final String CORPUS = "corpus.txt";
+
+	// exponent of the popularity of the entities
+	private static final double ENTITY_EXPONENT = 1.0;
+	// max number of candidate entities for a spot, and the exponent of their
+	// distribution
+	private static final int MAX_CANDIDATES = 50;
+	private static final double CANDIDATES_EXPONENT = 1.5;
+	// average number of outgoing links of an entity
+	private static final int AVERAGE_DEGREE = 10;
+	// max number of documents in the lucene index
+	private static final int MAX_DOCUMENTS = 10000;
+	// sentences in the corpus, and spots in each sentence
+	private static final int SENTENCES = 1000;
+	private static final int SPOTS_PER_SENTENCE = 8;
+
+	private static DexterParams params = DexterParams.getInstance();
+
+	private final int spots;
+	private final int entities;
+	private final long seed;
+	private final ZipfSampler entitySampler;
+	private final ZipfSampler candidatesSampler;
+
+	/**
+	 * @param spots
+	 *            - the number of spots of the model
+	 * @param entities
+	 *            - the number of entities of the model, with ids in [1,
+	 *            entities]
+	 * @param seed
+	 *            - the seed of the generator
+	 */
+	public SyntheticModelGenerator(int spots, int entities, long seed) {
+		this.spots = spots;
+		this.entities = entities;
+		this.seed = seed;
+		entitySampler = new ZipfSampler(entities, ENTITY_EXPONENT);
+		candidatesSampler = new ZipfSampler(Math.min(MAX_CANDIDATES, entities),
+				CANDIDATES_EXPONENT);
+	}
+
+	public void generate() {
+		mkdirs();
+		generateLabels();
+		generateSpots();
+		generateGraph();
+		generateIndex();
+		generateCorpus();
+		logger.info("generated model with {} spots and {} entities in {}",
+				new Object[] { spots, entities, params.getDefaultModel() });
+	}
+
+	private void mkdirs() {
+		File[] files = new File[] { params.getPlainSpots(),
+				params.getSpotsData(), params.getSpotsPerfectHash(),
+				params.getSpotsEliasFano(), params.getLabelToIdFile(),
+				params.getIdToLabelFile() };
+		for (File file : files) {
+			file.getAbsoluteFile().getParentFile().mkdirs();
+		}
+		params.getGraphDir().mkdirs();
+		params.getIndexDir().mkdirs();
+	}
+
+	private Random getRandom(long key) {
+		return new Random(seed ^ (key * 0x9E3779B97F4A7C15L));
+	}
+
+	/**
+	 * @return the spot with the given index, the text of the spot is the
+	 *         text of its index
+	 */
+	Spot getSpot(int index) {
+		Random random = getRandom(index);
+		int candidates = 1 + candidatesSampler.sample(random);
+		// the number of times the spot is a link to its first entity, log
+		// uniform in [1, 1000]
+		double base = Math.pow(1000, random.nextDouble());
+		List<Entity> list = new ArrayList<Entity>(candidates);
+		int link = 0;
+		while (list.size() < candidates) {
+			int id = 1 + entitySampler.sample(random);
+			boolean duplicate = false;
+			for (Entity e : list) {
+				if (e.getId() == id) {
+					duplicate = true;
+					break;
+				}
+			}
+			if (duplicate)
+				continue;
+			int freq = Math.max(1, (int) (base / (list.size() + 1)));
+			list.add(new Entity(id, freq));
+			link += freq;
+		}
+		// link probability log uniform in [0.01, 1]
+		double probability = Math.pow(0.01, random.nextDouble());
+		int freq = (int) Math.ceil(link / probability);
+		return new Spot(Vocabulary.text(index), list, link, freq);
+	}
+
+	private void generateLabels() {
+		logger.info("generating {} labels", entities);
+		int[] ids = new int[entities];
+		String[] labels = new String[entities];
+		for (int i = 0; i < entities; i++) {
+			ids[i] = i + 1;
+			labels[i] = Vocabulary.label(i + 1);
+		}
+		RamLabelToId.dump(labels, ids);
+		RamIdToLabel.dump(ids, labels);
+	}
+
+	private void generateSpots() {
+		logger.info("generating {} spots", spots);
+		File plainSpots = params.getPlainSpots();
+		writeSpots(plainSpots, null);
+
+		SpotMinimalPerfectHash.dump();
+		SpotMinimalPerfectHash hash = SpotMinimalPerfectHash.getInstance();
+		// the spot file must be sorted by the hash of the spots
+		int[] sorted = new int[spots];
+		for (int i = 0; i < spots; i++) {
+			sorted[(int) hash.hash(Vocabulary.text(i))] = i;
+		}
+		File sortedSpots = new File(plainSpots.getAbsolutePath()
+				+ ".sorted.gz");
+		writeSpots(sortedSpots, sorted);
+		RamSpotFile.dumpSpotFile(sortedSpots.getAbsolutePath());
+		SpotEliasFanoOffsets.dumpEliasFanoFile();
+		sortedSpots.delete();
+	}
+
+	/**
+	 * Writes the spots in the format spot &lt;tab&gt; entities &lt;tab&gt;
+	 * frequencies &lt;tab&gt; link &lt;tab&gt; freq, in the given order (by
+	 * index if order is null).
+	 */
+	private void writeSpots(File file, int[] order) {
+		BufferedWriter writer = IOUtils.getPlainOrCompressedWriter(file
+				.getAbsolutePath());
+		ProgressLogger pl = new ProgressLogger("written {} spots", 1000000);
+		try {
+			for (int i = 0; i < spots; i++) {
+				pl.up();
+				Spot spot = getSpot((order == null) ? i : order[i]);
+				writer.write(spot.getMention());
+				writer.write('\t');
+				writer.write(spot.toTsv());
+				writer.newLine();
+			}
+			writer.close();
+		} catch (IOException e) {
+			logger.error("writing the spots in {} ({})", file, e.toString());
+			System.exit(-1);
+		}
+	}
+
+	private void generateGraph() {
+		logger.info("generating the entity graph");
+		int[][] outcoming = new int[entities + 1][];
+		int[] indegree = new int[entities + 1];
+		for (int id = 1; id <= entities; id++) {
+			Random random = getRandom(-id);
+			int degree = random.nextInt(2 * AVERAGE_DEGREE + 1);
+			int[] out = new int[degree];
+			int n = 0;
+			for (int i = 0; i < degree; i++) {
+				int target = 1 + entitySampler.sample(random);
+				if (target != id)
+					out[n++] = target;
+			}
+			Arrays.sort(out, 0, n);
+			// remove duplicates
+			int size = 0;
+			for (int i = 0; i < n; i++) {
+				if (size == 0 || out[size - 1] != out[i]) {
+					out[size++] = out[i];
+				}
+			}
+			outcoming[id] = Arrays.copyOf(out, size);
+			for (int target : outcoming[id]) {
+				indegree[target]++;
+			}
+		}
+		int[][] incoming = new int[entities + 1][];
+		for (int id = 1; id <= entities; id++) {
+			incoming[id] = new int[indegree[id]];
+			indegree[id] = 0;
+		}
+		// sources are visited in increasing order, incoming lists are sorted
+		for (int id = 1; id <= entities; id++) {
+			for (int target : outcoming[id]) {
+				incoming[target][indegree[target]++] = id;
+			}
+		}
+		NodesWriter writer = NodeFactory
+				.getOutcomingNodeWriter(NodeFactory.STD_TYPE);
+		for (int id = 1; id <= entities; id++) {
+			writer.add(new Node(id, outcoming[id]));
+		}
+		writer.close();
+		outcoming = null;
+		writer = NodeFactory.getIncomingNodeWriter(NodeFactory.STD_TYPE);
+		for (int id = 1; id <= entities; id++) {
+			writer.add(new Node(id, incoming[id]));
+		}
+		writer.close();
+	}
+
+	private void generateIndex() {
+		int documents = Math.min(entities, MAX_DOCUMENTS);
+		logger.info("indexing {} documents", documents);
+		LuceneHelper indexer = LuceneHelper.getDexterLuceneHelper();
+		indexer.clearIndex();
+		for (int id = 1; id <= documents; id++) {
+			Random random = getRandom(Long.MAX_VALUE - id);
+			StringBuilder text = new StringBuilder(Vocabulary.text(id));
+			for (int i = 0; i < 50; i++) {
+				text.append(' ').append(
+						Vocabulary.word(random.nextInt(Vocabulary.WORDS)));
+			}
+			Article a = new Article();
+			a.setWid(id);
+			a.setTitle(Vocabulary.label(id).replace('_', ' '));
+			a.setWikiTitle(Vocabulary.label(id));
+			a.setParagraphs(Arrays.asList(text.toString()));
+			indexer.addDocument(a);
+		}
+		indexer.commit();
+	}
+
+	private void generateCorpus() {
+		File corpus = new File(params.getDefaultModel(), CORPUS);
+		logger.info("writing a corpus of {} sentences in {}", SENTENCES,
+				corpus);
+		ZipfSampler spotSampler = new ZipfSampler(spots, 1.0);
+		Random random = getRandom(Long.MIN_VALUE);
+		BufferedWriter writer = IOUtils.getPlainOrCompressedWriter(corpus
+				.getAbsolutePath());
+		try {
+			for (int s = 0; s < SENTENCES; s++) {
+				StringBuilder sentence = new StringBuilder();
+				for (int i = 0; i < SPOTS_PER_SENTENCE; i++) {
+					if (i > 0)
+						sentence.append(", ");
+					sentence.append(Vocabulary.text(spotSampler.sample(random)));
+				}
+				sentence.setCharAt(0,
+						Character.toUpperCase(sentence.charAt(0)));
+				writer.write(sentence.append('.').toString());
+				writer.newLine();
+			}
+			writer.close();
+		} catch (IOException e) {
+			logger.error("writing the corpus in {} ({})", corpus, e.toString());
+			System.exit(-1);
+		}
+	}
+}
@@ -0,0 +1,95 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.synthetic;
+
+/**
+ * Generates the text of the synthetic model: each number is mapped to a
+ * unique sequence of pronounceable pseudo-words (e.g., 1 &rarr; "babe", 4901
+ * &rarr; "baba babe"), written with lowercase ascii letters so that they are
+ * not changed by the spot cleaners.
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 9, 2014
+ */
+public class Vocabulary {
+
+	private static final String CONSONANTS = "bdfgklmnprstvz";
+	private static final String VOWELS = "aeiou";
+
+	private static final int SYLLABLES = CONSONANTS.length() * VOWELS.length();
+
+	/** the number of distinct words, each word has two syllables */
+	public static final int WORDS = SYLLABLES * SYLLABLES;
+
+	private Vocabulary() {
+	}
+
+	/**
+	 * @return the word with the given index, in [0, {@link #WORDS})
+	 */
+	public static String word(int index) {
+		StringBuilder sb = new StringBuilder(4);
+		appendWord(sb, index);
+		return sb.toString();
+	}
+
+	private static void appendWord(StringBuilder sb, int index) {
+		appendSyllable(sb, index / SYLLABLES);
+		appendSyllable(sb, index % SYLLABLES);
+	}
+
+	private static void appendSyllable(StringBuilder sb, int syllable) {
+		sb.append(CONSONANTS.charAt(syllable / VOWELS.length()));
+		sb.append(VOWELS.charAt(syllable % VOWELS.length()));
+	}
+
+	/**
+	 * @return the text of the given number, a sequence of words separated by
+	 *         a space (one word for numbers smaller than {@link #WORDS}, two
+	 *         for numbers smaller than {@link #WORDS}^2, and so on)
+	 */
+	public static String text(long n) {
+		StringBuilder sb = new StringBuilder();
+		appendText(sb, n, ' ');
+		return sb.toString();
+	}
+
+	/**
+	 * @return the label of the entity with the given id, in Wikipedia style
+	 *         (e.g., "Baba_Babe")
+	 */
+	public static String label(int id) {
+		StringBuilder sb = new StringBuilder();
+		appendText(sb, id, '_');
+		sb.setCharAt(0, Character.toUpperCase(sb.charAt(0)));
+		for (int i = 1; i < sb.length(); i++) {
+			if (sb.charAt(i - 1) == '_') {
+				sb.setCharAt(i, Character.toUpperCase(sb.charAt(i)));
+			}
+		}
+		return sb.toString();
+	}
+
+	private static void appendText(StringBuilder sb, long n, char separator) {
+		if (n >= WORDS) {
+			// the word of the rest of the number is written first
+			appendText(sb, n / WORDS - 1, separator);
+			sb.append(separator);
+		}
+		appendWord(sb, (int) (n % WORDS));
+	}
+}
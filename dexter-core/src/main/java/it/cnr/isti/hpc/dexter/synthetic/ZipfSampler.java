@@ -0,0 +1,61 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.synthetic;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Samples ranks in [0, n) from a Zipfian distribution: the probability of
+ * rank i is proportional to 1 / (i + 1)^exponent. Sampling is a binary search
+ * on the cumulative distribution, that takes n doubles.
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 9, 2014
+ */
+public class ZipfSampler {
+
+	private final double[] cumulative;
+
+	public ZipfSampler(int n, double exponent) {
+		if (n <= 0) {
+			throw new IllegalArgumentException("n must be positive: " + n);
+		}
+		cumulative = new double[n];
+		double sum = 0;
+		for (int i = 0; i < n; i++) {
+			sum += 1 / Math.pow(i + 1, exponent);
+			cumulative[i] = sum;
+		}
+	}
+
+	/**
+	 * @return a rank in [0, n), rank 0 is the most probable
+	 */
+	public int sample(Random random) {
+		double u = random.nextDouble() * cumulative[cumulative.length - 1];
+		int pos = Arrays.binarySearch(cumulative, u);
+		if (pos < 0) {
+			pos = -pos - 1;
+		}
+		return Math.min(pos, cumulative.length - 1);
+	}
+
+	public int size() {
+		return cumulative.length;
+	}
+}
@@ -0,0 +1,199 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * A read-only memory mapped region of a file, that can be larger than 2GB.
+ * The region is mapped in segments of 1GB, values crossing the boundary of
+ * two segments are read byte by byte. All the methods use absolute positions
+ * and can be called concurrently by different threads.
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Jul 28, 2014
+ */
+public class BigMappedBuffer {
+
+	private static final int SEGMENT_BITS = 30;
+	private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+	private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+	private final ByteBuffer[] segments;
+	private final long size;
+
+	/**
+	 * Maps a region of a file
+	 *
+	 * @param file
+	 *            - the file to map
+	 * @param offset
+	 *            - the position in the file where the region starts
+	 * @param size
+	 *            - the size of the region in bytes
+	 */
+	public BigMappedBuffer(File file, long offset, long size)
+			throws IOException {
+		this.size = size;
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			int nsegments = (int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_BITS);
+			segments = new ByteBuffer[nsegments];
+			for (int i = 0; i < nsegments; i++) {
+				long start = i * SEGMENT_SIZE;
+				long len = Math.min(SEGMENT_SIZE, size - start);
+				segments[i] = channel.map(MapMode.READ_ONLY, offset + start,
+						len);
+			}
+		} finally {
+			// the mapping remains valid after the channel is closed
+			raf.close();
+		}
+	}
+
+	/**
+	 * Maps a whole file
+	 */
+	public BigMappedBuffer(File file) throws IOException {
+		this(file, 0, file.length());
+	}
+
+	/**
+	 * @return the size of the mapped region in bytes
+	 */
+	public long size() {
+		return size;
+	}
+
+	public byte get(long pos) {
+		return segments[(int) (pos >>> SEGMENT_BITS)].get((int) (pos & SEGMENT_MASK));
+	}
+
+	public short getShort(long pos) {
+		int offset = (int) (pos & SEGMENT_MASK);
+		if (offset + 2 <= SEGMENT_SIZE) {
+			return segments[(int) (pos >>> SEGMENT_BITS)].getShort(offset);
+		}
+		return (short) (((get(pos) & 0xFF) << 8) | (get(pos + 1) & 0xFF));
+	}
+
+	public int getInt(long pos) {
+		int offset = (int) (pos & SEGMENT_MASK);
+		if (offset + 4 <= SEGMENT_SIZE) {
+			return segments[(int) (pos >>> SEGMENT_BITS)].getInt(offset);
+		}
+		int value = 0;
+		for (int i = 0; i < 4; i++) {
+			value = (value << 8) | (get(pos + i) & 0xFF);
+		}
+		return value;
+	}
+
+	public long getLong(long pos) {
+		int offset = (int) (pos & SEGMENT_MASK);
+		if (offset + 8 <= SEGMENT_SIZE) {
+			return segments[(int) (pos >>> SEGMENT_BITS)].getLong(offset);
+		}
+		return ((long) getInt(pos) << 32) | (getInt(pos + 4) & 0xFFFFFFFFL);
+	}
+
+	public float getFloat(long pos) {
+		return Float.intBitsToFloat(getInt(pos));
+	}
+
+	/**
+	 * Copies len bytes starting from pos into dst
+	 */
+	public void get(long pos, byte[] dst, int off, int len) {
+		while (len > 0) {
+			ByteBuffer segment = segments[(int) (pos >>> SEGMENT_BITS)]
+					.duplicate();
+			int offset = (int) (pos & SEGMENT_MASK);
+			int n = (int) Math.min(len, segment.limit() - offset);
+			segment.position(offset);
+			segment.get(dst, off, n);
+			pos += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Returns a position in [from, to) containing an int (the region
+	 * [from, to) is an array of sorted ints) equal to key, or -(insertion
+	 * point) - 1 if key is not in the array, as
+	 * {@link java.util.Arrays#binarySearch(int[], int)}.
+	 *
+	 * @param start
+	 *            - position of the array in the buffer
+	 * @param from
+	 *            - first index of the array to search
+	 * @param to
+	 *            - last index (excluded) of the array to search
+	 * @param key
+	 *            - the value to search for
+	 */
+	public long binarySearchInt(long start, long from, long to, int key) {
+		long low = from;
+		long high = to - 1;
+		while (low <= high) {
+			long mid = (low + high) >>> 1;
+			int value = getInt(start + mid * 4);
+			if (value < key)
+				low = mid + 1;
+			else if (value > key)
+				high = mid - 1;
+			else
+				return mid;
+		}
+		return -(low + 1);
+	}
+
+	/**
+	 * Unmaps the buffer without waiting for the garbage collector. The buffer
+	 * must not be read after this call (the JVM would crash), if the unmap is
+	 * not supported the segments are released to the garbage collector.
+	 */
+	public void close() {
+		for (int i = 0; i < segments.length; i++) {
+			ByteBuffer segment = segments[i];
+			segments[i] = null;
+			if (segment == null || !segment.isDirect())
+				continue;
+			try {
+				// sun.nio.ch.DirectBuffer.cleaner().clean(), as Lucene does
+				Method cleaner = segment.getClass().getMethod("cleaner");
+				cleaner.setAccessible(true);
+				Object c = cleaner.invoke(segment);
+				if (c != null) {
+					c.getClass().getMethod("clean").invoke(c);
+				}
+			} catch (Exception e) {
+				// not supported by this JVM
+				return;
+			}
+		}
+	}
+
+}
@@ -39,14 +39,43 @@ import java.util.HashMap;
 import java.util.Map;
 
 /**
+ * The parameters of a single request. A request can set a latency budget in
+ * milliseconds (param <code>budget</code>): the deadline of the request is
+ * computed when the budget is {@link #startBudget() started}, and the
+ * components that cannot complete their work before the deadline return an
+ * approximate result and mark the request as {@link #isDegraded() degraded}.
+ * <p>
+ * The maximum number of entities to annotate (param <code>n</code>) and their
+ * minimum confidence (param <code>min-conf</code>) are hints for the
+ * components: the entities with a lower score would be discarded anyway.
+ * 
  * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
  * 
  *         Created on Jan 13, 2014
  */
 public class DexterLocalParams {
 
+	/**
+	 * Local param with the latency budget of the request, in milliseconds
+	 */
+	public static final String BUDGET = "budget";
+
+	/**
+	 * Local param with the maximum number of entities to annotate
+	 */
+	public static final String MAX_ENTITIES = "n";
+
+	/**
+	 * Local param with the minimum score of an annotated entity
+	 */
+	public static final String MIN_CONFIDENCE = "min-conf";
+
 	private final Map<String, String> params;
 
+	private boolean started = false;
+	private long deadline;
+	private volatile boolean degraded = false;
+
 	public DexterLocalParams() {
 		params = new HashMap<String, String>();
 	}
@@ -79,6 +108,89 @@ public class DexterLocalParams {
 		return Double.parseDouble(params.get(key));
 	}
 
+	/**
+	 * @return the maximum number of entities to annotate, Integer.MAX_VALUE if
+	 *         not set
+	 */
+	public int getMaxEntities() {
+		if (!containsKey(MAX_ENTITIES))
+			return Integer.MAX_VALUE;
+		return getIntParam(MAX_ENTITIES);
+	}
+
+	/**
+	 * @return the minimum score of an annotated entity, 0 if not set
+	 */
+	public double getMinConfidence() {
+		if (!containsKey(MIN_CONFIDENCE))
+			return 0;
+		return getDoubleParam(MIN_CONFIDENCE);
+	}
+
+	/**
+	 * Starts the latency budget of the request, if the request has one: the
+	 * deadline is the current time plus the budget. If the budget was already
+	 * started the deadline does not change.
+	 */
+	public void startBudget() {
+		if (started || !containsKey(BUDGET))
+			return;
+		long budget = Long.parseLong(getParam(BUDGET));
+		deadline = System.nanoTime() + budget * 1000000L;
+		started = true;
+	}
+
+	/**
+	 * @return true if the request has a latency budget
+	 */
+	public boolean hasDeadline() {
+		startBudget();
+		return started;
+	}
+
+	/**
+	 * @return true if the request has a latency budget and its deadline has
+	 *         passed
+	 */
+	public boolean isExpired() {
+		return hasDeadline() && System.nanoTime() - deadline >= 0;
+	}
+
+	/**
+	 * @return the nanoseconds left before the deadline (negative if it has
+	 *         passed), or Long.MAX_VALUE if the request has no budget
+	 */
+	public long getRemainingNanos() {
+		if (!hasDeadline())
+			return Long.MAX_VALUE;
+		return deadline - System.nanoTime();
+	}
+
+	/**
+	 * @return true if a component returned an approximate result to meet the
+	 *         deadline of the request
+	 */
+	public boolean isDegraded() {
+		return degraded;
+	}
+
+	public void setDegraded(boolean degraded) {
+		this.degraded = degraded;
+	}
+
+	/**
+	 * @return a copy of the params and of the components of the request, with
+	 *         its own budget (not started) and not degraded
+	 */
+	public DexterLocalParams copy() {
+		DexterLocalParams copy = new DexterLocalParams();
+		copy.params.putAll(params);
+		copy.spotter = spotter;
+		copy.disambiguator = disambiguator;
+		copy.tagger = tagger;
+		return copy;
+	}
+
 	public Spotter spotter;
 	public Disambiguator disambiguator;
 	public Tagger tagger;
@@ -0,0 +1,764 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.util;
+
+import it.cnr.isti.hpc.dexter.article.ArticleDescriptionStore;
+import it.cnr.isti.hpc.dexter.graph.CategoryClosure;
+import it.cnr.isti.hpc.dexter.graph.CategoryNodeFactory;
+import it.cnr.isti.hpc.dexter.graph.EntityCategoryNodeFactory;
+import it.cnr.isti.hpc.dexter.graph.IncomingNodes;
+import it.cnr.isti.hpc.dexter.graph.NodeFactory;
+import it.cnr.isti.hpc.dexter.graph.NodeStar.Direction;
+import it.cnr.isti.hpc.dexter.graph.OutcomingNodes;
+import it.cnr.isti.hpc.dexter.graph.ram.RamIncomingCategoryNodes;
+import it.cnr.isti.hpc.dexter.graph.ram.RamIncomingEntityCategoryNodes;
+import it.cnr.isti.hpc.dexter.graph.ram.RamIncomingNodes;
+import it.cnr.isti.hpc.dexter.graph.ram.RamOutcomingCategoryNodes;
+import it.cnr.isti.hpc.dexter.graph.ram.RamOutcomingEntityCategoryNodes;
+import it.cnr.isti.hpc.dexter.graph.ram.RamOutcomingNodes;
+import it.cnr.isti.hpc.dexter.label.IdHelper;
+import it.cnr.isti.hpc.dexter.label.IdHelperFactory;
+import it.cnr.isti.hpc.dexter.label.ram.RamIdToLabel;
+import it.cnr.isti.hpc.dexter.label.ram.RamLabelToId;
+import it.cnr.isti.hpc.dexter.lucene.EntityVectors;
+import it.cnr.isti.hpc.dexter.lucene.LuceneHelper;
+import it.cnr.isti.hpc.dexter.relatedness.MinHashSketches;
+import it.cnr.isti.hpc.dexter.relatedness.TopRelatedIndex;
+import it.cnr.isti.hpc.dexter.spot.Spot;
+import it.cnr.isti.hpc.dexter.spot.ram.EntityToSpotListMap;
+import it.cnr.isti.hpc.dexter.spot.ram.RamSpotFile;
+import it.cnr.isti.hpc.dexter.spot.ram.RamSpotRepository;
+import it.cnr.isti.hpc.dexter.spot.ram.SpotEliasFanoOffsets;
+import it.cnr.isti.hpc.dexter.spot.ram.SpotMinimalPerfectHash;
+import it.cnr.isti.hpc.dexter.spot.repo.SpotRepository;
+import it.cnr.isti.hpc.structure.LRUCache;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * DexterModel owns the components of a model (the spot repository, the entity
+ * and the category graphs, the labels, the minhash sketches, the Lucene index
+ * and the resources generated from them, e.g., the article descriptions or
+ * the category closure). The components are loaded in parallel when the model
+ * is created, and each one is loaded only once: the model is built by
+ * {@link DexterParams#getModel()}, spotters, disambiguators, relatedness
+ * functions and services should retrieve the components from there instead of
+ * loading them on the first request, so that all the components of a request
+ * come from the same model.
+ * <p>
+ * A component whose files do not exist is skipped (and its getter returns
+ * null), for each component the model records the load time and the size on
+ * disk. If a component cannot be loaded the model is not created: an
+ * {@link IllegalStateException} is thrown, after releasing the components
+ * already loaded. The model also owns the cache of the spots looked up by the
+ * spotters, so that a new model does not return the spots of the old one.
+ * <p>
+ * The default model shares its components with the singletons of the
+ * components (e.g., {@link RamSpotFile#getInstance()}), while a model loaded
+ * with {@link #load(DexterParams)} (e.g., a new version of the model to
+ * activate with {@link DexterParams#swapModel(DexterModel)}) has its own
+ * instances. A model is reference counted: it is created with one reference,
+ * owned by {@link DexterParams} while the model is active, and each request
+ * acquires another one (see {@link DexterParams#acquireModel()}). When the
+ * last reference is released the model is closed, i.e., the Lucene index is
+ * closed and the mapped files are unmapped.
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 11, 2014
+ */
+public class DexterModel {
+
+	private static final Logger logger = LoggerFactory
+			.getLogger(DexterModel.class);
+
+	private final File dir;
+	private final boolean shared;
+	private final SpotRepository spotRepository;
+	private final IncomingNodes incomingNodes;
+	private final OutcomingNodes outcomingNodes;
+	private final IdHelper idHelper;
+	private final LuceneHelper luceneHelper;
+	private final MinHashSketches minHashSketches;
+	private final IncomingNodes incomingCategoryNodes;
+	private final OutcomingNodes outcomingCategoryNodes;
+	private final IncomingNodes incomingEntityCategoryNodes;
+	private final OutcomingNodes outcomingEntityCategoryNodes;
+	private final CategoryClosure categoryClosure;
+	private final TopRelatedIndex topRelatedIndex;
+	private final EntityToSpotListMap entityToSpots;
+	private final ArticleDescriptionStore articleDescriptions;
+	private final EntityVectors entityVectors;
+	private final List<Component<?>> components;
+	private final LRUCache<String, Spot> spotCache;
+
+	/**
+	 * the mapped labels, owned by this model (null if shared)
+	 */
+	private final AtomicReference<RamIdToLabel> mappedLabels = new AtomicReference<RamIdToLabel>();
+
+	private final AtomicInteger references = new AtomicInteger(1);
+
+	/**
+	 * Loads the model described by the given params, sharing the components
+	 * with their singletons, using a thread for each available processor.
+	 */
+	public DexterModel(final DexterParams params) {
+		this(params, true, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Loads a new instance of the model described by the given params, with
+	 * its own components.
+	 */
+	public static DexterModel load(DexterParams params) {
+		return new DexterModel(params, false, Runtime.getRuntime()
+				.availableProcessors());
+	}
+
+	private DexterModel(final DexterParams params, final boolean shared,
+			int threads) {
+		this.shared = shared;
+		dir = params.getDefaultModel();
+		spotCache = new LRUCache<String, Spot>(params.getCacheSize("spotter"));
+		logger.info("loading model {} with {} threads", dir, threads);
+		long start = System.currentTimeMillis();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1,
+				threads));
+		List<Component<?>> loading = new ArrayList<Component<?>>();
+		try {
+			Component<SpotMinimalPerfectHash> hash = submit(executor, loading,
+					"spot-hash", new Callable<SpotMinimalPerfectHash>() {
+						@Override
+						public SpotMinimalPerfectHash call() {
+							if (shared)
+								return SpotMinimalPerfectHash.getInstance();
+							return new SpotMinimalPerfectHash(params
+									.getSpotsPerfectHash());
+						}
+					}, params.getSpotsPerfectHash());
+			Component<SpotEliasFanoOffsets> offsets = submit(executor,
+					loading, "spot-offsets",
+					new Callable<SpotEliasFanoOffsets>() {
+						@Override
+						public SpotEliasFanoOffsets call() {
+							if (shared)
+								return SpotEliasFanoOffsets.getInstance();
+							return new SpotEliasFanoOffsets(params
+									.getSpotsEliasFano());
+						}
+					}, params.getSpotsEliasFano());
+			Component<RamSpotFile> spots = submit(executor, loading,
+					"spot-data", new Callable<RamSpotFile>() {
+						@Override
+						public RamSpotFile call() {
+							if (shared)
+								return RamSpotFile.getInstance();
+							return new RamSpotFile(params.getSpotsData());
+						}
+					}, getSpotChunks(params.getSpotsData()));
+			final File inFile = params.getGraph("entity-entity", Direction.IN);
+			Component<IncomingNodes> in = submit(executor, loading,
+					"incoming-nodes", new Callable<IncomingNodes>() {
+						@Override
+						public IncomingNodes call() {
+							if (shared)
+								return NodeFactory
+										.getIncomingNodes(NodeFactory.STD_TYPE);
+							return new RamIncomingNodes(inFile);
+						}
+					}, inFile);
+			final File outFile = params
+					.getGraph("entity-entity", Direction.OUT);
+			Component<OutcomingNodes> out = submit(executor, loading,
+					"outcoming-nodes", new Callable<OutcomingNodes>() {
+						@Override
+						public OutcomingNodes call() {
+							if (shared)
+								return NodeFactory
+										.getOutcomingNodes(NodeFactory.STD_TYPE);
+							return new RamOutcomingNodes(outFile);
+						}
+					}, outFile);
+			Component<IdHelper> labels = submit(executor, loading, "labels",
+					new Callable<IdHelper>() {
+						@Override
+						public IdHelper call() {
+							if (shared)
+								return IdHelperFactory.getStdIdHelper();
+							return loadLabels(params);
+						}
+					}, params.getLabelDir());
+			Component<LuceneHelper> lucene = submit(executor, loading,
+					"lucene", new Callable<LuceneHelper>() {
+						@Override
+						public LuceneHelper call() {
+							if (shared)
+								return LuceneHelper.getDexterLuceneHelper();
+							return new LuceneHelper(params.getWikiToIdFile(),
+									params.getIndexDir());
+						}
+					}, params.getIndexDir());
+			final File sketchesFile = params.getMinHashSketchesFile();
+			Component<MinHashSketches> sketches = submit(executor, loading,
+					"minhash-sketches", new Callable<MinHashSketches>() {
+						@Override
+						public MinHashSketches call() {
+							if (shared)
+								return MinHashSketches.getInstance();
+							return new MinHashSketches(sketchesFile);
+						}
+					}, sketchesFile);
+			final File categoryInFile = params.getGraph("category-category",
+					Direction.IN);
+			Component<IncomingNodes> categoryIn = submit(executor, loading,
+					"incoming-category-nodes", new Callable<IncomingNodes>() {
+						@Override
+						public IncomingNodes call() {
+							if (shared)
+								return CategoryNodeFactory
+										.getIncomingNodes(CategoryNodeFactory.STD_TYPE);
+							return new RamIncomingCategoryNodes(categoryInFile);
+						}
+					}, categoryInFile);
+			final File categoryOutFile = params.getGraph("category-category",
+					Direction.OUT);
+			Component<OutcomingNodes> categoryOut = submit(executor, loading,
+					"outcoming-category-nodes", new Callable<OutcomingNodes>() {
+						@Override
+						public OutcomingNodes call() {
+							if (shared)
+								return CategoryNodeFactory
+										.getOutcomingNodes(CategoryNodeFactory.STD_TYPE);
+							return new RamOutcomingCategoryNodes(
+									categoryOutFile);
+						}
+					}, categoryOutFile);
+			final File entityCategoryInFile = params.getGraph(
+					"entity-category", Direction.IN);
+			Component<IncomingNodes> entityCategoryIn = submit(executor,
+					loading, "incoming-entity-category-nodes",
+					new Callable<IncomingNodes>() {
+						@Override
+						public IncomingNodes call() {
+							if (shared)
+								return EntityCategoryNodeFactory
+										.getIncomingNodes(EntityCategoryNodeFactory.STD_TYPE);
+							return new RamIncomingEntityCategoryNodes(
+									entityCategoryInFile);
+						}
+					}, entityCategoryInFile);
+			final File entityCategoryOutFile = params.getGraph(
+					"entity-category", Direction.OUT);
+			Component<OutcomingNodes> entityCategoryOut = submit(executor,
+					loading, "outcoming-entity-category-nodes",
+					new Callable<OutcomingNodes>() {
+						@Override
+						public OutcomingNodes call() {
+							if (shared)
+								return EntityCategoryNodeFactory
+										.getOutcomingNodes(EntityCategoryNodeFactory.STD_TYPE);
+							return new RamOutcomingEntityCategoryNodes(
+									entityCategoryOutFile);
+						}
+					}, entityCategoryOutFile);
+			final File closureFile = params.getCategoryAncestorsFile();
+			Component<CategoryClosure> closure = submit(executor, loading,
+					"category-closure", new Callable<CategoryClosure>() {
+						@Override
+						public CategoryClosure call() {
+							if (shared)
+								return CategoryClosure.getInstance();
+							return CategoryClosure.load(closureFile);
+						}
+					}, closureFile);
+			final File topRelatedFile = params.getTopRelatedFile();
+			Component<TopRelatedIndex> topRelated = submit(executor, loading,
+					"top-related", new Callable<TopRelatedIndex>() {
+						@Override
+						public TopRelatedIndex call() {
+							if (shared)
+								return TopRelatedIndex.getInstance();
+							return new TopRelatedIndex(topRelatedFile);
+						}
+					}, topRelatedFile);
+			final File entityToSpotsFile = params.getEntityToSpots();
+			Component<EntityToSpotListMap> entitySpots = submit(executor,
+					loading, "entity-to-spots",
+					new Callable<EntityToSpotListMap>() {
+						@Override
+						public EntityToSpotListMap call() {
+							if (shared)
+								return EntityToSpotListMap.getInstance();
+							return EntityToSpotListMap.load(entityToSpotsFile);
+						}
+					}, entityToSpotsFile);
+			final File descriptionsFile = params.getArticleDescriptionsFile();
+			Component<ArticleDescriptionStore> descriptions = submit(executor,
+					loading, "article-descriptions",
+					new Callable<ArticleDescriptionStore>() {
+						@Override
+						public ArticleDescriptionStore call() {
+							if (shared)
+								return ArticleDescriptionStore.getInstance();
+							return new ArticleDescriptionStore(
+									descriptionsFile);
+						}
+					}, descriptionsFile);
+			final File vectorsFile = params.getEntityVectorsFile();
+			Component<EntityVectors> vectors = submit(executor, loading,
+					"entity-vectors", new Callable<EntityVectors>() {
+						@Override
+						public EntityVectors call() {
+							if (shared)
+								return EntityVectors.getInstance();
+							return new EntityVectors(vectorsFile);
+						}
+					}, vectorsFile);
+
+			// Future.get() makes the loaded components visible to this
+			// thread, the final fields publish them with the model
+			SpotMinimalPerfectHash h = hash.get();
+			SpotEliasFanoOffsets o = offsets.get();
+			RamSpotFile s = spots.get();
+			spotRepository = (h == null || o == null || s == null) ? null
+					: new RamSpotRepository(h, o, s);
+			incomingNodes = in.get();
+			outcomingNodes = out.get();
+			idHelper = labels.get();
+			luceneHelper = lucene.get();
+			minHashSketches = sketches.get();
+			incomingCategoryNodes = categoryIn.get();
+			outcomingCategoryNodes = categoryOut.get();
+			incomingEntityCategoryNodes = entityCategoryIn.get();
+			outcomingEntityCategoryNodes = entityCategoryOut.get();
+			categoryClosure = closure.get();
+			topRelatedIndex = topRelated.get();
+			entityToSpots = entitySpots.get();
+			articleDescriptions = descriptions.get();
+			entityVectors = vectors.get();
+		} catch (RuntimeException e) {
+			if (!shared) {
+				// the components already loaded are not owned by any model
+				for (Component<?> component : loading) {
+					release(component.await());
+				}
+				release(mappedLabels.getAndSet(null));
+			}
+			throw e;
+		} finally {
+			executor.shutdown();
+		}
+		components = Collections.unmodifiableList(loading);
+		logger.info("model {} loaded in {} ms", dir,
+				System.currentTimeMillis() - start);
+		for (Component<?> component : components) {
+			logger.info("{}", component);
+		}
+	}
+
+	private IdHelper loadLabels(DexterParams params) {
+		if (!params.getLabelToIdFile().exists()
+				|| !params.getIdToLabelFile().exists()) {
+			// the mapdb labels are a singleton, they cannot be reloaded
+			logger.warn("no ram labels in {}, using the current labels", dir);
+			return IdHelperFactory.getStdIdHelper();
+		}
+		RamIdToLabel idToLabel = new RamIdToLabel(params.getIdToLabelFile());
+		mappedLabels.set(idToLabel);
+		return new IdHelper(idToLabel, RamLabelToId.load(params
+				.getLabelToIdFile()));
+	}
+
+	/**
+	 * Acquires a reference to the model
+	 *
+	 * @return false if the model was already closed (and it cannot be used)
+	 */
+	public boolean acquire() {
+		while (true) {
+			int r = references.get();
+			if (r == 0)
+				return false;
+			if (references.compareAndSet(r, r + 1))
+				return true;
+		}
+	}
+
+	/**
+	 * Releases a reference to the model, the last release closes the model
+	 */
+	public void release() {
+		if (references.decrementAndGet() == 0) {
+			close();
+		}
+	}
+
+	/**
+	 * @return the number of references to the model (0 if it was closed)
+	 */
+	public int getReferences() {
+		return references.get();
+	}
+
+	private void close() {
+		logger.info("releasing model {}", dir);
+		if (shared) {
+			// the singletons are never released
+			return;
+		}
+		release(luceneHelper);
+		release(minHashSketches);
+		release(topRelatedIndex);
+		release(articleDescriptions);
+		release(mappedLabels.getAndSet(null));
+	}
+
+	/**
+	 * Closes the index or unmaps the files of a component (null or a
+	 * component kept in memory are ignored)
+	 */
+	private static void release(Object component) {
+		if (component instanceof LuceneHelper) {
+			((LuceneHelper) component).close();
+		} else if (component instanceof MinHashSketches) {
+			((MinHashSketches) component).close();
+		} else if (component instanceof RamIdToLabel) {
+			((RamIdToLabel) component).close();
+		} else if (component instanceof TopRelatedIndex) {
+			((TopRelatedIndex) component).close();
+		} else if (component instanceof ArticleDescriptionStore) {
+			((ArticleDescriptionStore) component).close();
+		}
+	}
+
+	private static <T> Component<T> submit(ExecutorService executor,
+			List<Component<?>> components, String name, Callable<T> loader,
+			File... files) {
+		Component<T> component = new Component<T>(name, files);
+		components.add(component);
+		if (component.exists()) {
+			component.future = executor.submit(component.timed(loader));
+		} else {
+			logger.warn("cannot find the files of component {}, skipping",
+					name);
+		}
+		return component;
+	}
+
+	private static File[] getSpotChunks(File spotsData) {
+		if (spotsData.exists()) {
+			// old format, a unique chunk
+			return new File[] { spotsData };
+		}
+		List<File> chunks = new ArrayList<File>();
+		File chunk = new File(spotsData.getAbsolutePath() + ".0");
+		while (chunk.exists()) {
+			chunks.add(chunk);
+			chunk = new File(spotsData.getAbsolutePath() + "." + chunks.size());
+		}
+		if (chunks.isEmpty()) {
+			return new File[] { chunk };
+		}
+		return chunks.toArray(new File[chunks.size()]);
+	}
+
+	/**
+	 * @return the folder of the model
+	 */
+	public File getDir() {
+		return dir;
+	}
+
+	public SpotRepository getSpotRepository() {
+		return spotRepository;
+	}
+
+	/**
+	 * @return the cache of the spots of the model (null if the spot was not
+	 *         found in the model), to access synchronizing on the cache
+	 */
+	public LRUCache<String, Spot> getSpotCache() {
+		return spotCache;
+	}
+
+	public IncomingNodes getIncomingNodes() {
+		return incomingNodes;
+	}
+
+	public OutcomingNodes getOutcomingNodes() {
+		return outcomingNodes;
+	}
+
+	public IdHelper getIdHelper() {
+		return idHelper;
+	}
+
+	public LuceneHelper getLuceneHelper() {
+		return luceneHelper;
+	}
+
+	/**
+	 * @return the minhash sketches of the in-links, or null if they were not
+	 *         generated for the model
+	 */
+	public MinHashSketches getMinHashSketches() {
+		return minHashSketches;
+	}
+
+	/**
+	 * @return the parent categories of each category, or null if the category
+	 *         graph was not generated for the model
+	 */
+	public IncomingNodes getIncomingCategoryNodes() {
+		return incomingCategoryNodes;
+	}
+
+	/**
+	 * @return the child categories of each category, or null if the category
+	 *         graph was not generated for the model
+	 */
+	public OutcomingNodes getOutcomingCategoryNodes() {
+		return outcomingCategoryNodes;
+	}
+
+	/**
+	 * @return the entities of each category, or null if the entity-category
+	 *         graph was not generated for the model
+	 */
+	public IncomingNodes getIncomingEntityCategoryNodes() {
+		return incomingEntityCategoryNodes;
+	}
+
+	/**
+	 * @return the categories of each entity, or null if the entity-category
+	 *         graph was not generated for the model
+	 */
+	public OutcomingNodes getOutcomingEntityCategoryNodes() {
+		return outcomingEntityCategoryNodes;
+	}
+
+	/**
+	 * @return the closure of the category graph, or null if it was not
+	 *         generated for the model
+	 */
+	public CategoryClosure getCategoryClosure() {
+		return categoryClosure;
+	}
+
+	/**
+	 * @return the top related entities of each entity, or null if they were
+	 *         not generated for the model
+	 */
+	public TopRelatedIndex getTopRelatedIndex() {
+		return topRelatedIndex;
+	}
+
+	/**
+	 * @return the spots of each entity, or null if they were not generated
+	 *         for the model
+	 */
+	public EntityToSpotListMap getEntityToSpots() {
+		return entityToSpots;
+	}
+
+	/**
+	 * @return the article descriptions, or null if they were not generated
+	 *         for the model
+	 */
+	public ArticleDescriptionStore getArticleDescriptions() {
+		return articleDescriptions;
+	}
+
+	/**
+	 * @return the term vectors of the entities, or null if they were not
+	 *         generated for the model
+	 */
+	public EntityVectors getEntityVectors() {
+		return entityVectors;
+	}
+
+	/**
+	 * @return the components of the model, in the order they were submitted
+	 */
+	public List<Component<?>> getComponents() {
+		return components;
+	}
+
+	/**
+	 * @return for each component, if it was loaded, the load time in
+	 *         milliseconds and the size on disk in bytes
+	 */
+	public Map<String, Map<String, Double>> getLoadReport() {
+		Map<String, Map<String, Double>> report = new LinkedHashMap<String, Map<String, Double>>();
+		for (Component<?> component : components) {
+			Map<String, Double> values = new LinkedHashMap<String, Double>();
+			values.put("loaded", component.isLoaded() ? 1.0 : 0.0);
+			values.put("load-ms", (double) component.getLoadTime());
+			values.put("bytes", (double) component.getSize());
+			report.put(component.getName(), values);
+		}
+		return report;
+	}
+
+	/**
+	 * A component of the model, loaded in background
+	 */
+	public static class Component<T> {
+		private final String name;
+		private final File[] files;
+		private Future<T> future;
+		private volatile long loadTime;
+
+		private Component(String name, File[] files) {
+			this.name = name;
+			this.files = files;
+		}
+
+		private boolean exists() {
+			for (File f : files) {
+				if (!f.exists())
+					return false;
+			}
+			return true;
+		}
+
+		private Callable<T> timed(final Callable<T> loader) {
+			return new Callable<T>() {
+				@Override
+				public T call() throws Exception {
+					long start = System.currentTimeMillis();
+					T component = loader.call();
+					loadTime = System.currentTimeMillis() - start;
+					return component;
+				}
+			};
+		}
+
+		/**
+		 * Waits for the component to be loaded
+		 *
+		 * @return the component, or null if it was skipped
+		 * @throws IllegalStateException
+		 *             if the component cannot be loaded
+		 */
+		private T get() {
+			if (future == null)
+				return null;
+			try {
+				return future.get();
+			} catch (InterruptedException e) {
+				logger.error("interrupted while loading {}", name);
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("interrupted while loading "
+						+ name);
+			} catch (ExecutionException e) {
+				logger.error("loading {} ({})", name, e.getCause().toString());
+				throw new IllegalStateException("loading " + name + " ("
+						+ e.getCause().toString() + ")", e.getCause());
+			}
+		}
+
+		/**
+		 * Waits for the component to be loaded, ignoring the failures
+		 *
+		 * @return the component, or null if it was skipped or it cannot be
+		 *         loaded
+		 */
+		private T await() {
+			if (future == null)
+				return null;
+			boolean interrupted = false;
+			try {
+				while (true) {
+					try {
+						return future.get();
+					} catch (InterruptedException e) {
+						// the loader must finish before its files are released
+						interrupted = true;
+					} catch (ExecutionException e) {
+						return null;
+					}
+				}
+			} finally {
+				if (interrupted)
+					Thread.currentThread().interrupt();
+			}
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public boolean isLoaded() {
+			return future != null;
+		}
+
+		/**
+		 * @return the time spent loading the component, in milliseconds
+		 */
+		public long getLoadTime() {
+			return loadTime;
+		}
+
+		/**
+		 * @return the size of the files of the component, in bytes
+		 */
+		public long getSize() {
+			long size = 0;
+			for (File f : files) {
+				size += size(f);
+			}
+			return size;
+		}
+
+		private static long size(File file) {
+			if (!file.isDirectory())
+				return file.length();
+			long size = 0;
+			File[] children = file.listFiles();
+			if (children != null) {
+				for (File child : children) {
+					size += size(child);
+				}
+			}
+			return size;
+		}
+
+		@Override
+		public String toString() {
+			if (!isLoaded())
+				return name + " not loaded";
+			return String.format("%s loaded in %d ms (%.1f MB)", name,
+					loadTime, getSize() / (1024.0 * 1024.0));
+		}
+	}
+}
@@ -46,6 +46,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,7 +60,17 @@ public class DexterParams {
 	private static final Logger logger = LoggerFactory
 			.getLogger(DexterParams.class);
 
-	private static DexterParams dexterParams;
+	private static volatile DexterParams dexterParams;
+
+	private volatile DexterModel model;
+
+	/**
+	 * The model pinned by the request running in the current thread
+	 */
+	private final ThreadLocal<Pin> pinned = new ThreadLocal<Pin>();
+
+	private String resourceRoot;
+	private String xmlConfig;
 	Map<String, DexterParamsXMLParser.Tagger> taggers;
 	Map<String, DexterParamsXMLParser.Spotter> spotters;
 	Map<String, DexterParamsXMLParser.SpotFilter> spotFilters;
@@ -93,6 +104,32 @@ public class DexterParams {
 
 	private File wikiToIdFile;
 
+	private File entityVectorsFile;
+
+	private static final String DEFAULT_ENTITY_VECTORS = "entity-vectors.bin";
+
+	private File articleDescriptionsFile;
+
+	private static final String DEFAULT_ARTICLE_DESCRIPTIONS = "descriptions.bin";
+
+	private File labelToIdFile;
+	private File idToLabelFile;
+
+	private File categoryAncestorsFile;
+
+	private static final String DEFAULT_CATEGORY_ANCESTORS = "category-ancestors.bin";
+
+	private File minHashSketchesFile;
+
+	private static final String DEFAULT_MINHASH_SKETCHES = "minhash-sketches.bin";
+
+	private File topRelatedFile;
+
+	private static final String DEFAULT_TOP_RELATED = "top-related.bin";
+
+	private static final String DEFAULT_LABEL_TO_ID = "label-to-id.bin";
+	private static final String DEFAULT_ID_TO_LABEL = "id-to-label.bin";
+
 	private DexterParams() {
 		taggers = new HashMap<String, DexterParamsXMLParser.Tagger>();
 		spotters = new HashMap<String, DexterParamsXMLParser.Spotter>();
@@ -109,6 +146,8 @@ public class DexterParams {
 
 	private DexterParams(String resourceRoot, String xmlConfig) {
 		this();
+		this.resourceRoot = resourceRoot;
+		this.xmlConfig = xmlConfig;
 		params = DexterParamsXMLParser.load(xmlConfig);
 
 		loader = new PluginLoader(new File(resourceRoot, params.getLibs().getLib()));
@@ -137,16 +176,45 @@ public class DexterParams {
 			thresholds.put(threshold.getName(), threshold.getValue());
 		}
 
-		defaultModel = new File(resourceRoot,
-				models.get(params.getModels().getDefaultModel()));
+		setModelDir(new File(resourceRoot, models.get(params.getModels()
+				.getDefaultModel())));
+		defaultRelatedness = params.getRelatednessFunctions()
+				.getDefaultFunction();
+	}
+
+	/**
+	 * Sets the folder of the model, and all the paths of its files
+	 */
+	private void setModelDir(File dir) {
+		defaultModel = dir;
 
 		graphDir = new File(defaultModel, params.getGraphs().getDir());
+		String ancestors = params.getGraphs().getAncestors();
+		categoryAncestorsFile = new File(graphDir,
+				(ancestors == null) ? DEFAULT_CATEGORY_ANCESTORS : ancestors);
+		String sketches = params.getGraphs().getSketches();
+		minHashSketchesFile = new File(graphDir,
+				(sketches == null) ? DEFAULT_MINHASH_SKETCHES : sketches);
+		String topRelated = params.getGraphs().getTopRelated();
+		topRelatedFile = new File(graphDir,
+				(topRelated == null) ? DEFAULT_TOP_RELATED : topRelated);
 
 		labelDir = new File(defaultModel, params.getLabels().getDir());
+		String labelToId = params.getLabels().getLabelToId();
+		labelToIdFile = new File(labelDir, (labelToId == null) ? DEFAULT_LABEL_TO_ID
+				: labelToId);
+		String idToLabel = params.getLabels().getIdToLabel();
+		idToLabelFile = new File(labelDir, (idToLabel == null) ? DEFAULT_ID_TO_LABEL
+				: idToLabel);
 		indexDir = new File(defaultModel, params.getIndex().getDir());
 		wikiToIdFile = new File(indexDir, params.getIndex().getWikiIdMap());
-		defaultRelatedness = params.getRelatednessFunctions()
-				.getDefaultFunction();
+		String vectors = params.getIndex().getVectors();
+		entityVectorsFile = new File(indexDir, (vectors == null) ? DEFAULT_ENTITY_VECTORS
+				: vectors);
+		String descriptions = params.getIndex().getDescriptions();
+		articleDescriptionsFile = new File(indexDir,
+				(descriptions == null) ? DEFAULT_ARTICLE_DESCRIPTIONS
+						: descriptions);
 
 		File spotsDir = new File(defaultModel, params.getSpotRepository()
 				.getDir());
@@ -243,22 +311,201 @@ public class DexterParams {
 
 	public static DexterParams getInstance() {
 		if (dexterParams == null) {
-			String confFile = System.getProperty("conf");
-			if (confFile == null)
-				confFile = "dexter-conf.xml";
-			String resourceRoot = System.getProperty("dexter.resourceRoot", System.getProperty("user.dir"));
-			logger.info("loading configuration from {} ", confFile);
-			dexterParams = new DexterParams(resourceRoot, confFile);
-			dexterParams.loadDisambiguators();
-			dexterParams.loadRelatednessFunctions();
-			dexterParams.loadSpotFilters();
-			dexterParams.loadSpotters();
-
-			dexterParams.loadTaggers();
+			synchronized (DexterParams.class) {
+				if (dexterParams == null) {
+					String confFile = System.getProperty("conf");
+					if (confFile == null)
+						confFile = "dexter-conf.xml";
+					String resourceRoot = System.getProperty(
+							"dexter.resourceRoot",
+							System.getProperty("user.dir"));
+					logger.info("loading configuration from {} ", confFile);
+					DexterParams params = new DexterParams(resourceRoot,
+							confFile);
+					params.loadDisambiguators();
+					params.loadRelatednessFunctions();
+					params.loadSpotFilters();
+					params.loadSpotters();
+
+					params.loadTaggers();
+					// published only when completely loaded
+					dexterParams = params;
+				}
+			}
 		}
 		return dexterParams;
 	}
 
+	/**
+	 * Returns the params of another model with the same configuration (e.g.,
+	 * a new version of the default model), the paths of all the files of the
+	 * model are resolved against the given folder.
+	 *
+	 * @param dir
+	 *            the folder of the model
+	 */
+	public DexterParams forModel(File dir) {
+		DexterParams p = new DexterParams(resourceRoot, xmlConfig);
+		p.setModelDir(dir);
+		return p;
+	}
+
+	/**
+	 * Returns the model pinned by the current thread (see
+	 * {@link #acquireModel()}) or, if there is none, the active model. The
+	 * first call loads all the components of the default model.
+	 *
+	 * @return the model to use
+	 */
+	public DexterModel getModel() {
+		Pin pin = pinned.get();
+		if (pin != null)
+			return pin.model;
+		DexterModel m = model;
+		if (m == null) {
+			synchronized (this) {
+				if (model == null)
+					model = new DexterModel(this);
+				m = model;
+			}
+		}
+		return m;
+	}
+
+	/**
+	 * Pins the active model to the current thread until
+	 * {@link #releaseModel()} is called: a request should acquire the model at
+	 * the beginning, so that it keeps using the same model even if a new one
+	 * is activated in the meanwhile.
+	 *
+	 * <pre>
+	 * DexterModel model = params.acquireModel();
+	 * try {
+	 * 	...
+	 * } finally {
+	 * 	params.releaseModel();
+	 * }
+	 * </pre>
+	 *
+	 * @return the model pinned
+	 */
+	public DexterModel acquireModel() {
+		Pin pin = pinned.get();
+		if (pin != null) {
+			// nested acquire, the thread already holds a reference
+			pin.depth++;
+			return pin.model;
+		}
+		DexterModel m = retainModel();
+		pinned.set(new Pin(m, null));
+		return m;
+	}
+
+	/**
+	 * Acquires another reference to the model used by the current thread (the
+	 * pinned model or, if there is none, the active model), e.g., to keep it
+	 * open until some tasks running on other threads have finished. The
+	 * reference must be released with {@link DexterModel#release()}.
+	 *
+	 * @return the model retained
+	 */
+	public DexterModel retainModel() {
+		DexterModel m;
+		do {
+			m = getModel();
+		} while (!m.acquire());
+		return m;
+	}
+
+	/**
+	 * Pins the given model (e.g., the model of the request that submitted a
+	 * task to a pool) to the current thread until {@link #releaseModel()} is
+	 * called. If the thread already pinned a model (e.g., a pool thread
+	 * running a task while waiting for another one), that model is pinned
+	 * again after the release.
+	 *
+	 * @throws IllegalStateException
+	 *             if the model was already closed
+	 */
+	public void pinModel(DexterModel model) {
+		if (!model.acquire()) {
+			throw new IllegalStateException("model " + model.getDir()
+					+ " already closed");
+		}
+		pinned.set(new Pin(model, pinned.get()));
+	}
+
+	/**
+	 * Wraps a task to run on another thread (e.g., on a pool) with the given
+	 * model pinned. The caller must hold a reference to the model (see
+	 * {@link #retainModel()}) until the task has finished.
+	 */
+	public <T> Callable<T> withModel(final DexterModel model,
+			final Callable<T> task) {
+		return new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				pinModel(model);
+				try {
+					return task.call();
+				} finally {
+					releaseModel();
+				}
+			}
+		};
+	}
+
+	/**
+	 * Releases the model acquired by the current thread with
+	 * {@link #acquireModel()} or pinned with {@link #pinModel(DexterModel)}
+	 */
+	public void releaseModel() {
+		Pin pin = pinned.get();
+		if (pin == null)
+			return;
+		if (--pin.depth == 0) {
+			if (pin.previous == null) {
+				pinned.remove();
+			} else {
+				pinned.set(pin.previous);
+			}
+			pin.model.release();
+		}
+	}
+
+	/**
+	 * Activates a new model, the old one is released when the requests using
+	 * it have finished.
+	 *
+	 * @return the model that was active
+	 */
+	public DexterModel swapModel(DexterModel newModel) {
+		DexterModel old;
+		synchronized (this) {
+			old = model;
+			model = newModel;
+		}
+		logger.info("model {} activated", newModel.getDir());
+		// the scores computed on the old model
+		Relatedness.clearCache();
+		if (old != null) {
+			old.release();
+		}
+		return old;
+	}
+
+	private static class Pin {
+		private final DexterModel model;
+		// the model pinned before this one
+		private final Pin previous;
+		private int depth = 1;
+
+		private Pin(DexterModel model, Pin previous) {
+			this.model = model;
+			this.previous = previous;
+		}
+	}
+
 	public int getCacheSize(String name) {
 		if (!cacheSize.containsKey(name)) {
 			logger.warn(
@@ -381,10 +628,41 @@ public class DexterParams {
 		return labelDir;
 	}
 
+	public File getLabelToIdFile() {
+		return labelToIdFile;
+	}
+
+	public File getIdToLabelFile() {
+		return idToLabelFile;
+	}
+
 	public File getGraph(String string, Direction direction) {
 		return new File(getGraphDir(), graphs.get(string).get(direction));
 	}
 
+	/**
+	 * @return the file containing the precomputed ancestors of the entities in
+	 *         the category graph
+	 */
+	public File getCategoryAncestorsFile() {
+		return categoryAncestorsFile;
+	}
+
+	/**
+	 * @return the file containing the minhash sketches of the in-links of the
+	 *         entities
+	 */
+	public File getMinHashSketchesFile() {
+		return minHashSketchesFile;
+	}
+
+	/**
+	 * @return the file containing the top related entities of each entity
+	 */
+	public File getTopRelatedFile() {
+		return topRelatedFile;
+	}
+
 	public File getIndexDir() {
 		return indexDir;
 	}
@@ -393,6 +671,14 @@ public class DexterParams {
 		return wikiToIdFile;
 	}
 
+	public File getEntityVectorsFile() {
+		return entityVectorsFile;
+	}
+
+	public File getArticleDescriptionsFile() {
+		return articleDescriptionsFile;
+	}
+
 	public File getSpotsOffsetData() {
 		return spotsOffsetData;
 	}
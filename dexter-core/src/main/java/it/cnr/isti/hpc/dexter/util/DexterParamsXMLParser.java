@@ -370,6 +370,8 @@ public class DexterParamsXMLParser {
 
 	public static class Labels {
 		String dir;
+		String labelToId;
+		String idToLabel;
 
 		public String getDir() {
 			return dir;
@@ -379,11 +381,29 @@ public class DexterParamsXMLParser {
 			this.dir = dir;
 		}
 
+		public String getLabelToId() {
+			return labelToId;
+		}
+
+		public void setLabelToId(String labelToId) {
+			this.labelToId = labelToId;
+		}
+
+		public String getIdToLabel() {
+			return idToLabel;
+		}
+
+		public void setIdToLabel(String idToLabel) {
+			this.idToLabel = idToLabel;
+		}
+
 	}
 
 	public static class Index {
 		String dir;
 		String wikiIdMap;
+		String vectors;
+		String descriptions;
 
 		public String getDir() {
 			return dir;
@@ -401,6 +421,22 @@ public class DexterParamsXMLParser {
 			this.wikiIdMap = wikiIdMap;
 		}
 
+		public String getVectors() {
+			return vectors;
+		}
+
+		public void setVectors(String vectors) {
+			this.vectors = vectors;
+		}
+
+		public String getDescriptions() {
+			return descriptions;
+		}
+
+		public void setDescriptions(String descriptions) {
+			this.descriptions = descriptions;
+		}
+
 	}
 
 	public static class Thresholds {
@@ -441,6 +477,9 @@ public class DexterParamsXMLParser {
 
 	public static class Graphs {
 		String dir;
+		String ancestors;
+		String sketches;
+		String topRelated;
 		List<Graph> graphs = new ArrayList<Graph>();
 
 		public String getDir() {
@@ -451,6 +490,30 @@ public class DexterParamsXMLParser {
 			this.dir = dir;
 		}
 
+		public String getAncestors() {
+			return ancestors;
+		}
+
+		public void setAncestors(String ancestors) {
+			this.ancestors = ancestors;
+		}
+
+		public String getSketches() {
+			return sketches;
+		}
+
+		public void setSketches(String sketches) {
+			this.sketches = sketches;
+		}
+
+		public String getTopRelated() {
+			return topRelated;
+		}
+
+		public void setTopRelated(String topRelated) {
+			this.topRelated = topRelated;
+		}
+
 		public List<Graph> getGraphs() {
 			return graphs;
 		}
@@ -0,0 +1,270 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.util;
+
+import it.cnr.isti.hpc.dexter.entity.Entity;
+import it.cnr.isti.hpc.dexter.graph.IncomingNodes;
+import it.cnr.isti.hpc.dexter.label.IdHelper;
+import it.cnr.isti.hpc.dexter.shingle.Shingle;
+import it.cnr.isti.hpc.dexter.shingle.ShingleExtractor;
+import it.cnr.isti.hpc.dexter.spot.Spot;
+import it.cnr.isti.hpc.dexter.spot.repo.SpotRepository;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Replaces the active model without restarting the JVM. The new model is
+ * loaded in background (see {@link DexterModel#load(DexterParams)}) while the
+ * old one keeps serving the requests, then it is warmed replaying the most
+ * recent queries, and finally it is activated with
+ * {@link DexterParams#swapModel(DexterModel)}: the requests that already
+ * acquired the old model keep using it, and the old model is released when
+ * the last of them has finished.
+ * <p>
+ * All the components of the model (including the article descriptions, the
+ * category graphs and the other resources generated from the model) are owned
+ * by {@link DexterModel}, so they are replaced together and a request never
+ * mixes the components of two models.
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 12, 2014
+ */
+public class ModelReloader {
+
+	private static final Logger logger = LoggerFactory
+			.getLogger(ModelReloader.class);
+
+	/**
+	 * Number of recent queries replayed to warm a new model
+	 */
+	public static final int RECENT_QUERIES = 200;
+
+	/**
+	 * Max number of chars recorded for each query: a prefix is enough to warm
+	 * the pages of the model, and a long document is not kept in memory
+	 */
+	public static final int MAX_QUERY_LENGTH = 4096;
+
+	/**
+	 * System property with the folder containing the models that can be
+	 * loaded, by default the folder containing the default model
+	 */
+	public static final String MODEL_ROOT = "dexter.model.root";
+
+	public enum State {
+		IDLE, LOADING, WARMING, ACTIVE, FAILED
+	};
+
+	private static final ModelReloader instance = new ModelReloader();
+
+	private final LinkedList<String> recentQueries = new LinkedList<String>();
+
+	private volatile State state = State.IDLE;
+	private volatile File dir;
+	private volatile String message = "";
+	private volatile long loadTime;
+	private volatile long warmupTime;
+	private volatile int warmupQueries;
+
+	private ModelReloader() {
+	}
+
+	public static ModelReloader getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Records a query (at most its first {@link #MAX_QUERY_LENGTH} chars), the
+	 * most recent ones are replayed to warm a new model
+	 */
+	public void recordQuery(String text) {
+		if (text == null || text.isEmpty())
+			return;
+		if (text.length() > MAX_QUERY_LENGTH) {
+			// a copy, the substring could share the chars of the document
+			text = new String(text.substring(0, MAX_QUERY_LENGTH));
+		}
+		synchronized (recentQueries) {
+			recentQueries.addLast(text);
+			if (recentQueries.size() > RECENT_QUERIES) {
+				recentQueries.removeFirst();
+			}
+		}
+	}
+
+	/**
+	 * @return the folder containing the models that can be loaded
+	 */
+	public File getModelRoot() {
+		String root = System.getProperty(MODEL_ROOT);
+		if (root != null)
+			return new File(root);
+		return DexterParams.getInstance().getDefaultModel().getAbsoluteFile()
+				.getParentFile();
+	}
+
+	/**
+	 * Resolves the folder of a model, relative paths are resolved against the
+	 * model root (see {@link #getModelRoot()}).
+	 *
+	 * @return the folder of the model, or null if it is not under the model
+	 *         root
+	 */
+	public File resolve(String model) {
+		try {
+			File root = getModelRoot().getCanonicalFile();
+			File dir = new File(model);
+			if (!dir.isAbsolute())
+				dir = new File(root, model);
+			dir = dir.getCanonicalFile();
+			if (dir.getPath().startsWith(root.getPath() + File.separator))
+				return dir;
+			logger.warn("model {} is not under the model root {}", dir, root);
+		} catch (IOException e) {
+			logger.warn("resolving model {} ({})", model, e.toString());
+		}
+		return null;
+	}
+
+	private List<String> getRecentQueries() {
+		synchronized (recentQueries) {
+			return new ArrayList<String>(recentQueries);
+		}
+	}
+
+	/**
+	 * Loads in background the model in the given folder, warms it and then
+	 * activates it. If the model cannot be loaded the state becomes FAILED
+	 * and the active model keeps serving the requests.
+	 *
+	 * @return false if a reload is already running or if the folder does not
+	 *         exist, true if the reload started
+	 */
+	public synchronized boolean reload(final File modelDir) {
+		if (state == State.LOADING || state == State.WARMING) {
+			logger.warn("cannot reload {}, still reloading {}", modelDir, dir);
+			return false;
+		}
+		if (!modelDir.isDirectory()) {
+			logger.error("cannot reload {}, the folder does not exist",
+					modelDir);
+			return false;
+		}
+		dir = modelDir;
+		state = State.LOADING;
+		message = "";
+		Thread thread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					swap(modelDir);
+				} catch (RuntimeException e) {
+					logger.error("reloading {} ({})", modelDir, e.toString());
+					message = e.toString();
+					state = State.FAILED;
+				}
+			}
+		}, "model-reloader");
+		thread.setDaemon(true);
+		thread.start();
+		return true;
+	}
+
+	private void swap(File modelDir) {
+		DexterParams params = DexterParams.getInstance();
+		logger.info("loading the new model {}", modelDir);
+		long start = System.currentTimeMillis();
+		DexterModel model = DexterModel.load(params.forModel(modelDir));
+		loadTime = System.currentTimeMillis() - start;
+
+		state = State.WARMING;
+		start = System.currentTimeMillis();
+		try {
+			warmupQueries = warm(model, getRecentQueries());
+		} catch (RuntimeException e) {
+			// the model was never activated
+			model.release();
+			throw e;
+		}
+		warmupTime = System.currentTimeMillis() - start;
+		logger.info("model {} warmed with {} queries in {} ms", modelDir,
+				warmupQueries, warmupTime);
+
+		params.swapModel(model);
+		state = State.ACTIVE;
+	}
+
+	/**
+	 * Looks up the spots of the queries in the model, and the in-links and
+	 * the labels of their candidate entities, so that the pages of the model
+	 * used by the queries are loaded in memory.
+	 *
+	 * @return the number of queries replayed
+	 */
+	static int warm(DexterModel model, List<String> queries) {
+		SpotRepository spots = model.getSpotRepository();
+		IncomingNodes in = model.getIncomingNodes();
+		IdHelper labels = model.getIdHelper();
+		if (spots == null)
+			return 0;
+		for (String query : queries) {
+			for (Shingle shingle : new ShingleExtractor(query)) {
+				Spot spot = spots.getSpot(shingle.getText());
+				if (spot == null)
+					continue;
+				for (Entity entity : spot.getEntities()) {
+					if (in != null)
+						in.getNeighbours(entity.getId());
+					if (labels != null)
+						labels.getLabel(entity.getId());
+				}
+			}
+		}
+		return queries.size();
+	}
+
+	/**
+	 * @return the state of the last reload
+	 */
+	public Map<String, String> getStatus() {
+		Map<String, String> status = new LinkedHashMap<String, String>();
+		status.put("state", state.name().toLowerCase());
+		status.put("active-model", DexterParams.getInstance().getModel()
+				.getDir().getAbsolutePath());
+		if (dir != null) {
+			status.put("model", dir.getAbsolutePath());
+			status.put("load-ms", String.valueOf(loadTime));
+			status.put("warmup-ms", String.valueOf(warmupTime));
+			status.put("warmup-queries", String.valueOf(warmupQueries));
+		}
+		if (!message.isEmpty()) {
+			status.put("error", message);
+		}
+		return status;
+	}
+
+}
@@ -0,0 +1,76 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.article;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import it.cnr.isti.hpc.wikipedia.article.Article;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ * 
+ *         Created on Jul 28, 2014
+ */
+public class ArticleDescriptionStoreTest {
+
+	static ArticleDescriptionStore store;
+
+	@BeforeClass
+	public static void init() throws IOException {
+		File file = File.createTempFile("dexter-descriptions-", "bin");
+		file.deleteOnExit();
+		ArticleDescriptionWriter writer = new ArticleDescriptionWriter(file, 4);
+		// ids are not sorted, and they do not fill the last block
+		for (int i = 10; i > 0; i--) {
+			writer.add(i * 3, "title " + i, "Title_" + i, "summary of " + i);
+		}
+		writer.add(100, "Citt\u00e0", "Citt\u00e0", null);
+		writer.close();
+		store = new ArticleDescriptionStore(file);
+	}
+
+	@Test
+	public void testGet() {
+		assertEquals(11, store.size());
+		for (int i = 1; i <= 10; i++) {
+			Article a = store.get(i * 3);
+			assertEquals("title " + i, a.getTitle());
+			assertEquals("Title_" + i, a.getWikiTitle());
+			assertEquals("summary of " + i, a.getSummary());
+		}
+		Article a = store.get(100);
+		assertEquals("Citt\u00e0", a.getTitle());
+		assertEquals("", a.getSummary());
+	}
+
+	@Test
+	public void testMissing() {
+		assertTrue(store.contains(3));
+		assertFalse(store.contains(4));
+		assertNull(store.get(4));
+		assertNull(store.get(0));
+		assertNull(store.get(1000));
+	}
+
+}
@@ -0,0 +1,189 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.disambiguation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import it.cnr.isti.hpc.dexter.entity.Entity;
+import it.cnr.isti.hpc.dexter.entity.EntityMatch;
+import it.cnr.isti.hpc.dexter.entity.EntityMatchList;
+import it.cnr.isti.hpc.dexter.relatedness.Relatedness;
+import it.cnr.isti.hpc.dexter.relatedness.RelatednessFactory;
+import it.cnr.isti.hpc.dexter.spot.Spot;
+import it.cnr.isti.hpc.dexter.spot.SpotMatch;
+import it.cnr.isti.hpc.dexter.spot.SpotMatchList;
+import it.cnr.isti.hpc.dexter.util.DexterLocalParams;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 16, 2014
+ */
+public class AnytimeDisambiguatorTest {
+
+	/**
+	 * a relatedness that does not need a model, and counts the scores
+	 * requested
+	 */
+	static class CountingRelatedness extends Relatedness {
+
+		int calls = 0;
+
+		@Override
+		public void set(int x, int y) {
+			calls++;
+			super.set(x, y);
+		}
+
+		@Override
+		protected double score() {
+			// the entities with the same last digit are related
+			return (x % 10 == y % 10) ? 1 : 0;
+		}
+
+		@Override
+		public String getName() {
+			return "counting";
+		}
+
+		@Override
+		public Relatedness copy() {
+			return this;
+		}
+	}
+
+	CountingRelatedness relatedness = new CountingRelatedness();
+
+	AnytimeDisambiguator disambiguator = new AnytimeDisambiguator();
+
+	public AnytimeDisambiguatorTest() {
+		RelatednessFactory.register(relatedness);
+		disambiguator.init(null, moduleParams("5", "0.02"));
+	}
+
+	private DexterLocalParams moduleParams(String candidates,
+			String minCommonness) {
+		DexterLocalParams moduleParams = new DexterLocalParams();
+		moduleParams.addParam(AnytimeDisambiguator.RELATEDNESS,
+				relatedness.getName());
+		moduleParams.addParam(AnytimeDisambiguator.CANDIDATES, candidates);
+		moduleParams.addParam(AnytimeDisambiguator.MIN_COMMONNESS,
+				minCommonness);
+		return moduleParams;
+	}
+
+	/**
+	 * @return a spot at the given offset, whose candidates have identifiers
+	 *         id, id + 1, ... and the given frequencies
+	 */
+	private static SpotMatch spot(int start, int id, int... frequencies) {
+		List<Entity> entities = new ArrayList<Entity>();
+		int link = 0;
+		for (int i = 0; i < frequencies.length; i++) {
+			entities.add(new Entity(id + i, frequencies[i]));
+			link += frequencies[i];
+		}
+		SpotMatch match = new SpotMatch(new Spot("spot" + id, entities, link,
+				link), entities);
+		match.setStart(start);
+		match.setEnd(start + 5);
+		return match;
+	}
+
+	private static List<Integer> ids(EntityMatch... entities) {
+		List<Integer> ids = new ArrayList<Integer>();
+		for (EntityMatch e : entities) {
+			ids.add(e.getId());
+		}
+		return ids;
+	}
+
+	private static List<Integer> ids(EntityMatchList eml) {
+		return ids(eml.toArray(new EntityMatch[eml.size()]));
+	}
+
+	@Test
+	public void testDeadline() {
+		SpotMatchList sml = new SpotMatchList();
+		sml.add(spot(10, 20, 70, 30));
+		sml.add(spot(0, 10, 20, 60, 20));
+
+		DexterLocalParams params = new DexterLocalParams();
+		params.addParam(DexterLocalParams.BUDGET, "0");
+		EntityMatchList eml = disambiguator.disambiguate(params, sml);
+
+		// the expired request is resolved with the most common entities
+		assertTrue(params.isDegraded());
+		assertEquals(0, relatedness.calls);
+		assertEquals(Arrays.asList(11, 20), ids(eml));
+		assertEquals(0.6, eml.get(0).getScore(), 0.0001);
+	}
+
+	@Test
+	public void testComparisons() {
+		SpotMatchList sml = new SpotMatchList();
+		for (int i = 0; i < 10; i++) {
+			sml.add(spot(i * 10, i * 100, 50, 30, 20));
+		}
+		// the 3 candidates of a spot compared with the 3 of another spot
+		int cost = 3 * 3;
+
+		// without a cap each spot is compared with all the others
+		disambiguator.disambiguate(new DexterLocalParams(), sml);
+		assertEquals(10 * 9 * cost, relatedness.calls);
+
+		// the share of each spot only allows to compare it with the closest
+		// spot
+		relatedness.calls = 0;
+		DexterLocalParams params = new DexterLocalParams();
+		params.addParam(AnytimeDisambiguator.MAX_COMPARISONS,
+				Integer.toString(10 * cost));
+		EntityMatchList eml = disambiguator.disambiguate(params, sml);
+		assertEquals(10 * cost, relatedness.calls);
+		assertEquals(10, eml.size());
+		assertFalse(params.isDegraded());
+	}
+
+	@Test
+	public void testPrune() {
+		// commonness 0.01, 0.5, 0.05, 0.3, 0.14
+		EntityMatchList entities = spot(0, 0, 1, 50, 5, 30, 14)
+				.getEntities();
+		List<Integer> order = ids(entities);
+
+		disambiguator.init(null, moduleParams("3", "0.2"));
+		assertEquals(Arrays.asList(1, 3), ids(disambiguator.prune(entities)));
+
+		disambiguator.init(null, moduleParams("3", "0.1"));
+		assertEquals(Arrays.asList(1, 3, 4),
+				ids(disambiguator.prune(entities)));
+
+		// the most common entity is kept even if it is not common enough
+		disambiguator.init(null, moduleParams("3", "0.6"));
+		assertEquals(Arrays.asList(1), ids(disambiguator.prune(entities)));
+
+		// the list of the spot is shared with the other modules
+		assertEquals(order, ids(entities));
+	}
+
+}
@@ -0,0 +1,95 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.disambiguation;
+
+import static org.junit.Assert.assertEquals;
+import it.cnr.isti.hpc.dexter.entity.Entity;
+import it.cnr.isti.hpc.dexter.entity.EntityMatchList;
+import it.cnr.isti.hpc.dexter.spot.Spot;
+import it.cnr.isti.hpc.dexter.spot.SpotMatch;
+import it.cnr.isti.hpc.dexter.spot.SpotMatchList;
+import it.cnr.isti.hpc.dexter.util.DexterLocalParams;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 16, 2014
+ */
+public class TopScoreEntityDisambiguatorTest {
+
+	TopScoreEntityDisambiguator disambiguator = new TopScoreEntityDisambiguator();
+
+	/**
+	 * @return a spot whose candidates have identifiers id, id + 1, ... and
+	 *         the given scores
+	 */
+	private static SpotMatch spot(int id, double... scores) {
+		List<Entity> entities = new ArrayList<Entity>();
+		for (int i = 0; i < scores.length; i++) {
+			entities.add(new Entity(id + i, 10));
+		}
+		SpotMatch match = new SpotMatch(new Spot("spot" + id, entities,
+				10 * scores.length, 10 * scores.length), entities);
+		for (int i = 0; i < scores.length; i++) {
+			match.getEntities().get(i).setScore(scores[i]);
+		}
+		return match;
+	}
+
+	private SpotMatchList spots() {
+		SpotMatchList sml = new SpotMatchList();
+		// the entities are not sorted by score
+		sml.add(spot(10, 0.2, 0.7, 0.1, 0.6));
+		sml.add(spot(20, 0.3, 0.1, 0.4));
+		sml.add(spot(30));
+		sml.add(spot(40, 0.9));
+		return sml;
+	}
+
+	@Test
+	public void testBestEntity() {
+		EntityMatchList eml = disambiguator.disambiguate(null, spots());
+		assertEquals(3, eml.size());
+		assertEquals(11, eml.get(0).getId());
+		assertEquals(0.7, eml.get(0).getScore(), 0.0001);
+		assertEquals(22, eml.get(1).getId());
+		assertEquals(40, eml.get(2).getId());
+	}
+
+	@Test
+	public void testMinConfidence() {
+		DexterLocalParams params = new DexterLocalParams();
+		params.addParam(DexterLocalParams.MIN_CONFIDENCE, "0.5");
+		EntityMatchList eml = disambiguator.disambiguate(params, spots());
+		// the second spot cannot reach the minimum confidence
+		assertEquals(2, eml.size());
+		assertEquals(11, eml.get(0).getId());
+		assertEquals(40, eml.get(1).getId());
+
+		params.addParam(DexterLocalParams.MIN_CONFIDENCE, "0.7");
+		eml = disambiguator.disambiguate(params, spots());
+		assertEquals(2, eml.size());
+		params.addParam(DexterLocalParams.MIN_CONFIDENCE, "0.95");
+		eml = disambiguator.disambiguate(params, spots());
+		assertEquals(0, eml.size());
+	}
+
+}
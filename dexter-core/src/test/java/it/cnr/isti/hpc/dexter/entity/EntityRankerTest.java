@@ -0,0 +1,98 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.entity;
+
+import static org.junit.Assert.assertEquals;
+import it.cnr.isti.hpc.dexter.spot.Spot;
+import it.cnr.isti.hpc.dexter.spot.SpotMatch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 16, 2014
+ */
+public class EntityRankerTest {
+
+	/**
+	 * @return a spot whose candidates have identifiers 0, 1, ... and the given
+	 *         frequencies, linked 100 times
+	 */
+	private static Spot spot(int... frequencies) {
+		List<Entity> entities = new ArrayList<Entity>();
+		for (int i = 0; i < frequencies.length; i++) {
+			entities.add(new Entity(i, frequencies[i]));
+		}
+		return new Spot("spot", entities, 100, 100);
+	}
+
+	private static List<Integer> rank(Spot spot, int candidates) {
+		EntityRanker ranker = new EntityRanker(null, false,
+				EntityRanker.DEFAULT_WINDOW_SIZE, candidates);
+		ranker.commonnessThreshold = 0.05;
+		List<Integer> ids = new ArrayList<Integer>();
+		for (EntityMatch e : ranker.rank(new SpotMatch(spot))) {
+			ids.add(e.getId());
+		}
+		return ids;
+	}
+
+	private static List<Integer> ids(Integer... ids) {
+		List<Integer> list = new ArrayList<Integer>();
+		for (Integer id : ids) {
+			list.add(id);
+		}
+		return list;
+	}
+
+	@Test
+	public void testUnsorted() {
+		// commonness 0.01, 0.5, 0.05, 0.3, 0.14
+		Spot spot = spot(1, 50, 5, 30, 14);
+		assertEquals(ids(1, 3, 4), rank(spot, 3));
+		// the entity 0 is below the threshold
+		assertEquals(ids(1, 3, 4, 2), rank(spot, 10));
+		assertEquals(ids(1), rank(spot, 1));
+		assertEquals(ids(), rank(spot, 0));
+	}
+
+	@Test
+	public void testSorted() {
+		Spot spot = spot(1, 50, 5, 30, 14);
+		spot.sortByFrequency();
+		assertEquals(ids(1, 3, 4), rank(spot, 3));
+		assertEquals(ids(1, 3, 4, 2), rank(spot, 10));
+		assertEquals(ids(1), rank(spot, 1));
+	}
+
+	@Test
+	public void testScores() {
+		EntityRanker ranker = new EntityRanker(null);
+		ranker.commonnessThreshold = 0;
+		SpotMatch match = new SpotMatch(spot(20, 80));
+		EntityMatchList eml = ranker.rank(match);
+		// without similarity the score is the commonness
+		assertEquals(2, eml.size());
+		assertEquals(1, eml.get(0).getId());
+		assertEquals(0.8, eml.get(0).getScore(), 0.0001);
+		assertEquals(0.2, eml.get(1).getScore(), 0.0001);
+	}
+
+}
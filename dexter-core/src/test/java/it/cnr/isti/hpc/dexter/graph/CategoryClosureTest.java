@@ -0,0 +1,119 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.graph;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 14, 2014
+ */
+public class CategoryClosureTest {
+
+	static class FakeNodes implements NodeStar {
+		int[][] edges;
+
+		FakeNodes(int[][] edges) {
+			this.edges = edges;
+		}
+
+		public int[] getNeighbours(int id) {
+			return (id < edges.length && edges[id] != null) ? edges[id]
+					: new int[0];
+		}
+
+		public Node getNode(int id) {
+			return null;
+		}
+
+		public int size() {
+			return edges.length;
+		}
+	}
+
+	/** entity 1 in category 10, entity 2 in 11, entity 3 in 10 and 12 */
+	NodeStar entityCategories = new FakeNodes(new int[][] { null, { 10 },
+			{ 11 }, { 10, 12 } });
+
+	/** 10 -> 11 -> 12 -> 10 (a cycle), 12 -> 1000 */
+	NodeStar parents = new FakeNodes(new int[1001][]);
+	{
+		((FakeNodes) parents).edges[10] = new int[] { 11 };
+		((FakeNodes) parents).edges[11] = new int[] { 12 };
+		((FakeNodes) parents).edges[12] = new int[] { 10, 1000 };
+	}
+
+	@Test
+	public void testAncestors() {
+		CategoryClosure closure = CategoryClosure.build(new int[] { 3, 1, 2,
+				0 }, entityCategories, parents, 2);
+		assertArrayEquals(new int[] { 10, 11 }, closure.getAncestors(1));
+		assertArrayEquals(new int[] { 10, 11, 12, 1000 },
+				closure.getAncestors(3));
+		assertArrayEquals(new int[0], closure.getAncestors(0));
+		assertTrue(closure.isAncestor(11, 1));
+		assertFalse(closure.isAncestor(12, 1));
+		assertFalse(closure.isAncestor(1000, 2));
+		assertTrue(closure.isAncestor(1000, 3));
+	}
+
+	@Test
+	public void testCycles() {
+		CategoryClosure closure = CategoryClosure.build(new int[] { 1, 2, 3 },
+				entityCategories, parents, 10);
+		assertArrayEquals(new int[] { 10, 11, 12, 1000 },
+				closure.getAncestors(1));
+		assertArrayEquals(new int[] { 1, 2, 3 },
+				closure.getSubtreeEntities(1000));
+	}
+
+	@Test
+	public void testSubtrees() {
+		CategoryClosure closure = CategoryClosure.build(new int[] { 1, 2, 3 },
+				entityCategories, parents, 1);
+		assertArrayEquals(new int[] { 1, 3 }, closure.getSubtreeEntities(10));
+		assertArrayEquals(new int[] { 3 }, closure.getSubtreeEntities(12));
+		assertArrayEquals(new int[0], closure.getSubtreeEntities(1000));
+	}
+
+	@Test
+	public void testChunks() {
+		// chunks of 4 bytes, so that the lists and the integers are split
+		// between chunks
+		CategoryClosure.CompressedLists.Writer writer = new CategoryClosure.CompressedLists.Writer(
+				2);
+		writer.add(1, new int[] { 1, 200, 70000, 70001 });
+		writer.add(5, new int[0]);
+		writer.add(7, new int[] { 3, 1000000, Integer.MAX_VALUE });
+		CategoryClosure.CompressedLists lists = writer.build();
+
+		assertArrayEquals(new int[] { 1, 200, 70000, 70001 }, lists.get(1));
+		assertArrayEquals(new int[0], lists.get(5));
+		assertArrayEquals(new int[] { 3, 1000000, Integer.MAX_VALUE },
+				lists.get(7));
+		assertTrue(lists.contains(1, 70000));
+		assertFalse(lists.contains(1, 70002));
+		assertTrue(lists.contains(7, Integer.MAX_VALUE));
+		assertFalse(lists.contains(7, 4));
+		assertFalse(lists.contains(6, 3));
+	}
+
+}
@@ -0,0 +1,97 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.graph;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 16, 2014
+ */
+public class IntBitmapTest {
+
+	/**
+	 * a sorted list of values in [0, range) with the given density, plus a
+	 * dense block in [70000, 80000)
+	 */
+	private static int[] values(Random random, int range, double density) {
+		IntArrayList list = new IntArrayList();
+		for (int i = 0; i < range; i++) {
+			boolean dense = i >= 70000 && i < 80000;
+			if (random.nextDouble() < (dense ? 0.7 : density))
+				list.add(i);
+		}
+		return list.toIntArray();
+	}
+
+	private static int intersectionSize(int[] a, int[] b) {
+		IntOpenHashSet set = new IntOpenHashSet(a);
+		int size = 0;
+		for (int v : b) {
+			if (set.contains(v))
+				size++;
+		}
+		return size;
+	}
+
+	@Test
+	public void testToArray() {
+		int[] values = values(new Random(42), 300000, 0.05);
+		IntBitmap bitmap = new IntBitmap(values);
+		assertEquals(values.length, bitmap.getCardinality());
+		assertArrayEquals(values, bitmap.toArray());
+		assertArrayEquals(new int[0], new IntBitmap(new int[0]).toArray());
+	}
+
+	@Test
+	public void testContains() {
+		IntBitmap bitmap = new IntBitmap(new int[] { 0, 3, 65535, 65536,
+				1 << 30 });
+		assertTrue(bitmap.contains(0));
+		assertTrue(bitmap.contains(65535));
+		assertTrue(bitmap.contains(65536));
+		assertTrue(bitmap.contains(1 << 30));
+		assertFalse(bitmap.contains(1));
+		assertFalse(bitmap.contains(65537));
+	}
+
+	@Test
+	public void testIntersectionSize() {
+		Random random = new Random(7);
+		int[] a = values(random, 300000, 0.1);
+		int[] b = values(random, 300000, 0.01);
+		int[] c = values(random, 300000, 0.001);
+		IntBitmap ba = new IntBitmap(a);
+		IntBitmap bb = new IntBitmap(b);
+		assertEquals(intersectionSize(a, b), ba.intersectionSize(bb));
+		assertEquals(intersectionSize(a, b), bb.intersectionSize(ba));
+		assertEquals(intersectionSize(a, c), ba.intersectionSize(c));
+		assertEquals(intersectionSize(b, c), bb.intersectionSize(c));
+		assertEquals(c.length, new IntBitmap(c).intersectionSize(c));
+		assertEquals(0, ba.intersectionSize(new int[0]));
+	}
+
+}
@@ -0,0 +1,79 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.graph;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import it.cnr.isti.hpc.dexter.graph.NeighbourSets.Expansion;
+
+import org.junit.Test;
+
+/**
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 13, 2014
+ */
+public class NeighbourSetsTest {
+
+	/** 0 -> 1 2 3, 1 -> 2 3 4, 2 -> 5, 3 -> 5 6, 4 -> 7 */
+	NodeStar graph = new NodeStar() {
+		int[][] edges = new int[][] { { 1, 2, 3 }, { 2, 3, 4 }, { 5 },
+				{ 5, 6 }, { 7 } };
+
+		public int[] getNeighbours(int id) {
+			return (id < edges.length) ? edges[id] : new int[0];
+		}
+
+		public Node getNode(int id) {
+			return null;
+		}
+
+		public int size() {
+			return edges.length;
+		}
+	};
+
+	@Test
+	public void testSetOperations() {
+		assertArrayEquals(new int[] { 2, 3 },
+				NeighbourSets.intersection(graph, 0, 1));
+		assertArrayEquals(new int[] { 5 },
+				NeighbourSets.intersection(graph, 2, 3));
+		assertEquals(0, NeighbourSets.intersection(graph, 0, 1, 4).length);
+		assertArrayEquals(new int[] { 1, 2, 3, 4, 5, 6 },
+				NeighbourSets.union(graph, 0, 1, 3));
+		assertArrayEquals(new int[] { 1 },
+				NeighbourSets.difference(graph, 0, 1));
+		assertArrayEquals(new int[] { 4 },
+				NeighbourSets.difference(graph, 1, 0, 2));
+	}
+
+	@Test
+	public void testExpand() {
+		Expansion e = NeighbourSets.expand(graph, new int[] { 0 }, 2, 100);
+		assertArrayEquals(new int[] { 1, 2, 3, 4, 5, 6 }, e.getNodes());
+		assertEquals(2, e.getHops());
+		assertFalse(e.isTruncated());
+		e = NeighbourSets.expand(graph, new int[] { 0 }, 5, 100);
+		assertArrayEquals(new int[] { 1, 2, 3, 4, 5, 6, 7 }, e.getNodes());
+		e = NeighbourSets.expand(graph, new int[] { 0 }, 2, 2);
+		assertArrayEquals(new int[] { 1, 2 }, e.getNodes());
+		assertTrue(e.isTruncated());
+	}
+
+}
@@ -0,0 +1,88 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.graph;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import it.cnr.isti.hpc.dexter.graph.Neighbourhood.Order;
+
+import org.junit.Test;
+
+/**
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 13, 2014
+ */
+public class NeighbourhoodTest {
+
+	/** node i has i % 5 in-links */
+	NodeStar degrees = new NodeStar() {
+
+		public int[] getNeighbours(int id) {
+			return new int[id % 5];
+		}
+
+		public Node getNode(int id) {
+			return null;
+		}
+
+		public int size() {
+			return 0;
+		}
+	};
+
+	int[] neighbours = new int[] { 8, 3, 9, 1, 4, 7, 2 };
+
+	@Test
+	public void testStored() {
+		assertArrayEquals(neighbours, Neighbourhood.page(neighbours,
+				Order.STORED, degrees, 0, -1));
+		assertArrayEquals(new int[] { 9, 1 },
+				Neighbourhood.page(neighbours, Order.STORED, degrees, 2, 2));
+		assertArrayEquals(new int[] { 2 },
+				Neighbourhood.page(neighbours, Order.STORED, degrees, 6, 10));
+		assertEquals(0,
+				Neighbourhood.page(neighbours, Order.STORED, degrees, 7, 10).length);
+	}
+
+	@Test
+	public void testId() {
+		assertArrayEquals(new int[] { 1, 2, 3, 4, 7, 8, 9 },
+				Neighbourhood.page(neighbours, Order.ID, degrees, 0, -1));
+		assertArrayEquals(new int[] { 4, 7 },
+				Neighbourhood.page(neighbours, Order.ID, degrees, 3, 2));
+	}
+
+	@Test
+	public void testInDegree() {
+		// degrees: 8->3 3->3 9->4 1->1 4->4 7->2 2->2
+		int[] all = new int[] { 4, 9, 3, 8, 2, 7, 1 };
+		assertArrayEquals(all,
+				Neighbourhood.page(neighbours, Order.INDEGREE, degrees, 0, -1));
+		// small pages are selected with the heap
+		assertArrayEquals(new int[] { 4, 9 },
+				Neighbourhood.page(neighbours, Order.INDEGREE, degrees, 0, 2));
+		assertArrayEquals(new int[] { 9, 3 },
+				Neighbourhood.page(neighbours, Order.INDEGREE, degrees, 1, 2));
+	}
+
+	@Test
+	public void testParse() {
+		assertEquals(Order.STORED, Order.parse(null));
+		assertEquals(Order.INDEGREE, Order.parse("indegree"));
+	}
+
+}
@@ -0,0 +1,139 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.label.ram;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import it.cnr.isti.hpc.dexter.label.IdHelper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ * 
+ *         Created on Aug 4, 2014
+ */
+public class RamLabelsTest {
+
+	static String[] labels = new String[] { "Pablo_Picasso", "Pisa",
+			"Pisa_Cathedral", "Albert_Einstein", "Pisa_(disambiguation)",
+			"Citt\u00e0_di_Castello", "Cittadella", "A" };
+	static int[] ids = new int[] { 24176, 23958, 1224, 736, -12, 99, 98, 1 };
+
+	static RamLabelToId labelToId;
+	static RamIdToLabel idToLabel;
+
+	@BeforeClass
+	public static void init() throws IOException {
+		// more labels than a bucket
+		List<String> l = new ArrayList<String>();
+		List<Integer> i = new ArrayList<Integer>();
+		for (int k = 0; k < labels.length; k++) {
+			l.add(labels[k]);
+			i.add(ids[k]);
+		}
+		for (int k = 0; k < 40; k++) {
+			l.add("Pisa_" + k);
+			i.add(100000 + k);
+		}
+		labels = l.toArray(new String[l.size()]);
+		ids = new int[i.size()];
+		for (int k = 0; k < ids.length; k++)
+			ids[k] = i.get(k);
+
+		File l2i = File.createTempFile("dexter-label-to-id", "bin");
+		File i2l = File.createTempFile("dexter-id-to-label", "bin");
+		l2i.deleteOnExit();
+		i2l.deleteOnExit();
+		RamLabelToId.dump(labels, ids, l2i);
+		RamIdToLabel.dump(ids, labels, i2l);
+		labelToId = RamLabelToId.load(l2i);
+		idToLabel = new RamIdToLabel(i2l);
+	}
+
+	@Test
+	public void testLabelToId() {
+		for (int k = 0; k < labels.length; k++) {
+			assertEquals(ids[k], (int) labelToId.getId(labels[k]));
+		}
+		assertEquals(IdHelper.NOID, (int) labelToId.getId("Pisa_Tower"));
+		assertEquals(IdHelper.NOID, (int) labelToId.getId(""));
+		assertEquals(IdHelper.NOID, (int) labelToId.getId(null));
+	}
+
+	@Test
+	public void testIdToLabel() {
+		for (int k = 0; k < labels.length; k++) {
+			assertEquals(labels[k], idToLabel.getLabel(ids[k]));
+		}
+		assertEquals("", idToLabel.getLabel(2));
+		assertEquals("", idToLabel.getLabel(null));
+		assertEquals(labels.length, idToLabel.getIds().size());
+		assertTrue(idToLabel.getIds().contains(-12));
+		assertFalse(idToLabel.getIds().contains(-13));
+	}
+
+	@Test
+	public void testBulkLookup() {
+		// reversed, with duplicates and missing keys
+		int[] keys = new int[ids.length * 2 + 2];
+		List<String> names = new ArrayList<String>();
+		for (int k = 0; k < ids.length; k++) {
+			keys[k] = ids[ids.length - 1 - k];
+			keys[ids.length + k] = ids[k];
+			names.add(labels[ids.length - 1 - k]);
+		}
+		keys[keys.length - 2] = 2;
+		keys[keys.length - 1] = ids[0];
+		names.add("Pisa_Tower");
+		String[] result = idToLabel.getLabels(keys);
+		for (int k = 0; k < ids.length; k++) {
+			assertEquals(labels[ids.length - 1 - k], result[k]);
+			assertEquals(labels[k], result[ids.length + k]);
+		}
+		assertEquals("", result[keys.length - 2]);
+		assertEquals(labels[0], result[keys.length - 1]);
+
+		int[] found = labelToId.getIds(names);
+		for (int k = 0; k < ids.length; k++) {
+			assertEquals(ids[ids.length - 1 - k], found[k]);
+		}
+		assertEquals(IdHelper.NOID, found[ids.length]);
+	}
+
+	@Test
+	public void testLabelIterator() {
+		Iterator<String> iterator = idToLabel.labelIterator();
+		String previous = iterator.next();
+		int n = 1;
+		while (iterator.hasNext()) {
+			String label = iterator.next();
+			assertTrue(previous.compareTo(label) < 0);
+			previous = label;
+			n++;
+		}
+		assertEquals(labels.length, n);
+	}
+
+}
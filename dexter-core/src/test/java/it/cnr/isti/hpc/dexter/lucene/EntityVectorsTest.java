@@ -0,0 +1,123 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.lucene;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+/**
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ * 
+ *         Created on Jul 21, 2014
+ */
+public class EntityVectorsTest {
+
+	static LuceneHelper helper = null;
+	static EntityVectors vectors = null;
+
+	static File luceneDir = Files.createTempDir();
+
+	@BeforeClass
+	public static void init() throws IOException {
+		File wikiIdtToLuceneId = File.createTempFile("dexter-", "tmp");
+		helper = new LuceneHelper(wikiIdtToLuceneId, luceneDir);
+		helper.clearIndex();
+
+		helper.addDocument(1, " diego ceccarelli test test1 test2 and");
+		helper.addDocument(2, " ceccarelli test test1 test2 and ");
+		helper.addDocument(3, " ceccarelli test test1 test2  test3 and");
+		helper.addDocument(4,
+				" diego and ceccarelli test test1 test2 test3 and");
+		helper.addDocument(5,
+				" diego and ceccarelli test test1 test2 test3 and");
+		helper.addDocument(6, " pippo pippo pippo pippos");
+		helper.commit();
+		helper.closeWriter();
+		helper = new LuceneHelper(wikiIdtToLuceneId, luceneDir);
+		helper.parseWikiIdToLuceneId();
+		helper.dumpWikiIdToLuceneId();
+
+		File vectorsFile = File.createTempFile("dexter-vectors-", "bin");
+		EntityVectors.dumpEntityVectors(helper,
+				LuceneHelper.LUCENE_ARTICLE_DEFAULT_FIELD, 0, vectorsFile);
+		vectors = new EntityVectors(vectorsFile);
+	}
+
+	@Test
+	public void testVectors() {
+		assertEquals(6, vectors.size());
+		assertTrue(vectors.contains(6));
+		assertFalse(vectors.contains(7));
+		assertEquals(2, vectors.getVectorSize(6));
+		assertEquals(0, vectors.getVectorSize(7));
+	}
+
+	@Test
+	public void testSimilarity() {
+		assertEquals(0, vectors.getCosineSimilarity(1, 6), 0.01);
+		assertEquals(1, vectors.getCosineSimilarity(1, 1), 0.01);
+		assertEquals(0, vectors.getCosineSimilarity(1, 7), 0.01);
+		assertTrue(vectors.getCosineSimilarity(1, 4) > vectors
+				.getCosineSimilarity(1, 3));
+		assertEquals(helper.getCosineSimilarity(1, 4),
+				vectors.getCosineSimilarity(1, 4), 0.01);
+		assertEquals(helper.getCosineSimilarity(2, 3),
+				vectors.getCosineSimilarity(2, 3), 0.01);
+	}
+
+	@Test
+	public void testPrune() {
+		int[] terms = new int[] { 2, 5, 7, 9, 11, 13 };
+		float[] weights = new float[] { 0.1f, 0.9f, 0.3f, 0.8f, 0.05f, 0.5f };
+		// the heaviest terms are kept, still sorted by term id
+		assertEquals(3, EntityVectors.prune(terms, weights, 6, 3));
+		assertArrayEquals(new int[] { 5, 9, 13 }, Arrays.copyOf(terms, 3));
+		assertEquals(0.9f, weights[0], 0);
+		assertEquals(0.8f, weights[1], 0);
+		assertEquals(0.5f, weights[2], 0);
+
+		// the terms with the same weight are kept in order of term id
+		terms = new int[] { 1, 2, 3, 4, 5 };
+		weights = new float[] { 0.5f, 0.2f, 0.5f, 0.5f, 0.1f };
+		assertEquals(2, EntityVectors.prune(terms, weights, 5, 2));
+		assertArrayEquals(new int[] { 1, 3 }, Arrays.copyOf(terms, 2));
+	}
+
+	@Test
+	public void testMaxTerms() throws IOException {
+		File vectorsFile = File.createTempFile("dexter-vectors-", "bin");
+		vectorsFile.deleteOnExit();
+		EntityVectors.dumpEntityVectors(helper,
+				LuceneHelper.LUCENE_ARTICLE_DEFAULT_FIELD, 2, vectorsFile);
+		EntityVectors pruned = new EntityVectors(vectorsFile);
+		assertEquals(6, pruned.size());
+		assertEquals(2, pruned.getVectorSize(4));
+		assertEquals(2, pruned.getVectorSize(6));
+		assertEquals(1, pruned.getCosineSimilarity(4, 4), 0.01);
+	}
+
+}
@@ -17,13 +17,29 @@ package it.cnr.isti.hpc.dexter.lucene;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import it.cnr.isti.hpc.dexter.common.Field;
+import it.cnr.isti.hpc.dexter.entity.Entity;
+import it.cnr.isti.hpc.dexter.entity.EntityMatch;
+import it.cnr.isti.hpc.dexter.entity.EntityRanker;
+import it.cnr.isti.hpc.dexter.spot.Spot;
+import it.cnr.isti.hpc.dexter.spot.SpotMatch;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.Version;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
@@ -92,6 +108,67 @@ public class LuceneHelperTest {
 				.getCosineSimilarity(1, 3));
 	}
 
+	@Test
+	public void testBatchSimilarity() throws ParseException {
+		Query q = new QueryParser(Version.LUCENE_41, "content",
+				new StandardAnalyzer(Version.LUCENE_41)).parse("diego test3");
+		float[] scores = helper.getSimilarity(q, new int[] { 1, 6, 4, 99, 1 });
+		assertEquals(5, scores.length);
+		assertTrue(scores[0] > 0);
+		assertEquals(0, scores[1], 0.0001);
+		assertTrue(scores[2] > scores[0]);
+		assertEquals(0, scores[3], 0.0001);
+		assertEquals(scores[0], scores[4], 0.0001);
+	}
+
+	@Test
+	public void testBatchSimilarityExplain() throws ParseException,
+			IOException {
+		Query q = new QueryParser(Version.LUCENE_41, "content",
+				new StandardAnalyzer(Version.LUCENE_41))
+				.parse("diego ceccarelli test3");
+		int[] ids = new int[] { 1, 2, 3, 4, 5, 6 };
+		float[] scores = helper.getSimilarity(q, ids);
+		// the scores of the single query are the scores of lucene for each
+		// article
+		IndexSearcher searcher = helper.getSearcher();
+		for (int i = 0; i < ids.length; i++) {
+			Explanation explanation = searcher.explain(q,
+					helper.getLuceneId(ids[i]));
+			float expected = explanation.isMatch() ? explanation.getValue()
+					: 0;
+			assertEquals(expected, scores[i], 0.0001);
+		}
+		assertEquals(0, scores[5], 0.0001);
+	}
+
+	@Test
+	public void testRankBySimilarity() {
+		Field field = new Field("body",
+				"the paper about diego was written with test3 in mind");
+		List<Entity> entities = new ArrayList<Entity>();
+		entities.add(new Entity(1, 40));
+		entities.add(new Entity(4, 30));
+		entities.add(new Entity(6, 20));
+		entities.add(new Entity(99, 10));
+		SpotMatch spot = new SpotMatch(new Spot("diego", entities, 100, 100));
+
+		EntityRanker ranker = new EntityRanker(field, helper,
+				EntityRanker.DEFAULT_WINDOW_SIZE, 10);
+		Map<Integer, Double> scores = new HashMap<Integer, Double>();
+		for (EntityMatch e : ranker.rank(spot)) {
+			scores.put(e.getId(), e.getScore());
+		}
+		assertEquals(4, scores.size());
+		// the article 4 contains both diego and test3, the article 1 only
+		// diego
+		assertTrue(scores.get(4) > scores.get(1));
+		assertTrue(scores.get(1) > 0.5);
+		// the articles that do not match and the missing articles get 0.5
+		assertEquals(0.5, scores.get(6), 0.0001);
+		assertEquals(0.5, scores.get(99), 0.0001);
+	}
+
 	@Test
 	public void testQuery() {
 		List<Integer> results = helper.query("diego");
@@ -0,0 +1,69 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 7, 2014
+ */
+public class MetricsRegistryTest {
+
+	MetricsRegistry registry = MetricsRegistry.getInstance();
+
+	@Test
+	public void testTimer() {
+		Timer timer = registry.getTimer("test-timer");
+		assertSame(timer, registry.getTimer("test-timer"));
+		timer.reset();
+		for (int i = 1; i <= 100; i++) {
+			// i milliseconds
+			timer.record(i * 1000000L);
+		}
+		assertEquals(100, timer.getCount());
+		assertEquals(50.5, timer.getMean(), 0.001);
+		assertEquals(100, timer.getMax(), 0.001);
+		// percentiles are upper bounds, within a factor of two
+		double median = timer.getPercentile(0.5);
+		assertTrue(median >= 50 && median <= 100);
+		assertEquals(100, timer.getPercentile(1), 0.001);
+	}
+
+	@Test
+	public void testCacheCounter() {
+		CacheCounter counter = registry.getCacheCounter("test-cache");
+		counter.reset();
+		counter.hit();
+		counter.hit();
+		counter.hit();
+		counter.miss();
+		assertEquals(0.75, counter.getHitRatio(), 0.001);
+		Map<String, Map<String, Double>> snapshot = registry.snapshot();
+		assertEquals(3,
+				snapshot.get("cache.test-cache").get("hits").intValue());
+		assertEquals(1, snapshot.get("cache.test-cache").get("misses")
+				.intValue());
+	}
+
+}
@@ -0,0 +1,115 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.relatedness;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import it.cnr.isti.hpc.dexter.graph.Node;
+import it.cnr.isti.hpc.dexter.graph.NodeStar;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 15, 2014
+ */
+public class MinHashSketchesTest {
+
+	/**
+	 * entity 1 is linked by 0..5999, entity 2 by 3000..8999, entity 3 by 0..9
+	 */
+	NodeStar in = new NodeStar() {
+
+		public int[] getNeighbours(int id) {
+			int from = (id == 2) ? 3000 : 0;
+			int size = (id == 3) ? 10 : 6000;
+			int[] links = new int[size];
+			for (int i = 0; i < size; i++) {
+				links[i] = from + i;
+			}
+			return links;
+		}
+
+		public Node getNode(int id) {
+			return null;
+		}
+
+		public int size() {
+			return 3;
+		}
+	};
+
+	@Test
+	public void testEstimate() throws IOException {
+		File file = File.createTempFile("sketches", ".bin");
+		file.deleteOnExit();
+		MinHashSketches.dump(new int[] { 3, 2, 1 }, in, 128, 100, file);
+		MinHashSketches sketches = new MinHashSketches(file);
+		try {
+			assertEquals(2, sketches.size());
+			assertEquals(-1, sketches.find(3));
+			long x = sketches.find(1);
+			long y = sketches.find(2);
+			assertTrue(x >= 0 && y >= 0);
+			assertEquals(1.0, sketches.jaccard(x, x), 0.0001);
+			// the intersection contains 3000 links
+			double intersection = MinHashSketches.intersectionSize(
+					sketches.jaccard(x, y), 6000, 6000);
+			assertEquals(3000, intersection, 600);
+		} finally {
+			sketches.close();
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testInvalidFile() throws IOException {
+		File file = File.createTempFile("sketches", ".bin");
+		file.deleteOnExit();
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(new byte[64]);
+		out.close();
+		// a bad model must not stop the server that is reloading it
+		new MinHashSketches(file);
+	}
+
+	@Test
+	public void testDensification() {
+		// sets shorter than k leave most of the bins empty
+		int[] x = new int[10];
+		int[] y = new int[10];
+		for (int i = 0; i < 10; i++) {
+			x[i] = i;
+			y[i] = 10 + i;
+		}
+		short[] sx = MinHashSketches.sketch(x, 128);
+		short[] sy = MinHashSketches.sketch(y, 128);
+		int matches = 0;
+		for (int i = 0; i < 128; i++) {
+			if (sx[i] == sy[i])
+				matches++;
+		}
+		// the empty bins of two disjoint sets do not match
+		assertTrue(matches < 8);
+		assertTrue(Arrays.equals(sx, MinHashSketches.sketch(x, 128)));
+	}
+
+}
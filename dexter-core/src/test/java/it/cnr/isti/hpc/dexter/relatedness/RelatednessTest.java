@@ -37,4 +37,50 @@ public class RelatednessTest {
 		
 	}
 
+	/** a relatedness returning a constant score */
+	static class Constant extends Relatedness {
+		private final double value;
+
+		Constant(double value) {
+			this.value = value;
+		}
+
+		@Override
+		protected double score() {
+			return value;
+		}
+
+		@Override
+		public String getName() {
+			return "constant";
+		}
+
+		@Override
+		public Relatedness copy() {
+			return new Constant(value);
+		}
+	}
+
+	static class Approximate extends Constant {
+		Approximate(double value) {
+			super(value);
+		}
+	}
+
+	@Test
+	public void testCacheByFunction() {
+		Relatedness.clearCache();
+		Relatedness exact = new Constant(0.5);
+		exact.set(1, 2);
+		Relatedness approximate = new Approximate(0.25);
+		approximate.set(1, 2);
+		// same pair and same name, but a different function
+		Assert.assertEquals(0.5, exact.getScore(), 0);
+		Assert.assertEquals(0.25, approximate.getScore(), 0);
+		exact = new Constant(0.75);
+		exact.set(1, 2);
+		// the score of the first function is cached
+		Assert.assertEquals(0.5, exact.getScore(), 0);
+	}
+
 }
@@ -0,0 +1,85 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.relatedness;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import it.cnr.isti.hpc.dexter.graph.Node;
+import it.cnr.isti.hpc.dexter.graph.NodeStar;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+/**
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 15, 2014
+ */
+public class TopRelatedIndexTest {
+
+	static class FakeNodes implements NodeStar {
+		int[][] edges = new int[13][];
+
+		public int[] getNeighbours(int id) {
+			return (id < edges.length && edges[id] != null) ? edges[id]
+					: new int[0];
+		}
+
+		public Node getNode(int id) {
+			return null;
+		}
+
+		public int size() {
+			return 100;
+		}
+	}
+
+	@Test
+	public void testTopRelated() throws IOException {
+		// 1 -> 10 11 12, 2 -> 10 11, 3 -> 12, 4 -> 10
+		FakeNodes out = new FakeNodes();
+		out.edges[1] = new int[] { 10, 11, 12 };
+		out.edges[2] = new int[] { 10, 11 };
+		out.edges[3] = new int[] { 12 };
+		out.edges[4] = new int[] { 10 };
+		FakeNodes in = new FakeNodes();
+		in.edges[10] = new int[] { 1, 2, 4 };
+		in.edges[11] = new int[] { 1, 2 };
+		in.edges[12] = new int[] { 1, 3 };
+
+		File file = File.createTempFile("top-related", ".bin");
+		file.deleteOnExit();
+		TopRelatedIndex.dump(new int[] { 12, 11, 10, 4, 3, 2, 1 }, in, out,
+				2, 2, file);
+		TopRelatedIndex index = new TopRelatedIndex(file);
+		assertEquals(7, index.size());
+		assertArrayEquals(new int[] { 11, 12 }, index.getRelated(10, 10));
+		assertArrayEquals(new int[] { 11 }, index.getRelated(10, 1));
+		assertArrayEquals(new int[] { 11, 10 }, index.getRelated(12, 10));
+		assertArrayEquals(new int[0], index.getRelated(1, 10));
+		assertArrayEquals(new int[0], index.getRelated(5, 10));
+
+		float[] scores = index.getScores(10, 10);
+		double logW = Math.log(100);
+		assertEquals(MilneRelatedness.relatedness(3, 2, 2, logW), scores[0],
+				0.002);
+		assertEquals(MilneRelatedness.relatedness(3, 2, 1, logW), scores[1],
+				0.002);
+	}
+
+}
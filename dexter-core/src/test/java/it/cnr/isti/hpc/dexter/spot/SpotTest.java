@@ -0,0 +1,130 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.spot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import it.cnr.isti.hpc.dexter.entity.Entity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 16, 2014
+ */
+public class SpotTest {
+
+	/** entities sorted by id, as collected by the spot reader */
+	private Spot spot() {
+		List<Entity> entities = new ArrayList<Entity>();
+		entities.add(new Entity(3, 10));
+		entities.add(new Entity(5, 60));
+		entities.add(new Entity(8, 1));
+		entities.add(new Entity(9, 29));
+		return new Spot("john", entities, 100, 1000);
+	}
+
+	@Test
+	public void testFormatV0() {
+		Spot spot = spot();
+		Spot decoded = Spot.fromByteArray("john",
+				spot.toByteArray(Spot.FORMAT_V0), Spot.FORMAT_V0);
+		assertEquals(100, decoded.getLink());
+		assertEquals(1000, decoded.getFrequency());
+		assertEquals(4, decoded.getEntities().size());
+		assertEquals(3, decoded.getEntities().get(0).getId());
+		assertFalse(decoded.isSortedByFrequency());
+		assertEquals(0.6, decoded.getMaxCommonness(), 0.0001);
+		// the threshold is applied to every entity
+		decoded = Spot.fromByteArray("john", spot.toByteArray(Spot.FORMAT_V0),
+				Spot.FORMAT_V0, 0.1);
+		assertEquals(3, decoded.getEntities().size());
+	}
+
+	@Test
+	public void testFormatV1() {
+		Spot spot = spot();
+		byte[] record = spot.toByteArray(Spot.FORMAT_V1);
+		Spot decoded = Spot.fromByteArray("john", record, Spot.FORMAT_V1);
+		assertTrue(decoded.isSortedByFrequency());
+		assertEquals(4, decoded.getEntities().size());
+		int[] ids = new int[] { 5, 9, 3, 8 };
+		for (int i = 0; i < ids.length; i++) {
+			assertEquals(ids[i], decoded.getEntities().get(i).getId());
+		}
+		assertEquals(0.6, decoded.getMaxCommonness(), 0.0001);
+		// the source spot is not modified
+		assertEquals(3, spot.getEntities().get(0).getId());
+
+		decoded = Spot.fromByteArray("john", record, Spot.FORMAT_V1, 0.1);
+		assertEquals(3, decoded.getEntities().size());
+		assertEquals(100, decoded.getLink());
+		decoded = Spot.fromByteArray("john", record, Spot.FORMAT_V1, 0.7);
+		assertTrue(decoded.getEntities().isEmpty());
+		assertNull(Spot.fromByteArray("jack", record, Spot.FORMAT_V1));
+	}
+
+	@Test
+	public void testFormatV2() {
+		Spot spot = spot();
+		byte[] record = spot.toByteArray(Spot.FORMAT_V2);
+		assertTrue(record.length < spot.toByteArray(Spot.FORMAT_V1).length / 2);
+		Spot decoded = Spot.fromByteArray("john", record, Spot.FORMAT_V2);
+		assertTrue(decoded.isSortedByFrequency());
+		assertEquals(100, decoded.getLink());
+		assertEquals(1000, decoded.getFrequency());
+		int[] ids = new int[] { 5, 9, 3, 8 };
+		int[] freqs = new int[] { 60, 29, 10, 1 };
+		assertEquals(4, decoded.getEntities().size());
+		for (int i = 0; i < ids.length; i++) {
+			assertEquals(ids[i], decoded.getEntities().get(i).getId());
+			assertEquals(freqs[i], decoded.getEntities().get(i).getFrequency());
+		}
+		decoded = Spot.fromByteArray("john", record, Spot.FORMAT_V2, 0.1);
+		assertEquals(3, decoded.getEntities().size());
+		decoded = Spot.fromByteArray("john", record, Spot.FORMAT_V2, 0.7);
+		assertTrue(decoded.getEntities().isEmpty());
+		assertNull(Spot.fromByteArray("jack", record, Spot.FORMAT_V2));
+		assertNull(Spot.fromByteArray("joh", record, Spot.FORMAT_V2));
+	}
+
+	@Test
+	public void testFormatV2Utf8() {
+		List<Entity> entities = new ArrayList<Entity>();
+		entities.add(new Entity(123456789, 300));
+		String mention = "citt\u00e0 \u6771\u4eac \ud834\udd1e";
+		Spot spot = new Spot(mention, entities, 1000000, 5000000);
+		byte[] record = spot.toByteArray(Spot.FORMAT_V2);
+		// the record is decoded in place, from a larger array
+		byte[] data = new byte[record.length + 10];
+		System.arraycopy(record, 0, data, 5, record.length);
+		Spot decoded = Spot.fromByteArray(mention, data, 5, record.length,
+				Spot.FORMAT_V2, 0);
+		assertEquals(mention, decoded.getMention());
+		assertEquals(1000000, decoded.getLink());
+		assertEquals(5000000, decoded.getFrequency());
+		assertEquals(123456789, decoded.getEntities().get(0).getId());
+		assertNull(Spot.fromByteArray("citta \u6771\u4eac \ud834\udd1e", data,
+				5, record.length, Spot.FORMAT_V2, 0));
+	}
+
+}
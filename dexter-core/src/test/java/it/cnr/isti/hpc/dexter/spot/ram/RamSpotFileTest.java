@@ -0,0 +1,79 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.spot.ram;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import it.cnr.isti.hpc.dexter.spot.Spot;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 16, 2014
+ */
+public class RamSpotFileTest {
+
+	private static final byte[] DATA = new byte[] { 1, 2, 3, 4 };
+
+	/**
+	 * @return a spot file with a single chunk, and the given version file
+	 *         (none if null)
+	 */
+	private static File spotFile(String version) throws IOException {
+		File file = File.createTempFile("spots", ".bin");
+		// only the chunks are stored, not the file of the old format
+		file.delete();
+		write(new File(file.getAbsolutePath() + ".0"), DATA);
+		if (version != null) {
+			write(new File(file.getAbsolutePath() + ".version"),
+					version.getBytes("US-ASCII"));
+		}
+		return file;
+	}
+
+	private static void write(File file, byte[] data) throws IOException {
+		file.deleteOnExit();
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(data);
+		out.close();
+	}
+
+	@Test
+	public void testVersion() throws IOException {
+		RamSpotFile spots = new RamSpotFile(spotFile("1"));
+		assertEquals(Spot.FORMAT_V1, spots.getVersion());
+		assertTrue(Arrays.equals(DATA, spots.getOffset(0, DATA.length)));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testMissingVersion() throws IOException {
+		// the chunks could be in any format
+		new RamSpotFile(spotFile(null));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testUnknownVersion() throws IOException {
+		new RamSpotFile(spotFile(String.valueOf(Spot.FORMAT_VERSION + 1)));
+	}
+
+}
@@ -0,0 +1,123 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.spotter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import it.cnr.isti.hpc.dexter.common.Field;
+import it.cnr.isti.hpc.dexter.common.MultifieldDocument;
+import it.cnr.isti.hpc.dexter.entity.Entity;
+import it.cnr.isti.hpc.dexter.spot.Spot;
+import it.cnr.isti.hpc.dexter.spot.SpotMatch;
+import it.cnr.isti.hpc.dexter.spot.SpotMatchList;
+import it.cnr.isti.hpc.dexter.util.DexterLocalParams;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 16, 2014
+ */
+public class DictionarySpotterTest {
+
+	/**
+	 * a spotter with a small dictionary, that does not need a model
+	 */
+	DictionarySpotter spotter = new DictionarySpotter() {
+
+		@Override
+		Spot getSpot(String shingleText) {
+			int id = Arrays.asList("dexter", "entity linking", "pisa")
+					.indexOf(shingleText);
+			if (id < 0)
+				return null;
+			List<Entity> entities = new ArrayList<Entity>();
+			entities.add(new Entity(id + 1, 10));
+			return new Spot(shingleText, entities, 10, 20);
+		}
+	};
+
+	private static String longText() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 200; i++) {
+			sb.append("Dexter is an entity linking framework from Pisa. ");
+			sb.append("Sentence ").append(i).append(" is about nothing. ");
+		}
+		return sb.toString();
+	}
+
+	private static List<String> positions(SpotMatchList matches) {
+		List<String> positions = new ArrayList<String>();
+		for (SpotMatch match : matches) {
+			positions.add(match.getMention() + "@" + match.getStart() + "-"
+					+ match.getEnd());
+		}
+		return positions;
+	}
+
+	@Test
+	public void testWindows() {
+		MultifieldDocument doc = new MultifieldDocument();
+		doc.addField(new Field("body", longText()));
+
+		DexterLocalParams whole = new DexterLocalParams();
+		whole.addParam(DictionarySpotter.LONG_DOCUMENT, "1000000");
+		List<String> expected = positions(spotter.match(whole, doc));
+
+		DexterLocalParams windows = new DexterLocalParams();
+		windows.addParam(DictionarySpotter.LONG_DOCUMENT, "100");
+		windows.addParam(DictionarySpotter.WINDOW_SIZE, "500");
+		windows.addParam(DictionarySpotter.WINDOW_OVERLAP, "2");
+		List<String> spotted = positions(spotter.match(windows, doc));
+
+		assertFalse(expected.isEmpty());
+		// the spots in the shared sentences are only added once
+		assertEquals(spotted.size(), new HashSet<String>(spotted).size());
+		Collections.sort(expected);
+		Collections.sort(spotted);
+		assertEquals(expected, spotted);
+	}
+
+	@Test
+	public void testParallelism() {
+		MultifieldDocument doc = new MultifieldDocument();
+		doc.addField(new Field("title", "Dexter, entity linking in Pisa"));
+		doc.addField(new Field("body", longText()));
+		doc.addField(new Field("abstract", "Dexter was developed in Pisa."));
+
+		DexterLocalParams sequential = new DexterLocalParams();
+		sequential.addParam(DictionarySpotter.LONG_DOCUMENT, "1000");
+		sequential.addParam(DictionarySpotter.PARALLELISM, "1");
+		SpotMatchList expected = spotter.match(sequential, doc);
+
+		DexterLocalParams parallel = new DexterLocalParams();
+		parallel.addParam(DictionarySpotter.LONG_DOCUMENT, "1000");
+		parallel.addParam(DictionarySpotter.PARALLELISM, "4");
+		SpotMatchList spotted = spotter.match(parallel, doc);
+
+		assertFalse(expected.isEmpty());
+		assertEquals(expected, spotted);
+		assertEquals(positions(expected), positions(spotted));
+	}
+
+}
@@ -0,0 +1,67 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.synthetic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 9, 2014
+ */
+public class VocabularyTest {
+
+	@Test
+	public void testText() {
+		assertEquals("baba", Vocabulary.text(0));
+		assertEquals("babe", Vocabulary.text(1));
+		assertEquals("baba baba", Vocabulary.text(Vocabulary.WORDS));
+		assertEquals("baba babe", Vocabulary.text(Vocabulary.WORDS + 1));
+		assertEquals("Baba_Babe", Vocabulary.label(Vocabulary.WORDS + 1));
+	}
+
+	@Test
+	public void testUnique() {
+		Set<String> texts = new HashSet<String>();
+		int n = 3 * Vocabulary.WORDS;
+		for (int i = 0; i < n; i++) {
+			assertTrue(texts.add(Vocabulary.text(i)));
+		}
+	}
+
+	@Test
+	public void testZipf() {
+		ZipfSampler sampler = new ZipfSampler(1000, 1.0);
+		Random random = new Random(42);
+		int[] counts = new int[sampler.size()];
+		for (int i = 0; i < 100000; i++) {
+			int rank = sampler.sample(random);
+			assertTrue(rank >= 0 && rank < sampler.size());
+			counts[rank]++;
+		}
+		// p(0) / p(1) = 2
+		assertTrue(counts[0] > counts[1]);
+		assertTrue(counts[1] > counts[100]);
+		assertEquals(2.0, counts[0] / (double) counts[1], 0.2);
+	}
+}
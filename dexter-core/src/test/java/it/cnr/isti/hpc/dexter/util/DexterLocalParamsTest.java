@@ -0,0 +1,102 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import it.cnr.isti.hpc.dexter.disambiguation.TopScoreEntityDisambiguator;
+
+import org.junit.Test;
+
+/**
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 16, 2014
+ */
+public class DexterLocalParamsTest {
+
+	@Test
+	public void testHints() {
+		DexterLocalParams params = new DexterLocalParams();
+		assertEquals(Integer.MAX_VALUE, params.getMaxEntities());
+		assertEquals(0, params.getMinConfidence(), 0);
+
+		params.addParam(DexterLocalParams.MAX_ENTITIES, "5");
+		params.addParam(DexterLocalParams.MIN_CONFIDENCE, "0.3");
+		assertEquals(5, params.getMaxEntities());
+		assertEquals(0.3, params.getMinConfidence(), 0.0001);
+	}
+
+	@Test
+	public void testNoBudget() {
+		DexterLocalParams params = new DexterLocalParams();
+		params.startBudget();
+		assertFalse(params.hasDeadline());
+		assertFalse(params.isExpired());
+		assertEquals(Long.MAX_VALUE, params.getRemainingNanos());
+	}
+
+	@Test
+	public void testBudget() {
+		DexterLocalParams params = new DexterLocalParams();
+		params.addParam(DexterLocalParams.BUDGET, "60000");
+		params.startBudget();
+		long remaining = params.getRemainingNanos();
+		assertTrue(params.hasDeadline());
+		assertFalse(params.isExpired());
+		assertTrue(remaining > 0 && remaining <= 60000 * 1000000L);
+
+		// the deadline does not move when the budget is started again
+		params.startBudget();
+		assertTrue(params.getRemainingNanos() <= remaining);
+
+		params = new DexterLocalParams();
+		params.addParam(DexterLocalParams.BUDGET, "0");
+		assertTrue(params.isExpired());
+		assertTrue(params.getRemainingNanos() <= 0);
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void testInvalidBudget() {
+		DexterLocalParams params = new DexterLocalParams();
+		params.addParam(DexterLocalParams.BUDGET, "1s");
+		params.startBudget();
+	}
+
+	@Test
+	public void testCopy() {
+		DexterLocalParams params = new DexterLocalParams();
+		params.addParam(DexterLocalParams.BUDGET, "0");
+		params.setDisambiguator(new TopScoreEntityDisambiguator());
+		params.startBudget();
+		params.setDegraded(true);
+
+		DexterLocalParams copy = params.copy();
+		assertEquals(params.getParams(), copy.getParams());
+		assertSame(params.getDisambiguator(), copy.getDisambiguator());
+		assertFalse(copy.isDegraded());
+
+		// the budget of the copy is not started yet, and its params are
+		// independent
+		copy.addParam(DexterLocalParams.BUDGET, "60000");
+		assertFalse(copy.isExpired());
+		assertTrue(params.isExpired());
+		assertEquals("0", params.getParam(DexterLocalParams.BUDGET));
+	}
+
+}
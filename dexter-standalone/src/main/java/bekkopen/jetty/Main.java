@@ -52,60 +52,79 @@ public class Main {
 		workPath = System.getProperty("jetty.workDir", null);
 		secret = System.getProperty("jetty.secret",
 				"eb27fb2e61ed603363461b3b4e37e0a0");
+		// the webapp requires the secret to reload the model
+		System.setProperty("jetty.secret", secret);
 	}
 
 	private void start() {
-		// Start a Jetty server with some sensible(?) defaults
 		try {
-			Server srv = new Server();
-			srv.setStopAtShutdown(true);
-
-			// Allow 5 seconds to complete.
-			// Adjust this to fit with your own webapp needs.
-			// Remove this if you wish to shut down immediately (i.e. kill <pid>
-			// or Ctrl+C).
-			srv.setGracefulShutdown(5000);
-
-			// Increase thread pool
-			QueuedThreadPool threadPool = new QueuedThreadPool();
-			threadPool.setMaxThreads(100);
-			srv.setThreadPool(threadPool);
-
-			// Ensure using the non-blocking connector (NIO)
-			Connector connector = new SelectChannelConnector();
-			connector.setPort(port);
-			connector.setMaxIdleTime(30000);
-			srv.setConnectors(new Connector[] { connector });
-
-			// Get the war-file
-			ProtectionDomain protectionDomain = Main.class
-					.getProtectionDomain();
-			String warFile = protectionDomain.getCodeSource().getLocation()
-					.toExternalForm();
-			String currentDir = new File(protectionDomain.getCodeSource()
-					.getLocation().getPath()).getParent();
-
-			// Handle signout/signin in BigIP-cluster
-
-			// Add the warFile (this jar)
-			WebAppContext context = new WebAppContext(warFile, contextPath);
-			context.setServer(srv);
-			resetTempDirectory(context, currentDir);
-
-			// Add the handlers
-			HandlerList handlers = new HandlerList();
-			handlers.addHandler(context);
-			handlers.addHandler(new ShutdownHandler(srv, context, secret));
-			handlers.addHandler(new BigIPNodeHandler(secret));
-			srv.setHandler(handlers);
-
-			srv.start();
-			srv.join();
+			startServer().join();
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
 	}
 
+	/**
+	 * Starts the server, without waiting for it to stop.
+	 * 
+	 * @return the started server
+	 */
+	public Server startServer() throws Exception {
+		// Start a Jetty server with some sensible(?) defaults
+		Server srv = new Server();
+		srv.setStopAtShutdown(true);
+
+		// Allow 5 seconds to complete.
+		// Adjust this to fit with your own webapp needs.
+		// Remove this if you wish to shut down immediately (i.e. kill <pid>
+		// or Ctrl+C).
+		srv.setGracefulShutdown(5000);
+
+		// Increase thread pool
+		QueuedThreadPool threadPool = new QueuedThreadPool();
+		threadPool.setMaxThreads(100);
+		srv.setThreadPool(threadPool);
+
+		// Ensure using the non-blocking connector (NIO)
+		Connector connector = new SelectChannelConnector();
+		connector.setPort(port);
+		connector.setMaxIdleTime(30000);
+		srv.setConnectors(new Connector[] { connector });
+
+		// Get the war-file
+		ProtectionDomain protectionDomain = Main.class
+				.getProtectionDomain();
+		String warFile = protectionDomain.getCodeSource().getLocation()
+				.toExternalForm();
+		String currentDir = new File(protectionDomain.getCodeSource()
+				.getLocation().getPath()).getParent();
+
+		// Handle signout/signin in BigIP-cluster
+
+		// Add the warFile (this jar)
+		WebAppContext context = new WebAppContext(warFile, contextPath);
+		context.setServer(srv);
+		resetTempDirectory(context, currentDir);
+
+		// Add the handlers
+		HandlerList handlers = new HandlerList();
+		handlers.addHandler(context);
+		handlers.addHandler(new ShutdownHandler(srv, context, secret));
+		handlers.addHandler(new BigIPNodeHandler(secret));
+		srv.setHandler(handlers);
+
+		srv.start();
+		return srv;
+	}
+
+	public int getPort() {
+		return port;
+	}
+
+	public String getContextPath() {
+		return contextPath;
+	}
+
 	private void stop() {
 		System.out.println(ShutdownHandler.shutdown(port, secret));
 	}
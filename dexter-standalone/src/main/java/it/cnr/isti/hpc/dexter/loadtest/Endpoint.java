@@ -0,0 +1,187 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A rest endpoint of Dexter, that builds random requests from the corpus of
+ * the load test (for the text endpoints) or from the ids of the entities (for
+ * the relatedness and the graph endpoints).
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 10, 2014
+ */
+public abstract class Endpoint {
+
+	private static final int TIMEOUT = 60000;
+
+	private final String name;
+
+	protected Endpoint(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Sends a request to the endpoint, and reads the whole response.
+	 *
+	 * @param api
+	 *            - the url of the rest api (e.g.,
+	 *            http://localhost:8080/dexter-webapp/api)
+	 * @return the http status of the response
+	 */
+	public abstract int call(String api, Random random) throws IOException;
+
+	/**
+	 * @return the endpoint with the given name (annotate, spot, relatedness or
+	 *         graph)
+	 * @param corpus
+	 *            - the documents to annotate
+	 * @param entities
+	 *            - the max id of the entities used in the requests
+	 */
+	public static Endpoint get(String name, List<String> corpus, int entities) {
+		if ("annotate".equals(name))
+			return new TextEndpoint(name, "/rest/annotate", corpus);
+		if ("spot".equals(name))
+			return new TextEndpoint(name, "/rest/spot", corpus);
+		if ("relatedness".equals(name))
+			return new RelatednessEndpoint(entities);
+		if ("graph".equals(name))
+			return new GraphEndpoint(entities);
+		throw new IllegalArgumentException("unknown endpoint " + name);
+	}
+
+	protected static String encode(String value) {
+		try {
+			return URLEncoder.encode(value, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	protected static int get(String url) throws IOException {
+		HttpURLConnection connection = open(url);
+		return read(connection);
+	}
+
+	protected static int post(String url, String form) throws IOException {
+		HttpURLConnection connection = open(url);
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		connection.setRequestProperty("Content-Type",
+				"application/x-www-form-urlencoded");
+		byte[] body = form.getBytes("UTF-8");
+		connection.setFixedLengthStreamingMode(body.length);
+		OutputStream out = connection.getOutputStream();
+		out.write(body);
+		out.close();
+		return read(connection);
+	}
+
+	private static HttpURLConnection open(String url) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(url)
+				.openConnection();
+		connection.setConnectTimeout(TIMEOUT);
+		connection.setReadTimeout(TIMEOUT);
+		return connection;
+	}
+
+	/**
+	 * Reads (and discards) the response, so that the connection can be
+	 * reused
+	 */
+	private static int read(HttpURLConnection connection) throws IOException {
+		int status = connection.getResponseCode();
+		InputStream in = (status < 400) ? connection.getInputStream()
+				: connection.getErrorStream();
+		if (in != null) {
+			byte[] buffer = new byte[8192];
+			while (in.read(buffer) >= 0)
+				;
+			in.close();
+		}
+		return status;
+	}
+
+	private static class TextEndpoint extends Endpoint {
+
+		private final String path;
+		private final List<String> corpus;
+
+		TextEndpoint(String name, String path, List<String> corpus) {
+			super(name);
+			this.path = path;
+			this.corpus = corpus;
+		}
+
+		@Override
+		public int call(String api, Random random) throws IOException {
+			String text = corpus.get(random.nextInt(corpus.size()));
+			return post(api + path, "text=" + encode(text));
+		}
+	}
+
+	private static class RelatednessEndpoint extends Endpoint {
+
+		private final int entities;
+
+		RelatednessEndpoint(int entities) {
+			super("relatedness");
+			this.entities = entities;
+		}
+
+		@Override
+		public int call(String api, Random random) throws IOException {
+			int e1 = 1 + random.nextInt(entities);
+			int e2 = 1 + random.nextInt(entities);
+			return get(api + "/rest/relatedness?e1=" + e1 + "&e2=" + e2);
+		}
+	}
+
+	private static class GraphEndpoint extends Endpoint {
+
+		private static final String[] PATHS = new String[] {
+				"/graph/get-target-entities", "/graph/get-source-entities" };
+
+		private final int entities;
+
+		GraphEndpoint(int entities) {
+			super("graph");
+			this.entities = entities;
+		}
+
+		@Override
+		public int call(String api, Random random) throws IOException {
+			String path = PATHS[random.nextInt(PATHS.length)];
+			int wid = 1 + random.nextInt(entities);
+			return get(api + path + "?wid=" + wid);
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.loadtest;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Measures the garbage collections of this JVM between two points in time.
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 10, 2014
+ */
+public class GcMonitor {
+
+	private long startCount;
+	private long startTime;
+	private long count;
+	private long time;
+
+	public void start() {
+		startCount = getCollections();
+		startTime = getCollectionTime();
+	}
+
+	public void stop() {
+		count = getCollections() - startCount;
+		time = getCollectionTime() - startTime;
+	}
+
+	/**
+	 * @return the number of collections between start and stop
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the total time spent in collections between start and stop, in
+	 *         milliseconds
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * @return the mean time of a collection, in milliseconds
+	 */
+	public double getMeanPause() {
+		if (count == 0)
+			return 0;
+		return time / (double) count;
+	}
+
+	private static long getCollections() {
+		long n = 0;
+		for (GarbageCollectorMXBean gc : getCollectors()) {
+			n += Math.max(0, gc.getCollectionCount());
+		}
+		return n;
+	}
+
+	private static long getCollectionTime() {
+		long t = 0;
+		for (GarbageCollectorMXBean gc : getCollectors()) {
+			t += Math.max(0, gc.getCollectionTime());
+		}
+		return t;
+	}
+
+	private static List<GarbageCollectorMXBean> getCollectors() {
+		return ManagementFactory.getGarbageCollectorMXBeans();
+	}
+}
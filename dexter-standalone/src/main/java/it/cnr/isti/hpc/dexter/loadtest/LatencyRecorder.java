@@ -0,0 +1,89 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Records the latency of each request sent to an endpoint (all the latencies
+ * are kept, so that the percentiles are exact), and the number of errors.
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 10, 2014
+ */
+public class LatencyRecorder {
+
+	private final String name;
+	private long[] latencies = new long[1024];
+	private int size = 0;
+	private int errors = 0;
+
+	public LatencyRecorder(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Records a request
+	 *
+	 * @param nanos
+	 *            - the time from the scheduled start of the request to the
+	 *            end of the response
+	 * @param error
+	 *            - true if the request failed
+	 */
+	public synchronized void record(long nanos, boolean error) {
+		if (size == latencies.length) {
+			latencies = Arrays.copyOf(latencies, size * 2);
+		}
+		latencies[size++] = nanos;
+		if (error)
+			errors++;
+	}
+
+	public synchronized int getRequests() {
+		return size;
+	}
+
+	public synchronized int getErrors() {
+		return errors;
+	}
+
+	/**
+	 * @return the sorted latencies (in nanoseconds)
+	 */
+	public synchronized long[] getLatencies() {
+		long[] sorted = Arrays.copyOf(latencies, size);
+		Arrays.sort(sorted);
+		return sorted;
+	}
+
+	/**
+	 * @return the given percentile (between 0 and 1) of the sorted latencies,
+	 *         in milliseconds
+	 */
+	public static double percentile(long[] sorted, double percentile) {
+		if (sorted.length == 0)
+			return 0;
+		int rank = (int) Math.ceil(percentile * sorted.length) - 1;
+		rank = Math.max(0, Math.min(rank, sorted.length - 1));
+		return sorted[rank] / 1000000.0;
+	}
+}
@@ -0,0 +1,335 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.loadtest;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.eclipse.jetty.server.Server;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import bekkopen.jetty.Main;
+
+/**
+ * Replays a corpus of documents against the rest api of Dexter, with an
+ * open-loop arrival of the requests: requests are sent at the scheduled rate
+ * whether or not the previous ones have been answered, and the latency of a
+ * request is measured from its scheduled time (so that the time spent waiting
+ * for a connection is not hidden). At the end it reports, for each endpoint,
+ * the throughput, the percentiles of the latency and the error rate, and the
+ * garbage collections of the JVM.
+ * <p>
+ * If <code>loadtest.url</code> is not given, the embedded Jetty server is
+ * started in the same JVM (configured as in {@link Main}, the model is
+ * selected by the <code>conf</code> property), and the garbage collections
+ * also include the ones of the server. The load test is configured with
+ * system properties:
+ * <ul>
+ * <li>loadtest.corpus - the documents to annotate, one per line (required);</li>
+ * <li>loadtest.url - the url of the rest api of a running server (e.g.,
+ * http://localhost:8080/dexter-webapp/api);</li>
+ * <li>loadtest.rate - the requests per second (default 10);</li>
+ * <li>loadtest.arrivals - poisson or constant (default poisson);</li>
+ * <li>loadtest.duration - the seconds of the test (default 60);</li>
+ * <li>loadtest.warmup - the seconds of warmup, not reported (default 10);</li>
+ * <li>loadtest.mix - the endpoints and their weights (default
+ * annotate:4,spot:2,relatedness:2,graph:2);</li>
+ * <li>loadtest.entities - the max id of the entities requested to the
+ * relatedness and graph endpoints (default 1000);</li>
+ * <li>loadtest.connections - the max number of concurrent requests (default
+ * 200).</li>
+ * </ul>
+ *
+ * <pre>
+ * java -Dconf=model/dexter-conf.xml -Dloadtest.corpus=model/corpus.txt \
+ *     -Dloadtest.rate=50 -cp dexter-2.1.0.jar it.cnr.isti.hpc.dexter.loadtest.LoadTest
+ * </pre>
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 10, 2014
+ */
+public class LoadTest {
+
+	private static final Logger logger = LoggerFactory
+			.getLogger(LoadTest.class);
+
+	private static final String DEFAULT_MIX = "annotate:4,spot:2,relatedness:2,graph:2";
+
+	private final String api;
+	private final double rate;
+	private final boolean poisson;
+	private final List<Endpoint> endpoints;
+	private final int[] weights;
+	private final ExecutorService executor;
+	private final Random random = new Random(42);
+
+	private final Object lock = new Object();
+	private int pending = 0;
+
+	public LoadTest(String api, double rate, boolean poisson,
+			Map<Endpoint, Integer> mix, int connections) {
+		this.api = api;
+		this.rate = rate;
+		this.poisson = poisson;
+		endpoints = new ArrayList<Endpoint>(mix.keySet());
+		weights = new int[endpoints.size()];
+		int sum = 0;
+		for (int i = 0; i < weights.length; i++) {
+			sum += mix.get(endpoints.get(i));
+			weights[i] = sum;
+		}
+		// the queue is unbounded: requests waiting for a connection are late,
+		// not dropped
+		executor = new ThreadPoolExecutor(connections, connections, 0L,
+				TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+	}
+
+	private Endpoint nextEndpoint() {
+		int r = random.nextInt(weights[weights.length - 1]);
+		int i = 0;
+		while (weights[i] <= r)
+			i++;
+		return endpoints.get(i);
+	}
+
+	/**
+	 * @return the nanoseconds before the next request
+	 */
+	private long nextInterval() {
+		double seconds = (poisson) ? -Math.log(1 - random.nextDouble())
+				/ rate : 1 / rate;
+		return (long) (seconds * 1000000000L);
+	}
+
+	/**
+	 * Sends requests for the given time, and waits for their responses.
+	 *
+	 * @return the nanoseconds from the first request to the last response
+	 */
+	public long run(long seconds, Map<Endpoint, LatencyRecorder> recorders) {
+		long start = System.nanoTime();
+		long end = start + TimeUnit.SECONDS.toNanos(seconds);
+		long next = start;
+		while (next < end) {
+			long wait = next - System.nanoTime();
+			if (wait > 0)
+				LockSupport.parkNanos(wait);
+			Endpoint endpoint = nextEndpoint();
+			submit(endpoint, recorders.get(endpoint), next, random.nextLong());
+			next += nextInterval();
+		}
+		synchronized (lock) {
+			while (pending > 0) {
+				try {
+					lock.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+		}
+		return System.nanoTime() - start;
+	}
+
+	private void submit(final Endpoint endpoint,
+			final LatencyRecorder recorder, final long scheduled,
+			final long seed) {
+		synchronized (lock) {
+			pending++;
+		}
+		executor.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				boolean error = true;
+				try {
+					error = endpoint.call(api, new Random(seed)) != 200;
+				} catch (IOException e) {
+					logger.debug("{} failed ({})", endpoint.getName(),
+							e.toString());
+				} finally {
+					recorder.record(System.nanoTime() - scheduled, error);
+					synchronized (lock) {
+						pending--;
+						lock.notifyAll();
+					}
+				}
+			}
+		});
+	}
+
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	/**
+	 * Prints the report of a run
+	 */
+	public void report(Map<Endpoint, LatencyRecorder> recorders, long nanos,
+			GcMonitor gc) {
+		double seconds = nanos / 1000000000.0;
+		System.out.println(String.format(
+				"target rate %.1f req/s (%s arrivals), %.1f s, %s", rate,
+				(poisson) ? "poisson" : "constant", seconds, api));
+		System.out.println(String.format(
+				"%-12s %9s %7s %7s %8s %8s %8s %8s %8s %8s", "endpoint",
+				"requests", "errors", "error%", "req/s", "p50", "p95", "p99",
+				"p999", "max(ms)"));
+		LatencyRecorder all = new LatencyRecorder("all");
+		for (LatencyRecorder recorder : recorders.values()) {
+			print(recorder, seconds);
+			long[] latencies = recorder.getLatencies();
+			int errors = recorder.getErrors();
+			for (int i = 0; i < latencies.length; i++) {
+				all.record(latencies[i], i < errors);
+			}
+		}
+		print(all, seconds);
+		System.out.println(String.format(
+				"gc: %d collections, %d ms total (%.2f%% of the time), "
+						+ "%.1f ms mean pause", gc.getCount(), gc.getTime(),
+				100.0 * gc.getTime() / (seconds * 1000), gc.getMeanPause()));
+	}
+
+	private static void print(LatencyRecorder recorder, double seconds) {
+		long[] latencies = recorder.getLatencies();
+		int requests = latencies.length;
+		int errors = recorder.getErrors();
+		System.out.println(String.format(
+				"%-12s %9d %7d %7.2f %8.1f %8.1f %8.1f %8.1f %8.1f %8.1f",
+				recorder.getName(), requests, errors,
+				(requests == 0) ? 0.0 : 100.0 * errors / requests, requests
+						/ seconds, LatencyRecorder.percentile(latencies, 0.5),
+				LatencyRecorder.percentile(latencies, 0.95),
+				LatencyRecorder.percentile(latencies, 0.99),
+				LatencyRecorder.percentile(latencies, 0.999),
+				LatencyRecorder.percentile(latencies, 1)));
+	}
+
+	private static Map<Endpoint, LatencyRecorder> getRecorders(
+			Map<Endpoint, Integer> mix) {
+		Map<Endpoint, LatencyRecorder> recorders = new LinkedHashMap<Endpoint, LatencyRecorder>();
+		for (Endpoint endpoint : mix.keySet()) {
+			recorders.put(endpoint, new LatencyRecorder(endpoint.getName()));
+		}
+		return recorders;
+	}
+
+	private static Map<Endpoint, Integer> parseMix(String mix,
+			List<String> corpus, int entities) {
+		Map<Endpoint, Integer> endpoints = new LinkedHashMap<Endpoint, Integer>();
+		for (String item : mix.split(",")) {
+			String[] nameWeight = item.trim().split(":");
+			int weight = (nameWeight.length > 1) ? Integer
+					.parseInt(nameWeight[1]) : 1;
+			if (weight > 0) {
+				endpoints.put(Endpoint.get(nameWeight[0], corpus, entities),
+						weight);
+			}
+		}
+		return endpoints;
+	}
+
+	private static List<String> loadCorpus(String file) {
+		List<String> corpus = new ArrayList<String>();
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(
+					new FileInputStream(file), "UTF-8"));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (!line.trim().isEmpty())
+					corpus.add(line);
+			}
+			reader.close();
+		} catch (IOException e) {
+			logger.error("reading the corpus {} ({})", file, e.toString());
+			System.exit(-1);
+		}
+		if (corpus.isEmpty()) {
+			logger.error("the corpus {} is empty", file);
+			System.exit(-1);
+		}
+		return corpus;
+	}
+
+	public static void main(String[] args) throws Exception {
+		String corpusFile = System.getProperty("loadtest.corpus");
+		if (corpusFile == null) {
+			System.out.println("Usage: java -Dloadtest.corpus=<documents> "
+					+ "[-Dloadtest.url=<api>] [-Dloadtest.rate=<req/s>] -cp "
+					+ "<file.jar> " + LoadTest.class.getName());
+			System.exit(-1);
+		}
+		List<String> corpus = loadCorpus(corpusFile);
+		double rate = Double.parseDouble(System.getProperty("loadtest.rate",
+				"10"));
+		boolean poisson = !"constant".equals(System.getProperty(
+				"loadtest.arrivals", "poisson"));
+		long duration = Long.parseLong(System.getProperty("loadtest.duration",
+				"60"));
+		long warmup = Long.parseLong(System.getProperty("loadtest.warmup",
+				"10"));
+		int entities = Integer.parseInt(System.getProperty(
+				"loadtest.entities", "1000"));
+		int connections = Integer.parseInt(System.getProperty(
+				"loadtest.connections", "200"));
+		Map<Endpoint, Integer> mix = parseMix(
+				System.getProperty("loadtest.mix", DEFAULT_MIX), corpus,
+				entities);
+
+		String api = System.getProperty("loadtest.url");
+		Server server = null;
+		if (api == null) {
+			Main main = new Main();
+			server = main.startServer();
+			api = "http://localhost:" + main.getPort() + main.getContextPath()
+					+ "/api";
+			logger.info("started the embedded server, rest api {}", api);
+		}
+
+		LoadTest test = new LoadTest(api, rate, poisson, mix, connections);
+		if (warmup > 0) {
+			logger.info("warming up for {} seconds", warmup);
+			test.run(warmup, getRecorders(mix));
+		}
+		logger.info("running for {} seconds at {} req/s", duration, rate);
+		Map<Endpoint, LatencyRecorder> recorders = getRecorders(mix);
+		GcMonitor gc = new GcMonitor();
+		gc.start();
+		long nanos = test.run(duration, recorders);
+		gc.stop();
+		test.shutdown();
+		test.report(recorders, nanos, gc);
+		if (server != null) {
+			server.stop();
+		}
+		System.exit(0);
+	}
+}
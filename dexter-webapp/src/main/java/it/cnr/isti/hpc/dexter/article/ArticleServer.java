@@ -15,14 +15,16 @@
  */
 package it.cnr.isti.hpc.dexter.article;
 
-import it.cnr.isti.hpc.benchmark.Stopwatch;
 import it.cnr.isti.hpc.dexter.common.ArticleDescription;
-import it.cnr.isti.hpc.dexter.label.IdHelper;
-import it.cnr.isti.hpc.dexter.label.IdHelperFactory;
 import it.cnr.isti.hpc.dexter.lucene.LuceneHelper;
+import it.cnr.isti.hpc.dexter.metrics.MetricsRegistry;
+import it.cnr.isti.hpc.dexter.metrics.Timer;
+import it.cnr.isti.hpc.dexter.util.DexterModel;
+import it.cnr.isti.hpc.dexter.util.DexterParams;
 import it.cnr.isti.hpc.structure.LRUCache;
 import it.cnr.isti.hpc.wikipedia.article.Article;
 
+import java.lang.ref.WeakReference;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -30,7 +32,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Allows to retrieve entity descriptions given the it's wiki-id.
+ * Allows to retrieve entity descriptions given the it's wiki-id. Descriptions
+ * are read from the {@link ArticleDescriptionStore} if it was generated, from
+ * the Lucene index or from the Wikipedia API otherwise. The descriptions are
+ * read from the model used by the request, see
+ * {@link DexterParams#getModel()}, and the caches are emptied when a new model
+ * is activated.
  * 
  * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
  * 
@@ -39,20 +46,43 @@ public class ArticleServer {
 	private static final Logger logger = LoggerFactory
 			.getLogger(ArticleServer.class);
 
-	private LuceneHelper lucene;
+	private static DexterParams params = DexterParams.getInstance();
 
 	private static LRUCache<Query, List<ArticleDescription>> lruCache = new LRUCache<Query, List<ArticleDescription>>(
 			2000);
 	private static LRUCache<Integer, ArticleDescription> cache = new LRUCache<Integer, ArticleDescription>(
 			1000);
-	private final IdHelper idHelper = IdHelperFactory.getStdIdHelper();
-	private final Stopwatch timer = new Stopwatch();
+
+	/**
+	 * the model of the cached descriptions (weak, so that the caches do not
+	 * keep a released model in memory)
+	 */
+	private static WeakReference<DexterModel> cachedModel = new WeakReference<DexterModel>(
+			null);
+	private static final Timer timer = MetricsRegistry.getInstance()
+			.getTimer("article-retrieval");
 
 	public ArticleServer() {
-		if (LuceneHelper.hasDexterLuceneIndex()) {
-			lucene = LuceneHelper.getDexterLuceneHelper();
+	}
 
+	/**
+	 * @return the model used by the request, after emptying the caches if
+	 *         they were filled by a different model
+	 */
+	private static DexterModel getModel() {
+		DexterModel model = params.getModel();
+		synchronized (ArticleServer.class) {
+			if (cachedModel.get() != model) {
+				synchronized (cache) {
+					cache.clear();
+				}
+				synchronized (lruCache) {
+					lruCache.clear();
+				}
+				cachedModel = new WeakReference<DexterModel>(model);
+			}
 		}
+		return model;
 	}
 
 	/**
@@ -62,21 +92,32 @@ public class ArticleServer {
 	 *            - the wiki-id of the entity
 	 */
 	public ArticleDescription get(int id) {
+		DexterModel model = getModel();
 		if (cache.containsKey(id))
 			return cache.get(id);
 		ArticleDescription desc;
 		Article a = new Article();
-		if (lucene != null) {
-			timer.start("retrieve");
+		ArticleDescriptionStore descriptions = model.getArticleDescriptions();
+		LuceneHelper lucene = model.getLuceneHelper();
+		if (descriptions != null) {
+			a = descriptions.get(id);
+			if (a == null) {
+				logger.debug("no description for article {}", id);
+				desc = ArticleDescription.EMPTY;
+			} else {
+				desc = new ArticleDescription(a.getTitle(),
+						a.getTitleInWikistyle(), a.getWid(), a.getSummary());
+			}
+		} else if (lucene != null) {
+			long start = timer.start();
 			a = lucene.getArticleSummary(id);
-			timer.stop("retrieve");
-			logger.info("retrieve {} ", id);
-			logger.info(timer.stat("retrieve"));
+			timer.stop(start);
+			logger.debug("retrieve {} ", id);
 
 			desc = new ArticleDescription(a.getTitle(),
 					a.getTitleInWikistyle(), a.getWid(), a.getSummary());
 		} else {
-			String name = idHelper.getLabel(id);
+			String name = model.getIdHelper().getLabel(id);
 			desc = ArticleDescription.fromWikipediaAPI(name);
 			if (desc == null) {
 				logger.warn(
@@ -102,7 +143,7 @@ public class ArticleServer {
 	 */
 	public ArticleDescription getOnlyEntityLabel(int id) {
 		ArticleDescription desc = new ArticleDescription();
-		String label = idHelper.getLabel(id);
+		String label = getModel().getIdHelper().getLabel(id);
 		desc.setTitle(label);
 		return desc;
 
@@ -110,14 +151,16 @@ public class ArticleServer {
 
 	public List<ArticleDescription> getEntities(String query, String field,
 			int n) {
+		DexterModel model = getModel();
 		Query q = new Query(query, field, n);
-		logger.info("query lucene index: {} hc{}", q, q.hashCode());
+		logger.debug("query lucene index: {} hc{}", q, q.hashCode());
 		if (lruCache.containsKey(q)) {
-			logger.info("cache hit for {} ", q);
+			logger.debug("cache hit for {} ", q);
 			return lruCache.get(q);
 		}
-		List<Integer> entities = lucene.query(query, field, n);
-		logger.info("results: ", entities);
+		List<Integer> entities = model.getLuceneHelper().query(query, field,
+				n);
+		logger.debug("results: {}", entities);
 		List<ArticleDescription> descriptions = new LinkedList<ArticleDescription>();
 		for (Integer entity : entities) {
 			descriptions.add(get(entity));
@@ -127,7 +170,7 @@ public class ArticleServer {
 			lruCache.put(q, descriptions);
 		}
 
-		logger.info("addde to cash {}", q.hashCode());
+		logger.debug("added to cache {}", q.hashCode());
 		return descriptions;
 	}
 
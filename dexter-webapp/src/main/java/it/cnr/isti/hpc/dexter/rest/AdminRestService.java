@@ -0,0 +1,119 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.rest;
+
+import it.cnr.isti.hpc.dexter.util.ModelReloader;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+
+import javax.ws.rs.FormParam;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import com.google.gson.Gson;
+import com.wordnik.swagger.annotations.Api;
+import com.wordnik.swagger.annotations.ApiOperation;
+
+/**
+ * Administration of a running Dexter: replaces the model without restarting
+ * the server (see {@link ModelReloader}). A reload must provide the admin
+ * secret, set with the system property <code>dexter.admin.secret</code> or,
+ * in the standalone server, with <code>jetty.secret</code> (the secret used
+ * to stop the server). Without a secret the reload is disabled. Only the
+ * models under the model root (see {@link ModelReloader#MODEL_ROOT}) can be
+ * loaded.
+ *
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 12, 2014
+ */
+@Path("admin")
+@Api(value = "admin", description = "Dexter Administration")
+public class AdminRestService {
+
+	private static final int STATUS_ACCEPTED = 202;
+	private static final int STATUS_BAD_REQUEST = 400;
+	private static final int STATUS_FORBIDDEN = 403;
+	private static final int STATUS_CONFLICT = 409;
+
+	/**
+	 * System property with the secret required to reload the model
+	 */
+	public static final String ADMIN_SECRET = "dexter.admin.secret";
+	private static final String JETTY_SECRET = "jetty.secret";
+
+	private static Gson gson = new Gson();
+
+	@POST
+	@Path("/reload")
+	@ApiOperation(value = "Loads in background the model in the given folder, warms it replaying the recent queries and then activates it, the requests running on the old model are completed before releasing it. Requires the admin secret, and the folder must be under the model root", response = String.class)
+	@Produces({ MediaType.APPLICATION_JSON })
+	public Response reload(@FormParam("model") String model,
+			@FormParam("secret") String secret) {
+		if (!isAuthorized(secret)) {
+			return Response.status(STATUS_FORBIDDEN)
+					.entity("{\"error\":\"wrong or missing secret\"}").build();
+		}
+		ModelReloader reloader = ModelReloader.getInstance();
+		if (model == null || model.isEmpty()) {
+			return Response.status(STATUS_BAD_REQUEST)
+					.entity("{\"error\":\"model parameter is null\"}").build();
+		}
+		File dir = reloader.resolve(model);
+		if (dir == null) {
+			return Response
+					.status(STATUS_BAD_REQUEST)
+					.entity("{\"error\":\"model must be a folder under the model root\"}")
+					.build();
+		}
+		int status = reloader.reload(dir) ? STATUS_ACCEPTED : STATUS_CONFLICT;
+		return Response.status(status)
+				.entity(gson.toJson(reloader.getStatus())).build();
+	}
+
+	/**
+	 * @return true if the given secret matches the admin secret, false if it
+	 *         does not or if no admin secret is set
+	 */
+	private static boolean isAuthorized(String secret) {
+		String expected = System.getProperty(ADMIN_SECRET,
+				System.getProperty(JETTY_SECRET));
+		if (expected == null || expected.isEmpty() || secret == null)
+			return false;
+		try {
+			// constant time comparison
+			return MessageDigest.isEqual(expected.getBytes("UTF-8"),
+					secret.getBytes("UTF-8"));
+		} catch (UnsupportedEncodingException e) {
+			return false;
+		}
+	}
+
+	@GET
+	@Path("/reload")
+	@ApiOperation(value = "Returns the state of the last reload of the model", response = String.class)
+	@Produces({ MediaType.APPLICATION_JSON })
+	public String getReloadStatus() {
+		return gson.toJson(ModelReloader.getInstance().getStatus());
+	}
+
+}
@@ -15,15 +15,22 @@
  */
 package it.cnr.isti.hpc.dexter.rest;
 
-import it.cnr.isti.hpc.dexter.graph.CategoryNodeFactory;
-import it.cnr.isti.hpc.dexter.graph.EntityCategoryNodeFactory;
-import it.cnr.isti.hpc.dexter.graph.IncomingNodes;
-import it.cnr.isti.hpc.dexter.graph.NodeFactory;
-import it.cnr.isti.hpc.dexter.graph.OutcomingNodes;
+import it.cnr.isti.hpc.dexter.graph.CategoryClosure;
+import it.cnr.isti.hpc.dexter.graph.NeighbourSets;
+import it.cnr.isti.hpc.dexter.graph.NeighbourSets.Expansion;
+import it.cnr.isti.hpc.dexter.graph.Neighbourhood;
+import it.cnr.isti.hpc.dexter.graph.Neighbourhood.Order;
+import it.cnr.isti.hpc.dexter.graph.NodeStar;
+import it.cnr.isti.hpc.dexter.graph.NodeStar.Direction;
 import it.cnr.isti.hpc.dexter.label.IdHelper;
 import it.cnr.isti.hpc.dexter.label.IdHelperFactory;
+import it.cnr.isti.hpc.dexter.util.DexterParams;
 
-import java.util.ArrayList;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.Arrays;
 import java.util.List;
 
 import javax.ws.rs.DefaultValue;
@@ -32,12 +39,14 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
 
 /**
  * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
@@ -48,132 +57,505 @@ import com.google.gson.GsonBuilder;
 @Path("/graph")
 public class GraphRestService {
 
-	private static Gson gson = new GsonBuilder()
-			.serializeSpecialFloatingPointValues().create();
-
 	private static final Logger logger = LoggerFactory
 			.getLogger(GraphRestService.class);
 
-	private static IdHelper helper = IdHelperFactory.getStdIdHelper();
+	private static DexterParams params = DexterParams.getInstance();
+
+	/**
+	 * Header containing the total number of neighbours of a paginated response
+	 */
+	private static final String TOTAL_COUNT = "X-Total-Count";
+
+	/**
+	 * Headers reporting if a k-hop expansion was truncated, and the number of
+	 * hops performed
+	 */
+	private static final String TRUNCATED = "X-Truncated";
+	private static final String HOPS = "X-Hops";
 
+	/** max number of entities in a set operation or expansion */
+	private static final int MAX_NODES = 1000;
+	private static final int MAX_HOPS = 3;
+	private static final int MAX_FRONTIER = 100000;
+
+	/**
+	 * @return the labels of the model used by the current request
+	 */
+	private static IdHelper helper() {
+		IdHelper helper = params.getModel().getIdHelper();
+		return (helper != null) ? helper : IdHelperFactory.getStdIdHelper();
+	}
+
+	/**
+	 * Returns a page of the entities linked by the entity, see
+	 * {@link #neighbours(int[], NodeStar, int, int, String, boolean, boolean)}
+	 */
 	@GET
 	@Path("get-target-entities")
 	@Produces({ MediaType.APPLICATION_JSON })
-	public String getTargetEntities(@QueryParam("wid") String wikiId,
-			@QueryParam("wn") @DefaultValue("false") String asWikiNames) {
-		boolean convert = new Boolean(asWikiNames);
-		int id = Integer.parseInt(wikiId);
-		OutcomingNodes entityOutcomingNodes = NodeFactory
-				.getOutcomingNodes(NodeFactory.STD_TYPE);
-		int[] out = entityOutcomingNodes.getNeighbours(id);
-		if (!convert) {
-			return gson.toJson(out);
-		}
-		List<String> names = new ArrayList<String>(out.length);
-		for (int entity : out) {
-			names.add(helper.getLabel(entity));
+	public Response getTargetEntities(@QueryParam("wid") String wikiId,
+			@QueryParam("wn") @DefaultValue("false") String asWikiNames,
+			@QueryParam("offset") @DefaultValue("0") int offset,
+			@QueryParam("limit") @DefaultValue("-1") int limit,
+			@QueryParam("order") @DefaultValue("stored") String order,
+			@QueryParam("count") @DefaultValue("false") boolean count) {
+		params.acquireModel();
+		try {
+			int id = Integer.parseInt(wikiId);
+			int[] nodes = params.getModel().getOutcomingNodes().getNeighbours(id);
+			return neighbours(nodes, entityInLinks(), offset, limit, order,
+					count, new Boolean(asWikiNames));
+		} finally {
+			params.releaseModel();
 		}
-		return gson.toJson(names);
 	}
 
+	/**
+	 * Returns a page of the entities linking the entity, see
+	 * {@link #neighbours(int[], NodeStar, int, int, String, boolean, boolean)}
+	 */
 	@GET
 	@Path("get-source-entities")
 	@Produces({ MediaType.APPLICATION_JSON })
-	public String getSourceEntities(@QueryParam("wid") String wikiId,
-			@QueryParam("wn") @DefaultValue("false") String asWikiNames) {
-		boolean convert = new Boolean(asWikiNames);
-		int id = Integer.parseInt(wikiId);
-		IncomingNodes entityIncomingNodes = NodeFactory
-				.getIncomingNodes(NodeFactory.STD_TYPE);
-		int[] in = entityIncomingNodes.getNeighbours(id);
-		if (!convert) {
-			return gson.toJson(in);
+	public Response getSourceEntities(@QueryParam("wid") String wikiId,
+			@QueryParam("wn") @DefaultValue("false") String asWikiNames,
+			@QueryParam("offset") @DefaultValue("0") int offset,
+			@QueryParam("limit") @DefaultValue("-1") int limit,
+			@QueryParam("order") @DefaultValue("stored") String order,
+			@QueryParam("count") @DefaultValue("false") boolean count) {
+		params.acquireModel();
+		try {
+			int id = Integer.parseInt(wikiId);
+			int[] nodes = params.getModel().getIncomingNodes().getNeighbours(id);
+			return neighbours(nodes, entityInLinks(), offset, limit, order,
+					count, new Boolean(asWikiNames));
+		} finally {
+			params.releaseModel();
 		}
-		List<String> names = new ArrayList<String>(in.length);
-		for (int entity : in) {
-			names.add(helper.getLabel(entity));
-		}
-		return gson.toJson(names);
 	}
 
+	/**
+	 * Returns a page of the categories of the entity, see
+	 * {@link #neighbours(int[], NodeStar, int, int, String, boolean, boolean)}
+	 */
 	@GET
 	@Path("get-entity-categories")
 	@Produces({ MediaType.APPLICATION_JSON })
-	public String getEntityCategories(@QueryParam("wid") String wikiId,
-			@QueryParam("wn") @DefaultValue("false") String asWikiNames) {
-		boolean convert = new Boolean(asWikiNames);
-		int id = Integer.parseInt(wikiId);
-		OutcomingNodes entityOutcomingNodes = EntityCategoryNodeFactory
-				.getOutcomingNodes(EntityCategoryNodeFactory.STD_TYPE);
-		int[] out = entityOutcomingNodes.getNeighbours(id);
-		if (!convert) {
-			return gson.toJson(out);
-		}
-		List<String> names = new ArrayList<String>(out.length);
-		for (int entity : out) {
-			names.add(helper.getLabel(entity));
+	public Response getEntityCategories(@QueryParam("wid") String wikiId,
+			@QueryParam("wn") @DefaultValue("false") String asWikiNames,
+			@QueryParam("offset") @DefaultValue("0") int offset,
+			@QueryParam("limit") @DefaultValue("-1") int limit,
+			@QueryParam("order") @DefaultValue("stored") String order,
+			@QueryParam("count") @DefaultValue("false") boolean count) {
+		params.acquireModel();
+		try {
+			int id = Integer.parseInt(wikiId);
+			int[] nodes = neighbours(params.getModel()
+					.getOutcomingEntityCategoryNodes(), id);
+			return neighbours(nodes, categorySize(), offset, limit, order,
+					count, new Boolean(asWikiNames));
+		} finally {
+			params.releaseModel();
 		}
-		return gson.toJson(names);
 	}
 
+	/**
+	 * Returns a page of the entities belonging to the category, see
+	 * {@link #neighbours(int[], NodeStar, int, int, String, boolean, boolean)}
+	 */
 	@GET
 	@Path("get-belonging-entities")
 	@Produces({ MediaType.APPLICATION_JSON })
-	public String getBelongingEntities(@QueryParam("wid") String wikiId,
-			@QueryParam("wn") @DefaultValue("false") String asWikiNames) {
-		boolean convert = new Boolean(asWikiNames);
-		int id = Integer.parseInt(wikiId);
-		IncomingNodes entityIncomingNodes = EntityCategoryNodeFactory
-				.getIncomingNodes(EntityCategoryNodeFactory.STD_TYPE);
-		int[] in = entityIncomingNodes.getNeighbours(id);
-		if (!convert) {
-			return gson.toJson(in);
+	public Response getBelongingEntities(@QueryParam("wid") String wikiId,
+			@QueryParam("wn") @DefaultValue("false") String asWikiNames,
+			@QueryParam("offset") @DefaultValue("0") int offset,
+			@QueryParam("limit") @DefaultValue("-1") int limit,
+			@QueryParam("order") @DefaultValue("stored") String order,
+			@QueryParam("count") @DefaultValue("false") boolean count) {
+		params.acquireModel();
+		try {
+			int id = Integer.parseInt(wikiId);
+			int[] nodes = neighbours(params.getModel()
+					.getIncomingEntityCategoryNodes(), id);
+			return neighbours(nodes, entityInLinks(), offset, limit, order,
+					count, new Boolean(asWikiNames));
+		} finally {
+			params.releaseModel();
 		}
-		List<String> names = new ArrayList<String>(in.length);
-		for (int entity : in) {
-			names.add(helper.getLabel(entity));
-		}
-		return gson.toJson(names);
 	}
 
+	/**
+	 * Returns a page of the parent categories of the category, see
+	 * {@link #neighbours(int[], NodeStar, int, int, String, boolean, boolean)}
+	 */
 	@GET
 	@Path("get-parent-categories")
 	@Produces({ MediaType.APPLICATION_JSON })
-	public String getParentCategories(@QueryParam("wid") String wikiId,
-			@QueryParam("wn") @DefaultValue("false") String asWikiNames) {
-		boolean convert = new Boolean(asWikiNames);
-		int id = Integer.parseInt(wikiId);
-		IncomingNodes categoryIncomingNodes = CategoryNodeFactory
-				.getIncomingNodes(CategoryNodeFactory.STD_TYPE);
-		int[] in = categoryIncomingNodes.getNeighbours(id);
-		if (!convert) {
-			return gson.toJson(in);
-		}
-		List<String> names = new ArrayList<String>(in.length);
-		for (int category : in) {
-			names.add(helper.getLabel(category));
+	public Response getParentCategories(@QueryParam("wid") String wikiId,
+			@QueryParam("wn") @DefaultValue("false") String asWikiNames,
+			@QueryParam("offset") @DefaultValue("0") int offset,
+			@QueryParam("limit") @DefaultValue("-1") int limit,
+			@QueryParam("order") @DefaultValue("stored") String order,
+			@QueryParam("count") @DefaultValue("false") boolean count) {
+		params.acquireModel();
+		try {
+			int id = Integer.parseInt(wikiId);
+			int[] nodes = neighbours(params.getModel()
+					.getIncomingCategoryNodes(), id);
+			return neighbours(nodes, categorySize(), offset, limit, order,
+					count, new Boolean(asWikiNames));
+		} finally {
+			params.releaseModel();
 		}
-		return gson.toJson(names);
 	}
 
+	/**
+	 * Returns a page of the child categories of the category, see
+	 * {@link #neighbours(int[], NodeStar, int, int, String, boolean, boolean)}
+	 */
 	@GET
 	@Path("get-child-categories")
 	@Produces({ MediaType.APPLICATION_JSON })
-	public String getChildCategories(@QueryParam("wid") String wikiId,
-			@QueryParam("wn") @DefaultValue("false") String asWikiNames) {
-		boolean convert = new Boolean(asWikiNames);
-		int id = Integer.parseInt(wikiId);
-		OutcomingNodes categoryOutcomingNodes = CategoryNodeFactory
-				.getOutcomingNodes(CategoryNodeFactory.STD_TYPE);
-		int[] out = categoryOutcomingNodes.getNeighbours(id);
-		if (!convert) {
-			return gson.toJson(out);
-		}
-		List<String> names = new ArrayList<String>(out.length);
-		for (int category : out) {
-			names.add(helper.getLabel(category));
-		}
-		return gson.toJson(names);
+	public Response getChildCategories(@QueryParam("wid") String wikiId,
+			@QueryParam("wn") @DefaultValue("false") String asWikiNames,
+			@QueryParam("offset") @DefaultValue("0") int offset,
+			@QueryParam("limit") @DefaultValue("-1") int limit,
+			@QueryParam("order") @DefaultValue("stored") String order,
+			@QueryParam("count") @DefaultValue("false") boolean count) {
+		params.acquireModel();
+		try {
+			int id = Integer.parseInt(wikiId);
+			int[] nodes = neighbours(params.getModel()
+					.getOutcomingCategoryNodes(), id);
+			return neighbours(nodes, categorySize(), offset, limit, order,
+					count, new Boolean(asWikiNames));
+		} finally {
+			params.releaseModel();
+		}
+	}
+
+	/**
+	 * Returns the entities that are neighbours of all the given entities (e.g.,
+	 * with direction=in, the entities linking to all of them), paginated as
+	 * the neighbours of a single entity.
+	 */
+	@GET
+	@Path("intersection")
+	@Produces({ MediaType.APPLICATION_JSON })
+	public Response getIntersection(@QueryParam("wid") List<Integer> ids,
+			@QueryParam("direction") @DefaultValue("in") String direction,
+			@QueryParam("wn") @DefaultValue("false") String asWikiNames,
+			@QueryParam("offset") @DefaultValue("0") int offset,
+			@QueryParam("limit") @DefaultValue("-1") int limit,
+			@QueryParam("order") @DefaultValue("stored") String order,
+			@QueryParam("count") @DefaultValue("false") boolean count) {
+		params.acquireModel();
+		try {
+			NodeStar graph = entityGraph(direction);
+			if (graph == null || ids.isEmpty() || ids.size() > MAX_NODES)
+				return badRequest("expected 1-" + MAX_NODES
+						+ " wid and direction in or out");
+			int[] nodes = NeighbourSets.intersection(graph, toArray(ids));
+			return neighbours(nodes, entityInLinks(), offset, limit, order,
+					count, new Boolean(asWikiNames));
+		} finally {
+			params.releaseModel();
+		}
+	}
+
+	/**
+	 * Returns the entities that are neighbours of at least one of the given
+	 * entities.
+	 */
+	@GET
+	@Path("union")
+	@Produces({ MediaType.APPLICATION_JSON })
+	public Response getUnion(@QueryParam("wid") List<Integer> ids,
+			@QueryParam("direction") @DefaultValue("in") String direction,
+			@QueryParam("wn") @DefaultValue("false") String asWikiNames,
+			@QueryParam("offset") @DefaultValue("0") int offset,
+			@QueryParam("limit") @DefaultValue("-1") int limit,
+			@QueryParam("order") @DefaultValue("stored") String order,
+			@QueryParam("count") @DefaultValue("false") boolean count) {
+		params.acquireModel();
+		try {
+			NodeStar graph = entityGraph(direction);
+			if (graph == null || ids.isEmpty() || ids.size() > MAX_NODES)
+				return badRequest("expected 1-" + MAX_NODES
+						+ " wid and direction in or out");
+			int[] nodes = NeighbourSets.union(graph, toArray(ids));
+			return neighbours(nodes, entityInLinks(), offset, limit, order,
+					count, new Boolean(asWikiNames));
+		} finally {
+			params.releaseModel();
+		}
+	}
+
+	/**
+	 * Returns the neighbours of the first entity that are not neighbours of
+	 * any of the other entities.
+	 */
+	@GET
+	@Path("difference")
+	@Produces({ MediaType.APPLICATION_JSON })
+	public Response getDifference(@QueryParam("wid") List<Integer> ids,
+			@QueryParam("direction") @DefaultValue("in") String direction,
+			@QueryParam("wn") @DefaultValue("false") String asWikiNames,
+			@QueryParam("offset") @DefaultValue("0") int offset,
+			@QueryParam("limit") @DefaultValue("-1") int limit,
+			@QueryParam("order") @DefaultValue("stored") String order,
+			@QueryParam("count") @DefaultValue("false") boolean count) {
+		params.acquireModel();
+		try {
+			NodeStar graph = entityGraph(direction);
+			if (graph == null || ids.isEmpty() || ids.size() > MAX_NODES)
+				return badRequest("expected 1-" + MAX_NODES
+						+ " wid and direction in or out");
+			int[] nodes = NeighbourSets.difference(graph, toArray(ids));
+			return neighbours(nodes, entityInLinks(), offset, limit, order,
+					count, new Boolean(asWikiNames));
+		} finally {
+			params.releaseModel();
+		}
+	}
+
+	/**
+	 * Returns the entities reachable from the given entities in at most hops
+	 * steps, following the links in the given direction. A frontier larger
+	 * than max-frontier is truncated, and the X-Truncated header is set to
+	 * true.
+	 */
+	@GET
+	@Path("expand")
+	@Produces({ MediaType.APPLICATION_JSON })
+	public Response getExpansion(@QueryParam("wid") List<Integer> ids,
+			@QueryParam("direction") @DefaultValue("out") String direction,
+			@QueryParam("hops") @DefaultValue("2") int hops,
+			@QueryParam("max-frontier") @DefaultValue("10000") int maxFrontier,
+			@QueryParam("wn") @DefaultValue("false") String asWikiNames,
+			@QueryParam("offset") @DefaultValue("0") int offset,
+			@QueryParam("limit") @DefaultValue("-1") int limit,
+			@QueryParam("order") @DefaultValue("stored") String order,
+			@QueryParam("count") @DefaultValue("false") boolean count) {
+		params.acquireModel();
+		try {
+			NodeStar graph = entityGraph(direction);
+			if (graph == null || ids.isEmpty() || ids.size() > MAX_NODES)
+				return badRequest("expected 1-" + MAX_NODES
+						+ " wid and direction in or out");
+			if (hops < 1 || hops > MAX_HOPS || maxFrontier < 1
+					|| maxFrontier > MAX_FRONTIER)
+				return badRequest("hops must be in 1-" + MAX_HOPS
+						+ " and max-frontier in 1-" + MAX_FRONTIER);
+			Expansion expansion = NeighbourSets.expand(graph, toArray(ids), hops,
+					maxFrontier);
+			Response response = neighbours(expansion.getNodes(), entityInLinks(),
+					offset, limit, order, count, new Boolean(asWikiNames));
+			return Response.fromResponse(response)
+					.header(TRUNCATED, expansion.isTruncated())
+					.header(HOPS, expansion.getHops()).build();
+		} finally {
+			params.releaseModel();
+		}
+	}
+
+	/**
+	 * Returns the ancestor categories of the entity, up to the depth of the
+	 * precomputed category closure.
+	 */
+	@GET
+	@Path("get-ancestor-categories")
+	@Produces({ MediaType.APPLICATION_JSON })
+	public Response getAncestorCategories(@QueryParam("wid") String wikiId,
+			@QueryParam("wn") @DefaultValue("false") String asWikiNames,
+			@QueryParam("offset") @DefaultValue("0") int offset,
+			@QueryParam("limit") @DefaultValue("-1") int limit,
+			@QueryParam("order") @DefaultValue("stored") String order,
+			@QueryParam("count") @DefaultValue("false") boolean count) {
+		params.acquireModel();
+		try {
+			CategoryClosure closure = params.getModel().getCategoryClosure();
+			if (closure == null)
+				return closureNotIndexed();
+			int id = Integer.parseInt(wikiId);
+			int[] nodes = closure.getAncestors(id);
+			return neighbours(nodes, categorySize(), offset, limit, order,
+					count, new Boolean(asWikiNames));
+		} finally {
+			params.releaseModel();
+		}
+	}
+
+	/**
+	 * Returns the entities in the subtree of the category, i.e., the entities
+	 * having the category among their ancestors.
+	 */
+	@GET
+	@Path("get-subtree-entities")
+	@Produces({ MediaType.APPLICATION_JSON })
+	public Response getSubtreeEntities(@QueryParam("wid") String wikiId,
+			@QueryParam("wn") @DefaultValue("false") String asWikiNames,
+			@QueryParam("offset") @DefaultValue("0") int offset,
+			@QueryParam("limit") @DefaultValue("-1") int limit,
+			@QueryParam("order") @DefaultValue("stored") String order,
+			@QueryParam("count") @DefaultValue("false") boolean count) {
+		params.acquireModel();
+		try {
+			CategoryClosure closure = params.getModel().getCategoryClosure();
+			if (closure == null)
+				return closureNotIndexed();
+			int id = Integer.parseInt(wikiId);
+			int[] nodes = closure.getSubtreeEntities(id);
+			return neighbours(nodes, entityInLinks(), offset, limit, order,
+					count, new Boolean(asWikiNames));
+		} finally {
+			params.releaseModel();
+		}
+	}
+
+	/**
+	 * Given a category and some entities, returns the entities that are in
+	 * the subtree of the category (e.g., to filter the annotations of a
+	 * document by category).
+	 */
+	@GET
+	@Path("filter-by-category")
+	@Produces({ MediaType.APPLICATION_JSON })
+	public Response filterByCategory(@QueryParam("cid") int category,
+			@QueryParam("wid") List<Integer> ids) {
+		params.acquireModel();
+		try {
+			CategoryClosure closure = params.getModel().getCategoryClosure();
+			if (closure == null)
+				return closureNotIndexed();
+			if (ids.size() > MAX_NODES)
+				return badRequest("expected at most " + MAX_NODES + " wid");
+			int[] filtered = new int[ids.size()];
+			int n = 0;
+			for (int id : ids) {
+				if (closure.isAncestor(category, id))
+					filtered[n++] = id;
+			}
+			return neighbours(Arrays.copyOf(filtered, n), null, 0, -1, null,
+					false, false);
+		} finally {
+			params.releaseModel();
+		}
+	}
+
+	private static Response closureNotIndexed() {
+		return Response.status(Status.SERVICE_UNAVAILABLE)
+				.entity("{\"error\":\"category ancestors not indexed\"}")
+				.build();
+	}
+
+	/**
+	 * @return the outcoming (direction out) or incoming (direction in) links
+	 *         of the entities, null if the direction is not valid
+	 */
+	private static NodeStar entityGraph(String direction) {
+		if (Direction.IN.name().equalsIgnoreCase(direction))
+			return params.getModel().getIncomingNodes();
+		if (Direction.OUT.name().equalsIgnoreCase(direction))
+			return params.getModel().getOutcomingNodes();
+		return null;
+	}
+
+	private static int[] toArray(List<Integer> ids) {
+		int[] array = new int[ids.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = ids.get(i);
+		}
+		return array;
+	}
+
+	private static Response badRequest(String msg) {
+		return Response.status(Status.BAD_REQUEST)
+				.entity("{\"error\":\"" + msg + "\"}").build();
+	}
+
+	/**
+	 * @return the graph returning the in-links of each entity, used to order
+	 *         the entities by popularity
+	 */
+	private static NodeStar entityInLinks() {
+		return params.getModel().getIncomingNodes();
+	}
+
+	/**
+	 * @return the graph returning the entities of each category, used to
+	 *         order the categories by size
+	 */
+	private static NodeStar categorySize() {
+		return params.getModel().getIncomingEntityCategoryNodes();
+	}
+
+	/**
+	 * @return the neighbours of the node, none if the graph was not generated
+	 *         for the model
+	 */
+	private static int[] neighbours(NodeStar graph, int id) {
+		return (graph == null) ? new int[0] : graph.getNeighbours(id);
+	}
+
+	/**
+	 * Writes a page of the neighbours of a node directly on the response, as
+	 * a json array of ids (or of labels, if convert is true). Only the labels
+	 * of the page are retrieved. The total number of neighbours is returned in
+	 * the X-Total-Count header.
+	 * 
+	 * @param nodes
+	 *            all the neighbours of the node
+	 * @param degrees
+	 *            the graph used to order the neighbours by in-degree
+	 * @param offset
+	 *            the number of neighbours to skip
+	 * @param limit
+	 *            the max number of neighbours to return, -1 for all
+	 * @param order
+	 *            stored, id or indegree
+	 * @param count
+	 *            if true only the number of neighbours is returned, as
+	 *            {"count":n}
+	 */
+	private Response neighbours(int[] nodes, NodeStar degrees, int offset,
+			int limit, String order, boolean count, boolean convert) {
+		if (count) {
+			return Response.ok("{\"count\":" + nodes.length + "}")
+					.header(TOTAL_COUNT, nodes.length).build();
+		}
+		Order o;
+		try {
+			o = Order.parse(order);
+		} catch (IllegalArgumentException e) {
+			logger.warn("unknown order {}", order);
+			return badRequest("unknown order " + order);
+		}
+		final int[] page = Neighbourhood.page(nodes, o, degrees, offset, limit);
+		final String[] labels = convert ? helper().getLabels(page) : null;
+		StreamingOutput output = new StreamingOutput() {
+
+			@Override
+			public void write(OutputStream os) throws IOException {
+				JsonWriter writer = new JsonWriter(new BufferedWriter(
+						new OutputStreamWriter(os, "UTF-8")));
+				writer.beginArray();
+				if (labels == null) {
+					for (int id : page) {
+						writer.value(id);
+					}
+				} else {
+					for (String label : labels) {
+						writer.value(label);
+					}
+				}
+				writer.endArray();
+				writer.close();
+			}
+		};
+		return Response.ok(output, MediaType.APPLICATION_JSON)
+				.header(TOTAL_COUNT, nodes.length).build();
 	}
 
 }
@@ -22,19 +22,23 @@ import it.cnr.isti.hpc.dexter.common.ArticleDescription;
 import it.cnr.isti.hpc.dexter.common.Field;
 import it.cnr.isti.hpc.dexter.common.FlatDocument;
 import it.cnr.isti.hpc.dexter.common.MultifieldDocument;
+import it.cnr.isti.hpc.dexter.disambiguation.AnytimeDisambiguator;
 import it.cnr.isti.hpc.dexter.disambiguation.Disambiguator;
 import it.cnr.isti.hpc.dexter.entity.Entity;
 import it.cnr.isti.hpc.dexter.entity.EntityMatch;
 import it.cnr.isti.hpc.dexter.entity.EntityMatchList;
-import it.cnr.isti.hpc.dexter.graph.CategoryNodeFactory;
-import it.cnr.isti.hpc.dexter.graph.EntityCategoryNodeFactory;
 import it.cnr.isti.hpc.dexter.graph.IncomingNodes;
-import it.cnr.isti.hpc.dexter.graph.NodeFactory;
+import it.cnr.isti.hpc.dexter.graph.Neighbourhood;
+import it.cnr.isti.hpc.dexter.graph.Neighbourhood.Order;
+import it.cnr.isti.hpc.dexter.graph.NodeStar;
 import it.cnr.isti.hpc.dexter.graph.OutcomingNodes;
 import it.cnr.isti.hpc.dexter.label.IdHelper;
 import it.cnr.isti.hpc.dexter.label.IdHelperFactory;
+import it.cnr.isti.hpc.dexter.metrics.MetricsRegistry;
+import it.cnr.isti.hpc.dexter.metrics.Timer;
 import it.cnr.isti.hpc.dexter.relatedness.Relatedness;
 import it.cnr.isti.hpc.dexter.relatedness.RelatednessFactory;
+import it.cnr.isti.hpc.dexter.relatedness.TopRelatedIndex;
 import it.cnr.isti.hpc.dexter.rest.domain.AnnotatedDocument;
 import it.cnr.isti.hpc.dexter.rest.domain.AnnotatedSpot;
 import it.cnr.isti.hpc.dexter.rest.domain.CandidateEntity;
@@ -49,10 +53,17 @@ import it.cnr.isti.hpc.dexter.spot.SpotMatchList;
 import it.cnr.isti.hpc.dexter.spot.ram.EntityToSpotListMap;
 import it.cnr.isti.hpc.dexter.spotter.Spotter;
 import it.cnr.isti.hpc.dexter.util.DexterLocalParams;
+import it.cnr.isti.hpc.dexter.util.DexterModel;
 import it.cnr.isti.hpc.dexter.util.DexterParams;
+import it.cnr.isti.hpc.dexter.util.ModelReloader;
 import it.cnr.isti.hpc.wikipedia.article.Article;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.net.URLDecoder;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -60,7 +71,15 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Scanner;
-
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.Consumes;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.FormParam;
 import javax.ws.rs.GET;
@@ -72,13 +91,20 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
 import com.sun.jersey.api.representation.Form;
 import com.wordnik.swagger.annotations.Api;
 import com.wordnik.swagger.annotations.ApiOperation;
@@ -93,18 +119,64 @@ import com.wordnik.swagger.annotations.ApiOperation;
 @Api(value = "rest", description = "Dexter Rest Service")
 public class RestService {
 
+	private static final Timer rendering = MetricsRegistry.getInstance()
+			.getTimer(MetricsRegistry.RENDERING);
+
 	private static Gson gson = new GsonBuilder()
 			.serializeSpecialFloatingPointValues().create();
 	private final ArticleServer server = new ArticleServer();
 
 	private final static int STATUS_ERROR = 500;
 
+	private static final String NDJSON = "application/x-ndjson";
+
+	/**
+	 * Error returned when the budget of a request is not a number
+	 */
+	static final String INVALID_BUDGET = "budget must be a number of milliseconds";
+
+	/**
+	 * Local param asking for a streaming response
+	 */
+	private static final String STREAM = "stream";
+
+	/**
+	 * Local param allowing to skip the rendering of the annotated text
+	 */
+	private static final String RENDER = "render";
+
+	/**
+	 * Maximum number of documents in a batch annotation request
+	 */
+	private static final int MAX_BATCH_SIZE = 1000;
+
+	private static final int BATCH_THREADS = Runtime.getRuntime()
+			.availableProcessors();
+
+	/**
+	 * Executor shared by the batch annotation requests, when the queue is full
+	 * the documents are annotated by the thread serving the request.
+	 */
+	private static final ExecutorService batchExecutor = new ThreadPoolExecutor(
+			BATCH_THREADS, BATCH_THREADS, 0L, TimeUnit.MILLISECONDS,
+			new ArrayBlockingQueue<Runnable>(MAX_BATCH_SIZE),
+			new ThreadFactoryBuilder().setNameFormat("annotate-batch-%d")
+					.setDaemon(true).build(),
+			new ThreadPoolExecutor.CallerRunsPolicy());
+
 	public static final DexterParams params = DexterParams.getInstance();
-	public static final IdHelper helper = IdHelperFactory.getStdIdHelper();
 
 	private static final Logger logger = LoggerFactory
 			.getLogger(RestService.class);
 
+	/**
+	 * @return the labels of the model used by the current request
+	 */
+	private static IdHelper helper() {
+		IdHelper helper = params.getModel().getIdHelper();
+		return (helper != null) ? helper : IdHelperFactory.getStdIdHelper();
+	}
+
 	private DexterLocalParams getLocalParams(UriInfo ui) {
 		MultivaluedMap<String, String> queryParams = ui.getQueryParameters();
 		DexterLocalParams params = new DexterLocalParams();
@@ -114,6 +186,20 @@ public class RestService {
 		return params;
 	}
 
+	/**
+	 * Starts the latency budget of the request, if it has one.
+	 * 
+	 * @return false if the budget is not a number of milliseconds
+	 */
+	static boolean startBudget(DexterLocalParams requestParams) {
+		try {
+			requestParams.startBudget();
+			return true;
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
 	private Response error(String msg) {
 		Response r = Response.status(STATUS_ERROR)
 				.entity("{\"error\":\"" + msg + "\"}").build();
@@ -127,7 +213,10 @@ public class RestService {
 
 	/**
 	 * Performs the entity linking on a given text, annotating maximum n
-	 * entities.
+	 * entities. The local param <code>budget</code> sets the latency budget of
+	 * the request in milliseconds: the disambiguators supporting it (e.g.,
+	 * {@link AnytimeDisambiguator}) return an approximate annotation when the
+	 * budget expires, and the meta of the response reports it as degraded.
 	 * 
 	 * @param text
 	 *            the text to annotate
@@ -165,20 +254,67 @@ public class RestService {
 			@QueryParam("rel") @DefaultValue("milnewitten") String rel,
 			@QueryParam("wn") @DefaultValue("false") String wikiNames,
 			@QueryParam("debug") @DefaultValue("false") String dbg) {
-
-		int x = Integer.parseInt(e1);
-		int y = Integer.parseInt(e2);
-		EntityRelatedness relatedness = new EntityRelatedness(x, y, rel);
-		RelatednessFactory rf = new RelatednessFactory(rel);
-		double r = rf.getRelatedness(x, y).getScore();
-		relatedness.setRelatedness(r);
-		boolean addWikinames = new Boolean(wikiNames);
-		if (addWikinames) {
-			relatedness.setEntity1Wikiname(helper.getLabel(x));
-			relatedness.setEntity2Wikiname(helper.getLabel(y));
+		params.acquireModel();
+		try {
+			int x = Integer.parseInt(e1);
+			int y = Integer.parseInt(e2);
+			EntityRelatedness relatedness = new EntityRelatedness(x, y, rel);
+			RelatednessFactory rf = new RelatednessFactory(rel);
+			double r = rf.getRelatedness(x, y).getScore();
+			relatedness.setRelatedness(r);
+			boolean addWikinames = new Boolean(wikiNames);
+			if (addWikinames) {
+				relatedness.setEntity1Wikiname(helper().getLabel(x));
+				relatedness.setEntity2Wikiname(helper().getLabel(y));
+			}
+			return gson.toJson(relatedness);
+		} finally {
+			params.releaseModel();
 		}
-		return gson.toJson(relatedness);
+	}
 
+	@GET
+	@Path("/top-related")
+	@ApiOperation(value = "Returns the k entities most related to the given entity (by Milne-Witten relatedness), sorted by decreasing relatedness. The related entities are computed offline, so k cannot exceed the k of the index", response = EntityRelatedness.class)
+	@Produces({ MediaType.APPLICATION_JSON })
+	public Response topRelated(@QueryParam("id") String wikiId,
+			@QueryParam("k") @DefaultValue("10") int k,
+			@QueryParam("wn") @DefaultValue("false") String wikiNames) {
+		params.acquireModel();
+		try {
+			TopRelatedIndex index = params.getModel().getTopRelatedIndex();
+			if (index == null) {
+				return Response
+						.status(Response.Status.SERVICE_UNAVAILABLE)
+						.entity("{\"error\":\"top related entities not indexed\"}")
+						.build();
+			}
+			int id = Integer.parseInt(wikiId);
+			int[] related = index.getRelated(id, k);
+			float[] scores = index.getScores(id, k);
+			boolean addWikinames = new Boolean(wikiNames);
+			String label = null;
+			String[] labels = null;
+			if (addWikinames) {
+				label = helper().getLabel(id);
+				labels = helper().getLabels(related);
+			}
+			List<EntityRelatedness> list = new ArrayList<EntityRelatedness>(
+					related.length);
+			for (int i = 0; i < related.length; i++) {
+				EntityRelatedness relatedness = new EntityRelatedness(id,
+						related[i], "milnewitten");
+				relatedness.setRelatedness(scores[i]);
+				if (addWikinames) {
+					relatedness.setEntity1Wikiname(label);
+					relatedness.setEntity2Wikiname(labels[i]);
+				}
+				list.add(relatedness);
+			}
+			return ok(list);
+		} finally {
+			params.releaseModel();
+		}
 	}
 
 	private List<Integer> parseEntities(String e) {
@@ -201,39 +337,42 @@ public class RestService {
 			@QueryParam("rel") @DefaultValue("milnewitten") String rel,
 			@QueryParam("wn") @DefaultValue("false") String wikiNames,
 			@QueryParam("debug") @DefaultValue("false") String dbg) {
-
-		List<Integer> e1list = parseEntities(s1candidates);
-		List<Integer> e2list = parseEntities(s2candidates);
-
-		double max = 0;
-		int maxi = -1;
-		int maxj = -1;
-		RelatednessFactory rf = new RelatednessFactory(rel);
-		for (int i = 0; i < e1list.size(); i++) {
-			for (int j = 0; j < e2list.size(); j++) {
-				double r = rf.getRelatedness(e1list.get(i), e2list.get(j))
-						.getScore();
-				if (r > max) {
-					maxi = e1list.get(i);
-					maxj = e2list.get(j);
-					max = r;
+		params.acquireModel();
+		try {
+			List<Integer> e1list = parseEntities(s1candidates);
+			List<Integer> e2list = parseEntities(s2candidates);
+
+			double max = 0;
+			int maxi = -1;
+			int maxj = -1;
+			RelatednessFactory rf = new RelatednessFactory(rel);
+			for (int i = 0; i < e1list.size(); i++) {
+				for (int j = 0; j < e2list.size(); j++) {
+					double r = rf.getRelatedness(e1list.get(i), e2list.get(j))
+							.getScore();
+					if (r > max) {
+						maxi = e1list.get(i);
+						maxj = e2list.get(j);
+						max = r;
+					}
 				}
 			}
-		}
 
-		EntityRelatedness relatedness = new EntityRelatedness(
-				Integer.parseInt(s1id), Integer.parseInt(s2id), rel);
-		relatedness.setRelatedness(max);
+			EntityRelatedness relatedness = new EntityRelatedness(
+					Integer.parseInt(s1id), Integer.parseInt(s2id), rel);
+			relatedness.setRelatedness(max);
 
-		boolean addWikinames = new Boolean(wikiNames);
-		if (addWikinames) {
-			if (maxi > 0)
-				relatedness.setEntity1Wikiname(helper.getLabel(maxi));
-			if (maxj > 0)
-				relatedness.setEntity2Wikiname(helper.getLabel(maxj));
+			boolean addWikinames = new Boolean(wikiNames);
+			if (addWikinames) {
+				if (maxi > 0)
+					relatedness.setEntity1Wikiname(helper().getLabel(maxi));
+				if (maxj > 0)
+					relatedness.setEntity2Wikiname(helper().getLabel(maxj));
+			}
+			return gson.toJson(relatedness);
+		} finally {
+			params.releaseModel();
 		}
-		return gson.toJson(relatedness);
-
 	}
 
 	@POST
@@ -284,17 +423,39 @@ public class RestService {
 		if (text == null) {
 			return error("text parameter is null");
 		}
+		// the budget includes the spotting
+		if (!startBudget(requestParams)) {
+			return error(INVALID_BUDGET);
+		}
+		ModelReloader.getInstance().recordQuery(text);
+		// the request keeps using the same model, even if a new one is
+		// activated in the meanwhile
+		params.acquireModel();
+		try {
+			return annotateText(requestParams, text, n, spotter,
+					disambiguator, wikiNames, dbg, format, minConfidenceStr);
+		} finally {
+			params.releaseModel();
+		}
+	}
 
-		Spotter s = params.getSpotter(spotter);
+	private Response annotateText(DexterLocalParams requestParams,
+			String text, String n, String spotter, String disambiguator,
+			String wikiNames, String dbg, String format,
+			String minConfidenceStr) {
 
+		Spotter s = params.getSpotter(spotter);
 		Disambiguator d = params.getDisambiguator(disambiguator);
-		Tagger tagger = new StandardTagger("std", s, d);
 
 		Boolean debug = new Boolean(dbg);
 		boolean addWikinames = new Boolean(wikiNames);
 
 		Integer entitiesToAnnotate = Integer.parseInt(n);
 		double minConfidence = Double.parseDouble(minConfidenceStr);
+		// hints for the pipeline, the other entities are discarded anyway
+		requestParams.addParam(DexterLocalParams.MAX_ENTITIES, n);
+		requestParams.addParam(DexterLocalParams.MIN_CONFIDENCE,
+				minConfidenceStr);
 		MultifieldDocument doc = null;
 		try {
 			doc = parseDocument(text, format);
@@ -303,8 +464,37 @@ public class RestService {
 			return error(e.getMessage());
 		}
 
-		EntityMatchList eml = tagger.tag(requestParams, doc);
+		if (isStreaming(requestParams)) {
+			return stream(requestParams, doc, s, d, entitiesToAnnotate,
+					addWikinames, debug, format, minConfidence);
+		}
+
+		AnnotatedDocument adoc = annotate(requestParams, doc, s, d,
+				entitiesToAnnotate, addWikinames, debug, format, minConfidence);
+
+		// logger.info("annotate: {}", annotated);
+		return ok(adoc);
+	}
+
+	/**
+	 * @return true if the client asked for a streaming response (local param
+	 *         stream=true)
+	 */
+	private boolean isStreaming(DexterLocalParams requestParams) {
+		return Boolean.parseBoolean(requestParams.getParam(STREAM));
+	}
+
+	/**
+	 * @return false if the client asked to skip the rendering of the annotated
+	 *         text (local param render=false)
+	 */
+	private boolean isRendering(DexterLocalParams requestParams) {
+		return !"false".equals(requestParams.getParam(RENDER));
+	}
 
+	private AnnotatedDocument createAnnotatedDocument(
+			DexterLocalParams requestParams, MultifieldDocument doc,
+			Spotter s, Disambiguator d, boolean debug, String format) {
 		AnnotatedDocument adoc = new AnnotatedDocument(doc);
 
 		if (debug) {
@@ -313,14 +503,310 @@ public class RestService {
 			meta.setSpotter(s.getClass().toString());
 			meta.setFormat(format);
 			meta.setRequestParams(requestParams.getParams());
+			meta.setMetrics(MetricsRegistry.getInstance().snapshot());
 
 			adoc.setMeta(meta);
 
 		}
-		annotate(adoc, eml, entitiesToAnnotate, addWikinames, minConfidence);
+		if (requestParams.isDegraded()) {
+			if (adoc.getMeta() == null)
+				adoc.setMeta(new Tagmeta());
+			adoc.getMeta().setDegraded(true);
+		}
+		return adoc;
+	}
 
-		// logger.info("annotate: {}", annotated);
-		return ok(adoc);
+	private AnnotatedDocument annotate(DexterLocalParams requestParams,
+			MultifieldDocument doc, Spotter s, Disambiguator d,
+			int entitiesToAnnotate, boolean addWikinames, boolean debug,
+			String format, double minConfidence) {
+		Tagger tagger = new StandardTagger("std", s, d);
+		EntityMatchList eml = tagger.tag(requestParams, doc);
+
+		AnnotatedDocument adoc = createAnnotatedDocument(requestParams, doc,
+				s, d, debug, format);
+		annotate(adoc, eml, entitiesToAnnotate, addWikinames, minConfidence,
+				isRendering(requestParams));
+		return adoc;
+	}
+
+	/**
+	 * Annotates a document and writes it with a streaming json writer, the
+	 * response is sent with chunked transfer encoding. The document is tagged
+	 * as a whole, as in a request without streaming (the best n entities and
+	 * the minimum confidence are applied to the whole document, and the
+	 * disambiguation sees the entities of all the fields), but the response is
+	 * never built in memory: the document is flushed before it is annotated,
+	 * then the spots, and then each rendered field as soon as it is rendered.
+	 * 
+	 * The model is retained until the response has been written, since the
+	 * annotation happens after the request method returns.
+	 */
+	private Response stream(final DexterLocalParams requestParams,
+			final MultifieldDocument doc, final Spotter s,
+			final Disambiguator d, final int entitiesToAnnotate,
+			final boolean addWikinames, final boolean debug,
+			final String format, final double minConfidence) {
+		final DexterModel model = params.retainModel();
+		StreamingOutput output = new StreamingOutput() {
+
+			@Override
+			public void write(OutputStream os) throws IOException {
+				params.pinModel(model);
+				try {
+					write(new JsonWriter(new BufferedWriter(
+							new OutputStreamWriter(os, "UTF-8"))));
+				} finally {
+					params.releaseModel();
+					model.release();
+				}
+			}
+
+			private void write(JsonWriter writer) throws IOException {
+				writer.beginObject();
+				writer.name("document");
+				gson.toJson(doc, MultifieldDocument.class, writer);
+				writer.flush();
+
+				Tagger tagger = new StandardTagger("std", s, d);
+				EntityMatchList eml = tagger.tag(requestParams, doc);
+				// the meta is built after tagging, the request could have
+				// been degraded while annotating
+				AnnotatedDocument adoc = createAnnotatedDocument(requestParams,
+						doc, s, d, debug, format);
+				EntityMatchList annotated = annotate(adoc, eml,
+						entitiesToAnnotate, addWikinames, minConfidence, false);
+				writer.name("spots");
+				writer.beginArray();
+				for (AnnotatedSpot spot : adoc.getSpots()) {
+					gson.toJson(spot, AnnotatedSpot.class, writer);
+				}
+				writer.endArray();
+				writer.flush();
+
+				if (isRendering(requestParams)) {
+					writer.name("annotatedDocument");
+					writer.beginObject();
+					writer.name("fields");
+					writer.beginObject();
+					Iterator<Field> iterator = doc.getFields();
+					while (iterator.hasNext()) {
+						Field field = iterator.next();
+						writer.name(field.getName());
+						gson.toJson(new Field(field.getName(), renderField(
+								field, annotated)), Field.class, writer);
+						writer.flush();
+					}
+					writer.endObject();
+					writer.endObject();
+				}
+				if (adoc.getMeta() != null) {
+					writer.name("meta");
+					gson.toJson(adoc.getMeta(), Tagmeta.class, writer);
+				}
+				writer.endObject();
+				writer.close();
+			}
+		};
+		return Response.ok(output, MediaType.APPLICATION_JSON).build();
+	}
+
+	/**
+	 * Writes the annotated documents of a batch as newline delimited json, one
+	 * document at a time, as soon as the document (and all the documents
+	 * before it) are annotated. The response is sent with chunked transfer
+	 * encoding.
+	 * 
+	 * @param model
+	 *            the model used to annotate the documents, released when the
+	 *            last document has been written
+	 */
+	private Response stream(final List<Future<AnnotatedDocument>> futures,
+			final DexterModel model) {
+		StreamingOutput output = new StreamingOutput() {
+
+			@Override
+			public void write(OutputStream os) throws IOException {
+				try {
+					Writer out = new BufferedWriter(new OutputStreamWriter(os,
+							"UTF-8"));
+					for (int i = 0; i < futures.size(); i++) {
+						AnnotatedDocument adoc = getBatchResult(futures.get(i));
+						// release the document once written
+						futures.set(i, null);
+						if (adoc == null) {
+							break;
+						}
+						gson.toJson(adoc, out);
+						out.write('\n');
+						out.flush();
+					}
+					out.close();
+				} finally {
+					model.release();
+				}
+			}
+		};
+		return Response.ok(output, NDJSON).build();
+	}
+
+	/**
+	 * Performs the entity linking on a batch of documents, annotating maximum
+	 * n entities for each document. The documents are annotated in parallel,
+	 * an error annotating a document is reported in the error field of its
+	 * annotated document. If the local param stream is true, the annotated
+	 * documents are streamed as newline delimited json, as soon as they are
+	 * annotated.
+	 * 
+	 * @param body
+	 *            a json array, or a newline delimited list of json values.
+	 *            Each document is either a json string (the text to annotate)
+	 *            or a json multifield document
+	 * @param n
+	 *            the maximum number of entities to annotate in each document
+	 * @returns the annotated documents, in the same order of the input
+	 */
+	@POST
+	@Path("/annotate-batch")
+	@ApiOperation(value = "Annotate a batch of documents with Wikipedia entities", response = AnnotatedDocument.class)
+	@Consumes({ MediaType.APPLICATION_JSON, NDJSON, MediaType.TEXT_PLAIN })
+	@Produces({ MediaType.APPLICATION_JSON, NDJSON })
+	public Response annotateBatch(@Context UriInfo ui, String body,
+			@QueryParam("n") @DefaultValue("50") String n,
+			@QueryParam("spt") String spotter,
+			@QueryParam("dsb") String disambiguator,
+			@QueryParam("wn") @DefaultValue("false") String wikiNames,
+			@QueryParam("debug") @DefaultValue("false") String dbg,
+			@QueryParam("min-conf") @DefaultValue("0.5") String minConfidence) {
+		if (body == null) {
+			return error("no documents to annotate");
+		}
+		List<String> documents = null;
+		try {
+			documents = parseBatch(body);
+		} catch (JsonParseException e) {
+			logger.error("parsing the batch ({})", e.getMessage());
+			return error("cannot parse the batch of documents");
+		}
+		if (documents.size() > MAX_BATCH_SIZE) {
+			return error("too many documents in the batch (max "
+					+ MAX_BATCH_SIZE + ")");
+		}
+		final DexterLocalParams requestParams = getLocalParams(ui);
+		// the budgets of the documents are started later, on copies
+		if (!startBudget(requestParams.copy())) {
+			return error(INVALID_BUDGET);
+		}
+		final Spotter s = params.getSpotter(spotter);
+		final Disambiguator d = params.getDisambiguator(disambiguator);
+		final boolean debug = new Boolean(dbg);
+		final boolean addWikinames = new Boolean(wikiNames);
+		final int entitiesToAnnotate = Integer.parseInt(n);
+		final double minConf = Double.parseDouble(minConfidence);
+		requestParams.addParam(DexterLocalParams.MAX_ENTITIES, n);
+		requestParams.addParam(DexterLocalParams.MIN_CONFIDENCE,
+				minConfidence);
+
+		// all the documents are annotated with the same model, released when
+		// the last document has been annotated
+		final DexterModel model = params.retainModel();
+		List<Future<AnnotatedDocument>> futures = new ArrayList<Future<AnnotatedDocument>>(
+				documents.size());
+		for (final String document : documents) {
+			futures.add(batchExecutor.submit(params.withModel(model,
+					new Callable<AnnotatedDocument>() {
+
+						@Override
+						public AnnotatedDocument call() {
+							MultifieldDocument doc = null;
+							// each document has its own budget
+							DexterLocalParams docParams = requestParams
+									.copy();
+							try {
+								docParams.startBudget();
+								doc = parseBatchDocument(document);
+								return annotate(docParams, doc, s, d,
+										entitiesToAnnotate, addWikinames,
+										debug, Tagmeta.DocumentFormat.JSON
+												.toString(), minConf);
+							} catch (Exception e) {
+								logger.error(
+										"annotating document in batch ({})",
+										e.toString());
+								AnnotatedDocument adoc = new AnnotatedDocument(
+										doc);
+								adoc.setError(e.toString());
+								return adoc;
+							}
+						}
+					})));
+		}
+		if (isStreaming(requestParams)) {
+			return stream(futures, model);
+		}
+		try {
+			List<AnnotatedDocument> annotated = new ArrayList<AnnotatedDocument>(
+					futures.size());
+			for (Future<AnnotatedDocument> future : futures) {
+				AnnotatedDocument adoc = getBatchResult(future);
+				if (adoc == null) {
+					return error("batch annotation interrupted");
+				}
+				annotated.add(adoc);
+			}
+			return ok(annotated);
+		} finally {
+			model.release();
+		}
+	}
+
+	/**
+	 * Waits for the annotation of a document in a batch.
+	 * 
+	 * @return the annotated document, or null if the thread was interrupted
+	 */
+	private AnnotatedDocument getBatchResult(Future<AnnotatedDocument> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException e) {
+			AnnotatedDocument adoc = new AnnotatedDocument(null);
+			adoc.setError(e.getCause().toString());
+			return adoc;
+		}
+	}
+
+	/**
+	 * Splits a batch of documents, given as a json array or as newline
+	 * delimited json, returning the json of each document (documents are
+	 * parsed later, so that an invalid document does not affect the others).
+	 */
+	private List<String> parseBatch(String body) {
+		List<String> documents = new ArrayList<String>();
+		String trimmed = body.trim();
+		if (trimmed.startsWith("[")) {
+			JsonArray array = new JsonParser().parse(trimmed).getAsJsonArray();
+			for (JsonElement element : array) {
+				documents.add(element.toString());
+			}
+			return documents;
+		}
+		for (String line : trimmed.split("\\r?\\n")) {
+			if (!line.trim().isEmpty()) {
+				documents.add(line);
+			}
+		}
+		return documents;
+	}
+
+	private MultifieldDocument parseBatchDocument(String json) {
+		JsonElement element = new JsonParser().parse(json);
+		if (element.isJsonPrimitive()) {
+			return new FlatDocument(element.getAsString());
+		}
+		return gson.fromJson(element, MultifieldDocument.class);
 	}
 
 	public void annotate(AnnotatedDocument adoc, EntityMatchList eml,
@@ -331,6 +817,20 @@ public class RestService {
 
 	public void annotate(AnnotatedDocument adoc, EntityMatchList eml,
 			int nEntities, boolean addWikiNames, double minConfidence) {
+		annotate(adoc, eml, nEntities, addWikiNames, minConfidence, true);
+	}
+
+	/**
+	 * Adds to the annotated document the best n entities with confidence
+	 * greater or equal than minConfidence.
+	 * 
+	 * @param render
+	 *            if true, also renders the annotated text of the document
+	 * @return the annotated entities, sorted by position
+	 */
+	public EntityMatchList annotate(AnnotatedDocument adoc,
+			EntityMatchList eml, int nEntities, boolean addWikiNames,
+			double minConfidence, boolean render) {
 		eml.sort();
 		EntityMatchList emlSub = new EntityMatchList();
 		int size = Math.min(nEntities, eml.size());
@@ -350,76 +850,96 @@ public class RestService {
 							.getFrequency(), em.getId(), em.getFrequency(),
 					em.getCommonness(), em.getScore());
 			spot.setField(em.getSpot().getField().getName());
-			if (addWikiNames) {
-				spot.setWikiname(helper.getLabel(em.getId()));
-			}
-
 			spots.add(spot);
 		}
-		MultifieldDocument annotatedDocument = getAnnotatedDocument(adoc,
-				emlSub);
-		adoc.setAnnotatedDocument(annotatedDocument);
+		if (addWikiNames) {
+			// resolve all the wikinames with a single lookup
+			int[] ids = new int[spots.size()];
+			for (int i = 0; i < ids.length; i++) {
+				ids[i] = spots.get(i).getEntity();
+			}
+			String[] wikinames = helper().getLabels(ids);
+			for (int i = 0; i < ids.length; i++) {
+				spots.get(i).setWikiname(wikinames[i]);
+			}
+		}
+		Collections.sort(emlSub, new EntityMatch.SortByPosition());
+		if (render) {
+			MultifieldDocument annotatedDocument = getAnnotatedDocument(adoc,
+					emlSub);
+			adoc.setAnnotatedDocument(annotatedDocument);
+		}
+		return emlSub;
 	}
 
 	private MultifieldDocument getAnnotatedDocument(AnnotatedDocument adoc,
 			EntityMatchList eml) {
-		Collections.sort(eml, new EntityMatch.SortByPosition());
-
 		Iterator<Field> iterator = adoc.getDocument().getFields();
 		MultifieldDocument annotated = new MultifieldDocument();
 		while (iterator.hasNext()) {
-			int pos = 0;
-			StringBuffer sb = new StringBuffer();
 			Field field = iterator.next();
-			String currentField = field.getName();
-			String currentText = field.getValue();
+			annotated.addField(new Field(field.getName(), renderField(field,
+					eml)));
+		}
 
-			for (EntityMatch em : eml) {
-				if (!em.getSpot().getField().getName().equals(currentField)) {
-					continue;
-				}
-				assert em.getStart() >= 0;
-				assert em.getEnd() >= 0;
-				try {
-					sb.append(currentText.substring(pos, em.getStart()));
-				} catch (java.lang.StringIndexOutOfBoundsException e) {
-					logger.warn(
-							"error annotating text output of bound for range {} - {} ",
-							pos, em.getStart());
-					logger.warn("text: \n\n {}\n\n", currentText);
-				}
-				// the spot has been normalized, i want to retrieve the real one
-				String realSpot = "none";
-				try {
-					realSpot = currentText
-							.substring(em.getStart(), em.getEnd());
-				} catch (java.lang.StringIndexOutOfBoundsException e) {
-					logger.warn(
-							"error annotating text output of bound for range {} - {} ",
-							pos, em.getStart());
-					logger.warn("text: \n\n {}\n\n", currentText);
-				}
-				sb.append(
-						"<a href=\"#\" onmouseover='manage(" + em.getId()
-								+ ")' >").append(realSpot).append("</a>");
-				pos = em.getEnd();
-			}
-			if (pos < currentText.length()) {
-				try {
-					sb.append(currentText.substring(pos));
-				} catch (java.lang.StringIndexOutOfBoundsException e) {
-					logger.warn(
-							"error annotating text output of bound for range {} - end ",
-							pos);
-					logger.warn("text: \n\n {}\n\n", currentText);
-				}
+		return annotated;
+	}
 
+	/**
+	 * Renders the text of a field, adding a link for each annotated entity.
+	 * 
+	 * @param eml
+	 *            the annotated entities, sorted by position
+	 */
+	private String renderField(Field field, EntityMatchList eml) {
+		long start = rendering.start();
+		int pos = 0;
+		StringBuilder sb = new StringBuilder();
+		String currentField = field.getName();
+		String currentText = field.getValue();
+
+		for (EntityMatch em : eml) {
+			if (!em.getSpot().getField().getName().equals(currentField)) {
+				continue;
 			}
-			annotated.addField(new Field(field.getName(), sb.toString()));
-
+			assert em.getStart() >= 0;
+			assert em.getEnd() >= 0;
+			try {
+				sb.append(currentText.substring(pos, em.getStart()));
+			} catch (java.lang.StringIndexOutOfBoundsException e) {
+				logger.warn(
+						"error annotating text output of bound for range {} - {} ",
+						pos, em.getStart());
+				logger.warn("text: \n\n {}\n\n", currentText);
+			}
+			// the spot has been normalized, i want to retrieve the real one
+			String realSpot = "none";
+			try {
+				realSpot = currentText.substring(em.getStart(), em.getEnd());
+			} catch (java.lang.StringIndexOutOfBoundsException e) {
+				logger.warn(
+						"error annotating text output of bound for range {} - {} ",
+						pos, em.getStart());
+				logger.warn("text: \n\n {}\n\n", currentText);
+			}
+			sb.append(
+					"<a href=\"#\" onmouseover='manage(" + em.getId() + ")' >")
+					.append(realSpot).append("</a>");
+			pos = em.getEnd();
 		}
+		if (pos < currentText.length()) {
+			try {
+				sb.append(currentText.substring(pos));
+			} catch (java.lang.StringIndexOutOfBoundsException e) {
+				logger.warn(
+						"error annotating text output of bound for range {} - end ",
+						pos);
+				logger.warn("text: \n\n {}\n\n", currentText);
+			}
 
-		return annotated;
+		}
+		rendering.stop(start);
+		return sb.toString();
 	}
 
 	/**
@@ -443,30 +963,33 @@ public class RestService {
 	public String getDescription(
 			@QueryParam("id") @DefaultValue("11983070") String id,
 			@QueryParam("title-only") @DefaultValue("false") String titleonly) {
+		params.acquireModel();
+		try {
+			int i = Integer.parseInt(id);
+			boolean titleOnly = new Boolean(titleonly);
+			if (titleOnly) {
+				ArticleDescription desc = server.getOnlyEntityLabel(i);
+				desc.setDescription(null);
+				desc.setImage(null);
+				return desc.toJson();
 
-		int i = Integer.parseInt(id);
-		boolean titleOnly = new Boolean(titleonly);
-		if (titleOnly) {
-			ArticleDescription desc = server.getOnlyEntityLabel(i);
-			desc.setDescription(null);
-			desc.setImage(null);
-			return desc.toJson();
-
-		}
+			}
 
-		ArticleDescription desc = server.get(i);
-		if (desc == null) {
-			logger.warn("description for id {} is null ", i);
-			desc = ArticleDescription.EMPTY;
+			ArticleDescription desc = server.get(i);
+			if (desc == null) {
+				logger.warn("description for id {} is null ", i);
+				desc = ArticleDescription.EMPTY;
+			}
+			// desc.setImage("");
+			// desc.setInfobox(new HashMap<String, String>());
+			desc.setId(i);
+			String description = desc.toJson();
+
+			logger.debug("getDescription: {}", description);
+			return description;
+		} finally {
+			params.releaseModel();
 		}
-		// desc.setImage("");
-		// desc.setInfobox(new HashMap<String, String>());
-		desc.setId(i);
-		String description = desc.toJson();
-
-		logger.info("getDescription: {}", description);
-		return description;
-
 	}
 
 	@GET
@@ -475,24 +998,28 @@ public class RestService {
 	@Produces({ MediaType.APPLICATION_JSON })
 	public String getDescription(
 			@QueryParam("title") @DefaultValue("Johnny_Cash") String title) {
+		params.acquireModel();
 		try {
-			title = URLDecoder.decode(title, "UTF-8");
-		} catch (UnsupportedEncodingException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
-		String label = Article.getTitleInWikistyle(title);
-		int id = helper.getId(label);
-
-		ArticleDescription desc = new ArticleDescription();
-		desc.setTitle(label);
-		desc.setId(id);
-		desc.setDescription(null);
-		desc.setImage(null);
-		String description = desc.toJson();
-		logger.info("getId: {}", description);
-		return description;
+			try {
+				title = URLDecoder.decode(title, "UTF-8");
+			} catch (UnsupportedEncodingException e) {
+				// TODO Auto-generated catch block
+				e.printStackTrace();
+			}
+			String label = Article.getTitleInWikistyle(title);
+			int id = helper().getId(label);
 
+			ArticleDescription desc = new ArticleDescription();
+			desc.setTitle(label);
+			desc.setId(id);
+			desc.setDescription(null);
+			desc.setImage(null);
+			String description = desc.toJson();
+			logger.debug("getId: {}", description);
+			return description;
+		} finally {
+			params.releaseModel();
+		}
 	}
 
 	@GET
@@ -503,54 +1030,60 @@ public class RestService {
 			@QueryParam("id") @DefaultValue("11983070") String id,
 			@QueryParam("title") @DefaultValue("Johnny_Cash") String title,
 			@QueryParam("wn") @DefaultValue("false") String wikiNames) {
-		int wid = 0;
-		boolean addWikinames = new Boolean(wikiNames);
-		if (title != null) {
-			String label = Article.getTitleInWikistyle(title);
-			wid = helper.getId(label);
-		}
-		if (id != null) {
-			wid = Integer.parseInt(id);
-		}
-		if (wid == 0) {
-			return "{ \"error\":\"retrieving the spot for the given entity\"}";
-		}
-		EntityToSpotListMap map = EntityToSpotListMap.getInstance();
-		List<Spot> spots = map.getSpots(wid);
-		List<CandidateSpot> cspots = new LinkedList<CandidateSpot>();
-		for (Spot spot : spots) {
-			CandidateSpot s = new CandidateSpot();
-			s.setMention(spot.getMention());
-			s.setLinkProbability(spot.getLinkProbability());
-			s.setLinkFrequency(spot.getLink());
-			s.setDocumentFrequency(spot.getFrequency());
-			List<CandidateEntity> candidates = new ArrayList<CandidateEntity>();
-			boolean found = false;
-			for (Entity entity : spot.getEntities()) {
-				if (entity.getId() == wid)
-					found = true;
-
-				CandidateEntity c = new CandidateEntity(entity.getId(),
-						entity.getFrequency(), spot.getEntityCommonness(entity));
-				if (addWikinames) {
-					c.setWikiname(helper.getLabel(entity.getId()));
+		params.acquireModel();
+		try {
+			int wid = 0;
+			boolean addWikinames = new Boolean(wikiNames);
+			if (title != null) {
+				String label = Article.getTitleInWikistyle(title);
+				wid = helper().getId(label);
+			}
+			if (id != null) {
+				wid = Integer.parseInt(id);
+			}
+			if (wid == 0) {
+				return "{ \"error\":\"retrieving the spot for the given entity\"}";
+			}
+			DexterModel model = params.getModel();
+			EntityToSpotListMap map = model.getEntityToSpots();
+			if (map == null) {
+				return "{ \"error\":\"spots of the entities not indexed\"}";
+			}
+			List<Spot> spots = map.getSpots(wid, model.getSpotRepository());
+			List<CandidateSpot> cspots = new LinkedList<CandidateSpot>();
+			for (Spot spot : spots) {
+				CandidateSpot s = new CandidateSpot();
+				s.setMention(spot.getMention());
+				s.setLinkProbability(spot.getLinkProbability());
+				s.setLinkFrequency(spot.getLink());
+				s.setDocumentFrequency(spot.getFrequency());
+				List<CandidateEntity> candidates = new ArrayList<CandidateEntity>();
+				boolean found = false;
+				for (Entity entity : spot.getEntities()) {
+					if (entity.getId() == wid)
+						found = true;
+
+					CandidateEntity c = new CandidateEntity(entity.getId(),
+							entity.getFrequency(), spot.getEntityCommonness(entity));
+					candidates.add(c);
 				}
-				candidates.add(c);
+				if (!found)
+					continue;
+				Collections.sort(candidates);
+				s.setCandidates(candidates);
+				cspots.add(s);
 			}
-			if (!found)
-				continue;
-			Collections.sort(candidates);
-			s.setCandidates(candidates);
-			cspots.add(s);
-		}
-		EntitySpots entitySpots = new EntitySpots();
-		entitySpots.setEntity(wid);
-		if (addWikinames) {
-			entitySpots.setWikiname(helper.getLabel(wid));
+			EntitySpots entitySpots = new EntitySpots();
+			entitySpots.setEntity(wid);
+			if (addWikinames) {
+				setWikinames(cspots);
+				entitySpots.setWikiname(helper().getLabel(wid));
+			}
+			entitySpots.setSpots(cspots);
+			return gson.toJson(entitySpots);
+		} finally {
+			params.releaseModel();
 		}
-		entitySpots.setSpots(cspots);
-		return gson.toJson(entitySpots);
-
 	}
 
 	/**
@@ -565,6 +1098,16 @@ public class RestService {
 	 */
 	private Response spot(DexterLocalParams requestParams, String text,
 			String spt, String wikiNames, String dbg, String format) {
+		params.acquireModel();
+		try {
+			return spotText(requestParams, text, spt, wikiNames, dbg, format);
+		} finally {
+			params.releaseModel();
+		}
+	}
+
+	private Response spotText(DexterLocalParams requestParams, String text,
+			String spt, String wikiNames, String dbg, String format) {
 		long start = System.currentTimeMillis();
 		Spotter spotter = params.getSpotter(spt);
 		boolean debug = new Boolean(dbg);
@@ -595,9 +1138,6 @@ public class RestService {
 			for (EntityMatch entity : spot.getEntities()) {
 				CandidateEntity c = new CandidateEntity(entity.getId(),
 						entity.getFrequency(), entity.getCommonness());
-				if (addWikinames) {
-					c.setWikiname(helper.getLabel(entity.getId()));
-				}
 				candidates.add(c);
 
 			}
@@ -605,6 +1145,9 @@ public class RestService {
 			s.setCandidates(candidates);
 			spots.add(s);
 		}
+		if (addWikinames) {
+			setWikinames(spots);
+		}
 		SpottedDocument sd = new SpottedDocument(doc, spots, spots.size(),
 				System.currentTimeMillis() - start);
 
@@ -661,19 +1204,24 @@ public class RestService {
 			@QueryParam("field") @DefaultValue("title") String field,
 			@QueryParam("n") @DefaultValue("10") String results,
 			@QueryParam("query") @DefaultValue("johnny cash") String query) {
-		Integer n = Integer.parseInt(results);
-		int status = 500;
-		List<ArticleDescription> rankedArticles = Collections.emptyList();
-		if (n > 0) {
-			rankedArticles = server.getEntities(query, field, n);
+		params.acquireModel();
+		try {
+			Integer n = Integer.parseInt(results);
+			int status = 500;
+			List<ArticleDescription> rankedArticles = Collections.emptyList();
+			if (n > 0) {
+				rankedArticles = server.getEntities(query, field, n);
 
+			}
+			if (rankedArticles.size() > 0) {
+				status = 200;
+			}
+			String json = gson.toJson(rankedArticles);
+			Response r = Response.status(status).entity(json).build();
+			return r;
+		} finally {
+			params.releaseModel();
 		}
-		if (rankedArticles.size() > 0) {
-			status = 200;
-		}
-		String json = gson.toJson(rankedArticles);
-		Response r = Response.status(status).entity(json).build();
-		return r;
 	}
 
 	// graph
@@ -687,66 +1235,193 @@ public class RestService {
 		e.setImage(null);
 		e.setInfobox(null);
 
-		for (int entity : array) {
+		String[] titles = null;
+		if (addWikinames) {
+			titles = helper().getLabels(array);
+			e.setTitle(helper().getLabel(id));
+		} else {
+			e.setTitle(null);
+		}
+		for (int i = 0; i < array.length; i++) {
 			ArticleDescription desc = new ArticleDescription();
-			desc.setId(entity);
+			desc.setId(array[i]);
 			desc.setImage(null);
 			desc.setDescription(null);
 			desc.setInfobox(null);
-			if (addWikinames) {
-				desc.setTitle(helper.getLabel(entity));
-				e.setTitle(helper.getLabel(id));
-			} else {
-				desc.setTitle(null);
-				e.setTitle(null);
-			}
+			desc.setTitle(addWikinames ? titles[i] : null);
 			nodes.add(desc);
 		}
 		return nodes;
 	}
 
+	/**
+	 * Sets the wikinames of all the candidates of the spots, resolving them
+	 * with a single lookup.
+	 */
+	private void setWikinames(List<CandidateSpot> spots) {
+		int size = 0;
+		for (CandidateSpot s : spots) {
+			size += s.getCandidates().size();
+		}
+		int[] ids = new int[size];
+		int i = 0;
+		for (CandidateSpot s : spots) {
+			for (CandidateEntity c : s.getCandidates()) {
+				ids[i++] = c.getEntity();
+			}
+		}
+		String[] wikinames = helper().getLabels(ids);
+		i = 0;
+		for (CandidateSpot s : spots) {
+			for (CandidateEntity c : s.getCandidates()) {
+				c.setWikiname(wikinames[i++]);
+			}
+		}
+	}
+
+	/**
+	 * @return a page of the neighbours of a node, see
+	 *         {@link Neighbourhood#page(int[], Order, NodeStar, int, int)}
+	 */
+	private static int[] page(int[] nodes, NodeStar degrees, int offset,
+			int limit, String order) {
+		return Neighbourhood.page(nodes, Order.parse(order), degrees, offset,
+				limit);
+	}
+
+	private static String count(int count) {
+		return "{\"count\":" + count + "}";
+	}
+
+	/**
+	 * @return the graph returning the in-links of each entity, used to order
+	 *         the entities by popularity
+	 */
+	private static NodeStar entityInLinks() {
+		return params.getModel().getIncomingNodes();
+	}
+
+	/**
+	 * @return the graph returning the entities of each category, used to
+	 *         order the categories by size
+	 */
+	private static NodeStar categorySize() {
+		return params.getModel().getIncomingEntityCategoryNodes();
+	}
+
+	/**
+	 * @return the neighbours of the node, none if the graph was not generated
+	 *         for the model
+	 */
+	private static int[] neighbours(NodeStar graph, int id) {
+		return (graph == null) ? new int[0] : graph.getNeighbours(id);
+	}
+
 	@GET
 	@Path("/get-target-entities")
 	@ApiOperation(value = "Given an entity, returns the entities linked by given entity", response = ArticleDescription.class)
 	@Produces({ MediaType.APPLICATION_JSON })
-	public String getTargetEntities(
+	public Response getTargetEntities(
 			@QueryParam("id") @DefaultValue("11983070") String wikiId,
-			@QueryParam("wn") @DefaultValue("false") String asWikiNames) {
-		boolean addWikinames = new Boolean(asWikiNames);
-
-		ArticleDescription e = new ArticleDescription();
-
-		int id = Integer.parseInt(wikiId);
-
-		if (addWikinames) {
-
+			@QueryParam("wn") @DefaultValue("false") String asWikiNames,
+			@QueryParam("offset") @DefaultValue("0") int offset,
+			@QueryParam("limit") @DefaultValue("-1") int limit,
+			@QueryParam("order") @DefaultValue("stored") String order,
+			@QueryParam("count") @DefaultValue("false") boolean count) {
+		params.acquireModel();
+		try {
+			boolean addWikinames = new Boolean(asWikiNames);
+			int id = Integer.parseInt(wikiId);
+
+			OutcomingNodes entityOutcomingNodes = params.getModel()
+					.getOutcomingNodes();
+			int[] out = entityOutcomingNodes.getNeighbours(id);
+			if (count) {
+				return Response.ok(count(out.length)).build();
+			}
+			out = page(out, entityInLinks(), offset, limit, order);
+			return writeNodes(id, "outcomingEntities", out, addWikinames);
+		} finally {
+			params.releaseModel();
 		}
-		OutcomingNodes entityOutcomingNodes = NodeFactory
-				.getOutcomingNodes(NodeFactory.STD_TYPE);
-		int[] out = entityOutcomingNodes.getNeighbours(id);
-		e.setOutcomingEntities(getNodes(id, e,
-				new ArrayList<ArticleDescription>(out.length), out,
-				addWikinames));
-		return gson.toJson(e);
 	}
 
 	@GET
 	@Path("/get-source-entities")
 	@ApiOperation(value = "Given an entity, returns the entities that link to the given entity", response = ArticleDescription.class)
 	@Produces({ MediaType.APPLICATION_JSON })
-	public String getSourceEntities(
+	public Response getSourceEntities(
 			@QueryParam("id") @DefaultValue("11983070") String wikiId,
-			@QueryParam("wn") @DefaultValue("false") String asWikiNames) {
-		boolean addWikinames = new Boolean(asWikiNames);
-		ArticleDescription e = new ArticleDescription();
-		int id = Integer.parseInt(wikiId);
+			@QueryParam("wn") @DefaultValue("false") String asWikiNames,
+			@QueryParam("offset") @DefaultValue("0") int offset,
+			@QueryParam("limit") @DefaultValue("-1") int limit,
+			@QueryParam("order") @DefaultValue("stored") String order,
+			@QueryParam("count") @DefaultValue("false") boolean count) {
+		params.acquireModel();
+		try {
+			boolean addWikinames = new Boolean(asWikiNames);
+			int id = Integer.parseInt(wikiId);
+
+			IncomingNodes entityIncomingNodes = params.getModel()
+					.getIncomingNodes();
+			int[] in = entityIncomingNodes.getNeighbours(id);
+			if (count) {
+				return Response.ok(count(in.length)).build();
+			}
+			in = page(in, entityInLinks(), offset, limit, order);
+			return writeNodes(id, "incomingEntities", in, addWikinames);
+		} finally {
+			params.releaseModel();
+		}
+	}
 
-		IncomingNodes entityIncomingNodes = NodeFactory
-				.getIncomingNodes(NodeFactory.STD_TYPE);
-		int[] in = entityIncomingNodes.getNeighbours(id);
-		e.setIncomingEntities(getNodes(id, e,
-				new ArrayList<ArticleDescription>(in.length), in, addWikinames));
-		return gson.toJson(e);
+	/**
+	 * Writes the neighbours of an entity directly on the response, as the
+	 * json of an {@link ArticleDescription} with the neighbours in the given
+	 * field, without building the description of each neighbour. The labels
+	 * are retrieved before the response is written, since the model is
+	 * released when the request returns.
+	 * 
+	 * @param field
+	 *            the field of the article description containing the
+	 *            neighbours
+	 */
+	private Response writeNodes(final int id, final String field,
+			final int[] nodes, boolean addWikinames) {
+		final String title = addWikinames ? helper().getLabel(id) : null;
+		final String[] titles = addWikinames ? helper().getLabels(nodes)
+				: null;
+		StreamingOutput output = new StreamingOutput() {
+
+			@Override
+			public void write(OutputStream os) throws IOException {
+				JsonWriter writer = new JsonWriter(new BufferedWriter(
+						new OutputStreamWriter(os, "UTF-8")));
+				// the same json that gson writes for the descriptions
+				// built by getNodes
+				writer.beginObject();
+				writeNode(writer, title, id);
+				writer.name(field).beginArray();
+				for (int i = 0; i < nodes.length; i++) {
+					writer.beginObject();
+					writeNode(writer, (titles == null) ? null : titles[i],
+							nodes[i]);
+					writer.endObject();
+				}
+				writer.endArray();
+				writer.endObject();
+				writer.close();
+			}
+		};
+		return Response.ok(output, MediaType.APPLICATION_JSON).build();
+	}
+
+	private static void writeNode(JsonWriter writer, String title, int id)
+			throws IOException {
+		if (title != null)
+			writer.name("title").value(title);
+		writer.name("url").value("");
+		writer.name("id").value(id);
 	}
 
 	@GET
@@ -755,19 +1430,30 @@ public class RestService {
 	@Produces({ MediaType.APPLICATION_JSON })
 	public String getEntityCategories(
 			@QueryParam("id") @DefaultValue("11983070") String wikiId,
-			@QueryParam("wn") @DefaultValue("false") String asWikiNames) {
-		boolean addWikinames = new Boolean(asWikiNames);
-
-		int id = Integer.parseInt(wikiId);
-		OutcomingNodes entityOutcomingNodes = EntityCategoryNodeFactory
-				.getOutcomingNodes(EntityCategoryNodeFactory.STD_TYPE);
-		int[] out = entityOutcomingNodes.getNeighbours(id);
-		ArticleDescription e = new ArticleDescription();
-		e.setParentCategories(getNodes(id, e,
-				new ArrayList<ArticleDescription>(out.length), out,
-				addWikinames));
-		return gson.toJson(e);
+			@QueryParam("wn") @DefaultValue("false") String asWikiNames,
+			@QueryParam("offset") @DefaultValue("0") int offset,
+			@QueryParam("limit") @DefaultValue("-1") int limit,
+			@QueryParam("order") @DefaultValue("stored") String order,
+			@QueryParam("count") @DefaultValue("false") boolean count) {
+		params.acquireModel();
+		try {
+			boolean addWikinames = new Boolean(asWikiNames);
 
+			int id = Integer.parseInt(wikiId);
+			int[] out = neighbours(params.getModel()
+					.getOutcomingEntityCategoryNodes(), id);
+			if (count) {
+				return count(out.length);
+			}
+			out = page(out, categorySize(), offset, limit, order);
+			ArticleDescription e = new ArticleDescription();
+			e.setParentCategories(getNodes(id, e,
+					new ArrayList<ArticleDescription>(out.length), out,
+					addWikinames));
+			return gson.toJson(e);
+		} finally {
+			params.releaseModel();
+		}
 	}
 
 	@GET
@@ -776,17 +1462,28 @@ public class RestService {
 	@Produces({ MediaType.APPLICATION_JSON })
 	public String getBelongingEntities(
 			@QueryParam("id") @DefaultValue("30061715") String wikiId,
-			@QueryParam("wn") @DefaultValue("false") String asWikiNames) {
-		boolean addWikinames = new Boolean(asWikiNames);
-		int id = Integer.parseInt(wikiId);
-		IncomingNodes entityIncomingNodes = EntityCategoryNodeFactory
-				.getIncomingNodes(EntityCategoryNodeFactory.STD_TYPE);
-		int[] in = entityIncomingNodes.getNeighbours(id);
-		ArticleDescription e = new ArticleDescription();
-		e.setOutcomingEntities(getNodes(id, e,
-				new ArrayList<ArticleDescription>(in.length), in, addWikinames));
-		return gson.toJson(e);
-
+			@QueryParam("wn") @DefaultValue("false") String asWikiNames,
+			@QueryParam("offset") @DefaultValue("0") int offset,
+			@QueryParam("limit") @DefaultValue("-1") int limit,
+			@QueryParam("order") @DefaultValue("stored") String order,
+			@QueryParam("count") @DefaultValue("false") boolean count) {
+		params.acquireModel();
+		try {
+			boolean addWikinames = new Boolean(asWikiNames);
+			int id = Integer.parseInt(wikiId);
+			int[] in = neighbours(params.getModel()
+					.getIncomingEntityCategoryNodes(), id);
+			if (count) {
+				return count(in.length);
+			}
+			in = page(in, entityInLinks(), offset, limit, order);
+			ArticleDescription e = new ArticleDescription();
+			e.setOutcomingEntities(getNodes(id, e,
+					new ArrayList<ArticleDescription>(in.length), in, addWikinames));
+			return gson.toJson(e);
+		} finally {
+			params.releaseModel();
+		}
 	}
 
 	@GET
@@ -795,16 +1492,28 @@ public class RestService {
 	@Produces({ MediaType.APPLICATION_JSON })
 	public String getParentCategories(
 			@QueryParam("id") @DefaultValue("30061715") String wikiId,
-			@QueryParam("wn") @DefaultValue("false") String asWikiNames) {
-		boolean addWikinames = new Boolean(asWikiNames);
-		int id = Integer.parseInt(wikiId);
-		IncomingNodes categoryIncomingNodes = CategoryNodeFactory
-				.getIncomingNodes(CategoryNodeFactory.STD_TYPE);
-		int[] in = categoryIncomingNodes.getNeighbours(id);
-		ArticleDescription e = new ArticleDescription();
-		e.setParentCategories(getNodes(id, e,
-				new ArrayList<ArticleDescription>(in.length), in, addWikinames));
-		return gson.toJson(e);
+			@QueryParam("wn") @DefaultValue("false") String asWikiNames,
+			@QueryParam("offset") @DefaultValue("0") int offset,
+			@QueryParam("limit") @DefaultValue("-1") int limit,
+			@QueryParam("order") @DefaultValue("stored") String order,
+			@QueryParam("count") @DefaultValue("false") boolean count) {
+		params.acquireModel();
+		try {
+			boolean addWikinames = new Boolean(asWikiNames);
+			int id = Integer.parseInt(wikiId);
+			int[] in = neighbours(params.getModel().getIncomingCategoryNodes(),
+					id);
+			if (count) {
+				return count(in.length);
+			}
+			in = page(in, categorySize(), offset, limit, order);
+			ArticleDescription e = new ArticleDescription();
+			e.setParentCategories(getNodes(id, e,
+					new ArrayList<ArticleDescription>(in.length), in, addWikinames));
+			return gson.toJson(e);
+		} finally {
+			params.releaseModel();
+		}
 	}
 
 	@GET
@@ -813,15 +1522,43 @@ public class RestService {
 	@Produces({ MediaType.APPLICATION_JSON })
 	public String getChildCategories(
 			@QueryParam("id") @DefaultValue("8251471") String wikiId,
-			@QueryParam("wn") @DefaultValue("false") String asWikiNames) {
-		boolean addWikinames = new Boolean(asWikiNames);
-		int id = Integer.parseInt(wikiId);
-		OutcomingNodes categoryOutcomingNodes = CategoryNodeFactory
-				.getOutcomingNodes(CategoryNodeFactory.STD_TYPE);
-		int[] out = categoryOutcomingNodes.getNeighbours(id);
-		ArticleDescription e = new ArticleDescription();
-		e.setChildCategories(getNodes(id, e, new ArrayList<ArticleDescription>(
-				out.length), out, addWikinames));
-		return gson.toJson(e);
+			@QueryParam("wn") @DefaultValue("false") String asWikiNames,
+			@QueryParam("offset") @DefaultValue("0") int offset,
+			@QueryParam("limit") @DefaultValue("-1") int limit,
+			@QueryParam("order") @DefaultValue("stored") String order,
+			@QueryParam("count") @DefaultValue("false") boolean count) {
+		params.acquireModel();
+		try {
+			boolean addWikinames = new Boolean(asWikiNames);
+			int id = Integer.parseInt(wikiId);
+			int[] out = neighbours(params.getModel()
+					.getOutcomingCategoryNodes(), id);
+			if (count) {
+				return count(out.length);
+			}
+			out = page(out, categorySize(), offset, limit, order);
+			ArticleDescription e = new ArticleDescription();
+			e.setChildCategories(getNodes(id, e, new ArrayList<ArticleDescription>(
+					out.length), out, addWikinames));
+			return gson.toJson(e);
+		} finally {
+			params.releaseModel();
+		}
+	}
+
+	@GET
+	@Path("/metrics")
+	@ApiOperation(value = "Returns the latency of each stage of the tagging pipeline (count, mean, percentiles and max in milliseconds) and the hit ratio of the caches", response = String.class)
+	@Produces({ MediaType.APPLICATION_JSON })
+	public String getMetrics() {
+		return gson.toJson(MetricsRegistry.getInstance().snapshot());
+	}
+
+	@GET
+	@Path("/model")
+	@ApiOperation(value = "Returns the components of the current model, with their load time in milliseconds and their size on disk in bytes", response = String.class)
+	@Produces({ MediaType.APPLICATION_JSON })
+	public String getModel() {
+		return gson.toJson(params.getModel().getLoadReport());
 	}
 }
@@ -0,0 +1,60 @@
+/**
+ *  Copyright 2014 Diego Ceccarelli
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package it.cnr.isti.hpc.dexter.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import it.cnr.isti.hpc.dexter.util.DexterLocalParams;
+
+import javax.ws.rs.core.Response;
+
+import org.junit.Test;
+
+/**
+ * @author Diego Ceccarelli <diego.ceccarelli@isti.cnr.it>
+ *
+ *         Created on Aug 16, 2014
+ */
+public class RestServiceTest {
+
+	private static DexterLocalParams budget(String budget) {
+		DexterLocalParams params = new DexterLocalParams();
+		if (budget != null)
+			params.addParam(DexterLocalParams.BUDGET, budget);
+		return params;
+	}
+
+	@Test
+	public void testStartBudget() {
+		assertTrue(RestService.startBudget(budget(null)));
+		assertTrue(RestService.startBudget(budget("100")));
+		assertFalse(RestService.startBudget(budget("100ms")));
+		assertFalse(RestService.startBudget(budget("")));
+	}
+
+	@Test
+	public void testInvalidBudget() {
+		// the request is refused before it is spotted
+		Response response = new RestService().annotate(budget("fast"),
+				"Dexter is developed in Pisa", "5", null, null, "false",
+				"false", "text", "0.5");
+		assertEquals(500, response.getStatus());
+		assertTrue(response.getEntity().toString()
+				.contains(RestService.INVALID_BUDGET));
+	}
+
+}